@@ -1,13 +1,16 @@
 package com.ps.analyticsservices;
 
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.ps.analyticsservices.aggregation.PatientEventAggregator;
 import com.ps.analyticsservices.repository.PatientKafkaRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 import patient.events.PatientEvent;
 
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
 
 @Slf4j
 @Service
@@ -15,37 +18,57 @@ public class KakfaConsumerService
 {
 
     private final PatientKafkaRepository patientKafkaRepository;
+    private final PatientEventAggregator patientEventAggregator;
 
-    public KakfaConsumerService(PatientKafkaRepository patientKafkaRepository) {
+    public KakfaConsumerService(PatientKafkaRepository patientKafkaRepository, PatientEventAggregator patientEventAggregator) {
         this.patientKafkaRepository = patientKafkaRepository;
+        this.patientEventAggregator = patientEventAggregator;
     }
 
-    @KafkaListener(topics = "patient", groupId = "analytics-service")
-    public void ConsumeEvent(byte[] event)
+    /**
+     * Consumes the {@code patient} topic a poll at a time. Batch size and linger come from
+     * {@code analytics.consumer.*}; the whole batch is stored by one saveAll transaction whose inserts Hibernate
+     * groups into JDBC batches, and offsets are committed once the listener returns (ack-mode batch).
+     * If the insert fails the exception propagates and the container redelivers the batch, so events only
+     * reach the aggregator once they are stored.
+     */
+    @KafkaListener(topics = "patient", groupId = "analytics-service", batch = "true")
+    public void consumeEvents(List<ConsumerRecord<String, byte[]>> records)
     {
-        try {
-            PatientEvent patientEvent = PatientEvent.parseFrom(event);
+        List<PatientEventDB> events = new ArrayList<>(records.size());
+        List<Long> timestamps = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, byte[]> record : records)
+        {
+            // Tombstone after a PATIENT_DELETED event, only there so the compacted topic forgets the patient
+            if (record.value() == null)
+            {
+                continue;
+            }
+            try {
+                PatientEvent patientEvent = PatientEvent.parseFrom(record.value());
 
-            log.info("Received Patient Event: {}", patientEvent.toString());
+                PatientEventDB dbEvent = new PatientEventDB();
+                dbEvent.setEventType(patientEvent.getEventType());
+                dbEvent.setEventPatientId(patientEvent.getPatientId());
+                dbEvent.setPatientMail(patientEvent.getEmail());
+                dbEvent.setPatientName(patientEvent.getName());
+                events.add(dbEvent);
+                timestamps.add(record.timestamp());
 
-            // ... perform business logic
-
-            PatientEventDB dbEvent = new PatientEventDB();
-            dbEvent.setEventType(patientEvent.getEventType());
-            dbEvent.setEventPatientId(patientEvent.getPatientId());
-            dbEvent.setPatientMail(patientEvent.getEmail());
-            dbEvent.setPatientName(patientEvent.getName());
-
-            PatientEventDB save = patientKafkaRepository.save(dbEvent);
-
-            if(save != null)
-                {
-                log.info("Saved Patient Event: {}", save.toString());
-                }
+            } catch (InvalidProtocolBufferException e) {
+                // A poison record must not block the partition, so it is logged and skipped
+                log.error("Error Parsing PatientEvent Event from KafkaConsumer at {}-{}@{} with error : {}",
+                        record.topic(), record.partition(), record.offset(), e.getMessage());
+            }
+        }
 
-        } catch (InvalidProtocolBufferException e) {
-            log.error("Error Parsing PatientEvent Event from KafkaConsumer: {} with error : {}",event, e);
+        patientKafkaRepository.saveAll(events);
+        for (int i = 0; i < events.size(); i++)
+        {
+            PatientEventDB event = events.get(i);
+            patientEventAggregator.record(timestamps.get(i), event.getEventType(), event.getEventPatientId());
         }
+        log.debug("Saved {} Patient Events from a batch of {} records", events.size(), records.size());
     }
 
 }
@@ -0,0 +1,149 @@
+package com.ps.analyticsservices.aggregation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Fixed-size cardinality sketch: 2^precision one-byte registers, about 1.04 / sqrt(2^precision) relative
+ * error (1.6% at the default precision of 12, for 4 KiB per window). Sketches of the same precision merge
+ * losslessly, which is what lets hour and day windows, or any sliding span, be answered from smaller ones.
+ * Not thread-safe; {@link WindowRing} guards every instance.
+ */
+public final class HyperLogLog
+{
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision)
+    {
+        if (precision < 4 || precision > 18)
+        {
+            throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 18, was " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    private HyperLogLog(int precision, byte[] registers)
+    {
+        this.precision = precision;
+        this.registers = registers;
+    }
+
+    public static HyperLogLog fromBytes(byte[] registers)
+    {
+        int precision = Integer.numberOfTrailingZeros(registers.length);
+        if (registers.length != 1 << precision)
+        {
+            throw new IllegalArgumentException("HyperLogLog register count must be a power of two, was " + registers.length);
+        }
+        return new HyperLogLog(precision, registers.clone());
+    }
+
+    public void add(String value)
+    {
+        addHash(hash(value));
+    }
+
+    void addHash(long hash)
+    {
+        int index = (int) (hash >>> (64 - precision));
+        // Rank of the first set bit in the remaining bits; the sentinel bit caps it at 64 - precision + 1
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index])
+        {
+            registers[index] = rank;
+        }
+    }
+
+    public void merge(HyperLogLog other)
+    {
+        if (other.precision != precision)
+        {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog of precision " + other.precision + " into " + precision);
+        }
+        for (int i = 0; i < registers.length; i++)
+        {
+            if (other.registers[i] > registers[i])
+            {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate()
+    {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers)
+        {
+            sum += 1.0 / (1L << register);
+            if (register == 0)
+            {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        // Small-range correction: linear counting is far more accurate while many registers are still empty
+        if (estimate <= 2.5 * m && zeros > 0)
+        {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public int precision()
+    {
+        return precision;
+    }
+
+    public byte[] toBytes()
+    {
+        return registers.clone();
+    }
+
+    private static double alpha(int m)
+    {
+        return switch (m)
+        {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+
+    // Patient ids are UUIDs, whose random bits only need mixing; anything else goes through FNV-1a first
+    static long hash(String value)
+    {
+        long h;
+        try
+        {
+            UUID uuid = UUID.fromString(value);
+            h = uuid.getMostSignificantBits() ^ Long.rotateLeft(uuid.getLeastSignificantBits(), 32);
+        }
+        catch (IllegalArgumentException e)
+        {
+            h = 0xcbf29ce484222325L;
+            for (byte b : value.getBytes(StandardCharsets.UTF_8))
+            {
+                h ^= b;
+                h *= 0x100000001b3L;
+            }
+        }
+        return mix(h);
+    }
+
+    // MurmurHash3 fmix64 finaliser
+    private static long mix(long h)
+    {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
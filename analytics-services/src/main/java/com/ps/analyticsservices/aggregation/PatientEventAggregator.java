@@ -0,0 +1,148 @@
+package com.ps.analyticsservices.aggregation;
+
+import com.ps.analyticsservices.repository.PatientEventWindowRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming aggregation of patient events, fed by {@link com.ps.analyticsservices.KakfaConsumerService}.
+ * <p>
+ * Each granularity keeps a ring of its most recent tumbling windows holding counts per event type and a
+ * HyperLogLog of the patients involved. Tumbling queries read windows straight out of a ring; sliding
+ * queries merge the last N windows. Both cost O(windows) however many events have been stored, so the
+ * dashboards never scan {@code patient_event_db}.
+ * </p>
+ * <p>
+ * Windows changed since the last pass are written to {@code patient_event_window} every
+ * {@code analytics.aggregation.snapshot-interval-ms} and on shutdown, and are read back on startup.
+ * A crash can lose at most one interval of counts, since Kafka offsets are committed independently.
+ * </p>
+ */
+@Slf4j
+@Component
+public class PatientEventAggregator
+{
+    private final Map<WindowGranularity, WindowRing> rings = new EnumMap<>(WindowGranularity.class);
+    private final PatientEventWindowRepository windowRepository;
+    private final Clock clock;
+
+    public PatientEventAggregator(PatientEventWindowRepository windowRepository,
+                                  @Value("${analytics.aggregation.minute-windows:180}") int minuteWindows,
+                                  @Value("${analytics.aggregation.hour-windows:72}") int hourWindows,
+                                  @Value("${analytics.aggregation.day-windows:90}") int dayWindows,
+                                  @Value("${analytics.aggregation.hll-precision:12}") int precision)
+    {
+        this.windowRepository = windowRepository;
+        this.clock = Clock.systemUTC();
+        rings.put(WindowGranularity.MINUTE, new WindowRing(WindowGranularity.MINUTE, minuteWindows, precision));
+        rings.put(WindowGranularity.HOUR, new WindowRing(WindowGranularity.HOUR, hourWindows, precision));
+        rings.put(WindowGranularity.DAY, new WindowRing(WindowGranularity.DAY, dayWindows, precision));
+    }
+
+    public void record(long epochMillis, String eventType, String patientId)
+    {
+        for (WindowRing ring : rings.values())
+        {
+            if (!ring.record(epochMillis, eventType, patientId))
+            {
+                log.debug("Dropped {} event at {} from the {} windows, it is older than the retained range",
+                        eventType, Instant.ofEpochMilli(epochMillis), ring.granularity());
+            }
+        }
+    }
+
+    // The last `count` tumbling windows up to and including the current one, oldest first
+    public List<WindowView> tumbling(WindowGranularity granularity, int count)
+    {
+        WindowRing ring = rings.get(granularity);
+        long current = granularity.bucketOf(clock.millis());
+        return ring.windows(current - Math.min(count, ring.capacity()) + 1, current);
+    }
+
+    // One window sliding over the last `span` windows, ending with the current one
+    public WindowView sliding(WindowGranularity granularity, int span)
+    {
+        WindowRing ring = rings.get(granularity);
+        long current = granularity.bucketOf(clock.millis());
+        return ring.merge(current - Math.min(span, ring.capacity()) + 1, current);
+    }
+
+    public int capacity(WindowGranularity granularity)
+    {
+        return rings.get(granularity).capacity();
+    }
+
+    @PostConstruct
+    void restore()
+    {
+        for (WindowRing ring : rings.values())
+        {
+            WindowGranularity granularity = ring.granularity();
+            long oldest = granularity.bucketOf(clock.millis()) - ring.capacity() + 1;
+            List<PatientEventWindow> windows =
+                    windowRepository.findWindowsSince(granularity, Instant.ofEpochMilli(granularity.startOf(oldest)));
+            for (PatientEventWindow window : windows)
+            {
+                ring.restore(new WindowState(granularity,
+                        granularity.bucketOf(window.getId().getWindowStart().toEpochMilli()),
+                        window.getCounts(),
+                        window.getUniquePatients()));
+            }
+            log.info("Restored {} {} windows from snapshot", windows.size(), granularity);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.aggregation.snapshot-interval-ms:30000}",
+            initialDelayString = "${analytics.aggregation.snapshot-interval-ms:30000}")
+    public void snapshot()
+    {
+        for (WindowRing ring : rings.values())
+        {
+            List<WindowState> dirty = ring.drainDirty();
+            if (dirty.isEmpty())
+            {
+                continue;
+            }
+            try
+            {
+                windowRepository.saveAll(dirty.stream().map(PatientEventAggregator::toEntity).toList());
+            }
+            catch (RuntimeException e)
+            {
+                // Keep them dirty so the next pass tries again
+                ring.markDirty(dirty);
+                log.error("Failed to snapshot {} {} windows: {}", dirty.size(), ring.granularity(), e.getMessage());
+                continue;
+            }
+            long oldest = ring.granularity().bucketOf(clock.millis()) - ring.capacity() + 1;
+            windowRepository.deleteByIdGranularityAndIdWindowStartBefore(ring.granularity(),
+                    Instant.ofEpochMilli(ring.granularity().startOf(oldest)));
+        }
+    }
+
+    @PreDestroy
+    void flush()
+    {
+        snapshot();
+    }
+
+    private static PatientEventWindow toEntity(WindowState state)
+    {
+        PatientEventWindow window = new PatientEventWindow();
+        window.setId(new PatientEventWindowId(state.granularity(),
+                Instant.ofEpochMilli(state.granularity().startOf(state.bucket()))));
+        window.setCounts(state.counts());
+        window.setUniquePatients(state.uniquePatients());
+        return window;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ps.analyticsservices.aggregation;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.MapKeyColumn;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Periodic snapshot of one aggregation window, used to rebuild the in-memory rings after a restart
+@Entity
+@Data
+@NoArgsConstructor
+public class PatientEventWindow
+{
+    @EmbeddedId
+    private PatientEventWindowId id;
+
+    @ElementCollection
+    @CollectionTable(name = "patient_event_window_count", joinColumns = {
+            @JoinColumn(name = "granularity", referencedColumnName = "granularity"),
+            @JoinColumn(name = "window_start", referencedColumnName = "window_start")
+    })
+    @MapKeyColumn(name = "event_type")
+    @Column(name = "event_count")
+    private Map<String, Long> counts = new HashMap<>();
+
+    // Raw HyperLogLog registers
+    @Column(length = 1 << 18)
+    private byte[] uniquePatients;
+}
@@ -0,0 +1,25 @@
+package com.ps.analyticsservices.aggregation;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientEventWindowId implements Serializable
+{
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity")
+    private WindowGranularity granularity;
+    @Column(name = "window_start")
+    private Instant windowStart;
+}
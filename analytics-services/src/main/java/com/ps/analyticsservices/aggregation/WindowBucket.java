@@ -0,0 +1,38 @@
+package com.ps.analyticsservices.aggregation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One tumbling window: event counts per type plus a sketch of the patients seen in it.
+ * Mutable and unsynchronised; only ever touched under its {@link WindowRing}'s lock.
+ */
+final class WindowBucket
+{
+    final long bucket;
+    final Map<String, Long> counts;
+    final HyperLogLog uniquePatients;
+    boolean dirty;
+
+    WindowBucket(long bucket, int precision)
+    {
+        this(bucket, new HashMap<>(), new HyperLogLog(precision));
+    }
+
+    WindowBucket(long bucket, Map<String, Long> counts, HyperLogLog uniquePatients)
+    {
+        this.bucket = bucket;
+        this.counts = counts;
+        this.uniquePatients = uniquePatients;
+    }
+
+    void record(String eventType, String patientId)
+    {
+        counts.merge(eventType, 1L, Long::sum);
+        if (!patientId.isEmpty())
+        {
+            uniquePatients.add(patientId);
+        }
+        dirty = true;
+    }
+}
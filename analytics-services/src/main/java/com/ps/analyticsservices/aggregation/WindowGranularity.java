@@ -0,0 +1,33 @@
+package com.ps.analyticsservices.aggregation;
+
+import java.time.Duration;
+
+public enum WindowGranularity
+{
+    MINUTE(Duration.ofMinutes(1)),
+    HOUR(Duration.ofHours(1)),
+    DAY(Duration.ofDays(1));
+
+    private final long millis;
+
+    WindowGranularity(Duration length)
+    {
+        this.millis = length.toMillis();
+    }
+
+    public long millis()
+    {
+        return millis;
+    }
+
+    // Index of the tumbling window containing the timestamp, counted from the epoch (UTC)
+    public long bucketOf(long epochMillis)
+    {
+        return Math.floorDiv(epochMillis, millis);
+    }
+
+    public long startOf(long bucket)
+    {
+        return bucket * millis;
+    }
+}
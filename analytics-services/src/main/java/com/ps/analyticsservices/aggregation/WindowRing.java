@@ -0,0 +1,136 @@
+package com.ps.analyticsservices.aggregation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The most recent {@code capacity} tumbling windows of one granularity, kept in a circular array indexed by
+ * window number. Recording and every query touch at most {@code capacity} slots, independent of how many
+ * events have been seen. A slot is reused as soon as a newer window maps onto it; events older than the
+ * retained range are dropped.
+ */
+final class WindowRing
+{
+    private final WindowGranularity granularity;
+    private final WindowBucket[] slots;
+    private final int precision;
+
+    WindowRing(WindowGranularity granularity, int capacity, int precision)
+    {
+        this.granularity = granularity;
+        this.slots = new WindowBucket[capacity];
+        this.precision = precision;
+    }
+
+    WindowGranularity granularity()
+    {
+        return granularity;
+    }
+
+    int capacity()
+    {
+        return slots.length;
+    }
+
+    synchronized boolean record(long epochMillis, String eventType, String patientId)
+    {
+        WindowBucket bucket = slotFor(granularity.bucketOf(epochMillis));
+        if (bucket == null)
+        {
+            return false;
+        }
+        bucket.record(eventType, patientId);
+        return true;
+    }
+
+    private WindowBucket slotFor(long bucket)
+    {
+        int index = (int) Math.floorMod(bucket, (long) slots.length);
+        WindowBucket current = slots[index];
+        if (current == null || current.bucket < bucket)
+        {
+            current = new WindowBucket(bucket, precision);
+            slots[index] = current;
+        }
+        return current.bucket == bucket ? current : null;
+    }
+
+    // Windows in [fromBucket, toBucket], oldest first, skipping ones that saw no events
+    synchronized List<WindowView> windows(long fromBucket, long toBucket)
+    {
+        List<WindowView> views = new ArrayList<>();
+        for (long bucket = Math.max(fromBucket, toBucket - slots.length + 1); bucket <= toBucket; bucket++)
+        {
+            WindowBucket slot = slots[(int) Math.floorMod(bucket, (long) slots.length)];
+            if (slot != null && slot.bucket == bucket)
+            {
+                views.add(view(slot.bucket, new HashMap<>(slot.counts), slot.uniquePatients.estimate()));
+            }
+        }
+        return views;
+    }
+
+    // Single window covering [fromBucket, toBucket]: counts summed and sketches merged
+    synchronized WindowView merge(long fromBucket, long toBucket)
+    {
+        Map<String, Long> counts = new HashMap<>();
+        HyperLogLog patients = new HyperLogLog(precision);
+        for (long bucket = Math.max(fromBucket, toBucket - slots.length + 1); bucket <= toBucket; bucket++)
+        {
+            WindowBucket slot = slots[(int) Math.floorMod(bucket, (long) slots.length)];
+            if (slot != null && slot.bucket == bucket)
+            {
+                slot.counts.forEach((type, count) -> counts.merge(type, count, Long::sum));
+                patients.merge(slot.uniquePatients);
+            }
+        }
+        return new WindowView(granularity.startOf(fromBucket), granularity.startOf(toBucket + 1), counts, patients.estimate());
+    }
+
+    // Copies of every window changed since the last call, handed to the snapshot writer outside the lock
+    synchronized List<WindowState> drainDirty()
+    {
+        List<WindowState> dirty = new ArrayList<>();
+        for (WindowBucket slot : slots)
+        {
+            if (slot != null && slot.dirty)
+            {
+                slot.dirty = false;
+                dirty.add(new WindowState(granularity, slot.bucket, new HashMap<>(slot.counts), slot.uniquePatients.toBytes()));
+            }
+        }
+        return dirty;
+    }
+
+    synchronized void markDirty(List<WindowState> states)
+    {
+        for (WindowState state : states)
+        {
+            WindowBucket slot = slots[(int) Math.floorMod(state.bucket(), (long) slots.length)];
+            if (slot != null && slot.bucket == state.bucket())
+            {
+                slot.dirty = true;
+            }
+        }
+    }
+
+    synchronized void restore(WindowState state)
+    {
+        int index = (int) Math.floorMod(state.bucket(), (long) slots.length);
+        WindowBucket current = slots[index];
+        if (current == null || current.bucket < state.bucket())
+        {
+            HyperLogLog patients = state.uniquePatients().length == 1 << precision
+                    ? HyperLogLog.fromBytes(state.uniquePatients())
+                    : new HyperLogLog(precision);
+            slots[index] = new WindowBucket(state.bucket(), new HashMap<>(state.counts()), patients);
+        }
+    }
+
+    private WindowView view(long bucket, Map<String, Long> counts, long uniquePatients)
+    {
+        return new WindowView(granularity.startOf(bucket), granularity.startOf(bucket + 1), counts, uniquePatients);
+    }
+}
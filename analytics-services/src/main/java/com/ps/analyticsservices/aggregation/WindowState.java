@@ -0,0 +1,8 @@
+package com.ps.analyticsservices.aggregation;
+
+import java.util.Map;
+
+// Detached copy of a window as it is written to and read back from patient_event_window
+record WindowState(WindowGranularity granularity, long bucket, Map<String, Long> counts, byte[] uniquePatients)
+{
+}
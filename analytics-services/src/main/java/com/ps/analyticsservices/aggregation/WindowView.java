@@ -0,0 +1,12 @@
+package com.ps.analyticsservices.aggregation;
+
+import java.util.Map;
+
+// Immutable read of one window (or a merged span of windows); times are epoch millis, end exclusive
+public record WindowView(long start, long end, Map<String, Long> counts, long uniquePatients)
+{
+    public long count(String eventType)
+    {
+        return counts.getOrDefault(eventType, 0L);
+    }
+}
@@ -0,0 +1,67 @@
+package com.ps.analyticsservices.controller;
+
+import com.ps.analyticsservices.aggregation.PatientEventAggregator;
+import com.ps.analyticsservices.aggregation.WindowGranularity;
+import com.ps.analyticsservices.aggregation.WindowView;
+import com.ps.analyticsservices.dto.AnalyticsWindowDTO;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/analytics")
+public class AnalyticsController
+{
+    private static final String REGISTRATION_EVENT = "PATIENT_CREATED";
+
+    private final PatientEventAggregator patientEventAggregator;
+
+    public AnalyticsController(PatientEventAggregator patientEventAggregator)
+    {
+        this.patientEventAggregator = patientEventAggregator;
+    }
+
+    // Tumbling windows, oldest first; windows without events are left out
+    @GetMapping("/windows")
+    public ResponseEntity<List<AnalyticsWindowDTO>> getWindows(@RequestParam(defaultValue = "MINUTE") WindowGranularity granularity,
+                                                               @RequestParam(defaultValue = "60") int count)
+    {
+        List<AnalyticsWindowDTO> windows = patientEventAggregator.tumbling(granularity, clamp(granularity, count)).stream()
+                .map(window -> toDTO(granularity, window))
+                .toList();
+        return ResponseEntity.ok(windows);
+    }
+
+    // A single sliding window over the last `span` windows, ending now
+    @GetMapping("/summary")
+    public ResponseEntity<AnalyticsWindowDTO> getSummary(@RequestParam(defaultValue = "MINUTE") WindowGranularity granularity,
+                                                         @RequestParam(defaultValue = "15") int span)
+    {
+        return ResponseEntity.ok(toDTO(granularity, patientEventAggregator.sliding(granularity, clamp(granularity, span))));
+    }
+
+    private int clamp(WindowGranularity granularity, int count)
+    {
+        return Math.clamp(count, 1, patientEventAggregator.capacity(granularity));
+    }
+
+    private static AnalyticsWindowDTO toDTO(WindowGranularity granularity, WindowView window)
+    {
+        long registrations = window.count(REGISTRATION_EVENT);
+        double minutes = (window.end() - window.start()) / 60_000.0;
+        return AnalyticsWindowDTO.builder()
+                .granularity(granularity.name())
+                .start(Instant.ofEpochMilli(window.start()))
+                .end(Instant.ofEpochMilli(window.end()))
+                .counts(window.counts())
+                .uniquePatients(window.uniquePatients())
+                .registrations(registrations)
+                .registrationsPerMinute(registrations / minutes)
+                .build();
+    }
+}
@@ -0,0 +1,20 @@
+package com.ps.analyticsservices.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@Builder
+public class AnalyticsWindowDTO
+{
+    private String granularity;
+    private Instant start;
+    private Instant end;
+    private Map<String, Long> counts;
+    private long uniquePatients;
+    private long registrations;
+    private double registrationsPerMinute;
+}
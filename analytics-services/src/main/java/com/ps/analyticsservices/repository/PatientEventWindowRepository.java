@@ -0,0 +1,26 @@
+package com.ps.analyticsservices.repository;
+
+import com.ps.analyticsservices.aggregation.PatientEventWindow;
+import com.ps.analyticsservices.aggregation.PatientEventWindowId;
+import com.ps.analyticsservices.aggregation.WindowGranularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface PatientEventWindowRepository extends JpaRepository<PatientEventWindow, PatientEventWindowId> {
+
+    @Query("""
+            select distinct w from PatientEventWindow w left join fetch w.counts
+            where w.id.granularity = :granularity and w.id.windowStart >= :from
+            """)
+    List<PatientEventWindow> findWindowsSince(@Param("granularity") WindowGranularity granularity, @Param("from") Instant from);
+
+    @Transactional
+    long deleteByIdGranularityAndIdWindowStartBefore(WindowGranularity granularity, Instant before);
+}
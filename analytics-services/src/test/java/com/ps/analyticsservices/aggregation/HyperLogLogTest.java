@@ -0,0 +1,130 @@
+package com.ps.analyticsservices.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest
+{
+    private static final int PRECISION = 12;
+    // Three standard errors of 1.04 / sqrt(2^12)
+    private static final double TOLERANCE = 3 * 1.04 / Math.sqrt(1 << PRECISION);
+
+    @Test
+    void emptySketchEstimatesZero()
+    {
+        assertThat(new HyperLogLog(PRECISION).estimate()).isZero();
+    }
+
+    @Test
+    void repeatedValuesCountOnce()
+    {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        String patientId = UUID.randomUUID().toString();
+        for (int i = 0; i < 1_000; i++)
+        {
+            sketch.add(patientId);
+        }
+
+        assertThat(sketch.estimate()).isEqualTo(1);
+    }
+
+    @Test
+    void smallCardinalitiesAreNearlyExact()
+    {
+        HyperLogLog sketch = sketchOf(new Random(1), 100);
+
+        assertThat(sketch.estimate()).isCloseTo(100, within(2L));
+    }
+
+    @Test
+    void largeCardinalityStaysWithinTheStandardErrorBound()
+    {
+        for (int cardinality : new int[]{10_000, 100_000, 1_000_000})
+        {
+            long estimate = sketchOf(new Random(cardinality), cardinality).estimate();
+
+            assertThat(Math.abs(estimate - cardinality) / (double) cardinality)
+                    .as("relative error at %d", cardinality)
+                    .isLessThan(TOLERANCE);
+        }
+    }
+
+    @Test
+    void nonUuidValuesAreCountedToo()
+    {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        for (int i = 0; i < 5_000; i++)
+        {
+            sketch.add("patient-" + i);
+        }
+
+        assertThat(Math.abs(sketch.estimate() - 5_000) / 5_000.0).isLessThan(TOLERANCE);
+    }
+
+    @Test
+    void mergeEstimatesTheUnion()
+    {
+        HyperLogLog left = new HyperLogLog(PRECISION);
+        HyperLogLog right = new HyperLogLog(PRECISION);
+        Random random = new Random(7);
+        for (int i = 0; i < 30_000; i++)
+        {
+            String id = randomUuid(random);
+            // 20k only left, 10k in both
+            left.add(id);
+            if (i >= 20_000)
+            {
+                right.add(id);
+            }
+        }
+        for (int i = 0; i < 10_000; i++)
+        {
+            right.add(randomUuid(random));
+        }
+
+        left.merge(right);
+
+        assertThat(Math.abs(left.estimate() - 40_000) / 40_000.0).isLessThan(TOLERANCE);
+    }
+
+    @Test
+    void bytesRoundTripKeepsTheEstimate()
+    {
+        HyperLogLog sketch = sketchOf(new Random(3), 20_000);
+
+        HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+
+        assertThat(restored.precision()).isEqualTo(PRECISION);
+        assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    void rejectsInvalidPrecisionAndMismatchedMerges()
+    {
+        assertThatThrownBy(() -> new HyperLogLog(3)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HyperLogLog(19)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[100])).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HyperLogLog(12).merge(new HyperLogLog(10))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static HyperLogLog sketchOf(Random random, int cardinality)
+    {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        for (int i = 0; i < cardinality; i++)
+        {
+            sketch.add(randomUuid(random));
+        }
+        return sketch;
+    }
+
+    private static String randomUuid(Random random)
+    {
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+}
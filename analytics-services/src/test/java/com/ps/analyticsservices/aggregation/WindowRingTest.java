@@ -0,0 +1,111 @@
+package com.ps.analyticsservices.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WindowRingTest
+{
+    private static final long MINUTE = WindowGranularity.MINUTE.millis();
+
+    private final WindowRing ring = new WindowRing(WindowGranularity.MINUTE, 3, 10);
+
+    @Test
+    void countsEventsPerTypeAndPatientsPerWindow()
+    {
+        String patient = UUID.randomUUID().toString();
+        ring.record(10 * MINUTE + 1, "PATIENT_CREATED", patient);
+        ring.record(10 * MINUTE + 2, "PATIENT_UPDATED", patient);
+        ring.record(11 * MINUTE, "PATIENT_CREATED", UUID.randomUUID().toString());
+
+        List<WindowView> windows = ring.windows(10, 11);
+
+        assertThat(windows).hasSize(2);
+        assertThat(windows.get(0).start()).isEqualTo(10 * MINUTE);
+        assertThat(windows.get(0).end()).isEqualTo(11 * MINUTE);
+        assertThat(windows.get(0).counts()).isEqualTo(Map.of("PATIENT_CREATED", 1L, "PATIENT_UPDATED", 1L));
+        assertThat(windows.get(0).uniquePatients()).isEqualTo(1);
+        assertThat(windows.get(1).count("PATIENT_CREATED")).isEqualTo(1);
+    }
+
+    @Test
+    void rolloverReusesTheOldestSlotAndDropsEventsOlderThanTheRing()
+    {
+        for (long minute = 0; minute < 4; minute++)
+        {
+            assertThat(ring.record(minute * MINUTE, "PATIENT_CREATED", "")).isTrue();
+        }
+
+        // Minute 3 took minute 0's slot
+        assertThat(ring.record(0, "PATIENT_CREATED", "")).isFalse();
+        assertThat(ring.windows(0, 3)).extracting(WindowView::start).containsExactly(MINUTE, 2 * MINUTE, 3 * MINUTE);
+    }
+
+    @Test
+    void mergeSumsCountsAndUnionsPatientsAcrossTheSpan()
+    {
+        String shared = UUID.randomUUID().toString();
+        ring.record(5 * MINUTE, "PATIENT_CREATED", shared);
+        ring.record(6 * MINUTE, "PATIENT_UPDATED", shared);
+        ring.record(7 * MINUTE, "PATIENT_CREATED", UUID.randomUUID().toString());
+
+        WindowView merged = ring.merge(5, 7);
+
+        assertThat(merged.start()).isEqualTo(5 * MINUTE);
+        assertThat(merged.end()).isEqualTo(8 * MINUTE);
+        assertThat(merged.count("PATIENT_CREATED")).isEqualTo(2);
+        assertThat(merged.count("PATIENT_UPDATED")).isEqualTo(1);
+        assertThat(merged.uniquePatients()).isEqualTo(2);
+    }
+
+    @Test
+    void drainDirtyHandsOutEachChangeOnceUntilMarkedDirtyAgain()
+    {
+        ring.record(MINUTE, "PATIENT_CREATED", UUID.randomUUID().toString());
+
+        List<WindowState> dirty = ring.drainDirty();
+        assertThat(dirty).singleElement().satisfies(state -> {
+            assertThat(state.bucket()).isEqualTo(1);
+            assertThat(state.counts()).containsEntry("PATIENT_CREATED", 1L);
+        });
+        assertThat(ring.drainDirty()).isEmpty();
+
+        // A failed snapshot puts them back
+        ring.markDirty(dirty);
+        assertThat(ring.drainDirty()).hasSize(1);
+    }
+
+    @Test
+    void snapshotRestoresIntoAFreshRing()
+    {
+        ring.record(20 * MINUTE, "PATIENT_CREATED", UUID.randomUUID().toString());
+        ring.record(20 * MINUTE, "PATIENT_CREATED", UUID.randomUUID().toString());
+        WindowState state = ring.drainDirty().get(0);
+
+        WindowRing restored = new WindowRing(WindowGranularity.MINUTE, 3, 10);
+        restored.restore(state);
+
+        WindowView window = restored.windows(20, 20).get(0);
+        assertThat(window.count("PATIENT_CREATED")).isEqualTo(2);
+        assertThat(window.uniquePatients()).isEqualTo(2);
+        // Restored windows are already persisted
+        assertThat(restored.drainDirty()).isEmpty();
+        // and keep counting from there
+        restored.record(20 * MINUTE, "PATIENT_CREATED", "");
+        assertThat(restored.windows(20, 20).get(0).count("PATIENT_CREATED")).isEqualTo(3);
+    }
+
+    @Test
+    void restoreNeverOverwritesANewerWindow()
+    {
+        ring.record(4 * MINUTE, "PATIENT_CREATED", "");
+
+        ring.restore(new WindowState(WindowGranularity.MINUTE, 1, Map.of("PATIENT_CREATED", 9L), new byte[0]));
+
+        assertThat(ring.windows(1, 4)).extracting(WindowView::start).containsExactly(4 * MINUTE);
+    }
+}
@@ -0,0 +1,62 @@
+package com.ps.apigateway.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The {@code Cache-Control} directives the gateway acts on. Unknown directives and malformed values are
+ * ignored, which leaves the route's default TTL in charge.
+ */
+record CacheDirectives(boolean noStore, boolean noCache, boolean isPrivate, Duration maxAge, Duration sharedMaxAge) {
+
+    static final CacheDirectives NONE = new CacheDirectives(false, false, false, null, null);
+
+    static CacheDirectives parse(List<String> headerValues) {
+        if (headerValues == null || headerValues.isEmpty()) {
+            return NONE;
+        }
+        boolean noStore = false;
+        boolean noCache = false;
+        boolean isPrivate = false;
+        Duration maxAge = null;
+        Duration sharedMaxAge = null;
+        for (String value : headerValues) {
+            for (String token : value.split(",")) {
+                String directive = token.trim().toLowerCase(Locale.ROOT);
+                if (directive.equals("no-store")) {
+                    noStore = true;
+                } else if (directive.equals("no-cache") || directive.startsWith("no-cache=")) {
+                    noCache = true;
+                } else if (directive.equals("private") || directive.startsWith("private=")) {
+                    isPrivate = true;
+                } else if (directive.startsWith("max-age=")) {
+                    maxAge = seconds(directive.substring("max-age=".length()));
+                } else if (directive.startsWith("s-maxage=")) {
+                    sharedMaxAge = seconds(directive.substring("s-maxage=".length()));
+                }
+            }
+        }
+        return new CacheDirectives(noStore, noCache, isPrivate, maxAge, sharedMaxAge);
+    }
+
+    /**
+     * How long a shared cache may serve the response without asking upstream again: {@code s-maxage} wins
+     * over {@code max-age}, {@code no-cache} means zero, and without either the route default applies.
+     */
+    Duration freshness(Duration defaultTtl, Duration maxTtl) {
+        if (noCache) {
+            return Duration.ZERO;
+        }
+        Duration ttl = sharedMaxAge != null ? sharedMaxAge : maxAge != null ? maxAge : defaultTtl;
+        return ttl.compareTo(maxTtl) > 0 ? maxTtl : ttl;
+    }
+
+    private static Duration seconds(String value) {
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.replace("\"", "").trim())));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.ps.apigateway.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A fully buffered upstream response, either kept in {@link ResponseCacheStore} or handed from the request
+ * that fetched it to the identical requests that were waiting on it.
+ *
+ * @param headers   upstream headers only, without hop-by-hop headers and {@code Content-Length}
+ * @param storedAt  when the response was received or last revalidated, used for {@code Age}
+ * @param expiresAt end of freshness; past it the entry is only useful for revalidation with its ETag
+ */
+public record CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body, String etag,
+                             Instant storedAt, Instant expiresAt) {
+
+    public boolean isFresh(Instant now) {
+        return now.isBefore(expiresAt);
+    }
+
+    public long ageSeconds(Instant now) {
+        return Math.max(0, Duration.between(storedAt, now).toSeconds());
+    }
+
+    public CachedResponse revalidated(Instant now, Duration ttl) {
+        return new CachedResponse(status, headers, body, etag, now, now.plus(ttl));
+    }
+}
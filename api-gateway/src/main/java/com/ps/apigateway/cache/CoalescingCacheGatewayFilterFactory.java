@@ -0,0 +1,469 @@
+package com.ps.apigateway.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * {@code CoalescingCache} route filter for read-mostly routes.
+ * <p>
+ * Concurrent identical GETs are collapsed into one upstream call (single-flight): the first request fetches,
+ * the others wait for its response and get a copy. Responses are then kept for a short time, as long as
+ * upstream's {@code Cache-Control} ({@code s-maxage}, then {@code max-age}, else the route's
+ * {@code default-ttl}, capped at {@code max-ttl}) allows. Once stale, an entry with an ETag is revalidated
+ * with {@code If-None-Match}, and the client's own {@code If-None-Match} is answered here with a 304.
+ * </p>
+ * <p>
+ * Keys always include who is asking. By default ({@code key-scope: SUBJECT}) a response is only reused for the
+ * same JWT subject. A route can opt into {@code key-scope: ROLE} to share responses between callers with the
+ * same roles; that is only safe when upstream's answer depends on the role alone, never on the caller's own
+ * data, and {@code private} responses are then neither cached nor shared.
+ * {@code no-store}, {@code Set-Cookie}, {@code Vary: *} and bodies over {@code max-body-size} are never
+ * reused. A successful non-GET request through the route drops everything cached for it.
+ * </p>
+ * <p>
+ * The filter runs first in the route (order {@value #ORDER}), so cache hits and coalesced requests cost
+ * upstream nothing and are not charged to the caller's rate limit or the route's admission limit.
+ * </p>
+ */
+@Component
+public class CoalescingCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<CoalescingCacheGatewayFilterFactory.Config> {
+
+    static final String CACHE_STATUS_HEADER = "X-Gateway-Cache";
+
+    // Ahead of NettyWriteResponseFilter, which would otherwise write the body to the undecorated response
+    static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+
+    // Never replayed from the cache: connection-level headers, and the ones rewritten for every answer
+    private static final Set<String> NOT_STORED = caseInsensitive(
+            HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.PROXY_AUTHENTICATE, HttpHeaders.PROXY_AUTHORIZATION,
+            HttpHeaders.TE, HttpHeaders.TRAILER, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.UPGRADE,
+            HttpHeaders.CONTENT_LENGTH, HttpHeaders.AGE, HttpHeaders.RETRY_AFTER, CACHE_STATUS_HEADER);
+    // Per-caller rate-limit state, added by RequestRateLimiter further down the chain
+    private static final String RATE_LIMIT_HEADER_PREFIX = "X-RateLimit-";
+
+    private final ResponseCacheStore store;
+    private final MeterRegistry meterRegistry;
+    private final Map<ResponseCacheKey, Flight> flights = new ConcurrentHashMap<>();
+
+    public CoalescingCacheGatewayFilterFactory(ResponseCacheStore store, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.store = store;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String routeId = route == null ? "unknown" : route.getId();
+            HttpMethod method = exchange.getRequest().getMethod();
+
+            if (HttpMethod.GET.equals(method)) {
+                if (refusesCache(exchange.getRequest())) {
+                    count(routeId, "bypass");
+                    return chain.filter(exchange);
+                }
+                return key(exchange, routeId, config).flatMap(key -> serve(exchange, chain, key, config));
+            }
+            if (HttpMethod.HEAD.equals(method) || HttpMethod.OPTIONS.equals(method) || HttpMethod.TRACE.equals(method)) {
+                return chain.filter(exchange);
+            }
+            // A write through this route may change anything it serves; drop it before the client hears back
+            exchange.getResponse().beforeCommit(() -> Mono.fromRunnable(() -> {
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                if (status == null || status.is2xxSuccessful()) {
+                    store.invalidateRoute(routeId);
+                }
+            }));
+            return chain.filter(exchange);
+        }, ORDER);
+    }
+
+    private Mono<Void> serve(ServerWebExchange exchange, GatewayFilterChain chain, ResponseCacheKey key, Config config) {
+        CachedResponse cached = store.get(key);
+        if (cached != null && cached.isFresh(Instant.now())) {
+            count(key.routeId(), "hit");
+            return write(exchange, cached, "HIT");
+        }
+
+        Flight flight = new Flight(key);
+        Flight leader = flights.putIfAbsent(key, flight);
+        if (leader != null) {
+            count(key.routeId(), "coalesced");
+            return leader.result().flatMap(result -> result.isPresent()
+                    ? write(exchange, result.get(), "COALESCED")
+                    : chain.filter(exchange));
+        }
+
+        count(key.routeId(), "miss");
+        return fetch(exchange, chain, key, config, flight, cached);
+    }
+
+    private Mono<Void> fetch(ServerWebExchange exchange, GatewayFilterChain chain, ResponseCacheKey key, Config config,
+                             Flight flight, CachedResponse stale) {
+        CachedResponse revalidating = stale != null && stale.etag() != null ? stale : null;
+        List<String> clientEtags = exchange.getRequest().getHeaders().getIfNoneMatch();
+        ServerHttpRequest upstreamRequest = exchange.getRequest().mutate()
+                .headers(headers -> {
+                    // Client conditionals are answered here against the full response, upstream only sees ours
+                    headers.remove(HttpHeaders.IF_NONE_MATCH);
+                    headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+                    if (revalidating != null) {
+                        headers.setIfNoneMatch(revalidating.etag());
+                    }
+                })
+                .build();
+        CapturingResponse response = new CapturingResponse(exchange.getResponse(), key, config, flight, revalidating,
+                clientEtags, store.generation(key.routeId()));
+
+        return chain.filter(exchange.mutate().request(upstreamRequest).response(response).build())
+                // Upstream failed or the client went away: waiting requests go upstream themselves
+                .doFinally(signal -> flight.complete(null));
+    }
+
+    private Mono<Void> write(ServerWebExchange exchange, CachedResponse cached, String cacheStatus) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        cached.headers().forEach((name, values) -> {
+            if (!headers.containsKey(name)) {
+                headers.put(name, values);
+            }
+        });
+        headers.set(HttpHeaders.AGE, String.valueOf(cached.ageSeconds(Instant.now())));
+        headers.set(CACHE_STATUS_HEADER, cacheStatus);
+
+        if (notModified(exchange.getRequest().getHeaders().getIfNoneMatch(), cached)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        response.setStatusCode(cached.status());
+        headers.setContentLength(cached.body().length);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.body())));
+    }
+
+    private static Mono<ResponseCacheKey> key(ServerWebExchange exchange, String routeId, Config config) {
+        ServerHttpRequest request = exchange.getRequest();
+        String query = request.getURI().getRawQuery();
+        String uri = query == null ? request.getURI().getRawPath() : request.getURI().getRawPath() + "?" + query;
+        HttpHeaders headers = request.getHeaders();
+
+        return exchange.getPrincipal()
+                .map(principal -> partition(principal, config.getKeyScope()))
+                .defaultIfEmpty("anonymous")
+                .map(partition -> new ResponseCacheKey(routeId, partition, uri,
+                        String.join(",", headers.getOrEmpty(HttpHeaders.ACCEPT)),
+                        String.join(",", headers.getOrEmpty(HttpHeaders.ACCEPT_ENCODING))));
+    }
+
+    private static String partition(Principal principal, KeyScope scope) {
+        if (scope == KeyScope.ROLE && principal instanceof Authentication authentication) {
+            return "role:" + authentication.getAuthorities().stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .sorted()
+                    .collect(Collectors.joining(","));
+        }
+        return "sub:" + principal.getName();
+    }
+
+    private static boolean refusesCache(ServerHttpRequest request) {
+        CacheDirectives directives = CacheDirectives.parse(request.getHeaders().get(HttpHeaders.CACHE_CONTROL));
+        return directives.noCache() || directives.noStore()
+                || request.getHeaders().getOrEmpty(HttpHeaders.PRAGMA).contains("no-cache");
+    }
+
+    private static boolean notModified(List<String> clientEtags, CachedResponse response) {
+        if (clientEtags.isEmpty() || response.etag() == null || response.status().value() != HttpStatus.OK.value()) {
+            return false;
+        }
+        String etag = weak(response.etag());
+        return clientEtags.stream().anyMatch(candidate -> candidate.equals("*") || weak(candidate).equals(etag));
+    }
+
+    // If-None-Match uses weak comparison, so W/"x" and "x" match
+    private static String weak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private void count(String routeId, String outcome) {
+        meterRegistry.counter("gateway.response.cache", "route", routeId, "outcome", outcome).increment();
+    }
+
+    private static Set<String> caseInsensitive(String... names) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(List.of(names));
+        return set;
+    }
+
+    /**
+     * One upstream fetch that identical requests can wait on. Completes with the response to share, or empty
+     * if the waiters have to fetch for themselves.
+     */
+    private final class Flight {
+
+        private final ResponseCacheKey key;
+        private final Sinks.One<Optional<CachedResponse>> sink = Sinks.one();
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Flight(ResponseCacheKey key) {
+            this.key = key;
+        }
+
+        private Mono<Optional<CachedResponse>> result() {
+            return sink.asMono();
+        }
+
+        private void complete(CachedResponse response) {
+            if (done.compareAndSet(false, true)) {
+                flights.remove(key, this);
+                sink.tryEmitValue(Optional.ofNullable(response));
+            }
+        }
+    }
+
+    /**
+     * Buffers the leader's upstream body so it can be cached and handed to the waiting requests, then writes
+     * it to the leader's own client. A body that grows past {@code max-body-size} is streamed through as is.
+     */
+    private final class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final ResponseCacheKey key;
+        private final Config config;
+        private final Flight flight;
+        private final CachedResponse revalidating;
+        private final List<String> clientEtags;
+        private final long generation;
+        // Set by gateway filters before the call (rate-limit headers and the like), not part of upstream's answer
+        private final Set<String> gatewayHeaders = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+        private List<DataBuffer> held = new ArrayList<>();
+        private long heldBytes;
+        private boolean streaming;
+
+        private CapturingResponse(ServerHttpResponse delegate, ResponseCacheKey key, Config config, Flight flight,
+                                  CachedResponse revalidating, List<String> clientEtags, long generation) {
+            super(delegate);
+            this.key = key;
+            this.config = config;
+            this.flight = flight;
+            this.revalidating = revalidating;
+            this.clientEtags = clientEtags;
+            this.generation = generation;
+            this.gatewayHeaders.addAll(delegate.getHeaders().keySet());
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (getHeaders().getContentLength() > config.getMaxBodySize().toBytes()) {
+                stream();
+                return super.writeWith(body);
+            }
+            Flux<DataBuffer> upstream = Flux.from(body);
+            return super.writeWith(upstream
+                    .concatMap(this::hold)
+                    .concatWith(Flux.defer(this::complete))
+                    .doFinally(signal -> release()));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            // Streaming media types (SSE and the like) are never buffered
+            stream();
+            return super.writeAndFlushWith(body);
+        }
+
+        private Flux<DataBuffer> hold(DataBuffer buffer) {
+            if (streaming) {
+                return Flux.just(buffer);
+            }
+            held.add(buffer);
+            heldBytes += buffer.readableByteCount();
+            if (heldBytes <= config.getMaxBodySize().toBytes()) {
+                return Flux.empty();
+            }
+            stream();
+            List<DataBuffer> flushed = held;
+            held = new ArrayList<>();
+            return Flux.fromIterable(flushed);
+        }
+
+        private void stream() {
+            streaming = true;
+            flight.complete(null);
+        }
+
+        private Flux<DataBuffer> complete() {
+            if (streaming) {
+                return Flux.empty();
+            }
+            byte[] body = drain();
+            Instant now = Instant.now();
+            HttpStatusCode status = getStatusCode() == null ? HttpStatus.OK : getStatusCode();
+            HttpHeaders upstream = upstreamHeaders();
+
+            if (revalidating != null && status.value() == HttpStatus.NOT_MODIFIED.value()) {
+                List<String> cacheControl = upstream.containsKey(HttpHeaders.CACHE_CONTROL)
+                        ? upstream.get(HttpHeaders.CACHE_CONTROL)
+                        : revalidating.headers().get(HttpHeaders.CACHE_CONTROL);
+                Duration ttl = CacheDirectives.parse(cacheControl).freshness(config.getDefaultTtl(), config.getMaxTtl());
+                CachedResponse refreshed = revalidating.revalidated(now, ttl);
+                store.put(key, refreshed, generation);
+                flight.complete(refreshed);
+                count(key.routeId(), "revalidated");
+                // Answer with the cached representation rather than upstream's empty 304
+                getHeaders().putAll(refreshed.headers());
+                return respond(refreshed, "REVALIDATED");
+            }
+
+            CacheDirectives directives = CacheDirectives.parse(upstream.get(HttpHeaders.CACHE_CONTROL));
+            Duration ttl = directives.freshness(config.getDefaultTtl(), config.getMaxTtl());
+            CachedResponse response = new CachedResponse(status, HttpHeaders.readOnlyHttpHeaders(upstream), body,
+                    upstream.getETag(), now, now.plus(ttl));
+            boolean shareable = shareable(upstream, directives);
+            if (shareable && status.value() == HttpStatus.OK.value() && (ttl.isPositive() || response.etag() != null)) {
+                store.put(key, response, generation);
+            }
+            flight.complete(shareable ? response : null);
+            return respond(response, "MISS");
+        }
+
+        private boolean shareable(HttpHeaders upstream, CacheDirectives directives) {
+            if (directives.noStore() || (directives.isPrivate() && config.getKeyScope() == KeyScope.ROLE)) {
+                return false;
+            }
+            return !upstream.containsKey(HttpHeaders.SET_COOKIE) && !upstream.getVary().contains("*");
+        }
+
+        private Flux<DataBuffer> respond(CachedResponse response, String cacheStatus) {
+            getHeaders().set(CACHE_STATUS_HEADER, cacheStatus);
+            getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+            if (notModified(clientEtags, response)) {
+                setStatusCode(HttpStatus.NOT_MODIFIED);
+                getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+                return Flux.empty();
+            }
+            setStatusCode(response.status());
+            getHeaders().setContentLength(response.body().length);
+            return response.body().length == 0 ? Flux.empty() : Flux.just(bufferFactory().wrap(response.body()));
+        }
+
+        private HttpHeaders upstreamHeaders() {
+            HttpHeaders upstream = new HttpHeaders();
+            getHeaders().forEach((name, values) -> {
+                if (!gatewayHeaders.contains(name) && !NOT_STORED.contains(name)
+                        && !name.regionMatches(true, 0, RATE_LIMIT_HEADER_PREFIX, 0, RATE_LIMIT_HEADER_PREFIX.length())) {
+                    upstream.put(name, List.copyOf(values));
+                }
+            });
+            return upstream;
+        }
+
+        private byte[] drain() {
+            byte[] body = new byte[(int) heldBytes];
+            int offset = 0;
+            for (DataBuffer buffer : held) {
+                int length = buffer.readableByteCount();
+                buffer.read(body, offset, length);
+                offset += length;
+                DataBufferUtils.release(buffer);
+            }
+            held = new ArrayList<>();
+            return body;
+        }
+
+        private void release() {
+            held.forEach(DataBufferUtils::release);
+            held = new ArrayList<>();
+        }
+    }
+
+    public enum KeyScope {
+        // One partition per JWT subject; the default
+        SUBJECT,
+        // One partition per set of roles; opt-in for routes whose responses do not depend on who the caller is
+        ROLE
+    }
+
+    public static class Config {
+        // Freshness of responses that come without max-age or s-maxage
+        private Duration defaultTtl = Duration.ofSeconds(1);
+        // Upper bound on whatever freshness upstream asks for
+        private Duration maxTtl = Duration.ofSeconds(30);
+        // ROLE has to be asked for per route, see KeyScope
+        private KeyScope keyScope = KeyScope.SUBJECT;
+        // Larger bodies are streamed through, neither cached nor shared
+        private DataSize maxBodySize = DataSize.ofKilobytes(512);
+
+        public Duration getDefaultTtl() {
+            return defaultTtl;
+        }
+
+        public Config setDefaultTtl(Duration defaultTtl) {
+            this.defaultTtl = defaultTtl;
+            return this;
+        }
+
+        public Duration getMaxTtl() {
+            return maxTtl;
+        }
+
+        public Config setMaxTtl(Duration maxTtl) {
+            this.maxTtl = maxTtl;
+            return this;
+        }
+
+        public KeyScope getKeyScope() {
+            return keyScope;
+        }
+
+        public Config setKeyScope(KeyScope keyScope) {
+            this.keyScope = keyScope;
+            return this;
+        }
+
+        public DataSize getMaxBodySize() {
+            return maxBodySize;
+        }
+
+        public Config setMaxBodySize(DataSize maxBodySize) {
+            this.maxBodySize = maxBodySize;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.ps.apigateway.cache;
+
+/**
+ * Identity of a cacheable GET. {@code partition} carries who is asking (subject or role, see
+ * {@link CoalescingCacheGatewayFilterFactory.KeyScope}), so a response is never served across that boundary.
+ * The negotiation headers are part of the key because upstream may answer them differently.
+ */
+public record ResponseCacheKey(String routeId, String partition, String uri, String accept, String acceptEncoding) {
+}
@@ -0,0 +1,98 @@
+package com.ps.apigateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory store behind the {@code CoalescingCache} route filter, bounded by total body size.
+ * <p>
+ * Entries outlive their freshness by {@code gateway.response-cache.stale-retention} when they carry an ETag,
+ * so the next request can revalidate with {@code If-None-Match} instead of downloading the body again.
+ * Every route has a generation that successful writes through the gateway bump; a response fetched before
+ * a write is not stored after it. Hit rate and size are exported as {@code cache.*{cache=gatewayResponses}}.
+ * </p>
+ */
+@Component
+public class ResponseCacheStore {
+
+    private final Cache<ResponseCacheKey, CachedResponse> cache;
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public ResponseCacheStore(MeterRegistry meterRegistry,
+                              @Value("${gateway.response-cache.maximum-size:64MB}") DataSize maximumSize,
+                              @Value("${gateway.response-cache.stale-retention:60s}") Duration staleRetention) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((ResponseCacheKey key, CachedResponse response) -> response.body().length + 512)
+                .expireAfter(new ExpireAfterFreshness(staleRetention))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gatewayResponses");
+    }
+
+    public CachedResponse get(ResponseCacheKey key) {
+        return cache.getIfPresent(key);
+    }
+
+    public long generation(String routeId) {
+        return generations.computeIfAbsent(routeId, id -> new AtomicLong()).get();
+    }
+
+    /**
+     * Stores the response unless the route was written to since {@code generation} was read.
+     */
+    public void put(ResponseCacheKey key, CachedResponse response, long generation) {
+        if (generation(key.routeId()) != generation) {
+            return;
+        }
+        cache.put(key, response);
+        // invalidateRoute may have bumped the generation and swept the route between the check and the put.
+        // If it bumped after this re-check, its sweep runs after the put and finds the entry itself
+        if (generation(key.routeId()) != generation) {
+            cache.asMap().remove(key, response);
+        }
+    }
+
+    public void invalidateRoute(String routeId) {
+        generations.computeIfAbsent(routeId, id -> new AtomicLong()).incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> key.routeId().equals(routeId));
+    }
+
+    private static final class ExpireAfterFreshness implements Expiry<ResponseCacheKey, CachedResponse> {
+
+        private final Duration staleRetention;
+
+        private ExpireAfterFreshness(Duration staleRetention) {
+            this.staleRetention = staleRetention;
+        }
+
+        @Override
+        public long expireAfterCreate(ResponseCacheKey key, CachedResponse response, long currentTime) {
+            Duration fresh = Duration.between(Instant.now(), response.expiresAt());
+            Duration lifetime = response.etag() == null ? fresh : fresh.plus(staleRetention);
+            return Math.max(0, lifetime.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(ResponseCacheKey key, CachedResponse response, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, response, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ResponseCacheKey key, CachedResponse response, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.ps.apigateway.config;
+
+import com.ps.apigateway.ratelimit.StripedTokenBucketStore;
+import com.ps.apigateway.ratelimit.SubjectKeyResolver;
+import com.ps.apigateway.ratelimit.TokenBucketRateLimiter;
+import com.ps.apigateway.ratelimit.TokenBucketStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Backs the {@code RequestRateLimiter} route filter. Being the only RateLimiter and KeyResolver beans, these
+ * are its defaults, so routes only need to set their limits.
+ */
+@Configuration
+public class RateLimitConfig
+{
+    @Bean
+    @ConditionalOnMissingBean(TokenBucketStore.class)
+    public TokenBucketStore stripedTokenBucketStore(@Value("${gateway.rate-limit.stripes:64}") int stripes)
+    {
+        return new StripedTokenBucketStore(stripes);
+    }
+
+    @Bean
+    public TokenBucketRateLimiter tokenBucketRateLimiter(TokenBucketStore tokenBucketStore,
+                                                         ConfigurationService configurationService,
+                                                         MeterRegistry meterRegistry,
+                                                         @Value("${gateway.rate-limit.replenish-rate:10}") int replenishRate,
+                                                         @Value("${gateway.rate-limit.burst-capacity:20}") int burstCapacity)
+    {
+        TokenBucketRateLimiter.Config defaults = new TokenBucketRateLimiter.Config()
+                .setReplenishRate(replenishRate)
+                .setBurstCapacity(burstCapacity);
+        return new TokenBucketRateLimiter(tokenBucketStore, configurationService, meterRegistry, defaults);
+    }
+
+    @Bean
+    public SubjectKeyResolver subjectKeyResolver()
+    {
+        return new SubjectKeyResolver();
+    }
+}
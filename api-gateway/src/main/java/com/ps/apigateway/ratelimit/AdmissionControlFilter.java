@@ -0,0 +1,112 @@
+package com.ps.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the number of requests each route has in flight to its backend. Over the limit, a request is answered
+ * 429 at once instead of queueing behind the others, so a burst degrades into fast rejections rather than
+ * exhausting the backend's connection and DB pools and slowing every caller down.
+ * <p>
+ * The limit is {@code gateway.admission.routes.<routeId>.max-concurrent}, falling back to
+ * {@code gateway.admission.default-max-concurrent}; zero or less disables admission control for a route.
+ * Runs after the route's own filters (order {@value #ORDER}), so requests already refused by the rate limiter
+ * never take a slot.
+ * </p>
+ */
+@Component
+public class AdmissionControlFilter implements GlobalFilter, Ordered {
+
+    static final int ORDER = 10;
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final int defaultMaxConcurrent;
+    private final Map<String, RouteLimit> limits = new ConcurrentHashMap<>();
+
+    public AdmissionControlFilter(Environment environment, MeterRegistry meterRegistry,
+                                  @Value("${gateway.admission.default-max-concurrent:256}") int defaultMaxConcurrent) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.defaultMaxConcurrent = defaultMaxConcurrent;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        RouteLimit limit = limits.computeIfAbsent(route.getId(), this::newLimit);
+        if (limit.max <= 0) {
+            return chain.filter(exchange);
+        }
+        if (!limit.tryAcquire()) {
+            limit.rejected.increment();
+            exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            exchange.getResponse().getHeaders().set("Retry-After", "1");
+            return exchange.getResponse().setComplete();
+        }
+        return chain.filter(exchange).doFinally(signal -> limit.release());
+    }
+
+    private RouteLimit newLimit(String routeId) {
+        int max = environment.getProperty("gateway.admission.routes." + routeId + ".max-concurrent", Integer.class, defaultMaxConcurrent);
+        RouteLimit limit = new RouteLimit(max, Counter.builder("gateway.admission.rejected")
+                .description("Requests refused with 429 because the route was at its concurrency limit")
+                .tag("route", routeId)
+                .register(meterRegistry));
+        Gauge.builder("gateway.admission.in.flight", limit.inFlight, AtomicInteger::get)
+                .tag("route", routeId)
+                .register(meterRegistry);
+        return limit;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private static final class RouteLimit {
+        private final int max;
+        private final Counter rejected;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private RouteLimit(int max, Counter rejected) {
+            this.max = max;
+            this.rejected = rejected;
+        }
+
+        private boolean tryAcquire() {
+            while (true) {
+                int current = inFlight.get();
+                if (current >= max) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void release() {
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.ps.apigateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * In-memory token buckets split over a fixed number of lock stripes, so concurrent requests for different
+ * subjects rarely contend on the same lock, and no request ever blocks for long.
+ * <p>
+ * A bucket that has been idle long enough to refill completely is indistinguishable from a new one, so
+ * such buckets are swept out of their stripe every few thousand operations. This keeps memory
+ * proportional to the subjects active in the last refill window.
+ * </p>
+ */
+public class StripedTokenBucketStore implements TokenBucketStore {
+
+    private static final int SWEEP_EVERY = 4096;
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    public StripedTokenBucketStore(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.mask = size - 1;
+    }
+
+    @Override
+    public Mono<ConsumeResult> tryConsume(String key, BucketSpec spec, int permits) {
+        return Mono.just(consume(key, spec, permits, System.nanoTime()));
+    }
+
+    ConsumeResult consume(String key, BucketSpec spec, int permits, long now) {
+        int hash = key.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & mask];
+        synchronized (stripe) {
+            if (++stripe.operations % SWEEP_EVERY == 0) {
+                stripe.sweep(now);
+            }
+            Bucket bucket = stripe.buckets.computeIfAbsent(key, k -> new Bucket(spec.capacity(), now));
+            bucket.refill(spec, now);
+            if (bucket.tokens >= permits) {
+                bucket.tokens -= permits;
+                bucket.markFullAt(spec, now);
+                return new ConsumeResult(true, (long) bucket.tokens, 0);
+            }
+            bucket.markFullAt(spec, now);
+            long retryAfterMillis = (long) Math.ceil((permits - bucket.tokens) / spec.refillPerSecond() * 1_000);
+            return new ConsumeResult(false, (long) bucket.tokens, retryAfterMillis);
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.buckets.size();
+            }
+        }
+        return size;
+    }
+
+    private static final class Stripe {
+        private final Map<String, Bucket> buckets = new HashMap<>();
+        private long operations;
+
+        private void sweep(long now) {
+            Iterator<Bucket> it = buckets.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().isFullAt(now)) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long lastRefillNanos;
+        private long fullAtNanos;
+
+        private Bucket(int capacity, long now) {
+            this.tokens = capacity;
+            this.lastRefillNanos = now;
+            this.fullAtNanos = now;
+        }
+
+        private void refill(BucketSpec spec, long now) {
+            double elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+            tokens = Math.min(spec.capacity(), tokens + elapsedSeconds * spec.refillPerSecond());
+            lastRefillNanos = now;
+        }
+
+        private void markFullAt(BucketSpec spec, long now) {
+            fullAtNanos = now + (long) ((spec.capacity() - tokens) / spec.refillPerSecond() * 1_000_000_000L);
+        }
+
+        private boolean isFullAt(long now) {
+            return now - fullAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ps.apigateway.ratelimit;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+
+/**
+ * Rate-limit key of a request: the JWT subject put into the security context by JwtAuthenticationFilter,
+ * or the client address for public routes such as /auth/**, where there is no subject yet.
+ */
+public class SubjectKeyResolver implements KeyResolver {
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .map(subject -> "sub:" + subject)
+                .switchIfEmpty(Mono.fromSupplier(() -> "ip:" + clientAddress(exchange)));
+    }
+
+    private static String clientAddress(ServerWebExchange exchange) {
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        return remote == null || remote.getAddress() == null ? "unknown" : remote.getAddress().getHostAddress();
+    }
+}
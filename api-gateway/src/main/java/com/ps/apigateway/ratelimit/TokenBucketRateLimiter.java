@@ -0,0 +1,106 @@
+package com.ps.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Token-bucket {@code RateLimiter} for the {@code RequestRateLimiter} route filter. Buckets are kept per route
+ * and per key, the key being the JWT subject resolved by {@link SubjectKeyResolver}. Limits are set per route
+ * with {@code token-bucket-rate-limiter.*} filter args, or fall back to {@code gateway.rate-limit.*}.
+ * <p>
+ * If the bucket store fails the request is let through. A broken shared store must not take the gateway
+ * down with it.
+ * </p>
+ */
+public class TokenBucketRateLimiter extends AbstractRateLimiter<TokenBucketRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "token-bucket-rate-limiter";
+
+    private static final Logger log = LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+
+    private final TokenBucketStore store;
+    private final Config defaultConfig;
+    private final MeterRegistry meterRegistry;
+
+    public TokenBucketRateLimiter(TokenBucketStore store, ConfigurationService configurationService,
+                                  MeterRegistry meterRegistry, Config defaultConfig) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.store = store;
+        this.meterRegistry = meterRegistry;
+        this.defaultConfig = defaultConfig;
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        TokenBucketStore.BucketSpec spec = new TokenBucketStore.BucketSpec(config.getBurstCapacity(), config.getReplenishRate());
+
+        return store.tryConsume(routeId + "|" + id, spec, config.getRequestedTokens())
+                .map(result -> {
+                    count(routeId, result.allowed() ? "allowed" : "limited");
+                    return new Response(result.allowed(), headers(config, result));
+                })
+                .onErrorResume(e -> {
+                    log.warn("Rate limit store failed for route {}, letting the request through: {}", routeId, e.getMessage());
+                    count(routeId, "store_error");
+                    return Mono.just(new Response(true, Map.of()));
+                });
+    }
+
+    private void count(String routeId, String outcome) {
+        meterRegistry.counter("gateway.ratelimit.requests", "route", routeId, "outcome", outcome).increment();
+    }
+
+    private static Map<String, String> headers(Config config, TokenBucketStore.ConsumeResult result) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("X-RateLimit-Remaining", String.valueOf(result.remaining()));
+        headers.put("X-RateLimit-Replenish-Rate", String.valueOf(config.getReplenishRate()));
+        headers.put("X-RateLimit-Burst-Capacity", String.valueOf(config.getBurstCapacity()));
+        if (!result.allowed()) {
+            headers.put("Retry-After", String.valueOf(Math.max(1, (result.retryAfterMillis() + 999) / 1000)));
+        }
+        return headers;
+    }
+
+    public static class Config {
+        // Tokens added per second, i.e. the sustained request rate
+        private int replenishRate = 10;
+        // Bucket size, i.e. how many requests may arrive at once
+        private int burstCapacity = 20;
+        private int requestedTokens = 1;
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Config setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Config setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Config setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.ps.apigateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Where token buckets live. The default is {@link StripedTokenBucketStore}, which is local to one gateway
+ * instance. To share limits between several gateway instances, register a {@code TokenBucketStore} bean
+ * backed by a shared store, e.g. a Redis script. Tests can register a stand-in the same way. Either one
+ * replaces the in-memory default.
+ */
+public interface TokenBucketStore {
+
+    /**
+     * Refills the bucket for {@code key} for the time elapsed since it was last touched, then takes
+     * {@code permits} tokens from it if there are enough.
+     */
+    Mono<ConsumeResult> tryConsume(String key, BucketSpec spec, int permits);
+
+    // capacity = burst size, refillPerSecond = sustained rate
+    record BucketSpec(int capacity, double refillPerSecond) {}
+
+    record ConsumeResult(boolean allowed, long remaining, long retryAfterMillis) {}
+}
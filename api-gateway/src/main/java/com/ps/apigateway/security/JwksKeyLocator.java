@@ -0,0 +1,167 @@
+package com.ps.apigateway.security;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.ProtectedHeader;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.security.Key;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Public keys published by auth-service at {@code gateway.jwt.jwks.uri}, looked up by the token's {@code kid}.
+ * <p>
+ * The key set is fetched at startup and refreshed in the background every {@code refresh-interval}
+ * (every {@code retry-interval} while fetches fail), so verification never waits on the network. A token
+ * with an unknown {@code kid} is rejected and triggers an early refetch, at most once per
+ * {@code min-refetch-interval}. Only public keys are ever trusted, so a shared-secret token cannot pass.
+ * Exported meters: {@code gateway.jwt.jwks.keys} and {@code gateway.jwt.jwks.refresh{outcome}}.
+ * </p>
+ */
+@Component
+public class JwksKeyLocator extends LocatorAdapter<Key> {
+
+    private static final Logger log = LoggerFactory.getLogger(JwksKeyLocator.class);
+
+    private final WebClient webClient;
+    private final String jwksUri;
+    private final Duration refreshInterval;
+    private final Duration retryInterval;
+    private final Duration minRefetchInterval;
+    private final Counter refreshSucceeded;
+    private final Counter refreshFailed;
+
+    private volatile Map<String, Key> keys = Map.of();
+    private final AtomicLong lastRefetchAt = new AtomicLong(System.nanoTime() - Duration.ofDays(1).toNanos());
+    private volatile Disposable scheduled;
+    private volatile boolean stopped;
+
+    public JwksKeyLocator(WebClient.Builder webClientBuilder,
+                          MeterRegistry meterRegistry,
+                          @Value("${gateway.jwt.jwks.uri}") String jwksUri,
+                          @Value("${gateway.jwt.jwks.refresh-interval:5m}") Duration refreshInterval,
+                          @Value("${gateway.jwt.jwks.retry-interval:5s}") Duration retryInterval,
+                          @Value("${gateway.jwt.jwks.min-refetch-interval:10s}") Duration minRefetchInterval) {
+        this.webClient = webClientBuilder.build();
+        this.jwksUri = jwksUri;
+        this.refreshInterval = refreshInterval;
+        this.retryInterval = retryInterval;
+        this.minRefetchInterval = minRefetchInterval;
+        this.refreshSucceeded = refreshCounter(meterRegistry, "success");
+        this.refreshFailed = refreshCounter(meterRegistry, "failure");
+        Gauge.builder("gateway.jwt.jwks.keys", this, locator -> locator.keys.size())
+                .description("Token signing keys currently trusted by the gateway")
+                .register(meterRegistry);
+    }
+
+    private static Counter refreshCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("gateway.jwt.jwks.refresh")
+                .description("Fetches of auth-service's JSON Web Key Set")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        scheduleRefresh(Duration.ZERO);
+    }
+
+    @PreDestroy
+    void stop() {
+        stopped = true;
+        Disposable current = scheduled;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    @Override
+    protected Key locate(ProtectedHeader header) {
+        String kid = header.getKeyId();
+        if (kid == null) {
+            throw new JwtException("Token has no kid header");
+        }
+        Key key = keys.get(kid);
+        if (key == null) {
+            refetchSoon();
+            throw new JwtException("Token signed with unknown key " + kid);
+        }
+        return key;
+    }
+
+    private void scheduleRefresh(Duration delay) {
+        if (stopped) {
+            return;
+        }
+        scheduled = Mono.delay(delay)
+                .then(refresh())
+                .subscribe(
+                        ok -> scheduleRefresh(refreshInterval),
+                        error -> scheduleRefresh(retryInterval));
+    }
+
+    // A new key normally shows up through the scheduled refresh first; this covers a gateway that missed it
+    private void refetchSoon() {
+        long now = System.nanoTime();
+        long last = lastRefetchAt.get();
+        if (now - last >= minRefetchInterval.toNanos() && lastRefetchAt.compareAndSet(last, now)) {
+            refresh().onErrorComplete().subscribe();
+        }
+    }
+
+    Mono<Boolean> refresh() {
+        return webClient.get()
+                .uri(jwksUri)
+                .retrieve()
+                .bodyToMono(String.class)
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Empty response from " + jwksUri)))
+                .timeout(Duration.ofSeconds(5))
+                .map(JwksKeyLocator::parse)
+                .map(fetched -> {
+                    if (fetched.isEmpty()) {
+                        // Dropping every key would reject all traffic; keep what we have and try again later
+                        throw new IllegalStateException("Key set at " + jwksUri + " contains no usable signing keys");
+                    }
+                    if (!fetched.keySet().equals(keys.keySet())) {
+                        log.info("Trusting token signing keys {}", fetched.keySet());
+                    }
+                    keys = fetched;
+                    refreshSucceeded.increment();
+                    return true;
+                })
+                .doOnError(error -> {
+                    refreshFailed.increment();
+                    log.warn("Could not refresh token signing keys from {}: {}", jwksUri, error.getMessage());
+                });
+    }
+
+    private static Map<String, Key> parse(String json) {
+        JwkSet jwkSet = Jwks.setParser().build().parse(json);
+        Map<String, Key> parsed = new HashMap<>();
+        for (Jwk<?> jwk : jwkSet.getKeys()) {
+            if (jwk instanceof PublicJwk<?> publicJwk && jwk.getId() != null
+                    && (publicJwk.getPublicKeyUse() == null || publicJwk.getPublicKeyUse().equals("sig"))) {
+                parsed.put(jwk.getId(), publicJwk.toKey());
+            }
+        }
+        return Map.copyOf(parsed);
+    }
+}
@@ -1,7 +1,6 @@
 package com.ps.apigateway.security;
 
 
-import io.jsonwebtoken.Claims;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.server.reactive.ServerHttpRequest;
@@ -15,14 +14,15 @@ import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Optional;
 
 @Component
 public class JwtAuthenticationFilter implements WebFilter {
 
-    private final JwtUtil jwtUtil;
+    private final VerifiedClaimsCache verifiedClaimsCache;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil) {
-        this.jwtUtil = jwtUtil;
+    public JwtAuthenticationFilter(VerifiedClaimsCache verifiedClaimsCache) {
+        this.verifiedClaimsCache = verifiedClaimsCache;
     }
 
     @Override
@@ -45,16 +45,17 @@ public class JwtAuthenticationFilter implements WebFilter {
         String token = authHeader.substring(7);
 
         // 3 . Now we going to validate our Token, lessgo btw token se bar bar toeless keeri yaad ajata hai hahaaha
-        if(!jwtUtil.isTokenValid(token))
+        //    Verified once per token, later requests with the same token are served from the cache
+        Optional<VerifiedToken> verified = verifiedClaimsCache.verify(token);
+        if(verified.isEmpty())
         {
             exchange.getResponse().setStatusCode(HttpStatusCode.valueOf(403));
             return exchange.getResponse().setComplete();
         }
 
         //4. Extracting identity and role
-        Claims claims = jwtUtil.extractAllClaims(token);
-        String email = claims.getSubject();
-        String role = claims.get("role",String.class);
+        String email = verified.get().subject();
+        String role = verified.get().role();
 
         //5. Building Authorities : ROLE_USER / ROLE_ADMIN
         SimpleGrantedAuthority authority = new  SimpleGrantedAuthority("ROLE_"+role);
@@ -0,0 +1,104 @@
+package com.ps.apigateway.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Verified claims keyed by the SHA-256 digest of the token, so raw bearer tokens are never held in memory.
+ * <p>
+ * An unseen token is parsed and verified exactly once, even when concurrent requests carry it, because
+ * Caffeine runs the loader once per key. Each entry expires at the token's own {@code exp}, so a cached
+ * token never outlives its validity. Invalid tokens are not cached, so a flood of garbage tokens cannot
+ * evict the valid ones. Hit rate and size are exported as {@code cache.*{cache=jwtClaims}}.
+ * </p>
+ */
+@Component
+public class VerifiedClaimsCache {
+
+    private static final Logger log = LoggerFactory.getLogger(VerifiedClaimsCache.class);
+
+    private final JwtUtil jwtUtil;
+    private final Cache<String, VerifiedToken> cache;
+
+    public VerifiedClaimsCache(JwtUtil jwtUtil,
+                               MeterRegistry meterRegistry,
+                               @Value("${gateway.jwt.claims-cache.maximum-size:100000}") long maximumSize) {
+        this.jwtUtil = jwtUtil;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ExpireAtTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwtClaims");
+    }
+
+    public Optional<VerifiedToken> verify(String token) {
+        VerifiedToken verified = cache.get(digest(token), key -> parse(token));
+        if (verified == null || verified.isExpired(Instant.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(verified);
+    }
+
+    private VerifiedToken parse(String token) {
+        try {
+            Claims claims = jwtUtil.extractAllClaims(token);
+            Date expiration = claims.getExpiration();
+            String subject = claims.getSubject();
+            // Tokens without an expiry would stay cached forever, so they are rejected outright
+            if (expiration == null || subject == null || subject.isEmpty()) {
+                log.debug("Rejecting token without subject or expiry");
+                return null;
+            }
+            return new VerifiedToken(subject, claims.get("role", String.class), expiration.toInstant());
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejecting invalid token: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class ExpireAtTokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), token.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.ps.apigateway.security;
+
+import java.time.Instant;
+
+// What the gateway needs from a token once its signature and expiry have been checked
+public record VerifiedToken(String subject, String role, Instant expiresAt) {
+
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
@@ -0,0 +1,68 @@
+package com.ps.apigateway.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheDirectivesTest {
+
+    private static final Duration DEFAULT_TTL = Duration.ofSeconds(1);
+    private static final Duration MAX_TTL = Duration.ofSeconds(30);
+
+    @Test
+    void missingHeaderLeavesTheRouteDefault() {
+        assertThat(CacheDirectives.parse(null)).isEqualTo(CacheDirectives.NONE);
+        assertThat(CacheDirectives.parse(List.of())).isEqualTo(CacheDirectives.NONE);
+        assertThat(CacheDirectives.NONE.freshness(DEFAULT_TTL, MAX_TTL)).isEqualTo(DEFAULT_TTL);
+    }
+
+    @Test
+    void readsDirectivesCaseInsensitivelyAcrossHeaderValues() {
+        CacheDirectives directives = CacheDirectives.parse(List.of("Private, MAX-AGE=10", " no-store "));
+
+        assertThat(directives.isPrivate()).isTrue();
+        assertThat(directives.noStore()).isTrue();
+        assertThat(directives.noCache()).isFalse();
+        assertThat(directives.maxAge()).isEqualTo(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void recognisesFieldNameForms() {
+        CacheDirectives directives = CacheDirectives.parse(List.of("no-cache=\"Set-Cookie\", private=\"Authorization\""));
+
+        assertThat(directives.noCache()).isTrue();
+        assertThat(directives.isPrivate()).isTrue();
+    }
+
+    @Test
+    void sharedMaxAgeWinsOverMaxAge() {
+        CacheDirectives directives = CacheDirectives.parse(List.of("max-age=5, s-maxage=\"20\""));
+
+        assertThat(directives.sharedMaxAge()).isEqualTo(Duration.ofSeconds(20));
+        assertThat(directives.freshness(DEFAULT_TTL, MAX_TTL)).isEqualTo(Duration.ofSeconds(20));
+    }
+
+    @Test
+    void freshnessIsCappedAtTheRouteMaximum() {
+        assertThat(CacheDirectives.parse(List.of("max-age=3600")).freshness(DEFAULT_TTL, MAX_TTL)).isEqualTo(MAX_TTL);
+    }
+
+    @Test
+    void noCacheMeansAlwaysRevalidate() {
+        assertThat(CacheDirectives.parse(List.of("no-cache, max-age=10")).freshness(DEFAULT_TTL, MAX_TTL))
+                .isEqualTo(Duration.ZERO);
+    }
+
+    @Test
+    void malformedOrNegativeAgesAreIgnoredOrClamped() {
+        CacheDirectives malformed = CacheDirectives.parse(List.of("max-age=soon, foo=bar"));
+        CacheDirectives negative = CacheDirectives.parse(List.of("max-age=-5"));
+
+        assertThat(malformed.maxAge()).isNull();
+        assertThat(malformed.freshness(DEFAULT_TTL, MAX_TTL)).isEqualTo(DEFAULT_TTL);
+        assertThat(negative.maxAge()).isEqualTo(Duration.ZERO);
+    }
+}
@@ -0,0 +1,200 @@
+package com.ps.apigateway.cache;
+
+import com.ps.apigateway.cache.CoalescingCacheGatewayFilterFactory.Config;
+import com.ps.apigateway.cache.CoalescingCacheGatewayFilterFactory.KeyScope;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoalescingCacheGatewayFilterFactoryTest {
+
+    private static final String BODY = "{\"id\":\"1\",\"name\":\"Ada\"}";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ResponseCacheStore store = new ResponseCacheStore(meterRegistry, DataSize.ofMegabytes(1), Duration.ofSeconds(60));
+    private final CoalescingCacheGatewayFilterFactory factory = new CoalescingCacheGatewayFilterFactory(store, meterRegistry);
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    @Test
+    void concurrentIdenticalGetsShareOneUpstreamCall() {
+        GatewayFilter filter = filter(new Config());
+        Sinks.Empty<Void> upstreamReady = Sinks.empty();
+        GatewayFilterChain chain = e -> upstreamReady.asMono().then(Mono.defer(() -> upstream(BODY).filter(e)));
+
+        ServerWebExchange leader = get("alice", "ROLE_USER");
+        ServerWebExchange follower = get("alice", "ROLE_USER");
+        filter.filter(leader, chain).subscribe();
+
+        StepVerifier.create(filter.filter(follower, chain))
+                .then(upstreamReady::tryEmitEmpty)
+                .verifyComplete();
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(body(leader)).isEqualTo(BODY);
+        assertThat(body(follower)).isEqualTo(BODY);
+        assertThat(cacheStatus(leader)).isEqualTo("MISS");
+        assertThat(cacheStatus(follower)).isEqualTo("COALESCED");
+    }
+
+    @Test
+    void servesAFreshResponseFromTheCache() {
+        GatewayFilter filter = filter(new Config().setDefaultTtl(Duration.ofSeconds(30)));
+
+        ServerWebExchange first = get("alice", "ROLE_USER");
+        StepVerifier.create(filter.filter(first, upstream(BODY))).verifyComplete();
+        ServerWebExchange second = get("alice", "ROLE_USER");
+        StepVerifier.create(filter.filter(second, upstream(BODY))).verifyComplete();
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(body(second)).isEqualTo(BODY);
+        assertThat(cacheStatus(second)).isEqualTo("HIT");
+    }
+
+    @Test
+    void subjectScopeIsTheDefaultAndNeverSharesBetweenCallers() {
+        Config config = new Config().setDefaultTtl(Duration.ofSeconds(30));
+        GatewayFilter filter = filter(config);
+
+        StepVerifier.create(filter.filter(get("alice", "ROLE_USER"), upstream(BODY))).verifyComplete();
+        ServerWebExchange bob = get("bob", "ROLE_USER");
+        StepVerifier.create(filter.filter(bob, upstream("{\"id\":\"2\"}"))).verifyComplete();
+
+        assertThat(config.getKeyScope()).isEqualTo(KeyScope.SUBJECT);
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(body(bob)).isEqualTo("{\"id\":\"2\"}");
+    }
+
+    @Test
+    void roleScopeSharesBetweenCallersWithTheSameRolesWhenOptedInto() {
+        GatewayFilter filter = filter(new Config().setDefaultTtl(Duration.ofSeconds(30)).setKeyScope(KeyScope.ROLE));
+
+        StepVerifier.create(filter.filter(get("alice", "ROLE_USER"), upstream(BODY))).verifyComplete();
+        ServerWebExchange bob = get("bob", "ROLE_USER");
+        StepVerifier.create(filter.filter(bob, upstream(BODY))).verifyComplete();
+        StepVerifier.create(filter.filter(get("carol", "ROLE_ADMIN"), upstream(BODY))).verifyComplete();
+
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(cacheStatus(bob)).isEqualTo("HIT");
+    }
+
+    @Test
+    void successfulWriteDropsTheRoutesEntries() {
+        GatewayFilter filter = filter(new Config().setDefaultTtl(Duration.ofSeconds(30)));
+        StepVerifier.create(filter.filter(get("alice", "ROLE_USER"), upstream(BODY))).verifyComplete();
+
+        ServerWebExchange put = exchange(MockServerHttpRequest.put("/api/patients/1").build(), "alice", "ROLE_USER");
+        StepVerifier.create(filter.filter(put, respondWith(HttpStatus.OK))).verifyComplete();
+
+        ServerWebExchange after = get("alice", "ROLE_USER");
+        StepVerifier.create(filter.filter(after, upstream(BODY))).verifyComplete();
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(cacheStatus(after)).isEqualTo("MISS");
+    }
+
+    @Test
+    void failedWriteKeepsTheRoutesEntries() {
+        GatewayFilter filter = filter(new Config().setDefaultTtl(Duration.ofSeconds(30)));
+        StepVerifier.create(filter.filter(get("alice", "ROLE_USER"), upstream(BODY))).verifyComplete();
+
+        ServerWebExchange post = exchange(MockServerHttpRequest.post("/api/patients").build(), "alice", "ROLE_USER");
+        StepVerifier.create(filter.filter(post, respondWith(HttpStatus.BAD_REQUEST))).verifyComplete();
+
+        ServerWebExchange after = get("alice", "ROLE_USER");
+        StepVerifier.create(filter.filter(after, upstream(BODY))).verifyComplete();
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(cacheStatus(after)).isEqualTo("HIT");
+    }
+
+    @Test
+    void bodiesOverTheLimitAreStreamedThroughAndNotCached() {
+        GatewayFilter filter = filter(new Config().setDefaultTtl(Duration.ofSeconds(30)).setMaxBodySize(DataSize.ofBytes(8)));
+
+        ServerWebExchange first = get("alice", "ROLE_USER");
+        StepVerifier.create(filter.filter(first, upstream(BODY))).verifyComplete();
+        ServerWebExchange second = get("alice", "ROLE_USER");
+        StepVerifier.create(filter.filter(second, upstream(BODY))).verifyComplete();
+
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(body(first)).isEqualTo(BODY);
+        assertThat(body(second)).isEqualTo(BODY);
+        assertThat(cacheStatus(second)).isNull();
+    }
+
+    @Test
+    void noStoreResponsesAreNotCached() {
+        GatewayFilter filter = filter(new Config().setDefaultTtl(Duration.ofSeconds(30)));
+        GatewayFilterChain noStore = e -> {
+            e.getResponse().getHeaders().setCacheControl("no-store");
+            return upstream(BODY).filter(e);
+        };
+
+        StepVerifier.create(filter.filter(get("alice", "ROLE_USER"), noStore)).verifyComplete();
+        StepVerifier.create(filter.filter(get("alice", "ROLE_USER"), noStore)).verifyComplete();
+
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    private GatewayFilter filter(Config config) {
+        return factory.apply(config);
+    }
+
+    private GatewayFilterChain upstream(String body) {
+        return exchange -> {
+            upstreamCalls.incrementAndGet();
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            return exchange.getResponse().writeWith(Mono.fromSupplier(() -> exchange.getResponse().bufferFactory().wrap(bytes)));
+        };
+    }
+
+    private static GatewayFilterChain respondWith(HttpStatus status) {
+        return exchange -> {
+            exchange.getResponse().setStatusCode(status);
+            return exchange.getResponse().setComplete();
+        };
+    }
+
+    private static ServerWebExchange get(String subject, String role) {
+        return exchange(MockServerHttpRequest.get("/api/patients/1").build(), subject, role);
+    }
+
+    private static ServerWebExchange exchange(MockServerHttpRequest request, String subject, String role) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id("patient-service-route")
+                .uri(URI.create("http://localhost:4000"))
+                .predicate(e -> true)
+                .build());
+        return exchange.mutate()
+                .principal(Mono.just(new TestingAuthenticationToken(subject, null, role)))
+                .build();
+    }
+
+    private static String body(ServerWebExchange exchange) {
+        return ((MockServerHttpResponse) exchange.getResponse()).getBodyAsString().block();
+    }
+
+    private static String cacheStatus(ServerWebExchange exchange) {
+        return exchange.getResponse().getHeaders().getFirst(CoalescingCacheGatewayFilterFactory.CACHE_STATUS_HEADER);
+    }
+}
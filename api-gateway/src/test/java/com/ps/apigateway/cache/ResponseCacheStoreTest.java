@@ -0,0 +1,86 @@
+package com.ps.apigateway.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheStoreTest {
+
+    private static final String ROUTE = "patient-service-route";
+    private static final ResponseCacheKey KEY = key(ROUTE, "/api/patients/1");
+
+    private final ResponseCacheStore store = new ResponseCacheStore(new SimpleMeterRegistry(), DataSize.ofMegabytes(1), Duration.ofSeconds(60));
+
+    @Test
+    void storesAResponseFetchedAtTheCurrentGeneration() {
+        CachedResponse response = response();
+
+        store.put(KEY, response, store.generation(ROUTE));
+
+        assertThat(store.get(KEY)).isSameAs(response);
+    }
+
+    @Test
+    void dropsAResponseFetchedBeforeAWrite() {
+        long generation = store.generation(ROUTE);
+        store.invalidateRoute(ROUTE);
+
+        store.put(KEY, response(), generation);
+
+        assertThat(store.get(KEY)).isNull();
+    }
+
+    @Test
+    void aWriteBetweenTheCheckAndThePutStillWins() {
+        AtomicBoolean armed = new AtomicBoolean();
+        // Once armed, the write lands right after put has read the generation it is about to compare
+        ResponseCacheStore racing = new ResponseCacheStore(new SimpleMeterRegistry(), DataSize.ofMegabytes(1), Duration.ofSeconds(60)) {
+            @Override
+            public long generation(String routeId) {
+                long generation = super.generation(routeId);
+                if (armed.compareAndSet(true, false)) {
+                    invalidateRoute(routeId);
+                }
+                return generation;
+            }
+        };
+        long fetchedAt = racing.generation(ROUTE);
+        armed.set(true);
+
+        racing.put(KEY, response(), fetchedAt);
+
+        assertThat(armed).isFalse();
+        assertThat(racing.get(KEY)).isNull();
+    }
+
+    @Test
+    void invalidatingARouteLeavesOtherRoutesAlone() {
+        ResponseCacheKey other = key("billing-route", "/api/billing/1");
+        store.put(KEY, response(), store.generation(ROUTE));
+        store.put(other, response(), store.generation("billing-route"));
+
+        store.invalidateRoute(ROUTE);
+
+        assertThat(store.get(KEY)).isNull();
+        assertThat(store.get(other)).isNotNull();
+    }
+
+    private static ResponseCacheKey key(String routeId, String uri) {
+        return new ResponseCacheKey(routeId, "sub:alice", uri, "application/json", null);
+    }
+
+    private static CachedResponse response() {
+        Instant now = Instant.now();
+        return new CachedResponse(HttpStatus.OK, new HttpHeaders(), "{}".getBytes(StandardCharsets.UTF_8), "\"1\"",
+                now, now.plusSeconds(30));
+    }
+}
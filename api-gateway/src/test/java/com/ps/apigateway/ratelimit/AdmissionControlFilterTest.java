@@ -0,0 +1,88 @@
+package com.ps.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControlFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(
+            new MockEnvironment().withProperty("gateway.admission.routes.patient-service.max-concurrent", "1"),
+            meterRegistry, 256);
+
+    @Test
+    void refusesWith429AtTheConcurrencyLimit() {
+        Sinks.Empty<Void> backend = Sinks.empty();
+        MockServerWebExchange first = exchange("patient-service");
+        Disposable inFlight = filter.filter(first, e -> backend.asMono()).subscribe();
+
+        MockServerWebExchange second = exchange("patient-service");
+        StepVerifier.create(filter.filter(second, e -> Mono.empty())).verifyComplete();
+
+        assertThat(second.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(second.getResponse().getHeaders().getFirst("Retry-After")).isEqualTo("1");
+        assertThat(meterRegistry.counter("gateway.admission.rejected", "route", "patient-service").count()).isEqualTo(1);
+
+        backend.tryEmitEmpty();
+        inFlight.dispose();
+        assertAdmitted(exchange("patient-service"));
+    }
+
+    @Test
+    void releasesThePermitWhenTheBackendFails() {
+        StepVerifier.create(filter.filter(exchange("patient-service"), e -> Mono.error(new IllegalStateException("boom"))))
+                .verifyError(IllegalStateException.class);
+
+        assertAdmitted(exchange("patient-service"));
+    }
+
+    @Test
+    void releasesThePermitWhenTheClientGoesAway() {
+        Disposable abandoned = filter.filter(exchange("patient-service"), e -> Mono.never()).subscribe();
+        abandoned.dispose();
+
+        assertAdmitted(exchange("patient-service"));
+    }
+
+    @Test
+    void routesWithoutAnOverrideUseTheDefaultLimit() {
+        filter.filter(exchange("auth-service"), e -> Mono.never()).subscribe();
+
+        assertAdmitted(exchange("auth-service"));
+    }
+
+    private void assertAdmitted(MockServerWebExchange exchange) {
+        boolean[] reachedBackend = {false};
+        GatewayFilterChain chain = e -> Mono.fromRunnable(() -> reachedBackend[0] = true);
+
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+        assertThat(reachedBackend[0]).isTrue();
+        assertThat(exchange.getResponse().getStatusCode()).isNotEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    private static MockServerWebExchange exchange(String routeId) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/patients"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id(routeId)
+                .uri(URI.create("http://localhost:4000"))
+                .predicate(e -> true)
+                .build());
+        return exchange;
+    }
+}
@@ -0,0 +1,42 @@
+package com.ps.apigateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test stand-in for a shared {@link TokenBucketStore}: buckets never refill, so a test decides exactly how
+ * many requests pass, and every key asked for is recorded. {@link #failing()} simulates an unreachable store.
+ */
+class InMemoryTokenBucketStore implements TokenBucketStore {
+
+    private final Map<String, Long> tokens = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private boolean failing;
+
+    InMemoryTokenBucketStore failing() {
+        this.failing = true;
+        return this;
+    }
+
+    List<String> keys() {
+        return keys;
+    }
+
+    @Override
+    public synchronized Mono<ConsumeResult> tryConsume(String key, BucketSpec spec, int permits) {
+        if (failing) {
+            return Mono.error(new IllegalStateException("store unavailable"));
+        }
+        keys.add(key);
+        long available = tokens.computeIfAbsent(key, k -> (long) spec.capacity());
+        if (available >= permits) {
+            tokens.put(key, available - permits);
+            return Mono.just(new ConsumeResult(true, available - permits, 0));
+        }
+        return Mono.just(new ConsumeResult(false, available, (long) ((permits - available) / spec.refillPerSecond() * 1_000)));
+    }
+}
@@ -0,0 +1,79 @@
+package com.ps.apigateway.ratelimit;
+
+import com.ps.apigateway.ratelimit.TokenBucketStore.BucketSpec;
+import com.ps.apigateway.ratelimit.TokenBucketStore.ConsumeResult;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedTokenBucketStoreTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final BucketSpec SPEC = new BucketSpec(5, 2.0);
+
+    private final StripedTokenBucketStore store = new StripedTokenBucketStore(4);
+
+    @Test
+    void allowsABurstUpToCapacityThenRefuses() {
+        for (int i = 0; i < 5; i++) {
+            ConsumeResult result = store.consume("alice", SPEC, 1, 0);
+            assertThat(result.allowed()).isTrue();
+            assertThat(result.remaining()).isEqualTo(4 - i);
+        }
+
+        ConsumeResult refused = store.consume("alice", SPEC, 1, 0);
+
+        assertThat(refused.allowed()).isFalse();
+        // One token at two per second
+        assertThat(refused.retryAfterMillis()).isEqualTo(500);
+    }
+
+    @Test
+    void refillsAtTheSustainedRateWithoutExceedingCapacity() {
+        for (int i = 0; i < 5; i++) {
+            store.consume("alice", SPEC, 1, 0);
+        }
+
+        assertThat(store.consume("alice", SPEC, 1, SECOND / 2).allowed()).isTrue();
+        assertThat(store.consume("alice", SPEC, 1, SECOND / 2).allowed()).isFalse();
+
+        // Long idle: back to a full bucket, not more
+        ConsumeResult afterIdle = store.consume("alice", SPEC, 1, 60 * SECOND);
+        assertThat(afterIdle.allowed()).isTrue();
+        assertThat(afterIdle.remaining()).isEqualTo(4);
+    }
+
+    @Test
+    void keysHaveIndependentBuckets() {
+        for (int i = 0; i < 5; i++) {
+            store.consume("alice", SPEC, 1, 0);
+        }
+
+        assertThat(store.consume("alice", SPEC, 1, 0).allowed()).isFalse();
+        assertThat(store.consume("bob", SPEC, 1, 0).allowed()).isTrue();
+    }
+
+    @Test
+    void multiTokenRequestsNeedEnoughTokens() {
+        assertThat(store.consume("alice", SPEC, 4, 0).allowed()).isTrue();
+
+        ConsumeResult refused = store.consume("alice", SPEC, 3, 0);
+
+        assertThat(refused.allowed()).isFalse();
+        assertThat(refused.remaining()).isEqualTo(1);
+        assertThat(refused.retryAfterMillis()).isEqualTo(1_000);
+    }
+
+    @Test
+    void sweepDropsBucketsThatHaveRefilledCompletely() {
+        StripedTokenBucketStore single = new StripedTokenBucketStore(1);
+        single.consume("idle", SPEC, 1, 0);
+
+        // The sweep runs every 4096 operations on a stripe; "idle" has been full again for a long time by then
+        for (int i = 0; i < 4095; i++) {
+            single.consume("busy", SPEC, 0, 60 * SECOND);
+        }
+
+        assertThat(single.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,44 @@
+package com.ps.apigateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubjectKeyResolverTest {
+
+    private final SubjectKeyResolver resolver = new SubjectKeyResolver();
+
+    @Test
+    void authenticatedRequestsAreKeyedBySubject() {
+        ServerWebExchange exchange = exchange("10.0.0.1").mutate()
+                .principal(Mono.just(new UsernamePasswordAuthenticationToken("alice@example.com", null)))
+                .build();
+
+        assertThat(resolver.resolve(exchange).block()).isEqualTo("sub:alice@example.com");
+    }
+
+    @Test
+    void anonymousRequestsAreKeyedByClientAddress() {
+        assertThat(resolver.resolve(exchange("10.0.0.1")).block()).isEqualTo("ip:10.0.0.1");
+        assertThat(resolver.resolve(exchange("10.0.0.2")).block()).isEqualTo("ip:10.0.0.2");
+    }
+
+    @Test
+    void missingAddressFallsBackToUnknown() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/auth/login"));
+
+        assertThat(resolver.resolve(exchange).block()).isEqualTo("ip:unknown");
+    }
+
+    private static MockServerWebExchange exchange(String address) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/patients")
+                .remoteAddress(new InetSocketAddress(address, 50000)));
+    }
+}
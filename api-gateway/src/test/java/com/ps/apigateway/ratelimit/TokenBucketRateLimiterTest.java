@@ -0,0 +1,69 @@
+package com.ps.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketRateLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private TokenBucketRateLimiter limiter(TokenBucketStore store, int burstCapacity) {
+        return new TokenBucketRateLimiter(store, null, meterRegistry,
+                new TokenBucketRateLimiter.Config().setReplenishRate(1).setBurstCapacity(burstCapacity));
+    }
+
+    @Test
+    void keysBucketsByRouteAndSubject() {
+        InMemoryTokenBucketStore store = new InMemoryTokenBucketStore();
+        TokenBucketRateLimiter limiter = limiter(store, 1);
+
+        assertThat(limiter.isAllowed("patient-service", "sub:alice").block().isAllowed()).isTrue();
+        assertThat(limiter.isAllowed("patient-service", "sub:alice").block().isAllowed()).isFalse();
+        // Another subject, or the same subject on another route, has a bucket of its own
+        assertThat(limiter.isAllowed("patient-service", "sub:bob").block().isAllowed()).isTrue();
+        assertThat(limiter.isAllowed("auth-service", "sub:alice").block().isAllowed()).isTrue();
+
+        assertThat(store.keys()).containsExactly("patient-service|sub:alice", "patient-service|sub:alice",
+                "patient-service|sub:bob", "auth-service|sub:alice");
+    }
+
+    @Test
+    void perRouteConfigOverridesTheDefault() {
+        InMemoryTokenBucketStore store = new InMemoryTokenBucketStore();
+        TokenBucketRateLimiter limiter = limiter(store, 1);
+        limiter.getConfig().put("bulk", new TokenBucketRateLimiter.Config().setReplenishRate(1).setBurstCapacity(3));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.isAllowed("bulk", "sub:alice").block().isAllowed()).isTrue();
+        }
+        assertThat(limiter.isAllowed("bulk", "sub:alice").block().isAllowed()).isFalse();
+    }
+
+    @Test
+    void refusalCarriesRetryAfterAndRateHeaders() {
+        TokenBucketRateLimiter limiter = limiter(new InMemoryTokenBucketStore(), 1);
+        limiter.isAllowed("patient-service", "sub:alice").block();
+
+        Response refused = limiter.isAllowed("patient-service", "sub:alice").block();
+
+        assertThat(refused.getHeaders())
+                .containsEntry("X-RateLimit-Remaining", "0")
+                .containsEntry("X-RateLimit-Burst-Capacity", "1")
+                .containsEntry("X-RateLimit-Replenish-Rate", "1")
+                .containsEntry("Retry-After", "1");
+        assertThat(meterRegistry.counter("gateway.ratelimit.requests", "route", "patient-service", "outcome", "limited").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void failingStoreLetsRequestsThrough() {
+        TokenBucketRateLimiter limiter = limiter(new InMemoryTokenBucketStore().failing(), 1);
+
+        assertThat(limiter.isAllowed("patient-service", "sub:alice").block().isAllowed()).isTrue();
+        assertThat(meterRegistry.counter("gateway.ratelimit.requests", "route", "patient-service", "outcome", "store_error").count())
+                .isEqualTo(1);
+    }
+}
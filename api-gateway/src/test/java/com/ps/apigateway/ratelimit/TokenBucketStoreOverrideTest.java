@@ -0,0 +1,34 @@
+package com.ps.apigateway.ratelimit;
+
+import com.ps.apigateway.config.RateLimitConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TokenBucketStoreOverrideTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(RateLimitConfig.class)
+            .withBean(ConfigurationService.class, () -> mock(ConfigurationService.class))
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new);
+
+    @Test
+    void defaultsToTheInMemoryStripedStore() {
+        contextRunner.run(context -> assertThat(context).getBean(TokenBucketStore.class)
+                .isInstanceOf(StripedTokenBucketStore.class));
+    }
+
+    @Test
+    void aRegisteredStoreReplacesTheDefault() {
+        contextRunner.withBean(TokenBucketStore.class, InMemoryTokenBucketStore::new)
+                .run(context -> {
+                    assertThat(context).hasSingleBean(TokenBucketStore.class);
+                    assertThat(context).getBean(TokenBucketStore.class).isInstanceOf(InMemoryTokenBucketStore.class);
+                });
+    }
+}
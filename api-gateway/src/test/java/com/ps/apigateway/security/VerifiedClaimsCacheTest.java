@@ -0,0 +1,96 @@
+package com.ps.apigateway.security;
+
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class VerifiedClaimsCacheTest {
+
+    private final KeyPair keyPair = Jwts.SIG.ES256.keyPair().build();
+    private final JwtUtil jwtUtil = spy(new JwtUtil(header -> keyPair.getPublic()));
+    private final VerifiedClaimsCache cache = new VerifiedClaimsCache(jwtUtil, new SimpleMeterRegistry(), 1000);
+
+    @Test
+    void parsesATokenOnceAndServesLaterRequestsFromTheCache() {
+        Instant expiresAt = Instant.now().plus(1, ChronoUnit.HOURS).truncatedTo(ChronoUnit.SECONDS);
+        String token = token("alice@example.com", "USER", expiresAt);
+
+        assertThat(cache.verify(token)).contains(new VerifiedToken("alice@example.com", "USER", expiresAt));
+        assertThat(cache.verify(token)).contains(new VerifiedToken("alice@example.com", "USER", expiresAt));
+        verify(jwtUtil, times(1)).extractAllClaims(anyString());
+    }
+
+    @Test
+    void anEntryExpiresAtTheTokensExp() throws InterruptedException {
+        // exp has second precision, so the token lives one to two seconds
+        Instant expiresAt = Instant.now().plusSeconds(2).truncatedTo(ChronoUnit.SECONDS);
+        String token = token("alice@example.com", "USER", expiresAt);
+        assertThat(cache.verify(token)).isPresent();
+
+        Thread.sleep(Duration.between(Instant.now(), expiresAt).toMillis() + 50);
+
+        assertThat(cache.verify(token)).isEmpty();
+        // The entry was gone, so the token was parsed again and rejected by jjwt as expired
+        verify(jwtUtil, times(2)).extractAllClaims(anyString());
+    }
+
+    @Test
+    void failedVerificationsAreNotCached() {
+        String forged = Jwts.builder()
+                .subject("mallory@example.com")
+                .expiration(Date.from(Instant.now().plus(1, ChronoUnit.HOURS)))
+                .signWith(Jwts.SIG.ES256.keyPair().build().getPrivate(), Jwts.SIG.ES256)
+                .compact();
+
+        assertThat(cache.verify(forged)).isEmpty();
+        assertThat(cache.verify(forged)).isEmpty();
+        assertThat(cache.verify("not-a-jwt")).isEmpty();
+        verify(jwtUtil, times(3)).extractAllClaims(anyString());
+    }
+
+    @Test
+    void tokensWithoutAnExpiryAreRejected() {
+        String token = Jwts.builder()
+                .subject("alice@example.com")
+                .signWith(keyPair.getPrivate(), Jwts.SIG.ES256)
+                .compact();
+
+        assertThat(cache.verify(token)).isEmpty();
+        assertThat(cache.verify(token)).isEmpty();
+        verify(jwtUtil, times(2)).extractAllClaims(anyString());
+    }
+
+    @Test
+    void tokensOfTheSameSubjectAreCachedSeparately() {
+        Instant expiresAt = Instant.now().plus(1, ChronoUnit.HOURS).truncatedTo(ChronoUnit.SECONDS);
+        String user = token("alice@example.com", "USER", expiresAt);
+        String admin = token("alice@example.com", "ADMIN", expiresAt);
+
+        assertThat(cache.verify(user)).get().extracting(VerifiedToken::role).isEqualTo("USER");
+        assertThat(cache.verify(admin)).get().extracting(VerifiedToken::role).isEqualTo("ADMIN");
+        assertThat(cache.verify(user)).get().extracting(VerifiedToken::role).isEqualTo("USER");
+        verify(jwtUtil, times(2)).extractAllClaims(anyString());
+    }
+
+    private String token(String subject, String role, Instant expiresAt) {
+        return Jwts.builder()
+                .subject(subject)
+                .claim("role", role)
+                .issuedAt(new Date())
+                .expiration(Date.from(expiresAt))
+                .signWith(keyPair.getPrivate(), Jwts.SIG.ES256)
+                .compact();
+    }
+}
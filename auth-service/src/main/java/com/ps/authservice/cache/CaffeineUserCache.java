@@ -0,0 +1,58 @@
+package com.ps.authservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Users recently loaded by the login path, keyed by email.
+ * <p>
+ * Plugged into DaoAuthenticationProvider, which checks the password against the cached hash first and only
+ * goes back to the database if that fails, so a changed password is never locked out by a stale entry.
+ * Unknown emails are never cached. Every write to a user (signup, rehash) evicts the entry; the TTL bounds
+ * how long a change made outside this service stays unseen. Hit rate and size are exported as
+ * {@code cache.*{cache=users}}.
+ * </p>
+ */
+@Component
+public class CaffeineUserCache implements UserCache
+{
+    private final Cache<String, UserDetails> cache;
+
+    public CaffeineUserCache(MeterRegistry meterRegistry,
+                             @Value("${auth.user-cache.maximum-size:10000}") long maximumSize,
+                             @Value("${auth.user-cache.ttl:5m}") Duration timeToLive)
+    {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username)
+    {
+        return cache.getIfPresent(username);
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user)
+    {
+        cache.put(user.getUsername(), user);
+    }
+
+    @Override
+    public void removeUserFromCache(String username)
+    {
+        cache.invalidate(username);
+    }
+}
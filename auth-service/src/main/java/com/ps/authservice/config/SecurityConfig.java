@@ -1,6 +1,9 @@
 package com.ps.authservice.config;
 
+import com.ps.authservice.crypto.BoundedPasswordEncoder;
 import com.ps.authservice.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -10,38 +13,54 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.util.ClassUtils;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig
 {
     private final CustomUserDetailsService customUserDetailsService;
+    private final UserCache userCache;
 
-    public SecurityConfig(CustomUserDetailsService customUserDetailsService) {
+    public SecurityConfig(CustomUserDetailsService customUserDetailsService, UserCache userCache) {
         this.customUserDetailsService = customUserDetailsService;
+        this.userCache = userCache;
     }
 
     @Bean
-    public SecurityFilterChain  securityFilterChain(HttpSecurity http) throws Exception
+    public SecurityFilterChain  securityFilterChain(HttpSecurity http, PasswordEncoder passwordEncoder) throws Exception
     {
         http.csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
-                .authorizeHttpRequests(auth -> auth.requestMatchers("/auth/signup","/auth/login").permitAll())
+                .authorizeHttpRequests(auth -> auth.requestMatchers("/auth/signup","/auth/login","/auth/refresh","/auth/logout","/auth/jwks").permitAll())
+                .authorizeHttpRequests(ops -> ops.requestMatchers("/actuator/health","/actuator/prometheus").permitAll())
                 .authorizeHttpRequests(api -> api.requestMatchers("/v3/api-docs/**","/swagger-ui.html","/swagger-ui/**","/swagger-resources").permitAll()
                         .anyRequest().authenticated()
                 )
-                .authenticationProvider(daoAuthenticationProvider());
+                .authenticationProvider(daoAuthenticationProvider(passwordEncoder));
     return http.build();
     }
 
     @Bean
-    public AuthenticationProvider daoAuthenticationProvider()
+    public AuthenticationProvider daoAuthenticationProvider(PasswordEncoder passwordEncoder)
     {
         DaoAuthenticationProvider daoAuthenticationProvider = new DaoAuthenticationProvider(customUserDetailsService);
-        daoAuthenticationProvider.setPasswordEncoder(passwordEncoder());
+        daoAuthenticationProvider.setPasswordEncoder(passwordEncoder);
+        // After a successful login, hashes with an outdated encoding or cost are rehashed and saved
+        daoAuthenticationProvider.setUserDetailsPasswordService(customUserDetailsService);
+        // Repeat logins skip loadUserByUsername, so they cost no database read at all
+        daoAuthenticationProvider.setUserCache(userCache);
         return daoAuthenticationProvider;
     }
 
@@ -52,9 +71,36 @@ public class SecurityConfig
     }
 
 
+    /**
+     * New hashes use {@code auth.password.encoding} and carry its {@code {id}} prefix; older ones, including
+     * the unprefixed BCrypt hashes from before, still verify and are upgraded on the user's next login. All
+     * hashing runs on the bounded pool of {@link BoundedPasswordEncoder}, off the request threads' CPU budget.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder()
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${auth.password.encoding:bcrypt}") String encoding,
+                                           @Value("${auth.password.bcrypt-strength:10}") int bcryptStrength,
+                                           @Value("${auth.password.hash-threads:0}") int hashThreads,
+                                           @Value("${auth.password.queue-capacity:64}") int queueCapacity,
+                                           @Value("${auth.password.max-wait:2s}") Duration maxWait)
     {
-        return new BCryptPasswordEncoder();
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", new BCryptPasswordEncoder(bcryptStrength));
+        encoders.put("pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        // Argon2 is implemented on top of Bouncy Castle, so it is only offered when bcprov is on the classpath
+        if (ClassUtils.isPresent("org.bouncycastle.crypto.params.Argon2Parameters", getClass().getClassLoader()))
+        {
+            encoders.put("argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        }
+        if (!encoders.containsKey(encoding))
+        {
+            throw new IllegalStateException("Unsupported auth.password.encoding '" + encoding + "', expected one of " + encoders.keySet());
+        }
+
+        DelegatingPasswordEncoder delegatingPasswordEncoder = new DelegatingPasswordEncoder(encoding, encoders);
+        delegatingPasswordEncoder.setDefaultPasswordEncoderForMatches(encoders.get("bcrypt"));
+
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(delegatingPasswordEncoder, threads, queueCapacity, maxWait, meterRegistry);
     }
 }
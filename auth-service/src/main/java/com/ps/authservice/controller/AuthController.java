@@ -2,6 +2,7 @@ package com.ps.authservice.controller;
 
 import com.ps.authservice.dto.LoginRequestDTO;
 import com.ps.authservice.dto.LoginResponseDTO;
+import com.ps.authservice.dto.RefreshRequestDTO;
 import com.ps.authservice.dto.SignUpDTO;
 import com.ps.authservice.model.User;
 import com.ps.authservice.service.AuthService;
@@ -18,7 +19,7 @@ import org.springframework.web.bind.annotation.RestController;
 @Tag(name = "This is our Auth Controller where we have Sign up and Login Endpoints"
 ,
         description = """
-                AuthController — REST controller for user authentication: handles registration.
+                AuthController — REST controller for user authentication: handles registration, login, token refresh and logout.
                 """
 )
 public class AuthController {
@@ -37,7 +38,17 @@ public class AuthController {
 
     @PostMapping("/login")
     public ResponseEntity<LoginResponseDTO> login(@Valid @RequestBody LoginRequestDTO request) {
-        String token = authService.login(request);
-        return ResponseEntity.ok(LoginResponseDTO.builder().status("Authenticated").token(token).build());
+        return ResponseEntity.ok(authService.login(request));
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginResponseDTO> refresh(@Valid @RequestBody RefreshRequestDTO request) {
+        return ResponseEntity.ok(authService.refresh(request));
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@Valid @RequestBody RefreshRequestDTO request) {
+        authService.logout(request);
+        return ResponseEntity.noContent().build();
     }
 }
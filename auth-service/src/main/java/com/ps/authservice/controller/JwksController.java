@@ -0,0 +1,33 @@
+package com.ps.authservice.controller;
+
+import com.ps.authservice.crypto.SigningKeyManager;
+import io.jsonwebtoken.security.PublicJwk;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/auth")
+@Tag(name = "JWKS", description = "Public keys that verify the access tokens issued by this service")
+public class JwksController {
+
+    private final SigningKeyManager signingKeyManager;
+
+    public JwksController(SigningKeyManager signingKeyManager) {
+        this.signingKeyManager = signingKeyManager;
+    }
+
+    @GetMapping("/jwks")
+    public ResponseEntity<Map<String, List<PublicJwk<?>>>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic())
+                .body(Map.of("keys", signingKeyManager.publishedKeys()));
+    }
+}
@@ -0,0 +1,170 @@
+package com.ps.authservice.crypto;
+
+import com.ps.authservice.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs another {@link PasswordEncoder} on a small, fixed pool of its own, so hashing can never take more
+ * CPUs than the pool has threads, however many requests arrive at once.
+ * <p>
+ * Work waits in a bounded queue. When the queue is full, or a hash has not finished within {@code maxWait},
+ * the caller gets a {@link PasswordHashingBusyException} (answered with 503) instead of piling up behind it;
+ * a request that gave up while still queued is removed from the queue, one that was already hashing finishes. Exported meters: {@code auth.password.hash{operation}},
+ * {@code auth.password.queue.wait}, {@code auth.password.queue.depth}, {@code auth.password.active} and
+ * {@code auth.password.rejected{reason}}.
+ * </p>
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder
+{
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Duration maxWait;
+
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer queueWaitTimer;
+    private final Counter queueFull;
+    private final Counter timedOut;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, Duration maxWait, MeterRegistry meterRegistry)
+    {
+        this.delegate = delegate;
+        this.maxWait = maxWait;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("password-hash-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.prestartAllCoreThreads();
+
+        this.encodeTimer = hashTimer(meterRegistry, "encode");
+        this.matchesTimer = hashTimer(meterRegistry, "matches");
+        this.queueWaitTimer = Timer.builder("auth.password.queue.wait")
+                .description("Time a password hash waited for a free hashing thread")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueFull = rejectedCounter(meterRegistry, "queue_full");
+        this.timedOut = rejectedCounter(meterRegistry, "timeout");
+        Gauge.builder("auth.password.queue.depth", executor, e -> e.getQueue().size())
+                .description("Password hashes waiting for a hashing thread")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashes currently running")
+                .register(meterRegistry);
+    }
+
+    private static Timer hashTimer(MeterRegistry meterRegistry, String operation)
+    {
+        return Timer.builder("auth.password.hash")
+                .description("CPU time of one password hash or verification")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason)
+    {
+        return Counter.builder("auth.password.rejected")
+                .description("Password hashes refused with 503 because the hashing pool was saturated")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword)
+    {
+        return run(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword)
+    {
+        return run(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    // Only parses the stored hash, cheap enough for the calling thread
+    @Override
+    public boolean upgradeEncoding(String encodedPassword)
+    {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Timer timer, Callable<T> work)
+    {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try
+        {
+            future = executor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return timer.recordCallable(work);
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            queueFull.increment();
+            throw new PasswordHashingBusyException("Password hashing queue is full");
+        }
+
+        try
+        {
+            return future.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e)
+        {
+            abandon(future);
+            timedOut.increment();
+            throw new PasswordHashingBusyException("Password hashing did not finish within " + maxWait.toMillis() + " ms");
+        }
+        catch (InterruptedException e)
+        {
+            abandon(future);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("Interrupted while waiting for password hashing");
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException runtimeException)
+            {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error)
+            {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /*
+     * Cancelling alone leaves a queued task where it is, taking up capacity until a thread dequeues and skips
+     * it; remove() frees the slot now. A hash that already started is interrupted, which BCrypt ignores, so it
+     * runs to completion with nobody waiting.
+     */
+    private void abandon(Future<?> future)
+    {
+        future.cancel(true);
+        if (future instanceof Runnable task)
+        {
+            executor.remove(task);
+        }
+    }
+
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,100 @@
+package com.ps.authservice.crypto;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Encrypts JWT signing private keys with AES-256-GCM before they are written to {@code jwt_signing_keys}, so a
+ * database dump or backup on its own cannot be used to sign tokens.
+ * <p>
+ * The key-encryption key is {@code jwt.keys.encryption-key} (base64, 32 bytes), which deployments take from
+ * their secret store through {@code JWT_KEYS_ENCRYPTION_KEY}; it is never stored in the database. The key id is
+ * bound as associated data, so a wrapped key copied onto another row does not decrypt. Stored layout: one
+ * format byte, the 12-byte nonce, then the ciphertext with its 16-byte tag.
+ * </p>
+ */
+@Component
+public class SigningKeyCipher
+{
+    private static final byte FORMAT_AES_GCM = 0x01;
+    private static final int NONCE_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecretKeySpec keyEncryptionKey;
+    private final SecureRandom random = new SecureRandom();
+
+    public SigningKeyCipher(@Value("${jwt.keys.encryption-key}") String encodedKey)
+    {
+        byte[] key;
+        try
+        {
+            key = Base64.getDecoder().decode(encodedKey.trim());
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IllegalStateException("jwt.keys.encryption-key must be base64", e);
+        }
+        if (key.length != 32)
+        {
+            throw new IllegalStateException("jwt.keys.encryption-key must be 32 bytes (AES-256), got " + key.length);
+        }
+        this.keyEncryptionKey = new SecretKeySpec(key, "AES");
+    }
+
+    public byte[] wrap(String kid, byte[] privateKey)
+    {
+        byte[] nonce = new byte[NONCE_BYTES];
+        random.nextBytes(nonce);
+        try
+        {
+            byte[] ciphertext = cipher(Cipher.ENCRYPT_MODE, kid, nonce).doFinal(privateKey);
+            return ByteBuffer.allocate(1 + NONCE_BYTES + ciphertext.length)
+                    .put(FORMAT_AES_GCM)
+                    .put(nonce)
+                    .put(ciphertext)
+                    .array();
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new IllegalStateException("Could not encrypt JWT signing key " + kid, e);
+        }
+    }
+
+    /**
+     * The PKCS#8 encoding of a key stored by {@link #wrap}. Fails with {@link GeneralSecurityException} when the
+     * key-encryption key or the key id differ from the ones it was wrapped with, or the bytes were altered.
+     */
+    public byte[] unwrap(String kid, byte[] stored) throws GeneralSecurityException
+    {
+        if (!isWrapped(stored) || stored.length < 1 + NONCE_BYTES + TAG_BITS / 8)
+        {
+            throw new GeneralSecurityException("Not a wrapped signing key");
+        }
+        byte[] nonce = new byte[NONCE_BYTES];
+        System.arraycopy(stored, 1, nonce, 0, NONCE_BYTES);
+        return cipher(Cipher.DECRYPT_MODE, kid, nonce).doFinal(stored, 1 + NONCE_BYTES, stored.length - 1 - NONCE_BYTES);
+    }
+
+    // Rows written before keys were encrypted hold bare PKCS#8, which as DER always starts with a SEQUENCE (0x30)
+    public boolean isWrapped(byte[] stored)
+    {
+        return stored.length > 0 && stored[0] == FORMAT_AES_GCM;
+    }
+
+    private Cipher cipher(int mode, String kid, byte[] nonce) throws GeneralSecurityException
+    {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(mode, keyEncryptionKey, new GCMParameterSpec(TAG_BITS, nonce));
+        cipher.updateAAD(kid.getBytes(StandardCharsets.UTF_8));
+        return cipher;
+    }
+}
@@ -0,0 +1,217 @@
+package com.ps.authservice.crypto;
+
+import com.ps.authservice.model.SigningKey;
+import com.ps.authservice.repository.SigningKeyRepository;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asymmetric keys that sign access tokens, rotated every {@code jwt.keys.rotation-interval}.
+ * <p>
+ * A new key is published in the key set {@code jwt.keys.publish-ahead} before it signs anything, so verifiers
+ * that refresh the key set at least that often already know it when the first token arrives. A replaced key
+ * stays published until every token it signed has expired. Keys live in the database, so all instances sign
+ * with the same key and a restart does not invalidate tokens already issued; their private halves are stored
+ * encrypted by {@link SigningKeyCipher}.
+ * </p>
+ */
+@Slf4j
+@Component
+public class SigningKeyManager
+{
+    private final SigningKeyRepository signingKeyRepository;
+    private final SigningKeyCipher signingKeyCipher;
+    private final String algorithm;
+    private final Duration rotationInterval;
+    private final Duration publishAhead;
+    private final Duration tokenLifetime;
+
+    // Not a monitor: rotation reads and writes the database, and a virtual thread waiting on a monitor held
+    // across that I/O would pin its carrier
+    private final ReentrantLock rotationLock = new ReentrantLock();
+    private volatile KeyRing keyRing;
+
+    public SigningKeyManager(SigningKeyRepository signingKeyRepository,
+                             SigningKeyCipher signingKeyCipher,
+                             @Value("${jwt.keys.algorithm:ES256}") String algorithm,
+                             @Value("${jwt.keys.rotation-interval:24h}") Duration rotationInterval,
+                             @Value("${jwt.keys.publish-ahead:10m}") Duration publishAhead,
+                             @Value("${jwt.expiration-time}") long expirationMillis)
+    {
+        if (!algorithm.equals("ES256") && !algorithm.equals("EdDSA"))
+        {
+            throw new IllegalStateException("Unsupported jwt.keys.algorithm '" + algorithm + "', expected ES256 or EdDSA");
+        }
+        this.signingKeyRepository = signingKeyRepository;
+        this.signingKeyCipher = signingKeyCipher;
+        this.algorithm = algorithm;
+        this.rotationInterval = rotationInterval;
+        this.publishAhead = publishAhead;
+        this.tokenLifetime = Duration.ofMillis(expirationMillis);
+    }
+
+    public record LoadedKey(String kid, SignatureAlgorithm algorithm, PrivateKey privateKey, PublicJwk<?> publicJwk, Instant createdAt)
+    {
+    }
+
+    private record KeyRing(LoadedKey signer, List<LoadedKey> published)
+    {
+    }
+
+    public LoadedKey signingKey()
+    {
+        return currentRing().signer();
+    }
+
+    /**
+     * Public halves of every key a valid token can currently carry, plus the one about to take over.
+     */
+    public List<PublicJwk<?>> publishedKeys()
+    {
+        return currentRing().published().stream().<PublicJwk<?>>map(LoadedKey::publicJwk).toList();
+    }
+
+    private KeyRing currentRing()
+    {
+        KeyRing ring = keyRing;
+        if (ring == null)
+        {
+            rotationLock.lock();
+            try
+            {
+                if (keyRing == null)
+                {
+                    rotate();
+                }
+                ring = keyRing;
+            }
+            finally
+            {
+                rotationLock.unlock();
+            }
+        }
+        return ring;
+    }
+
+    /**
+     * Adds a key when the newest one is due for replacement, drops keys no unexpired token can carry, and
+     * reloads the ring so keys created by other instances are picked up.
+     */
+    @Scheduled(fixedDelayString = "${jwt.keys.check-interval:1m}")
+    public void rotate()
+    {
+        rotationLock.lock();
+        try
+        {
+            rotateLocked();
+        }
+        finally
+        {
+            rotationLock.unlock();
+        }
+    }
+
+    private void rotateLocked()
+    {
+        Instant now = Instant.now();
+        List<SigningKey> keys = new ArrayList<>(signingKeyRepository.findAllByOrderByCreatedAtDesc());
+
+        if (keys.isEmpty() || !keys.getFirst().getCreatedAt().plus(rotationInterval).isAfter(now))
+        {
+            SigningKey created = signingKeyRepository.save(generate(now));
+            keys.addFirst(created);
+            log.info("Created JWT signing key {}, signing from {}", created.getKid(), now.plus(publishAhead));
+        }
+
+        // Keys are newest first: each one signed until its successor became active
+        List<String> retired = new ArrayList<>();
+        for (int i = 1; i < keys.size(); i++)
+        {
+            Instant replacedAt = keys.get(i - 1).getCreatedAt().plus(publishAhead);
+            if (replacedAt.plus(tokenLifetime).plus(publishAhead).isBefore(now))
+            {
+                retired.add(keys.get(i).getKid());
+            }
+        }
+        if (!retired.isEmpty())
+        {
+            signingKeyRepository.deleteAllByIdInBatch(retired);
+            keys.removeIf(key -> retired.contains(key.getKid()));
+            log.info("Retired JWT signing keys {}", retired);
+        }
+
+        // Keys stored before encryption at rest are encrypted in place the first time any instance sees them
+        List<SigningKey> plaintext = keys.stream().filter(key -> !signingKeyCipher.isWrapped(key.getPrivateKey())).toList();
+        if (!plaintext.isEmpty())
+        {
+            plaintext.forEach(key -> key.setPrivateKey(signingKeyCipher.wrap(key.getKid(), key.getPrivateKey())));
+            signingKeyRepository.saveAll(plaintext);
+            log.info("Encrypted {} JWT signing keys stored in plaintext", plaintext.size());
+        }
+
+        List<LoadedKey> loaded = keys.stream().map(this::load).toList();
+        // The newest key that every verifier has had time to fetch; on first start that is the only key there is
+        LoadedKey signer = loaded.stream()
+                .filter(key -> !key.createdAt().plus(publishAhead).isAfter(now))
+                .findFirst()
+                .orElse(loaded.stream().min(Comparator.comparing(LoadedKey::createdAt)).orElseThrow());
+        keyRing = new KeyRing(signer, loaded);
+    }
+
+    private SigningKey generate(Instant now)
+    {
+        KeyPair keyPair = algorithm.equals("EdDSA")
+                ? Jwks.CRV.Ed25519.keyPair().build()
+                : Jwts.SIG.ES256.keyPair().build();
+        String kid = Jwks.builder().key(keyPair.getPublic()).idFromThumbprint().build().getId();
+        return SigningKey.builder()
+                .kid(kid)
+                .algorithm(algorithm)
+                .publicKey(keyPair.getPublic().getEncoded())
+                .privateKey(signingKeyCipher.wrap(kid, keyPair.getPrivate().getEncoded()))
+                .createdAt(now)
+                .build();
+    }
+
+    private LoadedKey load(SigningKey key)
+    {
+        boolean edDsa = key.getAlgorithm().equals("EdDSA");
+        try
+        {
+            KeyFactory keyFactory = KeyFactory.getInstance(edDsa ? "Ed25519" : "EC");
+            PublicKey publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(key.getPublicKey()));
+            byte[] pkcs8 = signingKeyCipher.unwrap(key.getKid(), key.getPrivateKey());
+            PrivateKey privateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(pkcs8));
+            PublicJwk<?> publicJwk = Jwks.builder().key(publicKey)
+                    .id(key.getKid())
+                    .algorithm(key.getAlgorithm())
+                    .publicKeyUse("sig")
+                    .build();
+            return new LoadedKey(key.getKid(), edDsa ? Jwts.SIG.EdDSA : Jwts.SIG.ES256, privateKey, publicJwk, key.getCreatedAt());
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new IllegalStateException("Stored JWT signing key " + key.getKid() + " cannot be decoded", e);
+        }
+    }
+}
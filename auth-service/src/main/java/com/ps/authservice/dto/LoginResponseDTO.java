@@ -14,4 +14,8 @@ public class LoginResponseDTO
 {
     private String status;
     private final String token;
+    // Single use: each /auth/refresh returns the next one
+    private String refreshToken;
+    // Lifetime of token, in seconds
+    private long expiresIn;
 }
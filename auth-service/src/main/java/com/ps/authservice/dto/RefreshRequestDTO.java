@@ -0,0 +1,17 @@
+package com.ps.authservice.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshRequestDTO
+{
+    @NotBlank(message = "Refresh token can not be empty")
+    private String refreshToken;
+}
@@ -2,8 +2,12 @@ package com.ps.authservice.exception;
 
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -36,4 +40,53 @@ public class GlobalExceptionHandler
 
         return  ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
     }
+
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<Map<String,String>> handlePasswordHashingBusyException(PasswordHashingBusyException ex)
+    {
+        Map<String,String> errors = new HashMap<>();
+        log.warn("PasswordHashingBusyException: {}",ex.getMessage());
+        errors.put("Message","Too many sign-ups or logins right now, try again shortly");
+        errors.put("Exception Message",ex.getMessage());
+
+        return  ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(errors);
+    }
+
+    @ExceptionHandler(InvalidRefreshTokenException.class)
+    public ResponseEntity<Map<String,String>> handleInvalidRefreshTokenException(InvalidRefreshTokenException ex)
+    {
+        Map<String,String> errors = new HashMap<>();
+        log.warn("InvalidRefreshTokenException: {}",ex.getMessage());
+        errors.put("Message","Refresh token is not valid, log in again");
+        errors.put("Exception Message",ex.getMessage());
+
+        return  ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errors);
+    }
+
+    // No connection could be had: the pool turned the caller away or the database is down; both are worth a retry
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<Map<String,String>> handleDatabaseUnavailableException(RuntimeException ex)
+    {
+        Map<String,String> errors = new HashMap<>();
+        log.warn("Database Unavailable: {}",ex.getMessage());
+        errors.put("Message","Service is busy, retry shortly");
+        errors.put("Exception Message",ex.getMessage());
+
+        return  ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(errors);
+    }
+
+    // Login wraps a failed user lookup in this; an unavailable database is worth a retry, anything else is our fault
+    @ExceptionHandler(InternalAuthenticationServiceException.class)
+    public ResponseEntity<Map<String,String>> handleInternalAuthenticationServiceException(InternalAuthenticationServiceException ex)
+    {
+        if (ex.getCause() instanceof CannotCreateTransactionException || ex.getCause() instanceof DataAccessResourceFailureException)
+        {
+            return handleDatabaseUnavailableException((RuntimeException) ex.getCause());
+        }
+        Map<String,String> errors = new HashMap<>();
+        log.error("InternalAuthenticationServiceException: {}",ex.getMessage(),ex);
+        errors.put("Message","Login failed unexpectedly, try again later");
+
+        return  ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errors);
+    }
 }
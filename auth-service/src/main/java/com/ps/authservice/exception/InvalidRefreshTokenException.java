@@ -0,0 +1,8 @@
+package com.ps.authservice.exception;
+
+public class InvalidRefreshTokenException extends RuntimeException
+{
+    public InvalidRefreshTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,51 @@
+package com.ps.authservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One issued refresh token. Only the SHA-256 of the token is stored; every token handed out by rotation
+ * belongs to the family started by the login that issued the first one.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "ux_refresh_tokens_token_hash", columnList = "tokenHash", unique = true),
+        @Index(name = "ix_refresh_tokens_family_id", columnList = "familyId")
+})
+public class RefreshToken
+{
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @Column(nullable = false, length = 43)
+    private String tokenHash;
+
+    @Column(nullable = false)
+    private UUID familyId;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    // Set when the token is exchanged for a new one; a second exchange is a replay
+    private Instant usedAt;
+
+    private Instant revokedAt;
+}
@@ -0,0 +1,41 @@
+package com.ps.authservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One JWT signing key pair. Every auth-service instance reads the same rows, so they all sign with the same
+ * current key and publish the same key set.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "jwt_signing_keys")
+public class SigningKey
+{
+    // RFC 7638 thumbprint of the public key, sent as the token's kid
+    @Id
+    private String kid;
+
+    // JWS algorithm, ES256 or EdDSA
+    @Column(nullable = false)
+    private String algorithm;
+
+    // X.509 SubjectPublicKeyInfo encoding
+    @Column(nullable = false)
+    private byte[] publicKey;
+
+    // PKCS#8 encoding, encrypted with the key-encryption key by SigningKeyCipher; never stored in plaintext
+    @Column(nullable = false)
+    private byte[] privateKey;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,11 @@
+package com.ps.authservice.repository;
+
+import com.ps.authservice.model.SigningKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface SigningKeyRepository extends JpaRepository<SigningKey, String>
+{
+    List<SigningKey> findAllByOrderByCreatedAtDesc();
+}
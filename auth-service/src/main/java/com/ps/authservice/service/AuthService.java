@@ -1,6 +1,8 @@
 package com.ps.authservice.service;
 
 import com.ps.authservice.dto.LoginRequestDTO;
+import com.ps.authservice.dto.LoginResponseDTO;
+import com.ps.authservice.dto.RefreshRequestDTO;
 import com.ps.authservice.dto.SignUpDTO;
 import com.ps.authservice.exception.UserExistsAlreadyException;
 import com.ps.authservice.model.User;
@@ -8,12 +10,11 @@ import com.ps.authservice.repository.UserRepository;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
-
 @Service
 public class AuthService
 {
@@ -21,12 +22,16 @@ public class AuthService
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final UserCache userCache;
+    private final RefreshTokenService refreshTokenService;
 
-    public AuthService(AuthenticationManager authenticationManager, UserRepository userRepository, PasswordEncoder passwordEncoder, JwtService jwtService) {
+    public AuthService(AuthenticationManager authenticationManager, UserRepository userRepository, PasswordEncoder passwordEncoder, JwtService jwtService, UserCache userCache, RefreshTokenService refreshTokenService) {
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
+        this.userCache = userCache;
+        this.refreshTokenService = refreshTokenService;
     }
 
     //Method to register
@@ -44,11 +49,13 @@ public class AuthService
                 .role(User.Role.valueOf(signUpDTO.getRole()))
                 .build();
         User savedUser = userRepository.save(user);
+        // Nothing should be cached for a new email, but a role or password set here must never be shadowed by an old entry
+        userCache.removeUserFromCache(savedUser.getUsername());
 
         return savedUser;
     }
 
-    public String login(LoginRequestDTO loginRequestDTO)
+    public LoginResponseDTO login(LoginRequestDTO loginRequestDTO)
     {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
@@ -56,13 +63,34 @@ public class AuthService
                 )
         );
 
-        Optional<User> user = userRepository.findUserByEmail(loginRequestDTO.getEmail());
-
-        if(user.isPresent())
+        // The principal is the User that authenticate() already loaded (or took from the user cache), no second query
+        if(authentication.getPrincipal() instanceof User user)
         {
-            return jwtService.generateToken(user.get().getEmail(),user.get().getRole().toString());
+            return tokens("Authenticated", user, refreshTokenService.issue(user));
         }
 
         throw new UsernameNotFoundException("User not found");
     }
+
+    // Renewal costs one indexed lookup instead of a password hash; the role is read fresh from the user row
+    public LoginResponseDTO refresh(RefreshRequestDTO refreshRequestDTO)
+    {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshRequestDTO.getRefreshToken());
+        return tokens("Refreshed", rotation.user(), rotation.refreshToken());
+    }
+
+    public void logout(RefreshRequestDTO refreshRequestDTO)
+    {
+        refreshTokenService.revoke(refreshRequestDTO.getRefreshToken());
+    }
+
+    private LoginResponseDTO tokens(String status, User user, String refreshToken)
+    {
+        return LoginResponseDTO.builder()
+                .status(status)
+                .token(jwtService.generateToken(user.getEmail(),user.getRole().toString()))
+                .refreshToken(refreshToken)
+                .expiresIn(jwtService.getExpirationSeconds())
+                .build();
+    }
 }
@@ -2,7 +2,9 @@ package com.ps.authservice.service;
 
 import com.ps.authservice.model.User;
 import com.ps.authservice.repository.UserRepository;
+import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -10,12 +12,14 @@ import org.springframework.stereotype.Service;
 import java.util.Optional;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final UserCache userCache;
 
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(UserRepository userRepository, UserCache userCache) {
         this.userRepository = userRepository;
+        this.userCache = userCache;
     }
 
     //The Job of this method is to fetch user from the Database
@@ -31,4 +35,17 @@ public class CustomUserDetailsService implements UserDetailsService {
         return fetchedUser;
 
     }
+
+    //Called after a successful login when the stored hash is due for a rehash (new encoding or cost factor)
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword)
+    {
+        User storedUser = userRepository.findUserByEmail(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        storedUser.setPassword(newPassword);
+        User savedUser = userRepository.save(storedUser);
+        // The provider cached the user with the old hash just before this; drop it so the next login doesn't rehash again
+        userCache.removeUserFromCache(savedUser.getUsername());
+        return savedUser;
+    }
 }
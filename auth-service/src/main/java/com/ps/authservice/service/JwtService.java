@@ -1,56 +1,49 @@
 package com.ps.authservice.service;
 
+import com.ps.authservice.crypto.SigningKeyManager;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.Map;
 
 @Service
 public class JwtService {
 
-    private final SecretKey secretKey;
+    private final SigningKeyManager signingKeyManager;
     private final long expirationMillis;
 
     public JwtService(
-            @Value("${jwt.secret}") String secret,
+            SigningKeyManager signingKeyManager,
             @Value("${jwt.expiration-time}") long expirationMillis
     ) {
-        // For HS256, key must be of sufficient length
-        this.secretKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.signingKeyManager = signingKeyManager;
         this.expirationMillis = expirationMillis;
     }
 
-    public String generateToken(String username, String role) {
-        long now = System.currentTimeMillis();
-        Date issuedAt = new Date(now);
-        Date expiration = new Date(now + expirationMillis);
+    public long getExpirationSeconds() {
+        return expirationMillis / 1000;
+    }
 
-        return Jwts.builder()
-                .setSubject(username)
-                .setIssuedAt(issuedAt)
-                .setExpiration(expiration)
-                .claim("role", role)
-                .signWith(secretKey, SignatureAlgorithm.HS256)
-                .compact();
+    public String generateToken(String username, String role) {
+        return generateToken(username, Map.of("role", role));
     }
 
-    // Optional helper if you want to add extra claims later:
+    // The kid header tells verifiers which key of the published set to check the signature with
     public String generateToken(String username, Map<String, Object> extraClaims) {
         long now = System.currentTimeMillis();
         Date issuedAt = new Date(now);
         Date expiration = new Date(now + expirationMillis);
+        SigningKeyManager.LoadedKey key = signingKeyManager.signingKey();
 
         return Jwts.builder()
-                .setSubject(username)
-                .setIssuedAt(issuedAt)
-                .setExpiration(expiration)
-                .addClaims(extraClaims)
-                .signWith(secretKey, SignatureAlgorithm.HS256)
+                .header().keyId(key.kid()).and()
+                .subject(username)
+                .issuedAt(issuedAt)
+                .expiration(expiration)
+                .claims(extraClaims)
+                .signWith(key.privateKey(), key.algorithm())
                 .compact();
     }
 }
@@ -0,0 +1,151 @@
+package com.ps.authservice.service;
+
+import com.ps.authservice.exception.InvalidRefreshTokenException;
+import com.ps.authservice.model.RefreshToken;
+import com.ps.authservice.model.User;
+import com.ps.authservice.repository.RefreshTokenRepository;
+import com.ps.authservice.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque, single-use refresh tokens that renew an access token without a password check.
+ * <p>
+ * A token is 256 random bits; only its SHA-256 is stored, so renewal is one indexed lookup and a leaked
+ * table holds nothing usable. Every exchange marks the token used and hands out its successor in the same
+ * family. Presenting a used token again means it was copied, so the whole family is revoked and both the
+ * thief and the legitimate client have to log in again. Outcomes are counted as {@code auth.refresh{outcome}}.
+ * </p>
+ */
+@Slf4j
+@Service
+public class RefreshTokenService
+{
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+    private final Duration timeToLive;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               UserRepository userRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${auth.refresh-token.ttl:14d}") Duration timeToLive)
+    {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.meterRegistry = meterRegistry;
+        this.timeToLive = timeToLive;
+    }
+
+    public record Rotation(User user, String refreshToken)
+    {
+    }
+
+    // Starts a new family, one per login
+    @Transactional
+    public String issue(User user)
+    {
+        return issue(userRepository.getReferenceById(user.getId()), UUID.randomUUID(), Instant.now());
+    }
+
+    /**
+     * Exchanges a refresh token for its successor. The old token stops working whether or not the caller
+     * ever receives the new one.
+     */
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public Rotation rotate(String rawToken)
+    {
+        Instant now = Instant.now();
+        RefreshToken token = refreshTokenRepository.findByTokenHash(hash(rawToken)).orElse(null);
+        if (token == null)
+        {
+            throw rejected("invalid", "Unknown refresh token");
+        }
+        if (token.getRevokedAt() != null)
+        {
+            throw rejected("revoked", "Refresh token has been revoked");
+        }
+        if (token.getExpiresAt().isBefore(now))
+        {
+            throw rejected("expired", "Refresh token has expired");
+        }
+        if (token.getUsedAt() != null || refreshTokenRepository.markUsed(token.getId(), now) == 0)
+        {
+            int revoked = refreshTokenRepository.revokeFamily(token.getFamilyId(), now);
+            log.warn("Refresh token reuse for user {}, revoked {} tokens of family {}", token.getUser().getEmail(), revoked, token.getFamilyId());
+            throw rejected("reused", "Refresh token was already used");
+        }
+
+        meterRegistry.counter("auth.refresh", "outcome", "rotated").increment();
+        return new Rotation(token.getUser(), issue(token.getUser(), token.getFamilyId(), now));
+    }
+
+    // Logout: the token's family can no longer be exchanged. Unknown tokens are ignored, there is nothing to end
+    @Transactional
+    public void revoke(String rawToken)
+    {
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), Instant.now()));
+    }
+
+    // Used tokens are kept until they expire, so a replay is still recognised as one
+    @Scheduled(fixedDelayString = "${auth.refresh-token.purge-interval:1h}")
+    public void purgeExpired()
+    {
+        int purged = refreshTokenRepository.deleteExpired(Instant.now());
+        if (purged > 0)
+        {
+            log.info("Purged {} expired refresh tokens", purged);
+        }
+    }
+
+    private String issue(User user, UUID familyId, Instant now)
+    {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash(rawToken))
+                .familyId(familyId)
+                .user(user)
+                .createdAt(now)
+                .expiresAt(now.plus(timeToLive))
+                .build());
+        return rawToken;
+    }
+
+    private InvalidRefreshTokenException rejected(String outcome, String message)
+    {
+        meterRegistry.counter("auth.refresh", "outcome", outcome).increment();
+        return new InvalidRefreshTokenException(message);
+    }
+
+    private static String hash(String rawToken)
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.ps.authservice.threads;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps how many callers may wait for a pooled connection at once.
+ * <p>
+ * With platform threads Tomcat's pool kept the number of waiters near the connection pool size; with
+ * virtual threads every request gets a thread, so thousands can queue inside Hikari and all time out
+ * together. Beyond {@code maxWaiting} concurrent acquisitions a caller fails straight away with
+ * {@link SQLTransientConnectionException}, which the exception handler answers with 503.
+ * patient-service carries a copy of this class.
+ * </p>
+ */
+public class BoundedWaitDataSource extends DelegatingDataSource
+{
+    private final int maxWaiting;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public BoundedWaitDataSource(DataSource targetDataSource, int maxWaiting)
+    {
+        super(targetDataSource);
+        this.maxWaiting = maxWaiting;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        admit();
+        try
+        {
+            return super.getConnection();
+        }
+        finally
+        {
+            waiting.decrementAndGet();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        admit();
+        try
+        {
+            return super.getConnection(username, password);
+        }
+        finally
+        {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private void admit() throws SQLTransientConnectionException
+    {
+        if (waiting.incrementAndGet() > maxWaiting)
+        {
+            waiting.decrementAndGet();
+            rejected.incrementAndGet();
+            throw new SQLTransientConnectionException("Connection pool saturated: " + maxWaiting + " callers are already waiting for a connection");
+        }
+    }
+
+    public int getWaiting()
+    {
+        return waiting.get();
+    }
+
+    public long getRejected()
+    {
+        return rejected.get();
+    }
+}
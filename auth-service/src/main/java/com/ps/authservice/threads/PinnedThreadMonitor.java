@@ -0,0 +1,106 @@
+package com.ps.authservice.threads;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads that stayed pinned to their carrier, typically by blocking inside a
+ * {@code synchronized} block or a native frame, for longer than {@code threshold}.
+ * <p>
+ * Listens to the JDK's own {@code jdk.VirtualThreadPinned} event through an in-process JFR stream. Each
+ * event is timed as {@code auth.threads.pinned{site}}, where the site is the first frame in this
+ * service's code, since that is where the lock can be replaced. The stack is logged at most once per
+ * {@code logInterval} for each site.
+ * patient-service carries a copy of this class.
+ * </p>
+ */
+@Slf4j
+public class PinnedThreadMonitor
+{
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APPLICATION_PACKAGE = "com.ps.authservice.";
+    private static final int LOGGED_FRAMES = 15;
+
+    private final MeterRegistry meterRegistry;
+    private final Duration threshold;
+    private final Duration logInterval;
+    private final Map<String, Long> lastLoggedAt = new ConcurrentHashMap<>();
+    private RecordingStream stream;
+
+    public PinnedThreadMonitor(MeterRegistry meterRegistry, Duration threshold, Duration logInterval)
+    {
+        this.meterRegistry = meterRegistry;
+        this.threshold = threshold;
+        this.logInterval = logInterval;
+    }
+
+    @PostConstruct
+    void start()
+    {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Reporting virtual threads pinned for longer than {} ms", threshold.toMillis());
+    }
+
+    @PreDestroy
+    void stop()
+    {
+        stream.close();
+    }
+
+    private void onPinned(RecordedEvent event)
+    {
+        List<RecordedFrame> frames = event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames();
+        String site = site(frames);
+        Timer.builder("auth.threads.pinned")
+                .description("Virtual threads pinned to their carrier for longer than the reporting threshold")
+                .tag("site", site)
+                .register(meterRegistry)
+                .record(event.getDuration());
+
+        long now = System.nanoTime();
+        Long last = lastLoggedAt.get(site);
+        if (last == null || now - last >= logInterval.toNanos())
+        {
+            lastLoggedAt.put(site, now);
+            log.warn("Virtual thread pinned for {} ms at {}\n{}", event.getDuration().toMillis(), site, format(frames));
+        }
+    }
+
+    private static String site(List<RecordedFrame> frames)
+    {
+        for (RecordedFrame frame : frames)
+        {
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith(APPLICATION_PACKAGE))
+            {
+                return type.substring(type.lastIndexOf('.') + 1) + "." + frame.getMethod().getName();
+            }
+        }
+        return "external";
+    }
+
+    private static String format(List<RecordedFrame> frames)
+    {
+        return frames.stream()
+                .limit(LOGGED_FRAMES)
+                .map(frame -> "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + (frame.getLineNumber() > 0 ? ":" + frame.getLineNumber() : ""))
+                .collect(Collectors.joining("\n"));
+    }
+}
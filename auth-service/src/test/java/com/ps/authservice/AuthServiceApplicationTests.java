@@ -3,7 +3,8 @@ package com.ps.authservice;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// Throwaway all-zero key-encryption key; real deployments set JWT_KEYS_ENCRYPTION_KEY
+@SpringBootTest(properties = "jwt.keys.encryption-key=AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=")
 class AuthServiceApplicationTests {
 
 	@Test
@@ -0,0 +1,108 @@
+package com.ps.authservice.crypto;
+
+import com.ps.authservice.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTest
+{
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BlockingEncoder(), 1, 1,
+            Duration.ofMillis(100), meterRegistry);
+
+    @AfterEach
+    void tearDown()
+    {
+        release.countDown();
+        encoder.shutdown();
+    }
+
+    @Test
+    void hashesOnThePool()
+    {
+        release.countDown();
+
+        assertThat(encoder.encode("secret")).isEqualTo("hashed:secret");
+        assertThat(encoder.matches("secret", "hashed:secret")).isTrue();
+    }
+
+    @Test
+    void timedOutRequestIsRemovedFromTheQueue() throws InterruptedException
+    {
+        // Times out too, but keeps the only hashing thread busy until released
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> encoder.encode("second")).isInstanceOf(PasswordHashingBusyException.class);
+
+        assertThat(meterRegistry.get("auth.password.queue.depth").gauge().value()).isZero();
+
+        // The freed slot takes the next request instead of refusing it as queue_full
+        assertThatThrownBy(() -> encoder.encode("third")).isInstanceOf(PasswordHashingBusyException.class);
+        assertThat(meterRegistry.get("auth.password.rejected").tag("reason", "queue_full").counter().count()).isZero();
+
+        release.countDown();
+        assertThat(running.exceptionally(e -> null).join()).isNull();
+    }
+
+    @Test
+    void fullQueueIsRefusedRightAway() throws InterruptedException
+    {
+        CompletableFuture.runAsync(() -> encoder.encode("first"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"));
+        while (meterRegistry.get("auth.password.queue.depth").gauge().value() == 0)
+        {
+            Thread.onSpinWait();
+        }
+
+        assertThatThrownBy(() -> encoder.encode("third"))
+                .isInstanceOf(PasswordHashingBusyException.class)
+                .hasMessageContaining("full");
+        assertThat(meterRegistry.get("auth.password.rejected").tag("reason", "queue_full").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        queued.exceptionally(e -> null).join();
+    }
+
+    private final class BlockingEncoder implements PasswordEncoder
+    {
+        @Override
+        public String encode(CharSequence rawPassword)
+        {
+            started.countDown();
+            // Like BCrypt, keep hashing when interrupted
+            boolean released = false;
+            while (!released)
+            {
+                try
+                {
+                    released = release.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    // Ignored on purpose
+                }
+            }
+            return "hashed:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword)
+        {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
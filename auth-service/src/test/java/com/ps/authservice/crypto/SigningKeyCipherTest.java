@@ -0,0 +1,69 @@
+package com.ps.authservice.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SigningKeyCipherTest
+{
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final byte[] PKCS8 = {0x30, 0x41, 0x02, 0x01, 0x00, 0x30, 0x13};
+
+    private final SigningKeyCipher cipher = new SigningKeyCipher(KEY);
+
+    @Test
+    void unwrapReturnsWhatWrapWasGiven() throws GeneralSecurityException
+    {
+        byte[] wrapped = cipher.wrap("kid-1", PKCS8);
+
+        assertThat(cipher.isWrapped(wrapped)).isTrue();
+        assertThat(cipher.unwrap("kid-1", wrapped)).isEqualTo(PKCS8);
+    }
+
+    @Test
+    void everyWrapUsesAFreshNonce()
+    {
+        assertThat(cipher.wrap("kid-1", PKCS8)).isNotEqualTo(cipher.wrap("kid-1", PKCS8));
+    }
+
+    @Test
+    void wrappedKeyIsBoundToItsKid()
+    {
+        byte[] wrapped = cipher.wrap("kid-1", PKCS8);
+
+        assertThatThrownBy(() -> cipher.unwrap("kid-2", wrapped)).isInstanceOf(GeneralSecurityException.class);
+    }
+
+    @Test
+    void tamperingOrAnotherKeyEncryptionKeyIsDetected()
+    {
+        byte[] wrapped = cipher.wrap("kid-1", PKCS8);
+        byte[] tampered = wrapped.clone();
+        tampered[tampered.length - 1] ^= 1;
+        SigningKeyCipher other = new SigningKeyCipher(Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII)));
+
+        assertThatThrownBy(() -> cipher.unwrap("kid-1", tampered)).isInstanceOf(GeneralSecurityException.class);
+        assertThatThrownBy(() -> other.unwrap("kid-1", wrapped)).isInstanceOf(GeneralSecurityException.class);
+    }
+
+    @Test
+    void plaintextPkcs8IsNotMistakenForAWrappedKey()
+    {
+        assertThat(cipher.isWrapped(PKCS8)).isFalse();
+        assertThatThrownBy(() -> cipher.unwrap("kid-1", PKCS8)).isInstanceOf(GeneralSecurityException.class);
+    }
+
+    @Test
+    void rejectsKeysThatAreNotAes256()
+    {
+        assertThatThrownBy(() -> new SigningKeyCipher(Base64.getEncoder().encodeToString(new byte[16])))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new SigningKeyCipher("not base64!"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
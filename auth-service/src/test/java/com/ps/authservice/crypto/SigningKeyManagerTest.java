@@ -0,0 +1,68 @@
+package com.ps.authservice.crypto;
+
+import com.ps.authservice.model.SigningKey;
+import com.ps.authservice.repository.SigningKeyRepository;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SigningKeyManagerTest
+{
+    private final SigningKeyRepository repository = mock(SigningKeyRepository.class);
+    private final SigningKeyCipher cipher = new SigningKeyCipher(Base64.getEncoder().encodeToString(new byte[32]));
+    private final SigningKeyManager manager = new SigningKeyManager(repository, cipher, "ES256",
+            Duration.ofHours(24), Duration.ofMinutes(10), 900_000);
+
+    @Test
+    void newKeysAreStoredEncrypted() throws GeneralSecurityException
+    {
+        when(repository.findAllByOrderByCreatedAtDesc()).thenReturn(List.of());
+        when(repository.save(any(SigningKey.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        manager.rotate();
+
+        ArgumentCaptor<SigningKey> saved = ArgumentCaptor.forClass(SigningKey.class);
+        verify(repository).save(saved.capture());
+        SigningKey stored = saved.getValue();
+        assertThat(cipher.isWrapped(stored.getPrivateKey())).isTrue();
+        assertThat(cipher.unwrap(stored.getKid(), stored.getPrivateKey()))
+                .isEqualTo(manager.signingKey().privateKey().getEncoded());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void plaintextKeysAreEncryptedInPlaceAndStillSign() throws GeneralSecurityException
+    {
+        KeyPair keyPair = Jwts.SIG.ES256.keyPair().build();
+        SigningKey legacy = SigningKey.builder()
+                .kid("legacy")
+                .algorithm("ES256")
+                .publicKey(keyPair.getPublic().getEncoded())
+                .privateKey(keyPair.getPrivate().getEncoded())
+                .createdAt(Instant.now().minus(Duration.ofHours(1)))
+                .build();
+        when(repository.findAllByOrderByCreatedAtDesc()).thenReturn(new ArrayList<>(List.of(legacy)));
+
+        manager.rotate();
+
+        ArgumentCaptor<Iterable<SigningKey>> saved = ArgumentCaptor.forClass(Iterable.class);
+        verify(repository).saveAll(saved.capture());
+        assertThat(saved.getValue()).containsExactly(legacy);
+        assertThat(cipher.unwrap("legacy", legacy.getPrivateKey())).isEqualTo(keyPair.getPrivate().getEncoded());
+        assertThat(manager.signingKey().kid()).isEqualTo("legacy");
+    }
+}
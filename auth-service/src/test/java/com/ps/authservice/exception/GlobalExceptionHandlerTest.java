@@ -0,0 +1,40 @@
+package com.ps.authservice.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GlobalExceptionHandlerTest
+{
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+    @Test
+    void unavailableDatabaseDuringLoginIsRetryable()
+    {
+        ResponseEntity<Map<String,String>> pool = handler.handleInternalAuthenticationServiceException(
+                new InternalAuthenticationServiceException("lookup failed", new CannotCreateTransactionException("no connection")));
+        ResponseEntity<Map<String,String>> down = handler.handleInternalAuthenticationServiceException(
+                new InternalAuthenticationServiceException("lookup failed", new DataAccessResourceFailureException("down")));
+
+        assertThat(pool.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(pool.getHeaders().getFirst("Retry-After")).isEqualTo("1");
+        assertThat(down.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void anyOtherLoginFailureIsAnExplicit500()
+    {
+        ResponseEntity<Map<String,String>> response = handler.handleInternalAuthenticationServiceException(
+                new InternalAuthenticationServiceException("lookup failed", new IllegalStateException("bug")));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(response.getBody()).containsKey("Message").doesNotContainValue("bug");
+    }
+}
@@ -0,0 +1,161 @@
+package com.ps.authservice.service;
+
+import com.ps.authservice.exception.InvalidRefreshTokenException;
+import com.ps.authservice.model.RefreshToken;
+import com.ps.authservice.model.User;
+import com.ps.authservice.repository.RefreshTokenRepository;
+import com.ps.authservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenServiceTest
+{
+    private final RefreshTokenRepository refreshTokenRepository = mock(RefreshTokenRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RefreshTokenService service = new RefreshTokenService(refreshTokenRepository, userRepository,
+            meterRegistry, Duration.ofDays(14));
+
+    // Stands in for the refresh_tokens table; the repository mock reads and writes it like the real queries
+    private final List<RefreshToken> table = new ArrayList<>();
+    private final User user = User.builder().id(UUID.randomUUID()).email("ada@example.com").role(User.Role.USER).build();
+
+    @BeforeEach
+    void setUp()
+    {
+        when(userRepository.getReferenceById(user.getId())).thenReturn(user);
+        when(refreshTokenRepository.save(any(RefreshToken.class))).thenAnswer(invocation -> {
+            RefreshToken token = invocation.getArgument(0);
+            token.setId(UUID.randomUUID());
+            table.add(token);
+            return token;
+        });
+        when(refreshTokenRepository.findByTokenHash(anyString())).thenAnswer(invocation -> table.stream()
+                .filter(token -> token.getTokenHash().equals(invocation.getArgument(0)))
+                .findFirst());
+        when(refreshTokenRepository.markUsed(any(UUID.class), any(Instant.class))).thenAnswer(invocation -> {
+            RefreshToken token = byId(invocation.getArgument(0));
+            if (token.getUsedAt() != null || token.getRevokedAt() != null)
+            {
+                return 0;
+            }
+            token.setUsedAt(invocation.getArgument(1));
+            return 1;
+        });
+        when(refreshTokenRepository.revokeFamily(any(UUID.class), any(Instant.class))).thenAnswer(invocation -> {
+            List<RefreshToken> family = table.stream()
+                    .filter(token -> token.getFamilyId().equals(invocation.getArgument(0)) && token.getRevokedAt() == null)
+                    .toList();
+            family.forEach(token -> token.setRevokedAt(invocation.getArgument(1)));
+            return family.size();
+        });
+    }
+
+    @Test
+    void rotationHandsOutASuccessorInTheSameFamily()
+    {
+        String first = service.issue(user);
+
+        RefreshTokenService.Rotation rotation = service.rotate(first);
+
+        assertThat(rotation.user()).isSameAs(user);
+        assertThat(rotation.refreshToken()).isNotEqualTo(first);
+        assertThat(table).hasSize(2);
+        assertThat(table.get(0).getUsedAt()).isNotNull();
+        assertThat(table.get(1).getFamilyId()).isEqualTo(table.get(0).getFamilyId());
+        assertThat(outcome("rotated")).isEqualTo(1);
+    }
+
+    @Test
+    void replayingAUsedTokenRevokesTheWholeFamily()
+    {
+        String first = service.issue(user);
+        String second = service.rotate(first).refreshToken();
+        String otherLogin = service.issue(user);
+
+        assertThatThrownBy(() -> service.rotate(first))
+                .isInstanceOf(InvalidRefreshTokenException.class)
+                .hasMessageContaining("already used");
+
+        UUID family = table.get(0).getFamilyId();
+        assertThat(table).filteredOn(token -> token.getFamilyId().equals(family))
+                .allSatisfy(token -> assertThat(token.getRevokedAt()).isNotNull());
+        assertThat(table).filteredOn(token -> !token.getFamilyId().equals(family))
+                .allSatisfy(token -> assertThat(token.getRevokedAt()).isNull());
+        assertThat(outcome("reused")).isEqualTo(1);
+
+        // The legitimate client's successor is dead too, while the other login keeps working
+        assertThatThrownBy(() -> service.rotate(second)).hasMessageContaining("revoked");
+        assertThat(service.rotate(otherLogin).refreshToken()).isNotBlank();
+    }
+
+    @Test
+    void losingAConcurrentExchangeCountsAsReuse()
+    {
+        String first = service.issue(user);
+        RefreshToken stored = table.getFirst();
+        // The other request marked it used between our lookup and our conditional update
+        when(refreshTokenRepository.markUsed(any(UUID.class), any(Instant.class))).thenReturn(0);
+
+        assertThatThrownBy(() -> service.rotate(first)).hasMessageContaining("already used");
+
+        verify(refreshTokenRepository).revokeFamily(eq(stored.getFamilyId()), any(Instant.class));
+        assertThat(stored.getRevokedAt()).isNotNull();
+        assertThat(table).hasSize(1);
+    }
+
+    @Test
+    void unknownAndExpiredTokensAreRejectedWithoutRevokingAnything()
+    {
+        String first = service.issue(user);
+        table.getFirst().setExpiresAt(Instant.now().minusSeconds(1));
+
+        assertThatThrownBy(() -> service.rotate("not-a-token")).hasMessageContaining("Unknown");
+        assertThatThrownBy(() -> service.rotate(first)).hasMessageContaining("expired");
+
+        verify(refreshTokenRepository, never()).revokeFamily(any(UUID.class), any(Instant.class));
+        assertThat(outcome("invalid")).isEqualTo(1);
+        assertThat(outcome("expired")).isEqualTo(1);
+    }
+
+    @Test
+    void logoutEndsTheFamily()
+    {
+        String first = service.issue(user);
+        String second = service.rotate(first).refreshToken();
+
+        service.revoke(second);
+
+        assertThat(table).allSatisfy(token -> assertThat(token.getRevokedAt()).isNotNull());
+        assertThatThrownBy(() -> service.rotate(second)).hasMessageContaining("revoked");
+    }
+
+    private RefreshToken byId(UUID id)
+    {
+        Optional<RefreshToken> token = table.stream().filter(candidate -> candidate.getId().equals(id)).findFirst();
+        return token.orElseThrow();
+    }
+
+    private double outcome(String outcome)
+    {
+        return meterRegistry.counter("auth.refresh", "outcome", outcome).count();
+    }
+}
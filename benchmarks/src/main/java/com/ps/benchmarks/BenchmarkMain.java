@@ -0,0 +1,40 @@
+package com.ps.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Accepts every JMH option and only fills in defaults so that a plain
+ * {@code java -jar target/benchmarks.jar} leaves a JSON report, including allocation per operation from the
+ * GC profiler, that {@link CompareResults} can diff against a previous release.
+ */
+public final class BenchmarkMain
+{
+    private static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+    private BenchmarkMain()
+    {
+        throw new IllegalStateException("Utility Class: BenchmarkMain shouldn't be instantiated");
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf"))
+        {
+            options.addAll(List.of("-rf", "json"));
+        }
+        if (!options.contains("-rff"))
+        {
+            options.addAll(List.of("-rff", DEFAULT_RESULT_FILE));
+        }
+        if (!options.contains("-prof"))
+        {
+            options.addAll(List.of("-prof", "gc"));
+        }
+        Main.main(options.toArray(String[]::new));
+    }
+}
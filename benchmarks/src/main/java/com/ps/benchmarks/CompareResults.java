@@ -0,0 +1,117 @@
+package com.ps.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Diffs two JMH JSON reports, e.g. the last release against the current build:
+ * <pre>{@code
+ * java -cp target/benchmarks.jar com.ps.benchmarks.CompareResults baseline.json target/jmh-result.json 10
+ * }</pre>
+ * Prints the relative change of every benchmark present in both files and exits with status 1 when any of
+ * them got worse by more than the threshold percentage (default 10) and by more than the combined error
+ * margins, so it can gate a deployment.
+ */
+public final class CompareResults
+{
+    private CompareResults()
+    {
+        throw new IllegalStateException("Utility Class: CompareResults shouldn't be instantiated");
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 2)
+        {
+            System.err.println("Usage: CompareResults <baseline.json> <current.json> [threshold-percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> current = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s%n", "benchmark", "baseline", "current", "change");
+        for (Map.Entry<String, Score> entry : current.entrySet())
+        {
+            Score before = baseline.get(entry.getKey());
+            if (before == null)
+            {
+                System.out.printf("%-90s %14s %14.3f %9s%n", entry.getKey(), "-", entry.getValue().value(), "new");
+                continue;
+            }
+            Score after = entry.getValue();
+            double change = (after.value() - before.value()) / before.value() * 100;
+            // Time-per-op modes regress upwards, throughput regresses downwards
+            double worse = after.higherIsWorse() ? change : -change;
+            boolean significant = Math.abs(after.value() - before.value()) > before.error() + after.error();
+            boolean regressed = worse > threshold && significant;
+            if (regressed)
+            {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%%%s %s%n", entry.getKey(), before.value(), after.value(),
+                    change, regressed ? " REGRESSION" : "", after.unit());
+        }
+
+        if (regressions > 0)
+        {
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+    }
+
+    // Keyed by benchmark, mode and parameters; secondary metrics such as gc.alloc.rate.norm are compared too
+    private static Map<String, Score> read(File file) throws IOException
+    {
+        Map<String, Score> scores = new TreeMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file))
+        {
+            String mode = run.path("mode").asText();
+            boolean higherIsWorse = !"thrpt".equals(mode);
+            String key = run.path("benchmark").asText() + " [" + mode + "]" + params(run.path("params"));
+            scores.put(key, score(run.path("primaryMetric"), higherIsWorse));
+
+            JsonNode allocation = run.path("secondaryMetrics").path("gc.alloc.rate.norm");
+            if (!allocation.isMissingNode())
+            {
+                scores.put(key + " gc.alloc.rate.norm", score(allocation, true));
+            }
+        }
+        return scores;
+    }
+
+    private static String params(JsonNode params)
+    {
+        if (params.isMissingNode())
+        {
+            return "";
+        }
+        Map<String, String> values = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+        while (fields.hasNext())
+        {
+            Map.Entry<String, JsonNode> field = fields.next();
+            values.put(field.getKey(), field.getValue().asText());
+        }
+        return " " + values;
+    }
+
+    private static Score score(JsonNode metric, boolean higherIsWorse)
+    {
+        double error = metric.path("scoreError").asDouble(0);
+        return new Score(metric.path("score").asDouble(), Double.isNaN(error) ? 0 : error,
+                metric.path("scoreUnit").asText(), higherIsWorse);
+    }
+
+    private record Score(double value, double error, String unit, boolean higherIsWorse)
+    {
+    }
+}
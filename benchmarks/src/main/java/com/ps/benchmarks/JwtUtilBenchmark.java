@@ -0,0 +1,74 @@
+package com.ps.benchmarks;
+
+import com.ps.apigateway.security.JwtUtil;
+import com.ps.apigateway.security.VerifiedClaimsCache;
+import com.ps.apigateway.security.VerifiedToken;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.KeyPair;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Token verification in the gateway: the first request carrying a token parses it, later ones hit the claims cache
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark
+{
+    private static final String KID = "benchmark-key";
+
+    private JwtUtil jwtUtil;
+    private VerifiedClaimsCache verifiedClaimsCache;
+    private String token;
+
+    @Setup
+    public void setUp()
+    {
+        // ES256 like auth-service; the gateway resolves the kid from its cached key set, here a fixed key
+        KeyPair keyPair = Jwts.SIG.ES256.keyPair().build();
+        jwtUtil = new JwtUtil(header -> keyPair.getPublic());
+        Instant now = Instant.now();
+        token = Jwts.builder()
+                .header().keyId(KID).and()
+                .subject("patient42@pulsetrack.example")
+                .claim("role", "ADMIN")
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(now.plus(1, ChronoUnit.DAYS)))
+                .signWith(keyPair.getPrivate(), Jwts.SIG.ES256)
+                .compact();
+        verifiedClaimsCache = new VerifiedClaimsCache(jwtUtil, new SimpleMeterRegistry(), 100_000);
+        verifiedClaimsCache.verify(token);
+    }
+
+    // A cache miss: signature check and claim parsing
+    @Benchmark
+    public Claims extractAllClaims()
+    {
+        return jwtUtil.extractAllClaims(token);
+    }
+
+    // What JwtAuthenticationFilter pays for a token it has seen before: a SHA-256 of the token and a lookup
+    @Benchmark
+    public Optional<VerifiedToken> verifyCached()
+    {
+        return verifiedClaimsCache.verify(token);
+    }
+}
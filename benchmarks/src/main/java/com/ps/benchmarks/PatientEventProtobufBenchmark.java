@@ -0,0 +1,68 @@
+package com.ps.benchmarks;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.ps.patientservice.model.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import patient.events.PatientEvent;
+
+import java.util.concurrent.TimeUnit;
+
+// The PatientEvent round trip: built by the outbox in patient-service, parsed by analytics-services
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatientEventProtobufBenchmark
+{
+    private Patient patient;
+    private PatientEvent event;
+    private byte[] payload;
+
+    @Setup
+    public void setUp()
+    {
+        patient = PatientFixtures.patient(42);
+        event = build();
+        payload = event.toByteArray();
+    }
+
+    @Benchmark
+    public PatientEvent build()
+    {
+        return PatientEvent.newBuilder()
+                .setPatientId(patient.getId().toString())
+                .setName(patient.getName())
+                .setEmail(patient.getEmail())
+                .setEventType("PATIENT_CREATED")
+                .build();
+    }
+
+    @Benchmark
+    public byte[] toByteArray()
+    {
+        return event.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] buildAndSerialize()
+    {
+        return build().toByteArray();
+    }
+
+    @Benchmark
+    public PatientEvent parseFrom() throws InvalidProtocolBufferException
+    {
+        return PatientEvent.parseFrom(payload);
+    }
+}
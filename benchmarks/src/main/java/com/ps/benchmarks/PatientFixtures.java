@@ -0,0 +1,56 @@
+package com.ps.benchmarks;
+
+import com.ps.patientservice.dto.PatientCreateDTO;
+import com.ps.patientservice.dto.PatientDTO;
+import com.ps.patientservice.mapper.PatientMapper;
+import com.ps.patientservice.model.BillingStatus;
+import com.ps.patientservice.model.Patient;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Deterministic sample data shared by the benchmarks, shaped like real rows
+final class PatientFixtures
+{
+    private PatientFixtures()
+    {
+        throw new IllegalStateException("Utility Class: PatientFixtures shouldn't be instantiated");
+    }
+
+    static Patient patient(int i)
+    {
+        Patient patient = new Patient();
+        patient.setId(new UUID(0x5eedL, i));
+        patient.setName("Patient Number " + i);
+        patient.setEmail("patient" + i + "@pulsetrack.example");
+        patient.setAddress(i + " Main Street, Springfield");
+        patient.setDateofBirth(LocalDate.of(1950, 1, 1).plusDays(i % 20000));
+        patient.setRegisteredDate(LocalDate.of(2020, 1, 1).plusDays(i % 2000));
+        patient.setBillingStatus(BillingStatus.ACTIVE);
+        return patient;
+    }
+
+    static PatientCreateDTO createDTO(int i)
+    {
+        Patient patient = patient(i);
+        PatientCreateDTO dto = new PatientCreateDTO();
+        dto.setName(patient.getName());
+        dto.setEmail(patient.getEmail());
+        dto.setAddress(patient.getAddress());
+        dto.setDateofBirth(patient.getDateofBirth());
+        dto.setRegisteredDate(patient.getRegisteredDate());
+        return dto;
+    }
+
+    static List<PatientDTO> patientDTOs(int size)
+    {
+        List<PatientDTO> dtos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            dtos.add(PatientMapper.toDTO(patient(i)));
+        }
+        return dtos;
+    }
+}
@@ -0,0 +1,71 @@
+package com.ps.benchmarks;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.ps.patientservice.dto.PatientDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialisation of patient lists. {@code writeList} is what a buffered response body costs;
+ * {@code writeStreamed} mirrors GET /patients/stream, which writes element by element and never holds
+ * the whole document in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatientJsonBenchmark
+{
+    @Param({"1000", "100000"})
+    public int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ObjectWriter listWriter;
+    private List<PatientDTO> patients;
+
+    @Setup
+    public void setUp()
+    {
+        listWriter = objectMapper.writerFor(new TypeReference<List<PatientDTO>>() {});
+        patients = PatientFixtures.patientDTOs(size);
+    }
+
+    @Benchmark
+    public byte[] writeList() throws IOException
+    {
+        return listWriter.writeValueAsBytes(patients);
+    }
+
+    @Benchmark
+    public void writeStreamed() throws IOException
+    {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream()))
+        {
+            generator.writeStartArray();
+            for (PatientDTO patient : patients)
+            {
+                objectMapper.writeValue(generator, patient);
+            }
+            generator.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.ps.benchmarks;
+
+import com.ps.patientservice.dto.PatientCreateDTO;
+import com.ps.patientservice.dto.PatientDTO;
+import com.ps.patientservice.mapper.PatientMapper;
+import com.ps.patientservice.model.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Per-row cost of PatientMapper, paid for every patient in a page, stream or bulk import
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatientMapperBenchmark
+{
+    private Patient patient;
+    private PatientCreateDTO createDTO;
+
+    @Setup
+    public void setUp()
+    {
+        patient = PatientFixtures.patient(42);
+        createDTO = PatientFixtures.createDTO(42);
+    }
+
+    @Benchmark
+    public PatientDTO toDTO()
+    {
+        return PatientMapper.toDTO(patient);
+    }
+
+    @Benchmark
+    public Patient fromDTO()
+    {
+        return PatientMapper.fromDTO(createDTO);
+    }
+}
@@ -0,0 +1,119 @@
+package com.ps.benchmarks;
+
+import com.ps.patientservice.dto.PatientDTO;
+import com.ps.patientservice.dto.PatientView;
+import com.ps.patientservice.mapper.PatientMapper;
+import com.ps.patientservice.model.Patient;
+import com.ps.patientservice.repository.PatientRepository;
+import org.hibernate.FlushMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of {@code GET /patients} read through Hibernate from an in-memory H2, reported per row, so
+ * {@code gc.alloc.rate.norm} is the allocation each listed patient costs.
+ * <p>
+ * {@code entities} is the old path: managed {@link Patient}s with dirty-check snapshots, then
+ * {@link PatientMapper#toDTO(Patient)}. {@code readOnlyEntities} keeps the entities but drops the snapshots.
+ * {@code views} is the current path: {@link PatientRepository#VIEW} selects straight into {@link PatientView}
+ * in a read-only, never-flushing session.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatientReadPathBenchmark
+{
+    // patient.page.max-size
+    private static final int PAGE = 500;
+    private static final String ENTITY_PAGE = "select p from Patient p order by p.registeredDate, p.id";
+    private static final String VIEW_PAGE = PatientRepository.VIEW + " order by p.registeredDate, p.id";
+
+    private SessionFactory sessionFactory;
+
+    @Setup
+    public void setUp()
+    {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(Patient.class)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_URL, "jdbc:h2:mem:read-path;DB_CLOSE_DELAY=-1")
+                .setProperty(AvailableSettings.JAKARTA_JDBC_USER, "sa")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .buildSessionFactory();
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < PAGE; i++)
+            {
+                session.persist(PatientFixtures.patient(i));
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE)
+    public List<PatientDTO> entities()
+    {
+        return sessionFactory.fromTransaction(session -> session.createSelectionQuery(ENTITY_PAGE, Patient.class)
+                .setMaxResults(PAGE)
+                .getResultList()
+                .stream()
+                .map(PatientMapper::toDTO)
+                .toList());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE)
+    public List<PatientDTO> readOnlyEntities()
+    {
+        return sessionFactory.fromTransaction(session -> {
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            return session.createSelectionQuery(ENTITY_PAGE, Patient.class)
+                    .setMaxResults(PAGE)
+                    .getResultList()
+                    .stream()
+                    .map(PatientMapper::toDTO)
+                    .toList();
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE)
+    public List<PatientDTO> views()
+    {
+        return sessionFactory.fromTransaction(session -> {
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            return session.createSelectionQuery(VIEW_PAGE, PatientView.class)
+                    .setMaxResults(PAGE)
+                    .getResultList()
+                    .stream()
+                    .map(PatientMapper::toDTO)
+                    .toList();
+        });
+    }
+}
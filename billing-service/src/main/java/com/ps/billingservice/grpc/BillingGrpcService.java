@@ -3,28 +3,226 @@ package com.ps.billingservice.grpc;
 
 import billing.*;
 
+import com.ps.billingservice.store.BillingAccount;
+import com.ps.billingservice.store.BillingAccountStore;
+import com.ps.billingservice.store.BillingStoreBusyException;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Billing account creation over gRPC. Every RPC hands its requests to {@link BillingAccountStore} and answers
+ * when they are committed, without holding a gRPC thread in the meantime.
+ */
 @GrpcService
 public class BillingGrpcService extends BillingServiceGrpc.BillingServiceImplBase
 {
     private static final Logger log = LoggerFactory.getLogger(BillingGrpcService.class);
 
+    private final BillingAccountStore billingAccountStore;
+    private final int maxBatchSize;
+    private final int streamWindow;
+
+    public BillingGrpcService(BillingAccountStore billingAccountStore,
+                              @Value("${billing.grpc.max-batch-size:1000}") int maxBatchSize,
+                              @Value("${billing.grpc.stream-window:64}") int streamWindow)
+    {
+        this.billingAccountStore = billingAccountStore;
+        this.maxBatchSize = maxBatchSize;
+        this.streamWindow = streamWindow;
+    }
+
     @Override
     public void createBillingAccount(BillingRequest billingRequest, StreamObserver<BillingResponse> responseObserver)
     {
-        log.info("Create Billing Account request received {}", billingRequest.toString());
+        log.debug("Create Billing Account request received {}", billingRequest);
 
-        //Business Logic e.g save to db, performs calculates etc
-        BillingResponse response = BillingResponse.newBuilder()
-                .setAccountId(billingRequest.getPatientId())
-                .setStatus("Active Response")
+        result(billingRequest).thenAccept(result -> {
+            if (result.hasAccount())
+            {
+                responseObserver.onNext(result.getAccount());
+                responseObserver.onCompleted();
+            }
+            else
+            {
+                responseObserver.onError(Status.fromCodeValue(result.getError().getCode())
+                        .withDescription(result.getError().getMessage())
+                        .asRuntimeException());
+            }
+        });
+    }
+
+    @Override
+    public void createBillingAccounts(BillingBatchRequest batchRequest, StreamObserver<BillingBatchResponse> responseObserver)
+    {
+        if (batchRequest.getRequestsCount() > maxBatchSize)
+        {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("Batch of " + batchRequest.getRequestsCount() + " exceeds the limit of " + maxBatchSize)
+                    .asRuntimeException());
+            return;
+        }
+        log.debug("Create Billing Accounts batch received with {} requests", batchRequest.getRequestsCount());
+
+        // All requests are queued before any is awaited, so they usually share one group commit
+        List<CompletableFuture<BillingResult>> results = batchRequest.getRequestsList().stream().map(this::result).toList();
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).thenRun(() -> {
+            BillingBatchResponse.Builder response = BillingBatchResponse.newBuilder();
+            results.forEach(result -> response.addResults(result.join()));
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        });
+    }
+
+    /**
+     * Keeps at most {@code billing.grpc.stream-window} requests of the stream requested or being stored, and
+     * asks for more only while the client is reading results, so neither a fast producer nor a slow consumer
+     * makes this side buffer without bound. Results are sent in commit order, each carrying its patient id.
+     */
+    @Override
+    public StreamObserver<BillingRequest> streamBillingAccounts(StreamObserver<BillingResult> responseObserver)
+    {
+        ServerCallStreamObserver<BillingResult> serverObserver = (ServerCallStreamObserver<BillingResult>) responseObserver;
+        serverObserver.disableAutoRequest();
+        FlowControlledStream stream = new FlowControlledStream(serverObserver);
+        serverObserver.setOnReadyHandler(stream::requestMore);
+        return stream;
+    }
+
+    private final class FlowControlledStream implements StreamObserver<BillingRequest>
+    {
+        private final ServerCallStreamObserver<BillingResult> serverObserver;
+        // Guards the observer, which is called both from gRPC threads and from the store's writer
+        private final Object lock = new Object();
+        private int requested;
+        private int storing;
+        private boolean halfClosed;
+        private boolean closed;
+
+        private FlowControlledStream(ServerCallStreamObserver<BillingResult> serverObserver)
+        {
+            this.serverObserver = serverObserver;
+        }
+
+        void requestMore()
+        {
+            synchronized (lock)
+            {
+                while (!closed && !halfClosed && serverObserver.isReady() && requested + storing < streamWindow)
+                {
+                    requested++;
+                    serverObserver.request(1);
+                }
+            }
+        }
+
+        @Override
+        public void onNext(BillingRequest billingRequest)
+        {
+            synchronized (lock)
+            {
+                requested--;
+                storing++;
+            }
+            result(billingRequest).thenAccept(result -> {
+                synchronized (lock)
+                {
+                    storing--;
+                    if (closed)
+                    {
+                        return;
+                    }
+                    serverObserver.onNext(result);
+                    if (halfClosed && storing == 0)
+                    {
+                        closed = true;
+                        serverObserver.onCompleted();
+                        return;
+                    }
+                }
+                requestMore();
+            });
+        }
+
+        @Override
+        public void onError(Throwable t)
+        {
+            synchronized (lock)
+            {
+                closed = true;
+            }
+            log.warn("Billing account stream closed by client: {}", Status.fromThrowable(t));
+        }
+
+        @Override
+        public void onCompleted()
+        {
+            synchronized (lock)
+            {
+                halfClosed = true;
+                if (storing == 0 && !closed)
+                {
+                    closed = true;
+                    serverObserver.onCompleted();
+                }
+            }
+        }
+    }
+
+    // Never completes exceptionally: a failure becomes the error outcome of this request alone
+    private CompletableFuture<BillingResult> result(BillingRequest billingRequest)
+    {
+        BillingResult.Builder result = BillingResult.newBuilder().setPatientId(billingRequest.getPatientId());
+        if (billingRequest.getPatientId().isBlank())
+        {
+            return CompletableFuture.completedFuture(result.setError(error(Status.INVALID_ARGUMENT, "patientId is required")).build());
+        }
+        return billingAccountStore.createAccount(billingRequest.getPatientId(), billingRequest.getName(), billingRequest.getEmail())
+                .handle((account, failure) -> failure == null
+                        ? result.setAccount(toResponse(account)).build()
+                        : result.setError(toError(failure)).build());
+    }
+
+    private static BillingResponse toResponse(BillingAccount account)
+    {
+        return BillingResponse.newBuilder()
+                .setAccountId(account.accountId().toString())
+                .setStatus(account.status())
                 .build();
+    }
 
-        responseObserver.onNext(response);
-        responseObserver.onCompleted();
+    // Everything but bad input is retryable: creation is idempotent, so a retry never creates a second account
+    private static BillingError toError(Throwable failure)
+    {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof BillingStoreBusyException)
+        {
+            return error(Status.RESOURCE_EXHAUSTED, cause.getMessage());
+        }
+        if (cause instanceof TimeoutException)
+        {
+            return error(Status.DEADLINE_EXCEEDED, "Billing account was not committed in time");
+        }
+        if (cause instanceof DataAccessException)
+        {
+            return error(Status.UNAVAILABLE, "Billing account store is unavailable");
+        }
+        log.error("Unexpected failure creating billing account", cause);
+        return error(Status.INTERNAL, cause.getMessage());
+    }
+
+    private static BillingError error(Status status, String message)
+    {
+        return BillingError.newBuilder().setCode(status.getCode().value()).setMessage(message == null ? "" : message).build();
     }
 }
@@ -0,0 +1,8 @@
+package com.ps.billingservice.store;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record BillingAccount(String patientId, UUID accountId, String status, Instant createdAt)
+{
+}
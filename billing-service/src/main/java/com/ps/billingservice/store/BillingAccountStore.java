@@ -0,0 +1,261 @@
+package com.ps.billingservice.store;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Billing accounts, one per patient, written by a single group-commit writer.
+ * <p>
+ * Callers only enqueue. The writer takes everything that queued up while its previous transaction was
+ * committing, up to {@code billing.store.max-batch-size}, and writes it as one JDBC batch in one transaction,
+ * so the commit (and its fsync) is shared by the whole group and the batch grows with the load. Inserts skip
+ * patients that already have an account, and every caller gets the stored row back, so a retried call
+ * returns the account the first attempt created. Exported meters: {@code billing.store.write} (enqueue to
+ * commit), {@code billing.store.commit} and {@code billing.store.commit.size} per transaction,
+ * {@code billing.store.accounts{outcome}} and {@code billing.store.queue.depth}.
+ * </p>
+ */
+@Component
+public class BillingAccountStore
+{
+    private static final Logger log = LoggerFactory.getLogger(BillingAccountStore.class);
+
+    private static final String ACTIVE = "ACTIVE";
+    // Conflicting rows are left untouched, so the account id handed out first stays the account id
+    private static final String INSERT_SQL = """
+            INSERT INTO billing_accounts (patient_id, account_id, name, email, status, created_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT DO NOTHING""";
+    private static final String SELECT_SQL = """
+            SELECT patient_id, account_id, status, created_at FROM billing_accounts WHERE patient_id IN (:patientIds)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingWrite> queue;
+    private final int maxBatchSize;
+    private final Duration maxWait;
+
+    private volatile boolean running = true;
+    private Thread writerThread;
+
+    private final Timer writeTimer;
+    private final Timer commitTimer;
+    private final DistributionSummary commitSize;
+    private final Counter created;
+    private final Counter existing;
+    private final Counter failed;
+    private final Counter rejected;
+    private final Counter timedOut;
+
+    public BillingAccountStore(JdbcTemplate jdbcTemplate,
+                               NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${billing.store.queue-capacity:10000}") int queueCapacity,
+                               @Value("${billing.store.max-batch-size:500}") int maxBatchSize,
+                               @Value("${billing.store.max-wait:2s}") Duration maxWait)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxWait = maxWait;
+
+        this.writeTimer = Timer.builder("billing.store.write")
+                .description("Time from a create call to the commit of its account")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.commitTimer = Timer.builder("billing.store.commit")
+                .description("Duration of one group-commit transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.commitSize = DistributionSummary.builder("billing.store.commit.size")
+                .description("Create calls served by one group-commit transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.created = accounts(meterRegistry, "created");
+        this.existing = accounts(meterRegistry, "existing");
+        this.failed = accounts(meterRegistry, "failed");
+        this.rejected = accounts(meterRegistry, "rejected");
+        this.timedOut = accounts(meterRegistry, "timeout");
+        Gauge.builder("billing.store.queue.depth", queue, BlockingQueue::size)
+                .description("Create calls waiting for the group-commit writer")
+                .register(meterRegistry);
+    }
+
+    private static Counter accounts(MeterRegistry meterRegistry, String outcome)
+    {
+        return Counter.builder("billing.store.accounts")
+                .description("Create calls by outcome; created + existing is the store's throughput")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record PendingWrite(String patientId, String name, String email, long enqueuedAt, CompletableFuture<BillingAccount> result)
+    {
+    }
+
+    @PostConstruct
+    void start()
+    {
+        writerThread = Thread.ofPlatform().name("billing-store-writer").start(this::runWriter);
+    }
+
+    // Lets the writer commit whatever is still queued before the datasource goes away
+    @PreDestroy
+    void stop() throws InterruptedException
+    {
+        running = false;
+        writerThread.join(maxWait.toMillis() * 2);
+    }
+
+    /**
+     * Returns the patient's account, creating it if there is none. Completes once the account is committed,
+     * or exceptionally with {@link BillingStoreBusyException} when the queue is full and with a
+     * {@link TimeoutException} when the commit took longer than {@code billing.store.max-wait}.
+     * Retrying is always safe.
+     */
+    public CompletableFuture<BillingAccount> createAccount(String patientId, String name, String email)
+    {
+        CompletableFuture<BillingAccount> result = new CompletableFuture<>();
+        if (!running || !queue.offer(new PendingWrite(patientId, name, email, System.nanoTime(), result)))
+        {
+            rejected.increment();
+            result.completeExceptionally(new BillingStoreBusyException("Billing account store is at capacity"));
+            return result;
+        }
+        // The write itself still goes ahead; a retry after the timeout finds the account already there
+        return result.orTimeout(maxWait.toMillis(), TimeUnit.MILLISECONDS).whenComplete((account, failure) -> {
+            if (failure instanceof TimeoutException)
+            {
+                timedOut.increment();
+            }
+        });
+    }
+
+    private void runWriter()
+    {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty())
+        {
+            try
+            {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                {
+                    continue;
+                }
+                batch.add(first);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, maxBatchSize - 1);
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    private void commit(List<PendingWrite> batch)
+    {
+        long startedAt = System.nanoTime();
+        Map<String, BillingAccount> accounts;
+        Map<String, UUID> attempted = new TreeMap<>();
+        try
+        {
+            accounts = transactionTemplate.execute(status -> write(batch, attempted));
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Group commit of {} billing accounts failed: {}", batch.size(), e.getMessage());
+            failed.increment(batch.size());
+            batch.forEach(write -> write.result().completeExceptionally(e));
+            return;
+        }
+
+        long committedAt = System.nanoTime();
+        commitTimer.record(committedAt - startedAt, TimeUnit.NANOSECONDS);
+        commitSize.record(batch.size());
+        for (PendingWrite write : batch)
+        {
+            BillingAccount account = accounts.get(write.patientId());
+            writeTimer.record(committedAt - write.enqueuedAt(), TimeUnit.NANOSECONDS);
+            if (account == null)
+            {
+                failed.increment();
+                write.result().completeExceptionally(new IllegalStateException("No billing account stored for patient " + write.patientId()));
+                continue;
+            }
+            // Only the first call for a patient in this batch can have created the row
+            if (account.accountId().equals(attempted.remove(write.patientId())))
+            {
+                created.increment();
+            }
+            else
+            {
+                existing.increment();
+            }
+            write.result().complete(account);
+        }
+    }
+
+    private Map<String, BillingAccount> write(List<PendingWrite> batch, Map<String, UUID> attempted)
+    {
+        // One row per patient, inserted in key order so concurrent writers on other instances lock in the same order
+        Map<String, PendingWrite> unique = new TreeMap<>();
+        batch.forEach(write -> unique.putIfAbsent(write.patientId(), write));
+        unique.keySet().forEach(patientId -> attempted.put(patientId, UUID.randomUUID()));
+        Timestamp now = Timestamp.from(Instant.now());
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, new ArrayList<>(unique.values()), unique.size(), (ps, write) -> {
+            ps.setString(1, write.patientId());
+            ps.setObject(2, attempted.get(write.patientId()));
+            ps.setString(3, write.name());
+            ps.setString(4, write.email());
+            ps.setString(5, ACTIVE);
+            ps.setTimestamp(6, now);
+        });
+
+        Map<String, BillingAccount> accounts = new HashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_SQL, Map.of("patientIds", unique.keySet()), rs -> {
+            BillingAccount account = new BillingAccount(
+                    rs.getString("patient_id"),
+                    rs.getObject("account_id", UUID.class),
+                    rs.getString("status"),
+                    rs.getTimestamp("created_at").toInstant());
+            accounts.put(account.patientId(), account);
+        });
+        return accounts;
+    }
+}
@@ -0,0 +1,9 @@
+package com.ps.billingservice.store;
+
+public class BillingStoreBusyException extends RuntimeException
+{
+    public BillingStoreBusyException(String message)
+    {
+        super(message);
+    }
+}
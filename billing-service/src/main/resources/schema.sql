@@ -0,0 +1,10 @@
+-- One account per patient; the primary key is what makes retried CreateBillingAccount calls idempotent
+CREATE TABLE IF NOT EXISTS billing_accounts
+(
+    patient_id VARCHAR(64) PRIMARY KEY,
+    account_id UUID        NOT NULL UNIQUE,
+    name       VARCHAR(255),
+    email      VARCHAR(255),
+    status     VARCHAR(32) NOT NULL,
+    created_at TIMESTAMP   NOT NULL
+);
@@ -0,0 +1,181 @@
+package com.ps.billingservice.grpc;
+
+import billing.BillingBatchRequest;
+import billing.BillingBatchResponse;
+import billing.BillingRequest;
+import billing.BillingResult;
+import billing.BillingServiceGrpc;
+import com.ps.billingservice.store.BillingAccount;
+import com.ps.billingservice.store.BillingAccountStore;
+import com.ps.billingservice.store.BillingStoreBusyException;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BillingGrpcServiceTest
+{
+    private static final int STREAM_WINDOW = 2;
+
+    private final BillingAccountStore store = mock(BillingAccountStore.class);
+    // One pending store write per patient id, completed by the test
+    private final Map<String, CompletableFuture<BillingAccount>> writes = new ConcurrentHashMap<>();
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        when(store.createAccount(anyString(), anyString(), anyString())).thenAnswer(invocation ->
+                writes.computeIfAbsent(invocation.getArgument(0), patientId -> new CompletableFuture<>()));
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).addService(new BillingGrpcService(store, 3, STREAM_WINDOW)).build().start();
+        channel = InProcessChannelBuilder.forName(name).build();
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void streamKeepsNoMoreThanTheWindowRequestedOrStoring() throws Exception
+    {
+        Results results = new Results();
+        StreamObserver<BillingRequest> requests = BillingServiceGrpc.newStub(channel).streamBillingAccounts(results);
+        for (int i = 1; i <= 5; i++)
+        {
+            requests.onNext(request("p" + i));
+        }
+
+        verify(store, timeout(1000).times(STREAM_WINDOW)).createAccount(anyString(), anyString(), anyString());
+        verify(store, after(200).times(STREAM_WINDOW)).createAccount(anyString(), anyString(), anyString());
+
+        // Each committed write frees one slot, and the next request is read
+        complete("p2");
+        verify(store, timeout(1000).times(STREAM_WINDOW + 1)).createAccount(anyString(), anyString(), anyString());
+        complete("p1");
+        complete("p3");
+        verify(store, timeout(1000).times(5)).createAccount(anyString(), anyString(), anyString());
+        assertThat(results.received).extracting(BillingResult::getPatientId).startsWith("p2");
+    }
+
+    @Test
+    void streamCompletesOnlyOnceEveryAcceptedRequestIsAnswered() throws Exception
+    {
+        Results results = new Results();
+        StreamObserver<BillingRequest> requests = BillingServiceGrpc.newStub(channel).streamBillingAccounts(results);
+        requests.onNext(request("p1"));
+        requests.onNext(request("p2"));
+        verify(store, timeout(1000).times(2)).createAccount(anyString(), anyString(), anyString());
+
+        requests.onCompleted();
+        complete("p1");
+        assertThat(results.completed.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        writes.get("p2").completeExceptionally(new BillingStoreBusyException("full"));
+        assertThat(results.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(results.received).extracting(BillingResult::getPatientId).containsExactly("p1", "p2");
+        assertThat(results.received.get(1).getError().getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED.value());
+    }
+
+    @Test
+    void batchAnswersEachRequestWithItsOwnOutcomeInRequestOrder()
+    {
+        complete("p1");
+        writes.computeIfAbsent("p2", patientId -> new CompletableFuture<>()).completeExceptionally(new TimeoutException());
+
+        BillingBatchResponse response = blockingStub().createBillingAccounts(BillingBatchRequest.newBuilder()
+                .addRequests(request("p1"))
+                .addRequests(request(""))
+                .addRequests(request("p2"))
+                .build());
+
+        assertThat(response.getResultsList()).extracting(BillingResult::getPatientId).containsExactly("p1", "", "p2");
+        assertThat(response.getResults(0).hasAccount()).isTrue();
+        assertThat(response.getResults(1).getError().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT.value());
+        assertThat(response.getResults(2).getError().getCode()).isEqualTo(Status.Code.DEADLINE_EXCEEDED.value());
+    }
+
+    @Test
+    void batchOverTheLimitIsRejected()
+    {
+        BillingBatchRequest.Builder batch = BillingBatchRequest.newBuilder();
+        for (int i = 0; i < 4; i++)
+        {
+            batch.addRequests(request("p" + i));
+        }
+
+        assertThatThrownBy(() -> blockingStub().createBillingAccounts(batch.build()))
+                .isInstanceOfSatisfying(StatusRuntimeException.class,
+                        e -> assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT));
+    }
+
+    private BillingServiceGrpc.BillingServiceBlockingStub blockingStub()
+    {
+        return BillingServiceGrpc.newBlockingStub(channel).withDeadlineAfter(5, TimeUnit.SECONDS);
+    }
+
+    private void complete(String patientId)
+    {
+        writes.computeIfAbsent(patientId, id -> new CompletableFuture<>())
+                .complete(new BillingAccount(patientId, UUID.randomUUID(), "ACTIVE", Instant.now()));
+    }
+
+    private static BillingRequest request(String patientId)
+    {
+        return BillingRequest.newBuilder().setPatientId(patientId).setName("Ada").setEmail("ada@example.com").build();
+    }
+
+    private static final class Results implements StreamObserver<BillingResult>
+    {
+        final List<BillingResult> received = new CopyOnWriteArrayList<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void onNext(BillingResult result)
+        {
+            received.add(result);
+        }
+
+        @Override
+        public void onError(Throwable t)
+        {
+        }
+
+        @Override
+        public void onCompleted()
+        {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.ps.billingservice.store;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BillingAccountStoreTest
+{
+    private final DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BillingAccountStore store;
+
+    BillingAccountStoreTest()
+    {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException
+    {
+        store.stop();
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void duplicatesInOneBatchShareTheAccountTheFirstCallCreated()
+    {
+        store = store(100, Duration.ofSeconds(5));
+        // Queued before the writer starts, so all three land in one transaction
+        CompletableFuture<BillingAccount> first = store.createAccount("p1", "Ada", "ada@example.com");
+        CompletableFuture<BillingAccount> retry = store.createAccount("p1", "Ada", "ada@example.com");
+        CompletableFuture<BillingAccount> other = store.createAccount("p2", "Bob", "bob@example.com");
+        store.start();
+
+        assertThat(retry.join()).isEqualTo(first.join());
+        assertThat(other.join().patientId()).isEqualTo("p2");
+        assertThat(first.join().status()).isEqualTo("ACTIVE");
+        assertThat(rows()).isEqualTo(2);
+        assertThat(accounts("created")).isEqualTo(2);
+        assertThat(accounts("existing")).isEqualTo(1);
+        assertThat(meterRegistry.get("billing.store.commit.size").summary().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("billing.store.commit.size").summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    void aRetryInALaterBatchGetsTheStoredAccount()
+    {
+        store = store(100, Duration.ofSeconds(5));
+        store.start();
+
+        BillingAccount created = store.createAccount("p1", "Ada", "ada@example.com").join();
+        BillingAccount retried = store.createAccount("p1", "Ada Lovelace", "other@example.com").join();
+
+        assertThat(retried).isEqualTo(created);
+        assertThat(jdbcTemplate.queryForObject("SELECT name FROM billing_accounts WHERE patient_id = 'p1'", String.class)).isEqualTo("Ada");
+        assertThat(accounts("created")).isEqualTo(1);
+        assertThat(accounts("existing")).isEqualTo(1);
+    }
+
+    @Test
+    void anAccountWrittenElsewhereIsReturnedAsExisting()
+    {
+        UUID accountId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO billing_accounts (patient_id, account_id, status, created_at) VALUES (?, ?, ?, ?)",
+                "p1", accountId, "ACTIVE", Timestamp.from(Instant.parse("2025-01-01T00:00:00Z")));
+        store = store(100, Duration.ofSeconds(5));
+        store.start();
+
+        BillingAccount account = store.createAccount("p1", "Ada", "ada@example.com").join();
+
+        assertThat(account.accountId()).isEqualTo(accountId);
+        assertThat(accounts("created")).isZero();
+        assertThat(accounts("existing")).isEqualTo(1);
+    }
+
+    @Test
+    void aFullQueueRejectsInsteadOfBlocking()
+    {
+        store = store(1, Duration.ofSeconds(5));
+        CompletableFuture<BillingAccount> queued = store.createAccount("p1", "Ada", "ada@example.com");
+
+        CompletableFuture<BillingAccount> rejected = store.createAccount("p2", "Bob", "bob@example.com");
+
+        assertThat(rejected).isCompletedExceptionally();
+        assertThat(rejected.exceptionNow()).isInstanceOf(BillingStoreBusyException.class);
+        assertThat(accounts("rejected")).isEqualTo(1);
+        store.start();
+        assertThat(queued.join().patientId()).isEqualTo("p1");
+    }
+
+    @Test
+    void aCallTimesOutButItsWriteStillGoesAhead()
+    {
+        store = store(100, Duration.ofMillis(50));
+        CompletableFuture<BillingAccount> call = store.createAccount("p1", "Ada", "ada@example.com");
+
+        assertThat(call).failsWithin(5, TimeUnit.SECONDS).withThrowableThat().havingCause().isInstanceOf(TimeoutException.class);
+        assertThat(meterRegistry.get("billing.store.accounts").tag("outcome", "timeout").counter().count()).isEqualTo(1);
+
+        store.start();
+        BillingAccount retried = store.createAccount("p1", "Ada", "ada@example.com").join();
+        assertThat(retried.patientId()).isEqualTo("p1");
+        assertThat(rows()).isEqualTo(1);
+    }
+
+    @Test
+    void stopCommitsWhatIsStillQueuedThenRejects() throws InterruptedException
+    {
+        store = store(100, Duration.ofSeconds(5));
+        CompletableFuture<BillingAccount> first = store.createAccount("p1", "Ada", "ada@example.com");
+        CompletableFuture<BillingAccount> second = store.createAccount("p2", "Bob", "bob@example.com");
+        store.start();
+
+        store.stop();
+
+        assertThat(first).isCompleted();
+        assertThat(second).isCompleted();
+        assertThat(rows()).isEqualTo(2);
+        assertThat(store.createAccount("p3", "Cy", "cy@example.com").exceptionNow()).isInstanceOf(BillingStoreBusyException.class);
+    }
+
+    @Test
+    void aFailedCommitFailsEveryCallInTheBatch()
+    {
+        jdbcTemplate.execute("DROP TABLE billing_accounts");
+        store = store(100, Duration.ofSeconds(5));
+        CompletableFuture<BillingAccount> first = store.createAccount("p1", "Ada", "ada@example.com");
+        CompletableFuture<BillingAccount> second = store.createAccount("p2", "Bob", "bob@example.com");
+        store.start();
+
+        assertThat(first).failsWithin(5, TimeUnit.SECONDS);
+        assertThat(second).failsWithin(5, TimeUnit.SECONDS);
+        assertThat(accounts("failed")).isEqualTo(2);
+    }
+
+    private BillingAccountStore store(int queueCapacity, Duration maxWait)
+    {
+        return new BillingAccountStore(jdbcTemplate, new NamedParameterJdbcTemplate(jdbcTemplate),
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)), meterRegistry, queueCapacity, 500, maxWait);
+    }
+
+    private int rows()
+    {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM billing_accounts", Integer.class);
+    }
+
+    private double accounts(String outcome)
+    {
+        return meterRegistry.get("billing.store.accounts").tag("outcome", outcome).counter().count();
+    }
+}
@@ -62,6 +62,7 @@ public class LocalStack extends Stack {
         DatabaseInstance authServiceDb = createDatabase("AuthServiceDB", "authdb");
         DatabaseInstance patientServiceDb = createDatabase("PatientServiceDB", "patientdb");
         DatabaseInstance analyticsServiceDb= createDatabase("AnalyticsServiceDB","analyticsdb");
+        DatabaseInstance billingServiceDb = createDatabase("BillingServiceDB","billingdb");
 
         CfnHealthCheck authHealthCheck = createDbHealthCheck(authServiceDb, "AuthServiceDBHealthCheck");
         CfnHealthCheck patientHealthCheck = createDbHealthCheck(patientServiceDb, "PatientServiceDBHealthCheck");
@@ -78,14 +79,22 @@ public class LocalStack extends Stack {
 
         this.ecsCluster = createEcsCluster();
 
+        // Encrypts the JWT signing keys in authdb; handed in at synth time so it never sits in the repository
+        String jwtKeysEncryptionKey = System.getenv("JWT_KEYS_ENCRYPTION_KEY");
+        if (jwtKeysEncryptionKey == null || jwtKeysEncryptionKey.isBlank())
+        {
+            throw new IllegalStateException("Set JWT_KEYS_ENCRYPTION_KEY (openssl rand -base64 32) before synthesizing the stack");
+        }
         FargateService authService = createFargateService("AuthService",
-                "auth-service",List.of(4005),authServiceDb,Map.of("JWT_SECRET","2c46a678a7da9f4049225be3970c3d367370617004b49cb70195422aa7eb4131"));
+                "auth-service",List.of(4005),authServiceDb,Map.of("SPRING_THREADS_VIRTUAL_ENABLED","true",
+                        "JWT_KEYS_ENCRYPTION_KEY",jwtKeysEncryptionKey));
 
         authService.getNode().addDependency(authHealthCheck);
         authService.getNode().addDependency(authServiceDb);
 
 
-        FargateService billingService = createFargateService("BillingService","billing-service",List.of(9001),null,null);
+        FargateService billingService = createFargateService("BillingService","billing-service",List.of(9001),billingServiceDb,null);
+        billingService.getNode().addDependency(billingServiceDb);
 
         FargateService analyticsService = createFargateService("AnalyticsService","analytics-service",List.of(4002),analyticsServiceDb,null);
 
@@ -99,7 +108,8 @@ public class LocalStack extends Stack {
                 List.of(4000),
                 patientServiceDb
         ,Map.of("BILLING_SERVICE_ADDRESS","host.docker.internal"
-        ,"BILLING-SERVICE_GRPC_PORT","9001"));
+        ,"BILLING-SERVICE_GRPC_PORT","9001"
+        ,"SPRING_THREADS_VIRTUAL_ENABLED","true"));
 
         patientService.getNode().addDependency(patientServiceDb);
 
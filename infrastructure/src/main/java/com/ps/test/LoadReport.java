@@ -0,0 +1,179 @@
+package com.ps.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and outcome statistics per stage and operation.
+ * <p>
+ * Two histograms are kept for every request, both in microseconds. {@code latency} is measured from the
+ * moment the request was <em>scheduled</em> to start, so a slow server also delays the requests queued behind
+ * it, as it would for real users. This avoids the coordinated omission a closed loop suffers from.
+ * {@code serviceTime} is measured from the moment the request was actually sent, and comparing the two
+ * shows how much of the latency was spent waiting.
+ * </p>
+ */
+class LoadReport {
+
+    static final int STATUS_IO_ERROR = -1;
+
+    // Up to 10 minutes, 3 significant digits
+    private static final long HIGHEST_TRACKABLE_MICROS = 600_000_000L;
+
+    private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+    private final List<StageRun> stageRuns = new ArrayList<>();
+
+    OperationStats statsFor(String stage, String operation) {
+        return stats.computeIfAbsent(stage + "/" + operation, key -> new OperationStats(stage, operation));
+    }
+
+    void stageFinished(LoadScenario.Stage stage, long startNanos, long endNanos) {
+        synchronized (stageRuns) {
+            stageRuns.add(new StageRun(stage, (endNanos - startNanos) / 1_000_000_000.0));
+        }
+    }
+
+    static final class OperationStats {
+        final String stage;
+        final String operation;
+        final Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final Histogram serviceTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        final LongAdder dropped = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+
+        private OperationStats(String stage, String operation) {
+            this.stage = stage;
+            this.operation = operation;
+        }
+
+        void record(int status, long scheduledNanos, long sentNanos, long endNanos) {
+            latency.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, Math.max(0, (endNanos - scheduledNanos) / 1_000)));
+            serviceTime.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, Math.max(0, (endNanos - sentNanos) / 1_000)));
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+
+        long ok() {
+            return statuses.entrySet().stream()
+                    .filter(e -> e.getKey() / 100 == 2)
+                    .mapToLong(e -> e.getValue().sum())
+                    .sum();
+        }
+    }
+
+    private record StageRun(LoadScenario.Stage stage, double seconds) {}
+
+    // ---------- Output ----------
+
+    List<Map<String, Object>> rows() {
+        Map<String, Double> stageSeconds = new LinkedHashMap<>();
+        synchronized (stageRuns) {
+            stageRuns.forEach(run -> stageSeconds.put(run.stage().name(), run.seconds()));
+        }
+        List<Map<String, Object>> rows = new ArrayList<>();
+        new TreeMap<>(stats).values().forEach(s -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            long requests = s.latency.getTotalCount();
+            double seconds = stageSeconds.getOrDefault(s.stage, Double.NaN);
+            row.put("stage", s.stage);
+            row.put("operation", s.operation);
+            row.put("requests", requests);
+            row.put("ok", s.ok());
+            row.put("dropped", s.dropped.sum());
+            row.put("skipped", s.skipped.sum());
+            Map<String, Long> statuses = new TreeMap<>();
+            s.statuses.forEach((status, count) -> statuses.put(status == STATUS_IO_ERROR ? "io_error" : String.valueOf(status), count.sum()));
+            row.put("statuses", statuses);
+            row.put("throughputPerSecond", round(requests / seconds));
+            row.put("latencyMs", percentiles(s.latency));
+            row.put("serviceTimeMs", percentiles(s.serviceTime));
+            rows.add(row);
+        });
+        return rows;
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        values.put("mean", millis(histogram.getMean()));
+        values.put("p50", millis(histogram.getValueAtPercentile(50)));
+        values.put("p90", millis(histogram.getValueAtPercentile(90)));
+        values.put("p99", millis(histogram.getValueAtPercentile(99)));
+        values.put("p99.9", millis(histogram.getValueAtPercentile(99.9)));
+        values.put("max", millis(histogram.getMaxValue()));
+        return values;
+    }
+
+    private static double millis(double micros) {
+        return round(micros / 1_000.0);
+    }
+
+    private static double round(double value) {
+        return Double.isFinite(value) ? Math.round(value * 1000) / 1000.0 : 0;
+    }
+
+    void printSummary(PrintStream out) {
+        out.printf("%-12s %-14s %8s %8s %7s %7s %9s %9s %9s %9s %9s %9s%n",
+                "stage", "operation", "requests", "ok", "dropped", "skipped", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99");
+        for (Map<String, Object> row : rows()) {
+            @SuppressWarnings("unchecked") Map<String, Double> latency = (Map<String, Double>) row.get("latencyMs");
+            @SuppressWarnings("unchecked") Map<String, Double> service = (Map<String, Double>) row.get("serviceTimeMs");
+            out.printf("%-12s %-14s %8d %8d %7d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    row.get("stage"), row.get("operation"), row.get("requests"), row.get("ok"), row.get("dropped"), row.get("skipped"),
+                    row.get("throughputPerSecond"), latency.get("p50"), latency.get("p99"), latency.get("p99.9"), latency.get("max"), service.get("p99"));
+        }
+    }
+
+    /**
+     * Writes {@code report.json}, {@code report.csv} and one HdrHistogram percentile distribution
+     * ({@code <stage>-<operation>.hgrm}, plottable with the usual HdrHistogram tools) per row.
+     */
+    void write(Path directory, LoadScenario scenario) throws IOException {
+        Files.createDirectories(directory);
+        List<Map<String, Object>> rows = rows();
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("scenario", scenario.name());
+        json.put("baseUrl", scenario.baseUrl());
+        json.put("stages", scenario.stages());
+        json.put("results", rows);
+        new ObjectMapper().findAndRegisterModules()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                .writeValue(directory.resolve("report.json").toFile(), json);
+
+        try (PrintStream csv = new PrintStream(Files.newOutputStream(directory.resolve("report.csv")))) {
+            csv.println("stage,operation,requests,ok,dropped,skipped,throughput_per_s,"
+                    + "latency_mean_ms,latency_p50_ms,latency_p90_ms,latency_p99_ms,latency_p999_ms,latency_max_ms,"
+                    + "service_p50_ms,service_p99_ms,service_max_ms");
+            for (Map<String, Object> row : rows) {
+                @SuppressWarnings("unchecked") Map<String, Double> l = (Map<String, Double>) row.get("latencyMs");
+                @SuppressWarnings("unchecked") Map<String, Double> s = (Map<String, Double>) row.get("serviceTimeMs");
+                csv.printf("%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s%n",
+                        row.get("stage"), row.get("operation"), row.get("requests"), row.get("ok"), row.get("dropped"), row.get("skipped"),
+                        row.get("throughputPerSecond"), l.get("mean"), l.get("p50"), l.get("p90"), l.get("p99"), l.get("p99.9"), l.get("max"),
+                        s.get("p50"), s.get("p99"), s.get("max"));
+            }
+        }
+
+        for (OperationStats s : stats.values()) {
+            try (PrintStream hgrm = new PrintStream(Files.newOutputStream(directory.resolve(s.stage + "-" + s.operation + ".hgrm")))) {
+                // Values are recorded in microseconds; scale to milliseconds like the rest of the report
+                s.latency.outputPercentileDistribution(hgrm, 1_000.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.ps.test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A load test described in a JSON scenario file, see {@code src/main/resources/loadtest/*.json}.
+ *
+ * <pre>{@code
+ * {
+ *   "baseUrl": "http://localhost:4004",
+ *   "auth": { "signupPath": "/auth/signup", "loginPath": "/auth/login",
+ *             "email": "...", "username": "...", "password": "...", "role": "ADMIN" },
+ *   "maxInFlight": 2000,
+ *   "stages": [ { "name": "warmup", "rate": 20, "duration": "PT10S", "record": false },
+ *               { "name": "steady", "rate": 100, "duration": "PT60S" } ],
+ *   "operations": [ { "name": "create", "weight": 20, "method": "POST", "path": "/api/patients",
+ *                     "body": "{ ... \"email\": \"load+${seq}@example.com\" ... }", "captureId": true },
+ *                   { "name": "get", "weight": 30, "method": "GET", "path": "/api/patients/${createdId}" } ]
+ * }
+ * }</pre>
+ *
+ * Paths and bodies may use {@code ${seq}} (unique per request), {@code ${uuid}} and {@code ${createdId}}
+ * (a patient id returned by an earlier operation with {@code captureId}).
+ */
+record LoadScenario(String name,
+                    String baseUrl,
+                    Auth auth,
+                    int maxInFlight,
+                    Duration requestTimeout,
+                    List<Stage> stages,
+                    List<Operation> operations) {
+
+    record Auth(String signupPath, String loginPath, String email, String username, String password, String role) {}
+
+    // Requests are started at a constant rate for the stage's duration, regardless of how fast responses come back
+    record Stage(String name, double rate, Duration duration, boolean record) {}
+
+    record Operation(String name, int weight, String method, String path, String body, boolean captureId) {}
+
+    static LoadScenario load(String location) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Path file = Path.of(location);
+        if (Files.exists(file)) {
+            return parse(mapper.readTree(file.toFile()), file.getFileName().toString());
+        }
+        // Fall back to the scenarios shipped on the classpath, e.g. "loadtest/stub.json" or just "stub"
+        String resource = location.contains("/") ? location : "loadtest/" + location + (location.endsWith(".json") ? "" : ".json");
+        try (InputStream in = LoadScenario.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("No scenario file or classpath resource named " + location);
+            }
+            return parse(mapper.readTree(in), resource);
+        }
+    }
+
+    LoadScenario withBaseUrl(String baseUrl) {
+        return new LoadScenario(name, baseUrl, auth, maxInFlight, requestTimeout, stages, operations);
+    }
+
+    private static LoadScenario parse(JsonNode root, String defaultName) {
+        Auth auth = null;
+        JsonNode authNode = root.path("auth");
+        if (!authNode.isMissingNode()) {
+            auth = new Auth(
+                    authNode.path("signupPath").asText(null),
+                    authNode.path("loginPath").asText("/auth/login"),
+                    required(authNode, "email"),
+                    authNode.path("username").asText(""),
+                    required(authNode, "password"),
+                    authNode.path("role").asText("USER"));
+        }
+
+        List<Stage> stages = new ArrayList<>();
+        for (JsonNode stage : root.path("stages")) {
+            stages.add(new Stage(
+                    stage.path("name").asText("stage-" + (stages.size() + 1)),
+                    stage.path("rate").asDouble(),
+                    Duration.parse(required(stage, "duration")),
+                    stage.path("record").asBoolean(true)));
+        }
+
+        List<Operation> operations = new ArrayList<>();
+        for (JsonNode op : root.path("operations")) {
+            operations.add(new Operation(
+                    required(op, "name"),
+                    op.path("weight").asInt(1),
+                    op.path("method").asText("GET").toUpperCase(),
+                    required(op, "path"),
+                    op.hasNonNull("body") ? op.get("body").asText() : null,
+                    op.path("captureId").asBoolean(false)));
+        }
+
+        if (stages.isEmpty() || operations.isEmpty()) {
+            throw new IllegalArgumentException("A scenario needs at least one stage and one operation");
+        }
+        for (Stage stage : stages) {
+            if (stage.rate() <= 0) {
+                throw new IllegalArgumentException("Stage " + stage.name() + " needs a positive rate");
+            }
+        }
+
+        return new LoadScenario(
+                root.path("name").asText(defaultName),
+                required(root, "baseUrl"),
+                auth,
+                root.path("maxInFlight").asInt(2000),
+                Duration.parse(root.path("requestTimeout").asText("PT30S")),
+                stages,
+                operations);
+    }
+
+    private static String required(JsonNode node, String field) {
+        if (!node.hasNonNull(field)) {
+            throw new IllegalArgumentException("Scenario is missing required field '" + field + "'");
+        }
+        return node.get(field).asText();
+    }
+}
@@ -4,448 +4,304 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Path;
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Open-loop load generator for the patient API.
+ * <p>
+ * Every stage of the scenario starts requests at a fixed rate, each on its own virtual thread, whether or not
+ * earlier ones have completed. A slow backend therefore shows up as growing latency instead of a silently
+ * lower request rate. Latencies go into HdrHistograms (see {@link LoadReport}) and are written as JSON, CSV
+ * and .hgrm files.
+ * </p>
+ *
+ * <pre>
+ * Usage: PatientLoadScript &lt;scenario&gt; [--base-url=URL] [--out=DIR] [--stub[=delayMs]]
+ *
+ *   scenario     a JSON file, or the name of one in src/main/resources/loadtest (local-gateway, local-patient-service, localstack, stub)
+ *   --base-url   override the scenario's baseUrl, e.g. to point it at another host
+ *   --out        report directory, defaults to target/loadtest/&lt;scenario&gt;-&lt;timestamp&gt;
+ *   --stub       run against an in-process stub server instead of a real stack
+ *
+ * mvn compile exec:java -Dexec.mainClass=com.ps.test.PatientLoadScript -Dexec.args="local-gateway"
+ * </pre>
+ */
 public class PatientLoadScript {
 
-    // *************** CONFIG – EDIT THESE ONLY *************** //
-    private static final String SIGNUP_URL           = "http://lb-2643176f.elb.localhost.localstack.cloud:4004/auth/signup";
-    private static final String LOGIN_URL            = "http://lb-2643176f.elb.localhost.localstack.cloud:4004/auth/login";
-    private static final String CREATE_PATIENT_URL   = "http://lb-2643176f.elb.localhost.localstack.cloud:4004/api/patients";
-    private static final String GET_ALL_PATIENTS_URL = "http://lb-2643176f.elb.localhost.localstack.cloud:4004/api/patients";
-
-    // How many requests in each heavy phase
-    private static final int CREATE_PATIENT_REQUESTS    = 400;
-    private static final int GET_ALL_PATIENTS_REQUESTS  = 600;
-
-    // Concurrency (number of parallel requests) for each heavy phase
-    private static final int CREATE_PATIENT_CONCURRENCY   = 100;
-    private static final int GET_ALL_PATIENTS_CONCURRENCY = 120;
-
-    // Small pause used only in the tiny phases (signup/login), keep at 0 if you want raw speed
-    private static final long PAUSE_MS = 0;
-
-    // Simple holder for user creds
-    private record UserAccount(String email, String username, String password, String role) {}
-
-    // Result of one HTTP call
-    private record RequestResult(String phase, int index, long durationMs, int statusCode, String error) {}
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*\"([0-9a-fA-F-]{36})\"");
+    private static final int CAPTURED_ID_CAPACITY = 10_000;
+
+    private final LoadScenario scenario;
+    private final HttpClient client;
+    private final LoadReport report = new LoadReport();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Ring of patient ids returned by captureId operations, sampled by ${createdId}
+    private final AtomicReferenceArray<String> capturedIds = new AtomicReferenceArray<>(CAPTURED_ID_CAPACITY);
+    private final AtomicLong capturedCount = new AtomicLong();
+    private final int[] cumulativeWeights;
+    private volatile String bearerToken;
+
+    PatientLoadScript(LoadScenario scenario) {
+        this.scenario = scenario;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        List<LoadScenario.Operation> operations = scenario.operations();
+        this.cumulativeWeights = new int[operations.size()];
+        int total = 0;
+        for (int i = 0; i < operations.size(); i++) {
+            total += operations.get(i).weight();
+            cumulativeWeights[i] = total;
+        }
+    }
 
     public static void main(String[] args) throws Exception {
-        HttpClient client = HttpClient.newHttpClient();
-
-        long scriptStart = System.nanoTime();
-
-        System.out.println("==================================================");
-        System.out.println(" Patient Management API Load Script (Concurrent)");
-        System.out.println("==================================================\n");
-
-        System.out.printf("CONFIG:%n");
-        System.out.printf("  CREATE_PATIENT_REQUESTS    = %d%n", CREATE_PATIENT_REQUESTS);
-        System.out.printf("  GET_ALL_PATIENTS_REQUESTS  = %d%n", GET_ALL_PATIENTS_REQUESTS);
-        System.out.printf("  CREATE_PATIENT_CONCURRENCY = %d%n", CREATE_PATIENT_CONCURRENCY);
-        System.out.printf("  GET_ALL_PATIENTS_CONCURRENCY = %d%n%n", GET_ALL_PATIENTS_CONCURRENCY);
-
-        List<UserAccount> accounts = List.of(
-                new UserAccount("user1@example.com", "User One", "12345678", "USER"),
-                new UserAccount("user2@example.com", "User Two", "12345678", "USER")
-        );
-
-        // ---------- 1) SIGNUP (sequential, small) ----------
-        System.out.println("1) SIGNUP (create 2 accounts)\n");
-        List<RequestResult> signupResults = new ArrayList<>();
-
-        int index = 1;
-        for (UserAccount acc : accounts) {
-            String body = signupBody(acc);
-            HttpRequest req = HttpRequest.newBuilder(URI.create(SIGNUP_URL))
-                    .header("Content-Type", "application/json")
-                    .POST(BodyPublishers.ofString(body))
-                    .build();
-
-            long start = System.nanoTime();
-            HttpResponse<String> resp = client.send(req, BodyHandlers.ofString());
-            long durationMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
-
-            signupResults.add(new RequestResult(
-                    "SIGNUP", index, durationMs, resp.statusCode(),
-                    resp.statusCode() / 100 == 2 ? null : summarize(resp.body())
-            ));
-
-            System.out.printf("  SIGNUP #%d -> status=%d, time=%d ms%n",
-                    index, resp.statusCode(), durationMs);
-
-            index++;
-            pause();
+        if (args.length == 0) {
+            System.err.println("Usage: PatientLoadScript <scenario> [--base-url=URL] [--out=DIR] [--stub[=delayMs]]");
+            System.exit(2);
         }
 
-        // ---------- 2) LOGIN (sequential, small) ----------
-        System.out.println("\n2) LOGIN (2 accounts, JWT from first)\n");
-        List<RequestResult> loginResults = new ArrayList<>();
-        String bearerToken = null;
-
-        index = 1;
-        for (UserAccount acc : accounts) {
-            String body = loginBody(acc);
-            HttpRequest req = HttpRequest.newBuilder(URI.create(LOGIN_URL))
-                    .header("Content-Type", "application/json")
-                    .POST(BodyPublishers.ofString(body))
-                    .build();
-
-            long start = System.nanoTime();
-            HttpResponse<String> resp = client.send(req, BodyHandlers.ofString());
-            long durationMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
-
-            String error = null;
-            if (resp.statusCode() / 100 != 2) {
-                error = summarize(resp.body());
-            }
-
-            loginResults.add(new RequestResult(
-                    "LOGIN", index, durationMs, resp.statusCode(), error
-            ));
-
-            System.out.printf("  LOGIN  #%d -> status=%d, time=%d ms%n",
-                    index, resp.statusCode(), durationMs);
-
-            if (index == 1) {
-                if (resp.statusCode() / 100 == 2) {
-                    bearerToken = extractToken(resp.body());
-                    System.out.println("    -> Extracted JWT token from LOGIN #1");
-                } else {
-                    System.err.println("    !! Cannot extract token: LOGIN #1 is not 2xx");
-                    return;
-                }
+        LoadScenario scenario = LoadScenario.load(args[0]);
+        Path out = null;
+        Long stubDelay = null;
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--base-url=")) {
+                scenario = scenario.withBaseUrl(arg.substring("--base-url=".length()));
+            } else if (arg.startsWith("--out=")) {
+                out = Path.of(arg.substring("--out=".length()));
+            } else if (arg.equals("--stub")) {
+                stubDelay = 5L;
+            } else if (arg.startsWith("--stub=")) {
+                stubDelay = Long.parseLong(arg.substring("--stub=".length()));
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
             }
-
-            index++;
-            pause();
         }
-
-        if (bearerToken == null) {
-            System.err.println("No token extracted, aborting.");
-            return;
+        if (out == null) {
+            String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            out = Path.of("target", "loadtest", scenario.name().replace(".json", "") + "-" + stamp);
         }
 
-        // ---------- 3) CREATE PATIENTS (concurrent) ----------
-        System.out.println("\n3) CREATE PATIENTS (concurrent)\n");
-        System.out.printf("   Requests   : %d%n", CREATE_PATIENT_REQUESTS);
-        System.out.printf("   Concurrency: %d%n%n", CREATE_PATIENT_CONCURRENCY);
-
-        List<RequestResult> createPatientResults =
-                runConcurrentPostPhase(
-                        client,
-                        CREATE_PATIENT_URL,
-                        "CREATE_PATIENT",
-                        CREATE_PATIENT_REQUESTS,
-                        CREATE_PATIENT_CONCURRENCY,
-                        PatientLoadScript::patientBody,
-                        bearerToken
-                );
-
-        // ---------- 4) GET ALL PATIENTS (concurrent) ----------
-        System.out.println("\n4) GET ALL PATIENTS (concurrent)\n");
-        System.out.printf("   Requests   : %d%n", GET_ALL_PATIENTS_REQUESTS);
-        System.out.printf("   Concurrency: %d%n%n", GET_ALL_PATIENTS_CONCURRENCY);
-
-        List<RequestResult> getAllResults =
-                runConcurrentGetPhase(
-                        client,
-                        GET_ALL_PATIENTS_URL,
-                        "GET_ALL_PATIENTS",
-                        GET_ALL_PATIENTS_REQUESTS,
-                        GET_ALL_PATIENTS_CONCURRENCY,
-                        bearerToken
-                );
-
-        long scriptDurationMs = Duration.ofNanos(System.nanoTime() - scriptStart).toMillis();
+        StubServer stub = stubDelay == null ? null : new StubServer(stubDelay);
+        try {
+            if (stub != null) {
+                scenario = scenario.withBaseUrl(stub.baseUrl());
+            }
+            PatientLoadScript script = new PatientLoadScript(scenario);
+            script.run();
+            script.report.printSummary(System.out);
+            script.report.write(out, scenario);
+            System.out.println("\nReports written to " + out.toAbsolutePath());
+        } finally {
+            if (stub != null) {
+                stub.close();
+            }
+        }
+    }
 
-        // ---------- SUMMARY ----------
-        System.out.println("\n==================================================");
-        System.out.println(" SUMMARY");
+    void run() throws IOException, InterruptedException {
         System.out.println("==================================================");
+        System.out.println(" Patient Management API Load Script (open loop)");
+        System.out.println("==================================================");
+        System.out.printf("Scenario : %s%nTarget   : %s%n%n", scenario.name(), scenario.baseUrl());
 
-        printPhaseSummary("SIGNUP           ", signupResults);
-        printPhaseSummary("LOGIN            ", loginResults);
-        printPhaseSummary("CREATE PATIENT   ", createPatientResults);
-        printPhaseSummary("GET ALL PATIENTS ", getAllResults);
-
-        System.out.printf("%nTotal script time: %d ms%n", scriptDurationMs);
+        if (scenario.auth() != null) {
+            authenticate(scenario.auth());
+        }
 
-        System.out.println("\nHigh-level flow:");
-        System.out.println(" - Signed up 2 accounts (existing users may return 4xx, still counted)");
-        System.out.println(" - Logged in 2 accounts, extracted JWT from the first login response");
-        System.out.println(" - Created " + CREATE_PATIENT_REQUESTS + " patients with unique emails using that JWT");
-        System.out.println(" - Called GET all patients " + GET_ALL_PATIENTS_REQUESTS +
-                " times using concurrent requests");
-        System.out.println(" - Printed aggregated timings and error counts per phase");
+        // Closing the executor waits for every request still in flight
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (LoadScenario.Stage stage : scenario.stages()) {
+                runStage(stage, requests);
+            }
+        }
     }
 
-    // ---------- Concurrent helpers ----------
-
-    private static List<RequestResult> runConcurrentPostPhase(
-            HttpClient client,
-            String url,
-            String phaseName,
-            int totalRequests,
-            int concurrency,
-            java.util.function.IntFunction<String> bodySupplier,
-            String bearerToken
-    ) throws InterruptedException {
-
-        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
-        List<Callable<RequestResult>> tasks = new ArrayList<>();
-
-        for (int i = 1; i <= totalRequests; i++) {
-            final int idx = i;
-            tasks.add(() -> {
-                String jsonBody = bodySupplier.apply(idx);
-
-                HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
-                        .header("Content-Type", "application/json")
-                        .POST(BodyPublishers.ofString(jsonBody));
-
-                if (bearerToken != null) {
-                    builder.header("Authorization", "Bearer " + bearerToken);
-                }
-
-                HttpRequest req = builder.build();
+    // ---------- Auth ----------
 
-                long start = System.nanoTime();
-                try {
-                    HttpResponse<String> resp = client.send(req, BodyHandlers.ofString());
-                    long durationMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
-                    String error = resp.statusCode() / 100 == 2 ? null : summarize(resp.body());
-                    return new RequestResult(phaseName, idx, durationMs, resp.statusCode(), error);
-                } catch (Exception e) {
-                    long durationMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
-                    return new RequestResult(phaseName, idx, durationMs, -1, e.toString());
-                }
-            });
+    private void authenticate(LoadScenario.Auth auth) throws IOException, InterruptedException {
+        if (auth.signupPath() != null) {
+            String signup = """
+                    {"email":"%s","username":"%s","password":"%s","role":"%s"}"""
+                    .formatted(auth.email(), auth.username(), auth.password(), auth.role());
+            HttpResponse<String> resp = client.send(post(auth.signupPath(), signup).build(), BodyHandlers.ofString());
+            // An existing account answers 4xx, which is fine as long as the login works
+            System.out.printf("SIGNUP -> status=%d%n", resp.statusCode());
         }
 
-        List<Future<RequestResult>> futures = pool.invokeAll(tasks);
-        pool.shutdown();
-
-        List<RequestResult> results = new ArrayList<>(totalRequests);
-        for (Future<RequestResult> f : futures) {
-            try {
-                results.add(f.get());
-            } catch (ExecutionException e) {
-                results.add(new RequestResult(
-                        phaseName, -1, 0, -1, "Future failed: " + e.getCause()
-                ));
-            }
+        String login = """
+                {"email":"%s","password":"%s","role":"%s"}"""
+                .formatted(auth.email(), auth.password(), auth.role());
+        HttpResponse<String> resp = client.send(post(auth.loginPath(), login).build(), BodyHandlers.ofString());
+        System.out.printf("LOGIN  -> status=%d%n%n", resp.statusCode());
+        Matcher matcher = TOKEN.matcher(resp.body());
+        if (resp.statusCode() / 100 != 2 || !matcher.find()) {
+            throw new IllegalStateException("Login failed, cannot run the scenario: " + summarize(resp.body()));
         }
-
-        return results;
+        bearerToken = matcher.group(1);
     }
 
-    private static List<RequestResult> runConcurrentGetPhase(
-            HttpClient client,
-            String url,
-            String phaseName,
-            int totalRequests,
-            int concurrency,
-            String bearerToken
-    ) throws InterruptedException {
-
-        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
-        List<Callable<RequestResult>> tasks = new ArrayList<>();
-
-        for (int i = 1; i <= totalRequests; i++) {
-            final int idx = i;
-            tasks.add(() -> {
-                HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
-                        .GET();
-                if (bearerToken != null) {
-                    builder.header("Authorization", "Bearer " + bearerToken);
-                }
-                HttpRequest req = builder.build();
+    // ---------- Open-loop scheduling ----------
+
+    private void runStage(LoadScenario.Stage stage, ExecutorService requests) {
+        long intervalNanos = (long) (1_000_000_000L / stage.rate());
+        long total = (long) (stage.rate() * stage.duration().toNanos() / 1_000_000_000.0);
+        String stageName = stage.record() ? stage.name() : null;
+        System.out.printf("Stage %-10s : %.1f req/s for %s (%d requests)%s%n",
+                stage.name(), stage.rate(), stage.duration(), total, stage.record() ? "" : ", not recorded");
+
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            // The schedule is fixed up front; falling behind it never slows the arrival rate down
+            long scheduled = start + i * intervalNanos;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
 
-                long start = System.nanoTime();
+            LoadScenario.Operation operation = pickOperation();
+            LoadReport.OperationStats stats = stageName == null ? null : report.statsFor(stageName, operation.name());
+            if (inFlight.get() >= scenario.maxInFlight()) {
+                // The generator itself is saturated; report it rather than queueing and skewing the schedule
+                if (stats != null) stats.dropped.increment();
+                continue;
+            }
+            inFlight.incrementAndGet();
+            requests.execute(() -> {
                 try {
-                    HttpResponse<String> resp = client.send(req, BodyHandlers.ofString());
-                    long durationMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
-                    String error = resp.statusCode() / 100 == 2 ? null : summarize(resp.body());
-                    return new RequestResult(phaseName, idx, durationMs, resp.statusCode(), error);
-                } catch (Exception e) {
-                    long durationMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
-                    return new RequestResult(phaseName, idx, durationMs, -1, e.toString());
+                    execute(operation, scheduled, stats);
+                } finally {
+                    inFlight.decrementAndGet();
                 }
             });
         }
-
-        List<Future<RequestResult>> futures = pool.invokeAll(tasks);
-        pool.shutdown();
-
-        List<RequestResult> results = new ArrayList<>(totalRequests);
-        for (Future<RequestResult> f : futures) {
-            try {
-                results.add(f.get());
-            } catch (ExecutionException e) {
-                results.add(new RequestResult(
-                        phaseName, -1, 0, -1, "Future failed: " + e.getCause()
-                ));
-            }
+        long end = System.nanoTime();
+        if (stage.record()) {
+            report.stageFinished(stage, start, end);
         }
-
-        return results;
     }
 
-    // ---------- Payload builders ----------
-
-    private static String signupBody(UserAccount acc) {
-        return """
-                {
-                  "email": "%s",
-                  "username": "%s",
-                  "password": "%s",
-                  "role": "%s"
-                }
-                """.formatted(acc.email(), acc.username(), acc.password(), acc.role());
-    }
-
-    private static String loginBody(UserAccount acc) {
-        return """
-                {
-                  "email": "%s",
-                  "password": "%s",
-                  "role": "%s"
-                }
-                """.formatted(acc.email(), acc.password(), acc.role());
-    }
-
-    private static String patientBody(int index) {
-        String email = "loadtest+" + index + "@example.com";
-        String name = "Load Test Patient " + index;
-
-        return """
-                {
-                  "name": "%s",
-                  "address": "Sindh, PK",
-                  "dateofBirth": "2000-01-01",
-                  "email": "%s",
-                  "registeredDate": "2025-01-01"
-                }
-                """.formatted(name, email);
+    private LoadScenario.Operation pickOperation() {
+        int roll = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return scenario.operations().get(i);
+            }
+        }
+        return scenario.operations().getLast();
     }
 
-    // ---------- Small helpers ----------
+    private void execute(LoadScenario.Operation operation, long scheduled, LoadReport.OperationStats stats) {
+        String path = expand(operation.path());
+        String body = operation.body() == null ? null : expand(operation.body());
+        if (path == null || (operation.body() != null && body == null)) {
+            // ${createdId} requested before anything was created
+            if (stats != null) stats.skipped.increment();
+            return;
+        }
 
-    private static String extractToken(String json) {
-        Pattern pattern = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
-        Matcher matcher = pattern.matcher(json);
-        if (matcher.find()) {
-            return matcher.group(1);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(scenario.baseUrl() + path))
+                .timeout(scenario.requestTimeout())
+                .method(operation.method(), body == null ? BodyPublishers.noBody() : BodyPublishers.ofString(body));
+        if (body != null) {
+            builder.header("Content-Type", "application/json");
+        }
+        if (bearerToken != null) {
+            builder.header("Authorization", "Bearer " + bearerToken);
         }
-        throw new IllegalStateException("Could not find 'token' field in login response: " + json);
-    }
 
-    private static void pause() {
-        if (PAUSE_MS <= 0) return;
+        long sent = System.nanoTime();
+        int status;
         try {
-            Thread.sleep(PAUSE_MS);
+            HttpResponse<String> resp = client.send(builder.build(), BodyHandlers.ofString());
+            status = resp.statusCode();
+            if (operation.captureId() && status / 100 == 2) {
+                capture(resp.body());
+            }
+        } catch (IOException e) {
+            status = LoadReport.STATUS_IO_ERROR;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            return;
+        }
+        if (stats != null) {
+            stats.record(status, scheduled, sent, System.nanoTime());
         }
     }
 
-    private static String summarize(String body) {
-        if (body == null) return "";
-        String singleLine = body.replaceAll("\\s+", " ").trim();
-        if (singleLine.isEmpty()) return "<empty>";
-        if (singleLine.length() <= 120) return singleLine;
-        return singleLine.substring(0, 117) + "...";
-    }
+    // ---------- Templates ----------
 
-    private static void printPhaseSummary(String label, List<RequestResult> results) {
-        if (results == null || results.isEmpty()) {
-            System.out.printf("%s : no data%n", label);
-            return;
+    private String expand(String template) {
+        String result = template;
+        if (result.contains("${seq}")) {
+            result = result.replace("${seq}", String.valueOf(sequence.incrementAndGet()));
         }
-
-        int total = results.size();
-        int success = 0;
-        int clientError = 0;
-        int serverError = 0;
-        int otherError = 0;
-
-        List<Long> successDurations = new ArrayList<>();
-
-        for (RequestResult r : results) {
-            int code = r.statusCode();
-            if (code >= 200 && code < 300) {
-                success++;
-                successDurations.add(r.durationMs());
-            } else if (code >= 400 && code < 500) {
-                clientError++;
-            } else if (code >= 500 && code < 600) {
-                serverError++;
-            } else {
-                otherError++;
+        if (result.contains("${uuid}")) {
+            result = result.replace("${uuid}", UUID.randomUUID().toString());
+        }
+        if (result.contains("${createdId}")) {
+            String id = randomCapturedId();
+            if (id == null) {
+                return null;
             }
+            result = result.replace("${createdId}", id);
         }
+        return result;
+    }
 
-        double avg = 0.0;
-        double p50 = 0.0;
-        double p95 = 0.0;
-        long max = 0;
-
-        if (!successDurations.isEmpty()) {
-            long sum = 0;
-            for (long t : successDurations) sum += t;
-            avg = sum / (double) successDurations.size();
-
-            Collections.sort(successDurations);
-            p50 = percentile(successDurations, 0.50);
-            p95 = percentile(successDurations, 0.95);
-            max = successDurations.get(successDurations.size() - 1);
+    private void capture(String body) {
+        Matcher matcher = ID.matcher(body);
+        if (matcher.find()) {
+            long slot = capturedCount.getAndIncrement();
+            capturedIds.set((int) (slot % CAPTURED_ID_CAPACITY), matcher.group(1));
         }
+    }
 
-        System.out.printf(
-                "%s : total=%4d, ok=%4d, 4xx=%3d, 5xx=%3d, other=%3d, avg=%.2f ms, p50=%.2f ms, p95=%.2f ms, max=%d ms%n",
-                label, total, success, clientError, serverError, otherError, avg, p50, p95, max
-        );
-
-        // show up to 3 sample errors for debugging
-        long errorCount = results.stream().filter(r -> r.error() != null).count();
-        if (errorCount > 0) {
-            System.out.printf("  Sample errors (%d total):%n", errorCount);
-            results.stream()
-                    .filter(r -> r.error() != null)
-                    .limit(3)
-                    .forEach(r ->
-                            System.out.printf("    #%d code=%d error=%s%n",
-                                    r.index(), r.statusCode(), r.error())
-                    );
+    private String randomCapturedId() {
+        long count = Math.min(capturedCount.get(), CAPTURED_ID_CAPACITY);
+        if (count == 0) {
+            return null;
         }
+        return capturedIds.get(ThreadLocalRandom.current().nextInt((int) count));
     }
 
-    private static double percentile(List<Long> sorted, double p) {
-        if (sorted.isEmpty()) return Double.NaN;
-        if (p <= 0) return sorted.get(0);
-        if (p >= 1) return sorted.get(sorted.size() - 1);
-
-        double pos = p * (sorted.size() - 1);
-        int lower = (int) Math.floor(pos);
-        int upper = (int) Math.ceil(pos);
+    // ---------- Small helpers ----------
 
-        if (lower == upper) {
-            return sorted.get(lower);
-        }
+    private HttpRequest.Builder post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(scenario.baseUrl() + path))
+                .timeout(scenario.requestTimeout())
+                .header("Content-Type", "application/json")
+                .POST(BodyPublishers.ofString(body));
+    }
 
-        double weight = pos - lower;
-        return sorted.get(lower) * (1.0 - weight) + sorted.get(upper) * weight;
+    private static String summarize(String body) {
+        if (body == null) return "";
+        String singleLine = body.replaceAll("\\s+", " ").trim();
+        if (singleLine.isEmpty()) return "<empty>";
+        if (singleLine.length() <= 120) return singleLine;
+        return singleLine.substring(0, 117) + "...";
     }
 }
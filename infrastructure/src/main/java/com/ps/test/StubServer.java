@@ -0,0 +1,95 @@
+package com.ps.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process stand-in for the gateway, used with {@code --stub} to run a scenario without LocalStack or any
+ * service running, e.g. to check a scenario file or the generator itself. It answers the auth and patient
+ * endpoints with canned JSON after a fixed delay.
+ */
+class StubServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final long delayMillis;
+
+    StubServer(long delayMillis) throws IOException {
+        this.delayMillis = delayMillis;
+        // Without TCP_NODELAY small responses sit out the client's delayed ACK and the stub adds ~40 ms of its own
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            sleep();
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+
+            if (path.endsWith("/auth/login")) {
+                respond(exchange, 200, "{\"token\":\"stub-token\"}");
+            } else if (path.endsWith("/auth/signup")) {
+                respond(exchange, 201, "{}");
+            } else if ("POST".equals(method)) {
+                respond(exchange, 201, patientJson(UUID.randomUUID()));
+            } else if ("PUT".equals(method)) {
+                respond(exchange, 200, patientJson(UUID.randomUUID()));
+            } else if ("DELETE".equals(method)) {
+                respond(exchange, 204, null);
+            } else if (path.matches(".*/patients/[0-9a-fA-F-]{36}")) {
+                respond(exchange, 200, patientJson(UUID.fromString(path.substring(path.length() - 36))));
+            } else {
+                respond(exchange, 200, "{\"items\":[" + patientJson(UUID.randomUUID()) + "],\"nextCursor\":null}");
+            }
+        }
+    }
+
+    private void sleep() {
+        if (delayMillis <= 0) return;
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String patientJson(UUID id) {
+        return """
+                {"id":"%s","name":"Stub Patient","email":"stub+%s@example.com","address":"Sindh, PK","dateofBirth":"2000-01-01","registeredDate":"%s"}"""
+                .formatted(id, id, LocalDate.now());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -2,8 +2,13 @@ package com.ps.patientservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// R2DBC is only on the classpath for the optional reactive read stack, which builds its own pool when enabled
+// (see ReactivePatientReadConfig); Boot's would fail to start without spring.r2dbc.url
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
+@EnableScheduling
 public class PatientServiceApplication {
 
     public static void main(String[] args) {
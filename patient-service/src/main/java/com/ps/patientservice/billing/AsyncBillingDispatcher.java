@@ -0,0 +1,287 @@
+package com.ps.patientservice.billing;
+
+import billing.BillingResponse;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.ps.patientservice.grpc.BillingServiceGrpcClient;
+import com.ps.patientservice.model.BillingStatus;
+import com.ps.patientservice.model.Patient;
+import com.ps.patientservice.repository.PatientRepository;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates billing accounts off the request path.
+ * <p>
+ * Requests wait in a bounded queue and a single dispatch thread feeds them to the future stub, never holding
+ * more than {@code maxInFlight} calls open at once. Retryable failures go back on the queue after an
+ * exponential, jittered backoff; everything else ends as {@link BillingStatus#FAILED}. Anything that falls
+ * through the cracks (full queue, restart) stays {@link BillingStatus#PENDING} and is picked up again by
+ * {@link #reconcile()}.
+ * </p>
+ */
+@Slf4j
+public class AsyncBillingDispatcher implements BillingDispatcher
+{
+    private static final Set<Status.Code> RETRYABLE = EnumSet.of(
+            Status.Code.UNAVAILABLE,
+            Status.Code.DEADLINE_EXCEEDED,
+            Status.Code.RESOURCE_EXHAUSTED,
+            Status.Code.ABORTED
+    );
+
+    private final BillingServiceGrpcClient billingServiceGrpcClient;
+    private final BillingStatusRecorder billingStatusRecorder;
+    private final PatientRepository patientRepository;
+    private final Semaphore inFlight;
+    private final BlockingQueue<Attempt> queue;
+    private final ScheduledExecutorService retryScheduler;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final int reconcileBatchSize;
+    private final Duration staleAfter;
+    private final TransactionTemplate transactionTemplate;
+
+    // Ids queued, in flight or waiting for a retry on this node; dispatch ignores them
+    private final Set<UUID> tracked = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+    private Thread dispatchThread;
+
+    private final Counter succeeded;
+    private final Counter retried;
+    private final Counter failed;
+    private final Counter rejected;
+    private final Timer latency;
+
+    public AsyncBillingDispatcher(BillingServiceGrpcClient billingServiceGrpcClient,
+                                  BillingStatusRecorder billingStatusRecorder,
+                                  PatientRepository patientRepository,
+                                  MeterRegistry meterRegistry,
+                                  int maxInFlight,
+                                  int queueCapacity,
+                                  int maxAttempts,
+                                  long initialBackoffMillis,
+                                  long maxBackoffMillis,
+                                  int reconcileBatchSize,
+                                  Duration staleAfter,
+                                  TransactionTemplate transactionTemplate)
+    {
+        this.billingServiceGrpcClient = billingServiceGrpcClient;
+        this.billingStatusRecorder = billingStatusRecorder;
+        this.patientRepository = patientRepository;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("billing-retry").daemon().factory());
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.reconcileBatchSize = reconcileBatchSize;
+        this.staleAfter = staleAfter;
+        this.transactionTemplate = transactionTemplate;
+
+        this.succeeded = outcome(meterRegistry, "success");
+        this.retried = outcome(meterRegistry, "retry");
+        this.failed = outcome(meterRegistry, "failed");
+        this.rejected = outcome(meterRegistry, "rejected");
+        this.latency = Timer.builder("billing.dispatch.latency")
+                .description("Round-trip time of asynchronous CreateBillingAccount calls")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        meterRegistry.gauge("billing.dispatch.in.flight", inFlight, s -> maxInFlight - s.availablePermits());
+        meterRegistry.gauge("billing.dispatch.queued", queue, BlockingQueue::size);
+    }
+
+    private static Counter outcome(MeterRegistry meterRegistry, String outcome)
+    {
+        return Counter.builder("billing.dispatch.calls").tag("outcome", outcome).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start()
+    {
+        dispatchThread = Thread.ofPlatform().name("billing-dispatch").daemon().start(this::runDispatchLoop);
+    }
+
+    @PreDestroy
+    void stop()
+    {
+        running = false;
+        dispatchThread.interrupt();
+        retryScheduler.shutdownNow();
+    }
+
+    @Override
+    public void dispatch(Patient patient)
+    {
+        if (tracked.add(patient.getId()))
+        {
+            enqueue(new Attempt(patient, 1));
+        }
+    }
+
+    private void enqueue(Attempt attempt)
+    {
+        if (!queue.offer(attempt))
+        {
+            // Never block the caller; the row is still PENDING and the reconciler will come back for it
+            tracked.remove(attempt.patient().getId());
+            rejected.increment();
+            log.warn("Billing dispatch queue full, patient {} left PENDING for reconciliation", attempt.patient().getId());
+        }
+    }
+
+    private void runDispatchLoop()
+    {
+        while (running)
+        {
+            try
+            {
+                Attempt attempt = queue.take();
+                inFlight.acquire();
+                send(attempt);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void send(Attempt attempt)
+    {
+        Timer.Sample sample = Timer.start();
+        ListenableFuture<BillingResponse> call;
+        try
+        {
+            call = billingServiceGrpcClient.createBillingAccountAsync(attempt.patient());
+        }
+        catch (RuntimeException e)
+        {
+            inFlight.release();
+            onFailure(attempt, e);
+            return;
+        }
+
+        Futures.addCallback(call, new FutureCallback<>()
+        {
+            @Override
+            public void onSuccess(BillingResponse response)
+            {
+                sample.stop(latency);
+                inFlight.release();
+                succeeded.increment();
+                complete(attempt, BillingStatus.ACTIVE);
+            }
+
+            @Override
+            public void onFailure(Throwable t)
+            {
+                sample.stop(latency);
+                inFlight.release();
+                AsyncBillingDispatcher.this.onFailure(attempt, t);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private void onFailure(Attempt attempt, Throwable t)
+    {
+        Status.Code code = Status.fromThrowable(t).getCode();
+        if (RETRYABLE.contains(code) && attempt.number() < maxAttempts)
+        {
+            retried.increment();
+            scheduleRetry(attempt);
+            return;
+        }
+        failed.increment();
+        log.error("Billing account creation failed for patient {} after {} attempts: {}", attempt.patient().getId(), attempt.number(), code);
+        complete(attempt, BillingStatus.FAILED);
+    }
+
+    private void scheduleRetry(Attempt attempt)
+    {
+        // Full jitter over an exponentially growing window, so a recovering billing-service isn't hit in lockstep
+        long window = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt.number() - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(0, window + 1);
+        retryScheduler.schedule(() -> enqueue(attempt.next()), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void complete(Attempt attempt, BillingStatus status)
+    {
+        try
+        {
+            billingStatusRecorder.record(attempt.patient().getId(), status);
+        }
+        finally
+        {
+            tracked.remove(attempt.patient().getId());
+        }
+    }
+
+    /**
+     * Re-dispatches patients still PENDING whose last billing attempt is older than {@code staleAfter}, e.g.
+     * because the queue was full or an instance restarted mid-retry. Rows are claimed with
+     * {@code FOR UPDATE SKIP LOCKED} and stamped in the same transaction, so replicas never pick the same rows
+     * and each row waits a full {@code staleAfter} before it is tried again.
+     */
+    @Scheduled(fixedDelayString = "${billing.dispatch.reconcile-interval-ms:60000}")
+    public void reconcile()
+    {
+        Instant now = Instant.now();
+        List<Patient> claimed;
+        try
+        {
+            claimed = transactionTemplate.execute(status -> {
+                List<Patient> stale = patientRepository.lockStaleBilling(BillingStatus.PENDING, now.minus(staleAfter), Limit.of(reconcileBatchSize));
+                if (!stale.isEmpty())
+                {
+                    patientRepository.markBillingAttempted(stale.stream().map(Patient::getId).toList(), now);
+                }
+                return stale;
+            });
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Error claiming PENDING patients for billing reconciliation: {}", e.getMessage());
+            return;
+        }
+        if (claimed != null)
+        {
+            claimed.forEach(this::dispatch);
+        }
+    }
+
+    private record Attempt(Patient patient, int number)
+    {
+        Attempt next()
+        {
+            return new Attempt(patient, number + 1);
+        }
+    }
+}
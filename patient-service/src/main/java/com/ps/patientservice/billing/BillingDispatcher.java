@@ -0,0 +1,45 @@
+package com.ps.patientservice.billing;
+
+import com.ps.patientservice.model.Patient;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Creates billing accounts for patients whose rows are already committed and records the outcome
+ * in {@link com.ps.patientservice.model.BillingStatus}.
+ */
+public interface BillingDispatcher
+{
+    void dispatch(Patient patient);
+
+    /**
+     * Dispatches patients committed together, e.g. one bulk import chunk; by default one {@link #dispatch} each.
+     */
+    default void dispatchAll(List<Patient> patients)
+    {
+        patients.forEach(this::dispatch);
+    }
+
+    /**
+     * Dispatches once the surrounding transaction has committed, or straight away when there is none,
+     * so billing-service never hears about a patient that was rolled back.
+     */
+    default void dispatchAfterCommit(Patient patient)
+    {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            dispatch(patient);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+        {
+            @Override
+            public void afterCommit()
+            {
+                dispatch(patient);
+            }
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package com.ps.patientservice.billing;
+
+import com.ps.patientservice.cache.PatientCacheInvalidator;
+import com.ps.patientservice.kakfa.PatientEventOutbox;
+import com.ps.patientservice.model.BillingStatus;
+import com.ps.patientservice.repository.PatientRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Stores billing outcomes. The status and a {@link PatientEventOutbox#PATIENT_BILLING_STATUS_CHANGED} event
+ * commit together, so with Kafka invalidation every replica drops its cached copy (and its ETag) just as it
+ * does for a patient update.
+ */
+@Slf4j
+@Component
+public class BillingStatusRecorder
+{
+    private final PatientRepository patientRepository;
+    private final PatientEventOutbox patientEventOutbox;
+    private final PatientCacheInvalidator patientCacheInvalidator;
+    private final TransactionTemplate transactionTemplate;
+
+    public BillingStatusRecorder(PatientRepository patientRepository, PatientEventOutbox patientEventOutbox,
+                                 PatientCacheInvalidator patientCacheInvalidator, PlatformTransactionManager transactionManager)
+    {
+        this.patientRepository = patientRepository;
+        this.patientEventOutbox = patientEventOutbox;
+        this.patientCacheInvalidator = patientCacheInvalidator;
+        // Sync dispatch records from afterCommit, where joining the finished transaction would never commit
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public void record(UUID patientId, BillingStatus status)
+    {
+        record(List.of(patientId), status);
+    }
+
+    public void record(Collection<UUID> patientIds, BillingStatus status)
+    {
+        if (patientIds.isEmpty())
+        {
+            return;
+        }
+        try
+        {
+            transactionTemplate.executeWithoutResult(tx -> {
+                patientRepository.updateBillingStatus(patientIds, status);
+                // Read after the update so each event carries the row as it now stands; deleted patients drop out
+                patientEventOutbox.billingStatusChanged(patientRepository.findAllById(patientIds));
+            });
+            patientIds.forEach(patientCacheInvalidator::patientUpdated);
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Could not record billing status {} for {} patients: {}", status, patientIds.size(), e.getMessage());
+        }
+    }
+}
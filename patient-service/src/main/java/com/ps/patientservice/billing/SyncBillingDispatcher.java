@@ -0,0 +1,93 @@
+package com.ps.patientservice.billing;
+
+import com.ps.patientservice.grpc.BillingServiceGrpcClient;
+import com.ps.patientservice.model.BillingStatus;
+import com.ps.patientservice.model.Patient;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Calls billing-service on the caller's thread, bounded by the client deadline.
+ * Kept for environments where the create response must already carry the final billing status.
+ */
+@Slf4j
+public class SyncBillingDispatcher implements BillingDispatcher
+{
+    private final BillingServiceGrpcClient billingServiceGrpcClient;
+    private final BillingStatusRecorder billingStatusRecorder;
+    private final Timer latency;
+
+    public SyncBillingDispatcher(BillingServiceGrpcClient billingServiceGrpcClient, BillingStatusRecorder billingStatusRecorder,
+                                 MeterRegistry meterRegistry)
+    {
+        this.billingServiceGrpcClient = billingServiceGrpcClient;
+        this.billingStatusRecorder = billingStatusRecorder;
+        this.latency = Timer.builder("billing.dispatch.latency")
+                .description("Round-trip time of blocking CreateBillingAccount calls")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void dispatch(Patient patient)
+    {
+        BillingStatus status;
+        Timer.Sample sample = Timer.start();
+        try
+        {
+            billingServiceGrpcClient.createBillingAccount(patient.getId().toString(), patient.getName(), patient.getEmail());
+            status = BillingStatus.ACTIVE;
+        }
+        catch (StatusRuntimeException e)
+        {
+            log.error("Billing account creation failed for patient {}: {}", patient.getId(), e.getStatus());
+            status = BillingStatus.FAILED;
+        }
+        finally
+        {
+            sample.stop(latency);
+        }
+        billingStatusRecorder.record(patient.getId(), status);
+        patient.setBillingStatus(status);
+    }
+
+    // One pipelined round of CreateBillingAccounts calls for the whole batch instead of a blocking call per patient
+    @Override
+    public void dispatchAll(List<Patient> patients)
+    {
+        Map<UUID, String> failures;
+        Timer.Sample sample = Timer.start();
+        try
+        {
+            failures = billingServiceGrpcClient.createBillingAccounts(patients);
+        }
+        finally
+        {
+            sample.stop(latency);
+        }
+        List<UUID> active = new ArrayList<>(patients.size());
+        List<UUID> failed = new ArrayList<>(failures.size());
+        for (Patient patient : patients)
+        {
+            String failure = failures.get(patient.getId());
+            if (failure == null)
+            {
+                active.add(patient.getId());
+            }
+            else
+            {
+                log.error("Billing account creation failed for patient {}: {}", patient.getId(), failure);
+                failed.add(patient.getId());
+            }
+        }
+        billingStatusRecorder.record(active, BillingStatus.ACTIVE);
+        billingStatusRecorder.record(failed, BillingStatus.FAILED);
+    }
+}
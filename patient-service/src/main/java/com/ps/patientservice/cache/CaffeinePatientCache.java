@@ -0,0 +1,45 @@
+package com.ps.patientservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ps.patientservice.dto.PatientView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process {@link PatientCache}. Entries are evicted by size (W-TinyLFU) and by age
+ * since they were written; hits, misses and evictions are published as {@code cache.*} meters
+ * tagged {@code cache=patients}.
+ */
+public class CaffeinePatientCache implements PatientCache
+{
+    private final Cache<UUID, PatientView> cache;
+
+    public CaffeinePatientCache(long maximumSize, Duration timeToLive, MeterRegistry meterRegistry)
+    {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "patients");
+    }
+
+    @Override
+    public Optional<PatientView> get(UUID id, Function<UUID, Optional<PatientView>> loader)
+    {
+        // The load runs inside the map's compute for this key, which is what makes invalidate wait for it
+        return Optional.ofNullable(cache.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    @Override
+    public void invalidate(UUID id)
+    {
+        cache.invalidate(id);
+    }
+}
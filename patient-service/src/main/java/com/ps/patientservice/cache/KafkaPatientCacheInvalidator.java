@@ -0,0 +1,64 @@
+package com.ps.patientservice.cache;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import patient.events.PatientEvent;
+
+import java.util.UUID;
+
+/**
+ * Multi-node invalidation over the existing {@code patient} topic.
+ * <p>
+ * Writes invalidate the local cache once they commit. Their update, delete and billing status events reach the
+ * topic through the outbox; every replica consumes the topic in its own consumer group, so each one drops its
+ * copy of whatever patient an event mentions, whichever node made the change.
+ * </p>
+ */
+@Slf4j
+public class KafkaPatientCacheInvalidator implements PatientCacheInvalidator
+{
+    private final PatientCache patientCache;
+
+    public KafkaPatientCacheInvalidator(PatientCache patientCache)
+    {
+        this.patientCache = patientCache;
+    }
+
+    @Override
+    public void patientUpdated(UUID id)
+    {
+        patientCache.invalidate(id);
+    }
+
+    @Override
+    public void patientDeleted(UUID id)
+    {
+        patientCache.invalidate(id);
+    }
+
+    // A random group per instance so every replica sees every event; only changes made after startup matter
+    @KafkaListener(
+            topics = "patient",
+            groupId = "#{'patient-cache-' + T(java.util.UUID).randomUUID()}",
+            properties = {
+                    "key.deserializer=org.apache.kafka.common.serialization.StringDeserializer",
+                    "value.deserializer=org.apache.kafka.common.serialization.ByteArrayDeserializer",
+                    "auto.offset.reset=latest"
+            }
+    )
+    public void onPatientEvent(ConsumerRecord<String, byte[]> record)
+    {
+        try
+        {
+            // Records are keyed by patient id; tombstones have nothing else, and records from before keying have no key
+            String patientId = record.key() != null ? record.key() : PatientEvent.parseFrom(record.value()).getPatientId();
+            patientCache.invalidate(UUID.fromString(patientId));
+        }
+        catch (InvalidProtocolBufferException | IllegalArgumentException e)
+        {
+            log.error("Error Parsing PatientEvent for cache invalidation with error : {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.ps.patientservice.cache;
+
+import java.util.UUID;
+
+public class LocalPatientCacheInvalidator implements PatientCacheInvalidator
+{
+    private final PatientCache patientCache;
+
+    public LocalPatientCacheInvalidator(PatientCache patientCache)
+    {
+        this.patientCache = patientCache;
+    }
+
+    @Override
+    public void patientUpdated(UUID id)
+    {
+        patientCache.invalidate(id);
+    }
+
+    @Override
+    public void patientDeleted(UUID id)
+    {
+        patientCache.invalidate(id);
+    }
+}
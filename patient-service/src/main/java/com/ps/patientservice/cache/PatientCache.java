@@ -0,0 +1,26 @@
+package com.ps.patientservice.cache;
+
+import com.ps.patientservice.dto.PatientView;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Read-through cache sitting in front of {@link com.ps.patientservice.repository.PatientRepository}.
+ * <p>
+ * Entries are immutable {@link PatientView} rows rather than entities, so sharing them between requests
+ * is safe; writes always load their own managed {@code Patient}.
+ * </p>
+ */
+public interface PatientCache
+{
+    /**
+     * The cached row, or whatever {@code loader} returns, which is cached unless empty. An {@link #invalidate}
+     * of the same id arriving while the load is running waits for it and then removes its result, so a row read
+     * before a write committed is never left behind by the write's invalidation.
+     */
+    Optional<PatientView> get(UUID id, Function<UUID, Optional<PatientView>> loader);
+
+    void invalidate(UUID id);
+}
@@ -0,0 +1,14 @@
+package com.ps.patientservice.cache;
+
+import java.util.UUID;
+
+/**
+ * Decides how far a patient write has to travel to keep caches correct.
+ * The local strategy only touches this node; the Kafka strategy also tells every other replica.
+ */
+public interface PatientCacheInvalidator
+{
+    void patientUpdated(UUID id);
+
+    void patientDeleted(UUID id);
+}
@@ -0,0 +1,49 @@
+package com.ps.patientservice.config;
+
+import com.ps.patientservice.billing.AsyncBillingDispatcher;
+import com.ps.patientservice.billing.BillingDispatcher;
+import com.ps.patientservice.billing.BillingStatusRecorder;
+import com.ps.patientservice.billing.SyncBillingDispatcher;
+import com.ps.patientservice.grpc.BillingServiceGrpcClient;
+import com.ps.patientservice.repository.PatientRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+@Configuration
+public class BillingDispatchConfig
+{
+    @Bean
+    @ConditionalOnProperty(name = "billing.dispatch.mode", havingValue = "async", matchIfMissing = true)
+    public BillingDispatcher asyncBillingDispatcher(BillingServiceGrpcClient billingServiceGrpcClient,
+                                                    BillingStatusRecorder billingStatusRecorder,
+                                                    PatientRepository patientRepository,
+                                                    MeterRegistry meterRegistry,
+                                                    @Value("${billing.dispatch.max-in-flight:64}") int maxInFlight,
+                                                    @Value("${billing.dispatch.queue-capacity:10000}") int queueCapacity,
+                                                    @Value("${billing.dispatch.max-attempts:5}") int maxAttempts,
+                                                    @Value("${billing.dispatch.initial-backoff-ms:200}") long initialBackoffMillis,
+                                                    @Value("${billing.dispatch.max-backoff-ms:30000}") long maxBackoffMillis,
+                                                    @Value("${billing.dispatch.reconcile-batch-size:500}") int reconcileBatchSize,
+                                                    @Value("${billing.dispatch.reconcile-stale-after:5m}") Duration reconcileStaleAfter,
+                                                    TransactionTemplate transactionTemplate)
+    {
+        return new AsyncBillingDispatcher(billingServiceGrpcClient, billingStatusRecorder, patientRepository, meterRegistry,
+                maxInFlight, queueCapacity, maxAttempts, initialBackoffMillis, maxBackoffMillis, reconcileBatchSize,
+                reconcileStaleAfter, transactionTemplate);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "billing.dispatch.mode", havingValue = "sync")
+    public BillingDispatcher syncBillingDispatcher(BillingServiceGrpcClient billingServiceGrpcClient,
+                                                   BillingStatusRecorder billingStatusRecorder,
+                                                   MeterRegistry meterRegistry)
+    {
+        return new SyncBillingDispatcher(billingServiceGrpcClient, billingStatusRecorder, meterRegistry);
+    }
+}
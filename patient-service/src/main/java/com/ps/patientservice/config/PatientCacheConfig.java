@@ -0,0 +1,42 @@
+package com.ps.patientservice.config;
+
+import com.ps.patientservice.cache.CaffeinePatientCache;
+import com.ps.patientservice.cache.KafkaPatientCacheInvalidator;
+import com.ps.patientservice.cache.LocalPatientCacheInvalidator;
+import com.ps.patientservice.cache.PatientCache;
+import com.ps.patientservice.cache.PatientCacheInvalidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class PatientCacheConfig
+{
+    @Bean
+    public PatientCache patientCache(@Value("${patient.cache.maximum-size:10000}") long maximumSize,
+                                     @Value("${patient.cache.ttl:5m}") Duration timeToLive,
+                                     MeterRegistry meterRegistry)
+    {
+        return new CaffeinePatientCache(maximumSize, timeToLive, meterRegistry);
+    }
+
+    // Single node: nobody else holds a copy, so invalidating our own cache is enough
+    @Bean
+    @ConditionalOnProperty(name = "patient.cache.invalidation", havingValue = "local", matchIfMissing = true)
+    public PatientCacheInvalidator localPatientCacheInvalidator(PatientCache patientCache)
+    {
+        return new LocalPatientCacheInvalidator(patientCache);
+    }
+
+    // Other replicas learn about the write from its outbox event on the patient topic
+    @Bean
+    @ConditionalOnProperty(name = "patient.cache.invalidation", havingValue = "kafka")
+    public PatientCacheInvalidator kafkaPatientCacheInvalidator(PatientCache patientCache)
+    {
+        return new KafkaPatientCacheInvalidator(patientCache);
+    }
+}
@@ -0,0 +1,27 @@
+package com.ps.patientservice.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+/**
+ * The {@code patient} topic as a compacted changelog: records are keyed by patient id, so compaction keeps at
+ * least the latest event of every patient and drops deleted patients once their tombstone has been retained
+ * for {@code delete.retention.ms}. A new consumer can rebuild its view of every patient from the topic alone.
+ * <p>
+ * Only applied when the topic does not exist yet; partitions and replicas are the broker's defaults.
+ * An existing topic keeps its cleanup policy until it is changed with {@code kafka-configs}.
+ * </p>
+ */
+@Configuration
+public class PatientEventTopicConfig
+{
+    @Bean
+    public NewTopic patientTopic()
+    {
+        return TopicBuilder.name("patient")
+                .compact()
+                .build();
+    }
+}
@@ -0,0 +1,32 @@
+package com.ps.patientservice.config;
+
+import com.ps.patientservice.repository.PatientRepository;
+import com.ps.patientservice.search.InMemoryPatientNameIndex;
+import com.ps.patientservice.search.PatientNameIndex;
+import com.ps.patientservice.search.RepositoryPatientNameIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@Configuration
+public class PatientSearchConfig
+{
+    // Typeahead served from memory; costs a copy of every name on each replica
+    @Bean
+    @ConditionalOnProperty(name = "patient.search.name-index.enabled", havingValue = "true")
+    public PatientNameIndex inMemoryPatientNameIndex(PatientRepository patientRepository,
+                                                     PlatformTransactionManager transactionManager,
+                                                     MeterRegistry meterRegistry)
+    {
+        return new InMemoryPatientNameIndex(patientRepository, transactionManager, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "patient.search.name-index.enabled", havingValue = "false", matchIfMissing = true)
+    public PatientNameIndex repositoryPatientNameIndex(PatientRepository patientRepository)
+    {
+        return new RepositoryPatientNameIndex(patientRepository);
+    }
+}
@@ -0,0 +1,136 @@
+package com.ps.patientservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ps.patientservice.reactive.ReactivePatientDatabase;
+import com.ps.patientservice.reactive.ReactivePatientHandler;
+import com.ps.patientservice.reactive.ReactivePatientRepository;
+import com.ps.patientservice.reactive.ReactivePatientServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Option;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RequestPredicate;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Optional reactive read stack, on with {@code patient.reactive.enabled=true}: {@code GET /patients} and
+ * {@code GET /patients/{id}} as WebFlux routes on {@code patient.reactive.port}, reading the same
+ * {@code patient} table through R2DBC. Writes, search and everything else stay on the servlet stack.
+ * Boot's own R2DBC connection factory is excluded in {@link com.ps.patientservice.PatientServiceApplication},
+ * so nothing R2DBC exists while this is off; see {@link ReactivePatientDatabase} for why the pool stays out
+ * of the context when it is on.
+ */
+@Configuration
+@ConditionalOnProperty(name = "patient.reactive.enabled", havingValue = "true")
+public class ReactivePatientReadConfig
+{
+    // Rows per round trip while streaming; understood by the Postgres driver only
+    private static final Option<Integer> FETCH_SIZE = Option.valueOf("fetchSize");
+
+    @Bean
+    public ReactivePatientDatabase reactivePatientDatabase(MeterRegistry meterRegistry,
+                                                           @Value("${patient.reactive.r2dbc.url:}") String url,
+                                                           @Value("${spring.datasource.url:}") String jdbcUrl,
+                                                           @Value("${patient.reactive.r2dbc.username:${spring.datasource.username:}}") String username,
+                                                           @Value("${patient.reactive.r2dbc.password:${spring.datasource.password:}}") String password,
+                                                           @Value("${patient.reactive.r2dbc.pool.max-size:10}") int maxSize,
+                                                           @Value("${patient.reactive.r2dbc.pool.max-acquire-time:2s}") Duration maxAcquireTime,
+                                                           @Value("${patient.reactive.r2dbc.fetch-size:500}") int fetchSize)
+    {
+        ConnectionFactoryOptions parsed = ConnectionFactoryOptions.parse(r2dbcUrl(url, jdbcUrl));
+        ConnectionFactoryOptions.Builder options = parsed.mutate();
+        if (!username.isEmpty())
+        {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (!password.isEmpty())
+        {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        if ("postgresql".equals(parsed.getValue(ConnectionFactoryOptions.DRIVER)))
+        {
+            options.option(FETCH_SIZE, fetchSize);
+        }
+        ConnectionPool connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .name(ReactivePatientDatabase.POOL_NAME)
+                .initialSize(0)
+                .maxSize(maxSize)
+                .maxAcquireTime(maxAcquireTime)
+                .build());
+        return new ReactivePatientDatabase(connectionPool, meterRegistry);
+    }
+
+    // Without an explicit URL, the JDBC one with its scheme swapped, so both stacks read the same database
+    private static String r2dbcUrl(String url, String jdbcUrl)
+    {
+        if (!url.isBlank())
+        {
+            return url;
+        }
+        if (jdbcUrl.startsWith("jdbc:postgresql:"))
+        {
+            // JDBC-only parameters such as reWriteBatchedInserts mean nothing to R2DBC
+            int query = jdbcUrl.indexOf('?');
+            return "r2dbc:" + jdbcUrl.substring("jdbc:".length(), query < 0 ? jdbcUrl.length() : query);
+        }
+        throw new IllegalStateException("patient.reactive.r2dbc.url is required unless spring.datasource.url is a Postgres URL");
+    }
+
+    @Bean
+    public ReactivePatientHandler reactivePatientHandler(ReactivePatientDatabase reactivePatientDatabase,
+                                                         MeterRegistry meterRegistry,
+                                                         @Value("${patient.page.default-size:50}") int defaultPageSize,
+                                                         @Value("${patient.page.max-size:500}") int maxPageSize)
+    {
+        return new ReactivePatientHandler(reactivePatientDatabase.repository(ReactivePatientRepository.class), meterRegistry, defaultPageSize, maxPageSize);
+    }
+
+    @Bean
+    public ReactivePatientServer reactivePatientServer(ReactivePatientHandler reactivePatientHandler,
+                                                       ObjectMapper objectMapper,
+                                                       @Value("${patient.reactive.port:4010}") int port,
+                                                       @Value("${spring.lifecycle.timeout-per-shutdown-phase:30s}") Duration shutdownTimeout)
+    {
+        // Boot's ObjectMapper, so both stacks write the same JSON
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        return new ReactivePatientServer(RouterFunctions.toHttpHandler(routes(reactivePatientHandler), strategies), port, shutdownTimeout);
+    }
+
+    static RouterFunction<ServerResponse> routes(ReactivePatientHandler handler)
+    {
+        return RouterFunctions.route()
+                .GET("/patients", accepts(MediaType.APPLICATION_NDJSON), handler::streamPatients)
+                .GET("/patients", accepts(MediaType.TEXT_EVENT_STREAM), handler::streamPatientEvents)
+                .GET("/patients", handler::getPatients)
+                .GET("/patients/{id}", handler::getPatientById)
+                // Deferred so that exceptions thrown while a handler builds its response are mapped too
+                .filter((request, next) -> Mono.defer(() -> next.handle(request)).onErrorResume(handler::handleError))
+                .build();
+    }
+
+    // Only an explicit streaming type streams; */* and application/json still get one page
+    private static RequestPredicate accepts(MediaType mediaType)
+    {
+        return request -> request.headers().accept().stream().anyMatch(mediaType::equalsTypeAndSubtype);
+    }
+}
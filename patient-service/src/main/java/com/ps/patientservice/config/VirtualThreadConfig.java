@@ -0,0 +1,70 @@
+package com.ps.patientservice.config;
+
+import com.ps.patientservice.threads.BoundedWaitDataSource;
+import com.ps.patientservice.threads.PinnedThreadMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Extras for {@code spring.threads.virtual.enabled=true}, which moves Tomcat requests, MVC async work
+ * (GET /patients/stream), {@code @Async}/{@code @Scheduled} tasks and the Kafka listener containers onto
+ * virtual threads. Wires the same pinning monitor and connection-wait cap as auth-service.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig
+{
+    @Bean
+    public PinnedThreadMonitor pinnedThreadMonitor(MeterRegistry meterRegistry,
+                                                   @Value("${patient.threads.pinned-threshold:20ms}") Duration threshold,
+                                                   @Value("${patient.threads.pinned-log-interval:1m}") Duration logInterval)
+    {
+        return new PinnedThreadMonitor(meterRegistry, threshold, logInterval);
+    }
+
+    // Static so the data source is wrapped before JPA or anything else picks it up
+    @Bean
+    public static BeanPostProcessor boundedWaitDataSourcePostProcessor(
+            @Value("${patient.threads.db-waiters-per-connection:4}") int waitersPerConnection)
+    {
+        return new BeanPostProcessor()
+        {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName)
+            {
+                if (bean instanceof HikariDataSource hikari)
+                {
+                    return new BoundedWaitDataSource(hikari, hikari.getMaximumPoolSize() * waitersPerConnection);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder boundedWaitDataSourceMetrics(DataSource dataSource) throws SQLException
+    {
+        BoundedWaitDataSource bounded = dataSource.unwrap(BoundedWaitDataSource.class);
+        return registry -> {
+            Gauge.builder("patient.db.connection.waiting", bounded, BoundedWaitDataSource::getWaiting)
+                    .description("Callers currently acquiring a pooled connection")
+                    .register(registry);
+            FunctionCounter.builder("patient.db.connection.rejected", bounded, BoundedWaitDataSource::getRejected)
+                    .description("Connection requests refused because too many callers were already waiting")
+                    .register(registry);
+        };
+    }
+}
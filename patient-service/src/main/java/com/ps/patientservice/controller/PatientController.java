@@ -1,22 +1,44 @@
 package com.ps.patientservice.controller;
 
 import com.ps.patientservice.dto.PatientCreateDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ps.patientservice.dto.PatientBulkResultDTO;
 import com.ps.patientservice.dto.PatientDTO;
+import com.ps.patientservice.dto.PatientNameSuggestionDTO;
+import com.ps.patientservice.dto.PatientPageDTO;
 import com.ps.patientservice.dto.PatientUpdateGroup;
+import com.ps.patientservice.dto.PatientView;
 import com.ps.patientservice.grpc.BillingServiceGrpcClient;
+import com.ps.patientservice.exception.PatientNotFoundException;
+import com.ps.patientservice.mapper.PatientETags;
 import com.ps.patientservice.mapper.PatientMapper;
 import com.ps.patientservice.model.Patient;
+import com.ps.patientservice.pagination.PatientCursor;
+import com.ps.patientservice.search.PatientSearchCriteria;
+import com.ps.patientservice.service.PatientBulkImportService;
 import com.ps.patientservice.service.PatientService;
 
 import jakarta.validation.groups.Default;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.Operation;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
@@ -29,31 +51,162 @@ import java.util.UUID;
 public class PatientController {
 
     private final PatientService patientService;
+    private final PatientBulkImportService patientBulkImportService;
+    private final ObjectMapper objectMapper;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int defaultSuggestions;
+    private final int maxSuggestions;
 
 
-    public PatientController(PatientService patientService) {
+    public PatientController(PatientService patientService,
+                             PatientBulkImportService patientBulkImportService,
+                             ObjectMapper objectMapper,
+                             @Value("${patient.page.default-size:50}") int defaultPageSize,
+                             @Value("${patient.page.max-size:500}") int maxPageSize,
+                             @Value("${patient.search.suggestions.default-size:10}") int defaultSuggestions,
+                             @Value("${patient.search.suggestions.max-size:50}") int maxSuggestions) {
         this.patientService = patientService;
+        this.patientBulkImportService = patientBulkImportService;
+        this.objectMapper = objectMapper;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.defaultSuggestions = defaultSuggestions;
+        this.maxSuggestions = maxSuggestions;
     }
 
     @GetMapping
     @Operation(
-            summary = "Get all patients",
-            description = "Returns a list of all patient records in the system."
+            summary = "Get patients page by page",
+            description = """
+                    Returns one page of patients ordered by `registeredDate` and `id`.  
+                    Pass the returned `nextCursor` back as `cursor` to fetch the following page;  
+                    `nextCursor` is null on the last page.  
+                    Each page carries a weak `ETag`; `If-None-Match` returns `304 Not Modified` while the page is unchanged.
+                    """
+    )
+    public ResponseEntity<PatientPageDTO> getAllPatients(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            WebRequest request
+    ) {
+        int pageSize = pageSize(size);
+        return page(patientService.getPage(decodeCursor(cursor), pageSize), pageSize, request);
+    }
+
+    @GetMapping("/search")
+    @Operation(
+            summary = "Search patients",
+            description = """
+                    Returns one page of patients matching every filter that is given:  
+                    `name` is a case-insensitive prefix of the name, `email` an exact match, and the  
+                    `registeredFrom`/`registeredTo` and `dateOfBirthFrom`/`dateOfBirthTo` ranges (ISO dates) are inclusive.  
+                    Paging, `nextCursor` and `ETag` work exactly like `GET /patients`.
+                    """
+    )
+    public ResponseEntity<PatientPageDTO> searchPatients(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate registeredFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate registeredTo,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateOfBirthFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateOfBirthTo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            WebRequest request
+    ) {
+        PatientSearchCriteria criteria = new PatientSearchCriteria(name, email, registeredFrom, registeredTo, dateOfBirthFrom, dateOfBirthTo);
+        int pageSize = pageSize(size);
+        return page(patientService.search(criteria, decodeCursor(cursor), pageSize), pageSize, request);
+    }
+
+    @GetMapping("/search/names")
+    @Operation(
+            summary = "Autocomplete patient names",
+            description = """
+                    Returns up to `limit` patients whose name, or a later word of it, starts with `prefix` (case-insensitive).  
+                    Served from an in-memory index when `patient.search.name-index.enabled` is true.
+                    """
+    )
+    public ResponseEntity<List<PatientNameSuggestionDTO>> suggestNames(
+            @RequestParam String prefix,
+            @RequestParam(required = false) Integer limit
+    ) {
+        int suggestions = limit == null ? defaultSuggestions : Math.max(1, Math.min(limit, maxSuggestions));
+        return ResponseEntity.ok(patientService.suggestNames(prefix, suggestions).stream()
+                .map(match -> PatientNameSuggestionDTO.builder().id(match.id().toString()).name(match.name()).build())
+                .toList());
+    }
+
+    private int pageSize(Integer size) {
+        return size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+    }
+
+    private static PatientCursor decodeCursor(String cursor) {
+        return cursor == null || cursor.isBlank() ? null : PatientCursor.decode(cursor);
+    }
+
+    // patients holds up to pageSize + 1 rows; the extra one only says whether there is a next page
+    private ResponseEntity<PatientPageDTO> page(List<PatientView> patients, int pageSize, WebRequest request) {
+        boolean hasNext = patients.size() > pageSize;
+        List<PatientView> page = hasNext ? patients.subList(0, pageSize) : patients;
+        String nextCursor = hasNext ? PatientCursor.of(page.get(page.size() - 1)).encode() : null;
+
+        // Unchanged page: answer 304 before any DTO is built or serialized
+        String etag = PatientETags.ofPage(page, nextCursor);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(PatientPageDTO.builder()
+                        .items(page.stream().map(PatientMapper::toDTO).toList())
+                        .nextCursor(nextCursor)
+                        .build());
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(
+            summary = "Stream all patients",
+            description = "Streams every patient as one JSON array, written row by row from a database cursor."
     )
-    public ResponseEntity<List<PatientDTO>> getAllPatients() {
-        return ResponseEntity.ok(
-                patientService.getAll().stream().map(PatientMapper::toDTO).toList()
-        );
+    public ResponseEntity<StreamingResponseBody> streamAllPatients() {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                patientService.forEachPatient(patient -> {
+                    try {
+                        generator.writeObject(PatientMapper.toDTO(patient));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     @GetMapping("/{id}")
     @Operation(
             summary = "Get patient by ID",
-            description = "Retrieve a single patient's details using their unique UUID."
+            description = """
+                    Retrieve a single patient's details using their unique UUID.  
+                    The response carries an `ETag`; send it back as `If-None-Match` to get `304 Not Modified`  
+                    while the patient is unchanged.
+                    """
     )
-    public ResponseEntity<PatientDTO> getPatientById(@PathVariable String id) {
+    public ResponseEntity<PatientDTO> getPatientById(@PathVariable String id, WebRequest request) {
         UUID uuid = UUID.fromString(id);
-        return ResponseEntity.ok(PatientMapper.toDTO(patientService.getById(uuid)));
+        PatientView patient = patientService.getById(uuid);
+        if (patient == null) {
+            throw new PatientNotFoundException("Patient not found with Id: " + uuid);
+        }
+        String etag = PatientETags.of(patient);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(PatientMapper.toDTO(patient));
     }
 
     @PostMapping
@@ -72,6 +225,21 @@ public class PatientController {
                 .body(patientService.savePatient(PatientMapper.fromDTO(patient)));
     }
 
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(
+            summary = "Import many patients at once",
+            description = """
+                    Accepts either a JSON array or newline-delimited JSON of PatientCreateDTO objects.  
+                    Rows are read as a stream and stored in chunks; every row gets its own result  
+                    (`CREATED`, `INVALID`, `DUPLICATE_EMAIL` or `FAILED`) in request order.
+                    """
+    )
+    public ResponseEntity<PatientBulkResultDTO> importPatients(InputStream body) throws IOException {
+        try (MappingIterator<PatientCreateDTO> rows = objectMapper.readerFor(PatientCreateDTO.class).readValues(body)) {
+            return ResponseEntity.ok(patientBulkImportService.importPatients(rows));
+        }
+    }
+
     @DeleteMapping("/{id}")
     @Operation(
             summary = "Delete a patient",
@@ -96,18 +264,21 @@ public class PatientController {
                     **Important:**  
                     - `registeredDate` is **optional** during update (it belongs to the Default group only).  
                     - If `registeredDate` is null, the update still succeeds.  
+                    - Send the `ETag` from a previous GET as `If-Match` to update only if nobody changed  
+                      the patient since; otherwise the response is `412 Precondition Failed`.  
                     """
     )
     public ResponseEntity<PatientDTO> updatePatient(
             @PathVariable String id,
-            @Validated(Default.class) @RequestBody PatientCreateDTO patientDTO
+            @Validated(Default.class) @RequestBody PatientCreateDTO patientDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
-        PatientDTO patientResponse =
-                PatientMapper.toDTO(patientService.updatePatient(UUID.fromString(id), patientDTO));
+        Patient updated = patientService.updatePatient(UUID.fromString(id), patientDTO, PatientETags.acceptedVersions(ifMatch));
+        PatientDTO patientResponse = PatientMapper.toDTO(updated);
 
         if (patientResponse.getId() == null) {
             return ResponseEntity.badRequest().body(patientResponse);
         }
-        return ResponseEntity.ok(patientResponse);
+        return ResponseEntity.ok().eTag(PatientETags.of(updated)).body(patientResponse);
     }
 }
@@ -0,0 +1,20 @@
+package com.ps.patientservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PatientBulkResultDTO
+{
+    private int total;
+    private int created;
+    private int rejected;
+    private List<PatientBulkRowResultDTO> rows;
+}
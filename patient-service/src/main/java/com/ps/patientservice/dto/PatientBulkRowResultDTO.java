@@ -0,0 +1,28 @@
+package com.ps.patientservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PatientBulkRowResultDTO
+{
+    // Zero-based position of the row in the request body
+    private int index;
+    private Status status;
+    private String id;
+    private String email;
+    private String message;
+
+    public enum Status
+    {
+        CREATED,
+        INVALID,
+        DUPLICATE_EMAIL,
+        FAILED
+    }
+}
@@ -17,4 +17,5 @@ public class PatientDTO
     private String email;
     private String address;
     private String dateofBirth;
+    private String billingStatus;
 }
@@ -0,0 +1,16 @@
+package com.ps.patientservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PatientNameSuggestionDTO
+{
+    private String id;
+    private String name;
+}
@@ -0,0 +1,19 @@
+package com.ps.patientservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PatientPageDTO
+{
+    private List<PatientDTO> items;
+    // Opaque continuation token, null when this is the last page
+    private String nextCursor;
+}
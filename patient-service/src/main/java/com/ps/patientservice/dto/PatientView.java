@@ -0,0 +1,29 @@
+package com.ps.patientservice.dto;
+
+import com.ps.patientservice.model.BillingStatus;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Read-only row of a patient listing, selected straight into this record by a JPQL constructor expression.
+ * No entity, persistence-context entry or dirty-check snapshot is created for it; {@code registeredDate}
+ * and {@code version} ride along for the page cursor and ETag.
+ * <p>
+ * The reactive read stack maps the same {@code patient} table onto it through R2DBC, so both stacks read
+ * the schema Hibernate owns; the default column naming of both (snake case) lines up field for field.
+ * </p>
+ */
+@Table("patient")
+public record PatientView(@Id UUID id,
+                          String name,
+                          String email,
+                          String address,
+                          LocalDate dateofBirth,
+                          LocalDate registeredDate,
+                          BillingStatus billingStatus,
+                          Long version)
+{
+}
@@ -1,9 +1,14 @@
 package com.ps.patientservice.exception;
 
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -15,10 +20,23 @@ import java.util.Map;
 @ControllerAdvice
 public class GlobalExceptionHandler
 {
+    private final MeterRegistry meterRegistry;
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry)
+    {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // One patient.exceptions series per handled exception type
+    private void count(Exception ex)
+    {
+        meterRegistry.counter("patient.exceptions", "exception", ex.getClass().getSimpleName()).increment();
+    }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String,String>> handleMethodArgumentNotValidException(MethodArgumentNotValidException ex)
     {
+        count(ex);
         Map<String,String> errors = new HashMap<>();
         ex.getBindingResult().getFieldErrors().forEach(error -> errors.put(error.getField(),error.getDefaultMessage()));
 
@@ -29,6 +47,7 @@ public class GlobalExceptionHandler
     @ExceptionHandler(EmailAreadyExistsException.class)
     public ResponseEntity<Map<String,String>> handleEmailAlreadyExistsException(EmailAreadyExistsException ex)
     {
+        count(ex);
         Map<String,String> errors = new HashMap<>();
         log.warn("EmailAreadyExistsException: ",ex.getMessage());
         errors.put("Message","Email Already Exists");
@@ -39,6 +58,7 @@ public class GlobalExceptionHandler
     @ExceptionHandler(PatientNotFoundException.class)
     public ResponseEntity<Map<String,String>> handlePatientNotFoundException(PatientNotFoundException ex)
     {
+        count(ex);
         Map<String,String> errors = new HashMap<>();
         log.warn("Patient Not Found: ",ex.getMessage());
         errors.put("Message","Patient Not Found");
@@ -46,4 +66,66 @@ public class GlobalExceptionHandler
 
         return  ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
     }
+
+    @ExceptionHandler(PatientVersionMismatchException.class)
+    public ResponseEntity<Map<String,String>> handlePatientVersionMismatchException(PatientVersionMismatchException ex)
+    {
+        count(ex);
+        Map<String,String> errors = new HashMap<>();
+        log.warn("Patient Version Mismatch: {}",ex.getMessage());
+        errors.put("Message","Patient was modified since it was read");
+        errors.put("Exception Message",ex.getMessage());
+
+        return  ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(errors);
+    }
+
+    // Two writers raced on the same patient and this one lost at the version check
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String,String>> handleOptimisticLockingFailureException(ObjectOptimisticLockingFailureException ex)
+    {
+        count(ex);
+        Map<String,String> errors = new HashMap<>();
+        log.warn("Concurrent Patient Update: {}",ex.getMessage());
+        errors.put("Message","Patient was modified concurrently, reload and retry");
+        errors.put("Exception Message",ex.getMessage());
+
+        return  ResponseEntity.status(HttpStatus.CONFLICT).body(errors);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Map<String,String>> handleInvalidCursorException(InvalidCursorException ex)
+    {
+        count(ex);
+        Map<String,String> errors = new HashMap<>();
+        log.warn("Invalid Cursor: {}",ex.getMessage());
+        errors.put("Message","Invalid Cursor");
+        errors.put("Exception Message",ex.getMessage());
+
+        return  ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
+    }
+
+    @ExceptionHandler(InvalidSearchCriteriaException.class)
+    public ResponseEntity<Map<String,String>> handleInvalidSearchCriteriaException(InvalidSearchCriteriaException ex)
+    {
+        count(ex);
+        Map<String,String> errors = new HashMap<>();
+        log.warn("Invalid Search Criteria: {}",ex.getMessage());
+        errors.put("Message","Invalid Search Criteria");
+        errors.put("Exception Message",ex.getMessage());
+
+        return  ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
+    }
+
+    // No connection to be had: the pool is saturated (see BoundedWaitDataSource) or the database is down
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<Map<String,String>> handleDatabaseUnavailableException(Exception ex)
+    {
+        count(ex);
+        Map<String,String> errors = new HashMap<>();
+        log.warn("Database Unavailable: {}",ex.getMessage());
+        errors.put("Message","Service is busy, retry shortly");
+        errors.put("Exception Message",ex.getMessage());
+
+        return  ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(errors);
+    }
 }
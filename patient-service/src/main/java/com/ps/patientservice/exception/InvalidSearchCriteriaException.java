@@ -0,0 +1,9 @@
+package com.ps.patientservice.exception;
+
+public class InvalidSearchCriteriaException extends RuntimeException
+{
+    public InvalidSearchCriteriaException(String message)
+    {
+        super(message);
+    }
+}
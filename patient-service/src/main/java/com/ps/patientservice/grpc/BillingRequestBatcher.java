@@ -0,0 +1,246 @@
+package com.ps.patientservice.grpc;
+
+import billing.BillingBatchRequest;
+import billing.BillingBatchResponse;
+import billing.BillingRequest;
+import billing.BillingResponse;
+import billing.BillingResult;
+import billing.BillingServiceGrpc;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.Status;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces single CreateBillingAccount calls into CreateBillingAccounts batches.
+ * <p>
+ * A request waits at most {@code lingerMillis} for others to join it, and a batch is sent as soon as it
+ * holds {@code maxBatchSize} requests, so under load most calls share a round-trip and an idle caller pays
+ * only the linger. Every request still gets its own future, failed with the status billing-service reported
+ * for that request alone. Against a billing-service without the batch RPC it falls back to unary calls.
+ * Batch sizes are exported as {@code billing.grpc.batch.size}.
+ * </p>
+ */
+class BillingRequestBatcher
+{
+    private static final Logger log = LoggerFactory.getLogger(BillingRequestBatcher.class);
+
+    private final BillingServiceGrpc.BillingServiceFutureStub futureStub;
+    private final long deadlineMillis;
+    private final int maxBatchSize;
+    private final long lingerMillis;
+    private final ScheduledExecutorService lingerScheduler;
+    private final DistributionSummary batchSize;
+
+    // Not a monitor: a virtual thread blocked on a contended synchronized block pins its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private List<Pending> pending = new ArrayList<>();
+    private ScheduledFuture<?> lingerTimer;
+    private volatile boolean batchUnsupported;
+
+    BillingRequestBatcher(BillingServiceGrpc.BillingServiceFutureStub futureStub, long deadlineMillis,
+                          int maxBatchSize, long lingerMillis, MeterRegistry meterRegistry)
+    {
+        this.futureStub = futureStub;
+        this.deadlineMillis = deadlineMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerMillis = lingerMillis;
+        this.lingerScheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("billing-batch").daemon().factory());
+        this.batchSize = DistributionSummary.builder("billing.grpc.batch.size")
+                .description("Requests sent per CreateBillingAccounts call")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private record Pending(BillingRequest request, SettableFuture<BillingResponse> result)
+    {
+    }
+
+    ListenableFuture<BillingResponse> submit(BillingRequest request)
+    {
+        SettableFuture<BillingResponse> result = SettableFuture.create();
+        List<Pending> full = null;
+        lock.lock();
+        try
+        {
+            pending.add(new Pending(request, result));
+            if (pending.size() >= maxBatchSize)
+            {
+                full = drain();
+            }
+            else if (pending.size() == 1)
+            {
+                lingerTimer = lingerScheduler.schedule(this::flush, lingerMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        if (full != null)
+        {
+            send(full);
+        }
+        return result;
+    }
+
+    // For callers that already hold a batch: no linger, just split at maxBatchSize and send every part at once
+    List<ListenableFuture<BillingResponse>> submitAll(List<BillingRequest> requests)
+    {
+        List<ListenableFuture<BillingResponse>> results = new ArrayList<>(requests.size());
+        List<Pending> batch = new ArrayList<>(Math.min(requests.size(), maxBatchSize));
+        for (BillingRequest request : requests)
+        {
+            SettableFuture<BillingResponse> result = SettableFuture.create();
+            results.add(result);
+            batch.add(new Pending(request, result));
+            if (batch.size() == maxBatchSize)
+            {
+                send(batch);
+                batch = new ArrayList<>(maxBatchSize);
+            }
+        }
+        if (!batch.isEmpty())
+        {
+            send(batch);
+        }
+        return results;
+    }
+
+    void flush()
+    {
+        List<Pending> batch;
+        lock.lock();
+        try
+        {
+            batch = drain();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        if (!batch.isEmpty())
+        {
+            send(batch);
+        }
+    }
+
+    void shutdown()
+    {
+        flush();
+        lingerScheduler.shutdownNow();
+    }
+
+    private List<Pending> drain()
+    {
+        if (lingerTimer != null)
+        {
+            lingerTimer.cancel(false);
+            lingerTimer = null;
+        }
+        List<Pending> batch = pending;
+        pending = new ArrayList<>();
+        return batch;
+    }
+
+    private void send(List<Pending> batch)
+    {
+        batchSize.record(batch.size());
+        if (batch.size() == 1 || batchUnsupported)
+        {
+            sendUnary(batch);
+            return;
+        }
+
+        BillingBatchRequest.Builder request = BillingBatchRequest.newBuilder();
+        batch.forEach(p -> request.addRequests(p.request()));
+        ListenableFuture<BillingBatchResponse> call;
+        try
+        {
+            call = futureStub.withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS).createBillingAccounts(request.build());
+        }
+        catch (RuntimeException e)
+        {
+            batch.forEach(p -> p.result().setException(e));
+            return;
+        }
+
+        Futures.addCallback(call, new FutureCallback<>()
+        {
+            @Override
+            public void onSuccess(BillingBatchResponse response)
+            {
+                complete(batch, response);
+            }
+
+            @Override
+            public void onFailure(Throwable t)
+            {
+                if (Status.fromThrowable(t).getCode() == Status.Code.UNIMPLEMENTED)
+                {
+                    log.warn("billing-service does not support CreateBillingAccounts, falling back to one call per account");
+                    batchUnsupported = true;
+                    sendUnary(batch);
+                    return;
+                }
+                batch.forEach(p -> p.result().setException(t));
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private static void complete(List<Pending> batch, BillingBatchResponse response)
+    {
+        if (response.getResultsCount() != batch.size())
+        {
+            Exception mismatch = Status.INTERNAL
+                    .withDescription("Expected " + batch.size() + " billing results, got " + response.getResultsCount())
+                    .asRuntimeException();
+            batch.forEach(p -> p.result().setException(mismatch));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++)
+        {
+            BillingResult result = response.getResults(i);
+            SettableFuture<BillingResponse> future = batch.get(i).result();
+            if (result.hasAccount())
+            {
+                future.set(result.getAccount());
+            }
+            else
+            {
+                future.setException(Status.fromCodeValue(result.getError().getCode())
+                        .withDescription(result.getError().getMessage())
+                        .asRuntimeException());
+            }
+        }
+    }
+
+    private void sendUnary(List<Pending> batch)
+    {
+        for (Pending p : batch)
+        {
+            try
+            {
+                p.result().setFuture(futureStub.withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS).createBillingAccount(p.request()));
+            }
+            catch (RuntimeException e)
+            {
+                p.result().setException(e);
+            }
+        }
+    }
+}
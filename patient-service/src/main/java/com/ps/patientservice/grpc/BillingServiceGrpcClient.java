@@ -4,35 +4,128 @@ package com.ps.patientservice.grpc;
 import billing.BillingRequest;
 import billing.BillingResponse;
 import billing.BillingServiceGrpc;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.ps.patientservice.model.Patient;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
 @Service
 public class BillingServiceGrpcClient
 {
     private static final Logger log = LoggerFactory.getLogger(BillingServiceGrpcClient.class);
     private final BillingServiceGrpc.BillingServiceBlockingStub blockingStub;
+    private final BillingServiceGrpc.BillingServiceFutureStub futureStub;
+    private final long deadlineMillis;
+    private final BillingRequestBatcher batcher;
+    private final boolean batchingEnabled;
 
     public BillingServiceGrpcClient(@Value("${billing.service.address:localhost}") String serverAddress,
-                                    @Value("${billing.service.grpc.port:9001}") int serverPort)
+                                    @Value("${billing.service.grpc.port:9001}") int serverPort,
+                                    @Value("${billing.service.grpc.deadline-ms:2000}") long deadlineMillis,
+                                    @Value("${billing.service.grpc.batch.enabled:true}") boolean batchingEnabled,
+                                    @Value("${billing.service.grpc.batch.max-size:100}") int maxBatchSize,
+                                    @Value("${billing.service.grpc.batch.linger-ms:5}") long lingerMillis,
+                                    MeterRegistry meterRegistry)
     {
         log.info("Connecting to Billing Server GRPC server at {}:{}", serverAddress, serverPort);
         ManagedChannel channel = ManagedChannelBuilder.forAddress(serverAddress, serverPort).usePlaintext().build();
 
         blockingStub = BillingServiceGrpc.newBlockingStub(channel);
+        futureStub = BillingServiceGrpc.newFutureStub(channel);
+        this.deadlineMillis = deadlineMillis;
+        this.batchingEnabled = batchingEnabled;
+        this.batcher = new BillingRequestBatcher(futureStub, deadlineMillis, maxBatchSize, lingerMillis, meterRegistry);
+    }
 
+    @PreDestroy
+    void shutdown()
+    {
+        batcher.shutdown();
     }
 
     public BillingResponse createBillingAccount(String patientId, String name, String email)
     {
         BillingRequest request = BillingRequest.newBuilder().setPatientId(patientId).setName(name).setEmail(email).build();
 
-        BillingResponse response = blockingStub.createBillingAccount(request);
+        BillingResponse response = blockingStub.withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS).createBillingAccount(request);
         log.info("Created Billing Account from billing service via GRPC: {}", response);
         return response;
     }
+
+    // Non-blocking variant: completes on a gRPC thread. Concurrent calls are coalesced into batches by default
+    public ListenableFuture<BillingResponse> createBillingAccountAsync(Patient patient)
+    {
+        if (batchingEnabled)
+        {
+            return batcher.submit(toRequest(patient));
+        }
+        return futureStub.withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS).createBillingAccount(toRequest(patient));
+    }
+
+    private static BillingRequest toRequest(Patient patient)
+    {
+        return BillingRequest.newBuilder()
+                .setPatientId(patient.getId().toString())
+                .setName(patient.getName())
+                .setEmail(patient.getEmail())
+                .build();
+    }
+
+    /**
+     * Creates billing accounts for a whole chunk of patients with as few CreateBillingAccounts calls as the
+     * batch size allows, all started before any is awaited, so the chunk costs roughly one round-trip.
+     *
+     * @return error message per patient whose account could not be created; empty when all succeeded
+     */
+    public Map<UUID, String> createBillingAccounts(List<Patient> patients)
+    {
+        List<ListenableFuture<BillingResponse>> calls;
+        if (batchingEnabled)
+        {
+            calls = batcher.submitAll(patients.stream().map(BillingServiceGrpcClient::toRequest).toList());
+        }
+        else
+        {
+            calls = new ArrayList<>(patients.size());
+            for (Patient patient : patients)
+            {
+                calls.add(createBillingAccountAsync(patient));
+            }
+        }
+
+        Map<UUID, String> failures = new HashMap<>();
+        for (int i = 0; i < calls.size(); i++)
+        {
+            UUID patientId = patients.get(i).getId();
+            try
+            {
+                calls.get(i).get();
+            }
+            catch (ExecutionException e)
+            {
+                failures.put(patientId, e.getCause().getMessage());
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                failures.put(patientId, "Interrupted while waiting for billing service");
+            }
+        }
+        log.info("Created {} Billing Accounts from billing service via GRPC, {} failed", patients.size() - failures.size(), failures.size());
+        return failures;
+    }
 }
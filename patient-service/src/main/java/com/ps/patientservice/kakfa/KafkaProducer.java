@@ -1,37 +0,0 @@
-package com.ps.patientservice.kakfa;
-
-import com.ps.patientservice.model.Patient;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.stereotype.Service;
-import patient.events.PatientEvent;
-
-@Slf4j
-@Service
-public class KafkaProducer
-{
-
-    private final KafkaTemplate<String,byte[]> kafkaTemplate;
-
-    public KafkaProducer(KafkaTemplate<String, byte[]> kafkaTemplate)
-    {
-        this.kafkaTemplate = kafkaTemplate;
-    }
-
-    public void sendEvent(Patient patient)
-    {
-        PatientEvent patientEvent = PatientEvent.newBuilder()
-                .setPatientId(patient.getId().toString())
-                .setName(patient.getName())
-                .setEmail(patient.getEmail())
-                .setEventType("PATIENT_CREATED")
-                .build();
-
-        try
-        {
-            kafkaTemplate.send("patient", patientEvent.toByteArray());
-        } catch (Exception e) {
-            log.error("Error Sending PatientCreated Event: {} with error : {}",patientEvent, e);
-        }
-    }
-}
@@ -0,0 +1,152 @@
+package com.ps.patientservice.kakfa;
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.FieldMask;
+import com.ps.patientservice.model.Patient;
+import com.ps.patientservice.model.PatientOutboxEvent;
+import com.ps.patientservice.repository.PatientOutboxRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import patient.events.PatientEvent;
+
+import java.util.List;
+
+/**
+ * Write side of the transactional outbox. Must be called inside the transaction that changes the patient,
+ * so an event exists if and only if that change commits.
+ * <p>
+ * Every event is keyed by the patient's id and carries the row as the write left it, so a consumer can keep
+ * its own copy of each patient from the topic alone; updates also say which fields changed.
+ * </p>
+ */
+@Component
+public class PatientEventOutbox
+{
+    public static final String PATIENT_CREATED = "PATIENT_CREATED";
+    public static final String PATIENT_UPDATED = "PATIENT_UPDATED";
+    public static final String PATIENT_DELETED = "PATIENT_DELETED";
+    public static final String PATIENT_BILLING_STATUS_CHANGED = "PATIENT_BILLING_STATUS_CHANGED";
+
+    // The patient's own fields, the ones an update can change; compared to build changed_fields
+    private static final List<FieldDescriptor> ROW_FIELDS = List.of(
+            PatientEvent.getDescriptor().findFieldByNumber(PatientEvent.NAME_FIELD_NUMBER),
+            PatientEvent.getDescriptor().findFieldByNumber(PatientEvent.EMAIL_FIELD_NUMBER),
+            PatientEvent.getDescriptor().findFieldByNumber(PatientEvent.ADDRESS_FIELD_NUMBER),
+            PatientEvent.getDescriptor().findFieldByNumber(PatientEvent.DATE_OF_BIRTH_FIELD_NUMBER),
+            PatientEvent.getDescriptor().findFieldByNumber(PatientEvent.REGISTERED_DATE_FIELD_NUMBER));
+
+    private final PatientOutboxRepository patientOutboxRepository;
+
+    public PatientEventOutbox(PatientOutboxRepository patientOutboxRepository)
+    {
+        this.patientOutboxRepository = patientOutboxRepository;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void patientCreated(Patient patient)
+    {
+        patientOutboxRepository.save(createdEvent(patient));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void patientsCreated(List<Patient> patients)
+    {
+        patientOutboxRepository.saveAll(patients.stream().map(PatientEventOutbox::createdEvent).toList());
+    }
+
+    /**
+     * @param before the patient as {@link #snapshot} saw it before the update was applied
+     * @param patient the updated patient, flushed so that its version is the one the update wrote
+     * @return whether an event was written; an update that changed nothing writes none
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean patientUpdated(PatientEvent before, Patient patient)
+    {
+        PatientEvent after = snapshot(patient);
+        FieldMask.Builder changedFields = FieldMask.newBuilder();
+        for (FieldDescriptor field : ROW_FIELDS)
+        {
+            if (!before.getField(field).equals(after.getField(field)))
+            {
+                changedFields.addPaths(field.getName());
+            }
+        }
+        if (changedFields.getPathsCount() == 0)
+        {
+            return false;
+        }
+        patientOutboxRepository.save(outboxEvent(after.toBuilder()
+                .setEventType(PATIENT_UPDATED)
+                .setChangedFields(changedFields)
+                .build()));
+        return true;
+    }
+
+    // PatientOutboxRelay follows this event with a tombstone, so compaction eventually drops the patient's key
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void patientDeleted(Patient patient)
+    {
+        patientOutboxRepository.save(outboxEvent(PatientEvent.newBuilder()
+                .setPatientId(patient.getId().toString())
+                .setEventType(PATIENT_DELETED)
+                .setVersion(patient.getVersion())
+                .setDeleted(true)
+                .build()));
+    }
+
+    // Also how the other replicas' caches hear about a billing outcome, which changes the ETag but not the version
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void billingStatusChanged(List<Patient> patients)
+    {
+        patientOutboxRepository.saveAll(patients.stream()
+                .map(patient -> outboxEvent(snapshot(patient).toBuilder()
+                        .setEventType(PATIENT_BILLING_STATUS_CHANGED)
+                        .setBillingStatus(patient.getBillingStatus().name())
+                        .build()))
+                .toList());
+    }
+
+    /**
+     * The patient's row as an event payload without an event type. Taken before an update is applied, it is
+     * the {@code before} of {@link #patientUpdated}.
+     */
+    public static PatientEvent snapshot(Patient patient)
+    {
+        PatientEvent.Builder event = PatientEvent.newBuilder()
+                .setPatientId(patient.getId().toString())
+                .setName(patient.getName())
+                .setEmail(patient.getEmail());
+        // Proto3 strings cannot be null; an unset field reads back as ""
+        if (patient.getAddress() != null)
+        {
+            event.setAddress(patient.getAddress());
+        }
+        if (patient.getDateofBirth() != null)
+        {
+            event.setDateOfBirth(patient.getDateofBirth().toString());
+        }
+        if (patient.getRegisteredDate() != null)
+        {
+            event.setRegisteredDate(patient.getRegisteredDate().toString());
+        }
+        if (patient.getVersion() != null)
+        {
+            event.setVersion(patient.getVersion());
+        }
+        return event.build();
+    }
+
+    private static PatientOutboxEvent createdEvent(Patient patient)
+    {
+        return outboxEvent(snapshot(patient).toBuilder().setEventType(PATIENT_CREATED).build());
+    }
+
+    // A deletion carries the version it deleted, so it sorts after the update that wrote that version
+    private static PatientOutboxEvent outboxEvent(PatientEvent patientEvent)
+    {
+        long aggregateVersion = patientEvent.getDeleted() ? patientEvent.getVersion() + 1 : patientEvent.getVersion();
+        return new PatientOutboxEvent(patientEvent.getPatientId(), patientEvent.getEventType(), aggregateVersion,
+                patientEvent.toByteArray());
+    }
+}
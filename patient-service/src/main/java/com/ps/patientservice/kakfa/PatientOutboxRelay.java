@@ -0,0 +1,216 @@
+package com.ps.patientservice.kakfa;
+
+import com.ps.patientservice.model.PatientOutboxEvent;
+import com.ps.patientservice.model.PatientOutboxRelayLock;
+import com.ps.patientservice.repository.PatientOutboxRelayLockRepository;
+import com.ps.patientservice.repository.PatientOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Read side of the transactional outbox: drains {@code patient_outbox} to the {@code patient} topic.
+ * <p>
+ * Only one replica relays at a time: each batch runs in a transaction that holds {@link PatientOutboxRelayLock},
+ * taken with {@code SKIP LOCKED} so the other replicas skip their turn instead of waiting. A batch is the
+ * oldest events plus every other pending event of the same patients, sent without waiting between records so
+ * the producer can fill whole record batches, and deleted with a single statement once every record is
+ * acknowledged. If anything fails the transaction rolls back and the same rows are sent again on the
+ * next run, which makes delivery at-least-once.
+ * </p>
+ * <p>
+ * Records are keyed by patient id, so all events of one patient land on the same partition. They are sent in
+ * {@code aggregateVersion} order, which is the order they committed in whichever replica wrote them, so a
+ * deletion and the tombstone that follows it for the compacted topic (see {@code PatientEventTopicConfig})
+ * can never overtake an earlier update.
+ * </p>
+ */
+@Slf4j
+@Component
+public class PatientOutboxRelay
+{
+    private static final String TOPIC = "patient";
+
+    // Per patient: by position in its history; rows written before aggregateVersion existed by id, as before
+    private static final Comparator<PatientOutboxEvent> PATIENT_ORDER = Comparator
+            .comparing(PatientOutboxEvent::getAggregateVersion, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(PatientOutboxEvent::getId);
+
+    private final PatientOutboxRepository patientOutboxRepository;
+    private final PatientOutboxRelayLockRepository patientOutboxRelayLockRepository;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long sendTimeoutMillis;
+    private final Counter relayed;
+    private final Timer publishLatency;
+    private final Timer lag;
+
+    public PatientOutboxRelay(PatientOutboxRepository patientOutboxRepository,
+                              PatientOutboxRelayLockRepository patientOutboxRelayLockRepository,
+                              KafkaTemplate<String, byte[]> kafkaTemplate,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${patient.outbox.batch-size:500}") int batchSize,
+                              @Value("${patient.outbox.max-batches-per-run:20}") int maxBatchesPerRun,
+                              @Value("${patient.outbox.send-timeout-ms:10000}") long sendTimeoutMillis)
+    {
+        this.patientOutboxRepository = patientOutboxRepository;
+        this.patientOutboxRelayLockRepository = patientOutboxRelayLockRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.relayed = Counter.builder("patient.outbox.relayed")
+                .description("Outbox events acknowledged by Kafka and removed from patient_outbox")
+                .register(meterRegistry);
+        this.publishLatency = Timer.builder("patient.outbox.publish")
+                .description("Time from sending an outbox batch to Kafka until every record is acknowledged")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.lag = Timer.builder("patient.outbox.lag")
+                .description("Time from writing an outbox event to its acknowledgement by Kafka")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // The lock row has to exist before anyone can hold it; of replicas starting together, one insert wins
+    @EventListener(ApplicationReadyEvent.class)
+    public void createLock()
+    {
+        if (patientOutboxRelayLockRepository.existsById(PatientOutboxRelayLock.ID))
+        {
+            return;
+        }
+        try
+        {
+            patientOutboxRelayLockRepository.save(new PatientOutboxRelayLock(PatientOutboxRelayLock.ID));
+        }
+        catch (DataIntegrityViolationException e)
+        {
+            log.debug("Outbox relay lock was created by another replica");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${patient.outbox.relay-interval-ms:200}")
+    public void relay()
+    {
+        for (int i = 0; i < maxBatchesPerRun; i++)
+        {
+            Integer sent;
+            try
+            {
+                sent = transactionTemplate.execute(status -> relayBatch());
+            }
+            catch (RuntimeException e)
+            {
+                log.error("Error Relaying Patient Events, batch stays in the outbox: {}", e.getMessage());
+                return;
+            }
+            // A short batch means the outbox is drained for now
+            if (sent == null || sent < batchSize)
+            {
+                return;
+            }
+        }
+    }
+
+    private int relayBatch()
+    {
+        // Another replica is relaying, or the lock row is not there yet: nothing to do this time
+        if (patientOutboxRelayLockRepository.tryLock().isEmpty())
+        {
+            return 0;
+        }
+        List<PatientOutboxEvent> claimed = patientOutboxRepository.findNextBatch(Limit.of(batchSize));
+        if (claimed.isEmpty())
+        {
+            return 0;
+        }
+        List<PatientOutboxEvent> batch = inPatientOrder(claimed);
+
+        Timer.Sample sample = Timer.start();
+        List<CompletableFuture<SendResult<String, byte[]>>> sends = new ArrayList<>(batch.size());
+        for (PatientOutboxEvent event : batch)
+        {
+            sends.add(kafkaTemplate.send(TOPIC, event.getAggregateId(), event.getPayload()));
+            if (PatientEventOutbox.PATIENT_DELETED.equals(event.getEventType()))
+            {
+                // Tombstone: once compacted, nothing about the deleted patient is left under its key
+                sends.add(kafkaTemplate.send(TOPIC, event.getAggregateId(), null));
+            }
+        }
+        kafkaTemplate.flush();
+
+        try
+        {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (ExecutionException | TimeoutException e)
+        {
+            throw new IllegalStateException("Kafka did not acknowledge " + batch.size() + " outbox events", e);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while relaying outbox events", e);
+        }
+
+        sample.stop(publishLatency);
+        Instant acknowledged = Instant.now();
+        for (PatientOutboxEvent event : batch)
+        {
+            lag.record(Duration.between(event.getCreatedAt(), acknowledged));
+        }
+
+        patientOutboxRepository.deleteAllByIdInBatch(batch.stream().map(PatientOutboxEvent::getId).toList());
+        relayed.increment(batch.size());
+        return claimed.size();
+    }
+
+    /**
+     * The claimed events and every other pending event of the same patients, each patient's in
+     * {@link #PATIENT_ORDER} and the patients in the order they were claimed.
+     */
+    private List<PatientOutboxEvent> inPatientOrder(List<PatientOutboxEvent> claimed)
+    {
+        Map<String, List<PatientOutboxEvent>> byPatient = new LinkedHashMap<>();
+        claimed.forEach(event -> byPatient.put(event.getAggregateId(), new ArrayList<>()));
+        for (PatientOutboxEvent event : patientOutboxRepository.findByAggregateIds(byPatient.keySet()))
+        {
+            byPatient.get(event.getAggregateId()).add(event);
+        }
+        List<PatientOutboxEvent> batch = new ArrayList<>();
+        for (List<PatientOutboxEvent> events : byPatient.values())
+        {
+            events.sort(PATIENT_ORDER);
+            batch.addAll(events);
+        }
+        return batch;
+    }
+}
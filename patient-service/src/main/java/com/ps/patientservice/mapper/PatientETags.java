@@ -0,0 +1,110 @@
+package com.ps.patientservice.mapper;
+
+import com.ps.patientservice.dto.PatientView;
+import com.ps.patientservice.model.BillingStatus;
+import com.ps.patientservice.model.Patient;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ETags for patient resources, derived from {@link Patient#getVersion()} and the billing status so a
+ * conditional request can be answered before anything is mapped or serialized.
+ * <p>
+ * A single patient gets the strong ETag {@code "<version>-<billingStatus>"}. The billing status is filled in
+ * by the server after the create and deliberately does not bump the version, so it is part of the tag (a
+ * cached GET goes stale when billing completes) but not of the precondition: {@code If-Match} only compares
+ * the version, and a tag taken before billing completed still lets the client update. Plain
+ * {@code "<version>"} tags are accepted as well. A page gets a weak ETag over the ids, versions and billing
+ * statuses of its rows plus the next cursor, so it changes whenever a row on it changes, appears or goes away.
+ * </p>
+ */
+public class PatientETags
+{
+    private static final int PAGE_DIGEST_BYTES = 16;
+
+    private PatientETags()
+    {
+        throw new IllegalStateException("Utility Class: PatientETags shouldn't be instantiated");
+    }
+
+    public static String of(Patient patient)
+    {
+        return tag(patient.getVersion(), patient.getBillingStatus());
+    }
+
+    public static String of(PatientView patient)
+    {
+        return tag(patient.version(), patient.billingStatus());
+    }
+
+    public static String ofPage(List<PatientView> page, String nextCursor)
+    {
+        MessageDigest digest = sha256();
+        for (PatientView patient : page)
+        {
+            digest.update(patient.id().toString().getBytes(StandardCharsets.US_ASCII));
+            digest.update((":" + patient.version() + ":" + patient.billingStatus() + ";").getBytes(StandardCharsets.US_ASCII));
+        }
+        if (nextCursor != null)
+        {
+            digest.update(nextCursor.getBytes(StandardCharsets.US_ASCII));
+        }
+        byte[] hash = digest.digest();
+        return "W/\"" + HexFormat.of().formatHex(hash, 0, PAGE_DIGEST_BYTES) + "\"";
+    }
+
+    /**
+     * Versions accepted by an {@code If-Match} header, or {@code null} when the header sets no precondition
+     * (absent or {@code *}). Only the version part of each tag counts, whatever billing status it was taken
+     * with. Weak or malformed tags never match, as strong comparison requires.
+     */
+    public static Set<Long> acceptedVersions(String ifMatch)
+    {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*"))
+        {
+            return null;
+        }
+        Set<Long> versions = new HashSet<>();
+        for (String tag : ifMatch.split(","))
+        {
+            String trimmed = tag.trim();
+            if (trimmed.length() > 2 && trimmed.startsWith("\"") && trimmed.endsWith("\""))
+            {
+                String opaque = trimmed.substring(1, trimmed.length() - 1);
+                int separator = opaque.indexOf('-');
+                try
+                {
+                    versions.add(Long.parseLong(separator < 0 ? opaque : opaque.substring(0, separator)));
+                }
+                catch (NumberFormatException e)
+                {
+                    // Not one of ours, so it cannot match
+                }
+            }
+        }
+        return versions;
+    }
+
+    private static String tag(Long version, BillingStatus billingStatus)
+    {
+        return "\"" + version + "-" + (billingStatus == null ? "NONE" : billingStatus.name()) + "\"";
+    }
+
+    private static MessageDigest sha256()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
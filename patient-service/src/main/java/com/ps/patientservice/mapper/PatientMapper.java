@@ -2,6 +2,7 @@ package com.ps.patientservice.mapper;
 
 import com.ps.patientservice.dto.PatientCreateDTO;
 import com.ps.patientservice.dto.PatientDTO;
+import com.ps.patientservice.dto.PatientView;
 import com.ps.patientservice.model.Patient;
 
 import java.util.UUID;
@@ -59,6 +60,20 @@ public class PatientMapper
                 .email(p.getEmail())
                 .dateofBirth(p.getDateofBirth().toString())
                 .address(p.getAddress())
+                .billingStatus(p.getBillingStatus() == null ? null : p.getBillingStatus().name())
+                .build();
+    }
+
+    // Listing path: the row was selected straight into a PatientView, so no entity is involved at all
+    public static final PatientDTO toDTO(PatientView v)
+    {
+        return PatientDTO.builder()
+                .id(v.id().toString())
+                .name(v.name())
+                .email(v.email())
+                .dateofBirth(v.dateofBirth().toString())
+                .address(v.address())
+                .billingStatus(v.billingStatus() == null ? null : v.billingStatus().name())
                 .build();
     }
 
@@ -0,0 +1,10 @@
+package com.ps.patientservice.model;
+
+public enum BillingStatus
+{
+    // Patient committed, billing account not confirmed yet
+    PENDING,
+    ACTIVE,
+    // Gave up after retries or a non-retryable error; needs attention
+    FAILED
+}
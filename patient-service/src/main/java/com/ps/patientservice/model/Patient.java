@@ -1,25 +1,53 @@
 package com.ps.patientservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.ps.patientservice.search.PatientNames;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+import org.springframework.data.domain.Persistable;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.UUID;
 
 @Data
 @NoArgsConstructor
 @Entity
-public class Patient
+// Updates write only the columns that changed, so a PUT never overwrites a billing status recorded meanwhile
+@DynamicUpdate
+@Table(indexes = {
+        // Backs keyset pagination and streaming, both ordered by (registeredDate, id)
+        @Index(name = "idx_patient_registered_date_id", columnList = "registeredDate, id"),
+        // Name prefix and date-of-birth filters of GET /patients/search; email is covered by its unique constraint.
+        // On PostgreSQL the prefix LIKE only uses idx_patient_search_name because of SearchNameCollation
+        @Index(name = "idx_patient_search_name", columnList = "searchName"),
+        @Index(name = "idx_patient_date_of_birth", columnList = "dateofBirth"),
+        // Billing reconciliation only ever looks at PENDING rows, least recently attempted first
+        @Index(name = "idx_patient_billing_status", columnList = "billingStatus, billingAttemptedAt")
+})
+public class Patient implements Persistable<UUID>
 {
+    // Assigned by the application in onPrePersist, so inserts never wait on the database for a key
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
     @NotNull
     private String name;
+    // Normalized copy of name for case-insensitive prefix search, always written through setName
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private String searchName;
     @NotNull
     @Email
     @Column(unique = true)
@@ -30,5 +58,62 @@ public class Patient
     private LocalDate dateofBirth;
     @NotNull
     private LocalDate registeredDate;
+    // Filled in asynchronously once billing-service answers, see BillingDispatcher
+    @Enumerated(EnumType.STRING)
+    private BillingStatus billingStatus = BillingStatus.PENDING;
+    // When a billing call was last started for this patient; the reconciler retries PENDING rows once this is stale
+    @JsonIgnore
+    @ToString.Exclude
+    private Instant billingAttemptedAt;
+    // Bumped by every client write, but not by billing status updates; optimistic lock and base of the ETag
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
 
+    /*
+     * With an application-assigned id Spring Data can no longer use "id == null" to tell new rows apart,
+     * and would merge (SELECT then INSERT) every new patient. Tracking it here keeps saveAll on plain
+     * persist calls that Hibernate can group into JDBC batches.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean newEntity = true;
+
+    public void setName(String name)
+    {
+        this.name = name;
+        this.searchName = name == null ? null : PatientNames.normalize(name);
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew()
+    {
+        return newEntity;
+    }
+
+    @PrePersist
+    void onPrePersist()
+    {
+        if (id == null)
+        {
+            id = UUID.randomUUID();
+        }
+        // Every create is dispatched to billing right after commit
+        if (billingAttemptedAt == null)
+        {
+            billingAttemptedAt = Instant.now();
+        }
+    }
+
+    @PostPersist
+    @PostLoad
+    void markNotNew()
+    {
+        this.newEntity = false;
+    }
 }
@@ -0,0 +1,51 @@
+package com.ps.patientservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A patient event waiting to be published to Kafka. Rows are written in the same transaction as the
+ * patient change they describe and deleted by {@link com.ps.patientservice.kakfa.PatientOutboxRelay}
+ * once Kafka has acknowledged them.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "patient_outbox", indexes = {
+        // The relay's claim order, and its lookup of everything pending for the patients it claimed
+        @Index(name = "idx_patient_outbox_created_at_id", columnList = "createdAt, id"),
+        @Index(name = "idx_patient_outbox_aggregate_id", columnList = "aggregateId")
+})
+public class PatientOutboxEvent
+{
+    // Pooled sequence: ids come from memory most of the time, so inserts batch. Each replica hands out its own
+    // block, so ids are unique but say nothing about commit order across replicas
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "patient_outbox_seq")
+    @SequenceGenerator(name = "patient_outbox_seq", sequenceName = "patient_outbox_seq", allocationSize = 50)
+    private Long id;
+    @Column(nullable = false)
+    private String aggregateId;
+    @Column(nullable = false)
+    private String eventType;
+    // Position in the patient's history: its version, plus one for the deletion that ends it. Writes to one
+    // patient are serialized by its optimistic lock, so this orders its events the way they committed
+    private Long aggregateVersion;
+    // Serialized patient.events.PatientEvent
+    @Column(nullable = false, length = 65535)
+    private byte[] payload;
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public PatientOutboxEvent(String aggregateId, String eventType, long aggregateVersion, byte[] payload)
+    {
+        this.aggregateId = aggregateId;
+        this.eventType = eventType;
+        this.aggregateVersion = aggregateVersion;
+        this.payload = payload;
+        this.createdAt = Instant.now();
+    }
+}
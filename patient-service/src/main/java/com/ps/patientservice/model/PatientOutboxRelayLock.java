@@ -0,0 +1,25 @@
+package com.ps.patientservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The single row {@link com.ps.patientservice.kakfa.PatientOutboxRelay} locks for the length of a batch, so
+ * only one replica relays at a time and one patient's events are never split between concurrent batches.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "patient_outbox_relay_lock")
+public class PatientOutboxRelayLock
+{
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+}
@@ -0,0 +1,57 @@
+package com.ps.patientservice.pagination;
+
+import com.ps.patientservice.dto.PatientView;
+import com.ps.patientservice.exception.InvalidCursorException;
+import com.ps.patientservice.model.Patient;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset position inside the patient listing, ordered by {@code registeredDate} and then {@code id}.
+ * <p>
+ * Clients only ever see the encoded form returned by {@link #encode()}, so the token is opaque and the
+ * ordering key can change later without breaking them.
+ * </p>
+ */
+public record PatientCursor(LocalDate registeredDate, UUID id)
+{
+    private static final String SEPARATOR = "|";
+
+    public static PatientCursor of(Patient patient)
+    {
+        return new PatientCursor(patient.getRegisteredDate(), patient.getId());
+    }
+
+    public static PatientCursor of(PatientView patient)
+    {
+        return new PatientCursor(patient.registeredDate(), patient.id());
+    }
+
+    public String encode()
+    {
+        String raw = registeredDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PatientCursor decode(String token)
+    {
+        try
+        {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int split = raw.indexOf(SEPARATOR);
+            if (split < 0)
+            {
+                throw new InvalidCursorException("Malformed cursor: " + token);
+            }
+            return new PatientCursor(LocalDate.parse(raw.substring(0, split)), UUID.fromString(raw.substring(split + 1)));
+        }
+        catch (IllegalArgumentException | DateTimeParseException e)
+        {
+            throw new InvalidCursorException("Malformed cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.ps.patientservice.reactive;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.r2dbc.pool.ConnectionPool;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+
+/**
+ * R2DBC connection pool of the reactive read stack, and the repositories built on it.
+ * <p>
+ * Deliberately not a {@code ConnectionFactory} bean: Boot's data source auto-configuration backs off as soon
+ * as one exists, which would take the JDBC data source, and JPA with it, away from the servlet stack. For the
+ * same reason the repositories are created here rather than by repository scanning. The pool is exported as
+ * {@code r2dbc.pool.*} with {@code name=patient-reactive}.
+ * </p>
+ */
+public class ReactivePatientDatabase implements DisposableBean
+{
+    public static final String POOL_NAME = "patient-reactive";
+
+    private final ConnectionPool connectionPool;
+    private final R2dbcRepositoryFactory repositoryFactory;
+
+    public ReactivePatientDatabase(ConnectionPool connectionPool, MeterRegistry meterRegistry)
+    {
+        this.connectionPool = connectionPool;
+        this.repositoryFactory = new R2dbcRepositoryFactory(new R2dbcEntityTemplate(connectionPool));
+        new ConnectionPoolMetrics(connectionPool, POOL_NAME, Tags.empty()).bindTo(meterRegistry);
+    }
+
+    public <T> T repository(Class<T> repositoryInterface)
+    {
+        return repositoryFactory.getRepository(repositoryInterface);
+    }
+
+    @Override
+    public void destroy()
+    {
+        connectionPool.dispose();
+    }
+}
@@ -0,0 +1,178 @@
+package com.ps.patientservice.reactive;
+
+import com.ps.patientservice.dto.PatientDTO;
+import com.ps.patientservice.dto.PatientPageDTO;
+import com.ps.patientservice.dto.PatientView;
+import com.ps.patientservice.exception.InvalidCursorException;
+import com.ps.patientservice.exception.PatientNotFoundException;
+import com.ps.patientservice.mapper.PatientETags;
+import com.ps.patientservice.mapper.PatientMapper;
+import com.ps.patientservice.pagination.PatientCursor;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * WebFlux side of {@code GET /patients} and {@code GET /patients/{id}}, served by {@link ReactivePatientServer}.
+ * <p>
+ * Pages, cursors, ETags and error bodies are those of the servlet endpoints in
+ * {@link com.ps.patientservice.controller.PatientController}. Asking for {@code application/x-ndjson} or
+ * {@code text/event-stream} streams every patient after the optional {@code cursor} instead of one page, and
+ * rows are read from the database only as fast as the client takes them. Every server-sent event carries the
+ * row's cursor as its id, so a reconnecting EventSource resumes after the last patient it saw.
+ * </p>
+ */
+@Slf4j
+public class ReactivePatientHandler
+{
+    private final ReactivePatientRepository reactivePatientRepository;
+    private final MeterRegistry meterRegistry;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public ReactivePatientHandler(ReactivePatientRepository reactivePatientRepository, MeterRegistry meterRegistry,
+                                  int defaultPageSize, int maxPageSize)
+    {
+        this.reactivePatientRepository = reactivePatientRepository;
+        this.meterRegistry = meterRegistry;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    public Mono<ServerResponse> getPatients(ServerRequest request)
+    {
+        int pageSize = pageSize(request.queryParam("size"));
+        PatientCursor cursor = decodeCursor(request.queryParam("cursor").orElse(null));
+        Flux<PatientView> patients = cursor == null
+                ? reactivePatientRepository.findFirstPage(pageSize + 1)
+                : reactivePatientRepository.findPageAfter(cursor.registeredDate(), cursor.id(), pageSize + 1);
+        return patients.collectList().flatMap(page -> page(page, pageSize, request));
+    }
+
+    public Mono<ServerResponse> streamPatients(ServerRequest request)
+    {
+        Flux<PatientDTO> patients = stream(request.queryParam("cursor").orElse(null)).map(PatientMapper::toDTO);
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(patients, PatientDTO.class);
+    }
+
+    public Mono<ServerResponse> streamPatientEvents(ServerRequest request)
+    {
+        // An EventSource sends the id of the last event it received when it reconnects
+        String cursor = Optional.ofNullable(request.headers().firstHeader("Last-Event-ID"))
+                .or(() -> request.queryParam("cursor"))
+                .orElse(null);
+        Flux<ServerSentEvent<PatientDTO>> events = stream(cursor).map(patient -> ServerSentEvent.builder(PatientMapper.toDTO(patient))
+                .id(PatientCursor.of(patient).encode())
+                .build());
+        return ServerResponse.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(events, new ParameterizedTypeReference<>()
+        {
+        });
+    }
+
+    public Mono<ServerResponse> getPatientById(ServerRequest request)
+    {
+        UUID id = UUID.fromString(request.pathVariable("id"));
+        return reactivePatientRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new PatientNotFoundException("Patient not found with Id: " + id)))
+                .flatMap(patient -> {
+                    String etag = PatientETags.of(patient);
+                    // Empty unless the client's If-None-Match still matches
+                    return request.checkNotModified(etag)
+                            .switchIfEmpty(Mono.defer(() -> ServerResponse.ok().eTag(etag).bodyValue(PatientMapper.toDTO(patient))));
+                });
+    }
+
+    /**
+     * Same status codes and bodies as {@link com.ps.patientservice.exception.GlobalExceptionHandler}, counted in
+     * the same {@code patient.exceptions} meter. Anything else is left to the default 500.
+     */
+    public Mono<ServerResponse> handleError(Throwable ex)
+    {
+        if (ex instanceof InvalidCursorException)
+        {
+            return error(HttpStatus.BAD_REQUEST, "Invalid Cursor", ex);
+        }
+        if (ex instanceof PatientNotFoundException)
+        {
+            return error(HttpStatus.BAD_REQUEST, "Patient Not Found", ex);
+        }
+        // Malformed id or size
+        if (ex instanceof IllegalArgumentException)
+        {
+            return error(HttpStatus.BAD_REQUEST, "Invalid Request", ex);
+        }
+        // No connection within the pool's max-acquire-time, or the database is unreachable
+        if (ex instanceof DataAccessResourceFailureException || ex instanceof TransientDataAccessException)
+        {
+            return error(HttpStatus.SERVICE_UNAVAILABLE, "Service is busy, retry shortly", ex);
+        }
+        return Mono.error(ex);
+    }
+
+    private Mono<ServerResponse> error(HttpStatus status, String message, Throwable ex)
+    {
+        meterRegistry.counter("patient.exceptions", "exception", ex.getClass().getSimpleName()).increment();
+        log.warn("{}: {}", ex.getClass().getSimpleName(), ex.getMessage());
+        Map<String,String> errors = new HashMap<>();
+        errors.put("Message", message);
+        errors.put("Exception Message", ex.getMessage());
+
+        ServerResponse.BodyBuilder response = ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON);
+        if (status == HttpStatus.SERVICE_UNAVAILABLE)
+        {
+            response.header(HttpHeaders.RETRY_AFTER, "1");
+        }
+        return response.bodyValue(errors);
+    }
+
+    private Flux<PatientView> stream(String token)
+    {
+        PatientCursor cursor = decodeCursor(token);
+        return cursor == null
+                ? reactivePatientRepository.streamAllOrdered()
+                : reactivePatientRepository.streamAfter(cursor.registeredDate(), cursor.id());
+    }
+
+    private int pageSize(Optional<String> size)
+    {
+        return size.map(value -> Math.max(1, Math.min(Integer.parseInt(value), maxPageSize))).orElse(defaultPageSize);
+    }
+
+    private static PatientCursor decodeCursor(String cursor)
+    {
+        return cursor == null || cursor.isBlank() ? null : PatientCursor.decode(cursor);
+    }
+
+    // patients holds up to pageSize + 1 rows; the extra one only says whether there is a next page
+    private static Mono<ServerResponse> page(List<PatientView> patients, int pageSize, ServerRequest request)
+    {
+        boolean hasNext = patients.size() > pageSize;
+        List<PatientView> page = hasNext ? patients.subList(0, pageSize) : patients;
+        String nextCursor = hasNext ? PatientCursor.of(page.get(page.size() - 1)).encode() : null;
+
+        String etag = PatientETags.ofPage(page, nextCursor);
+        // Unchanged page: answer 304 before any DTO is built or serialized
+        return request.checkNotModified(etag).switchIfEmpty(Mono.defer(() -> ServerResponse.ok()
+                .eTag(etag)
+                .bodyValue(PatientPageDTO.builder()
+                        .items(page.stream().map(PatientMapper::toDTO).toList())
+                        .nextCursor(nextCursor)
+                        .build())));
+    }
+}
@@ -0,0 +1,44 @@
+package com.ps.patientservice.reactive;
+
+import com.ps.patientservice.dto.PatientView;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * R2DBC mirror of the listing queries in {@link com.ps.patientservice.repository.PatientRepository}: the same
+ * {@code (registered_date, id)} keyset order, so cursors issued by either stack work on the other.
+ * Read-only on purpose; every write still goes through JPA.
+ */
+public interface ReactivePatientRepository extends Repository<PatientView, UUID>
+{
+    String VIEW = "SELECT id, name, email, address, dateof_birth, registered_date, billing_status, version FROM patient";
+
+    Mono<PatientView> findById(UUID id);
+
+    @Query(VIEW + " ORDER BY registered_date, id LIMIT :limit")
+    Flux<PatientView> findFirstPage(@Param("limit") int limit);
+
+    @Query(VIEW + """
+             WHERE registered_date > :registeredDate
+                OR (registered_date = :registeredDate AND id > :id)
+            ORDER BY registered_date, id LIMIT :limit
+            """)
+    Flux<PatientView> findPageAfter(@Param("registeredDate") LocalDate registeredDate, @Param("id") UUID id, @Param("limit") int limit);
+
+    // Rows arrive as the subscriber asks for them; on Postgres the driver fetches them in fetchSize portions
+    @Query(VIEW + " ORDER BY registered_date, id")
+    Flux<PatientView> streamAllOrdered();
+
+    @Query(VIEW + """
+             WHERE registered_date > :registeredDate
+                OR (registered_date = :registeredDate AND id > :id)
+            ORDER BY registered_date, id
+            """)
+    Flux<PatientView> streamAfter(@Param("registeredDate") LocalDate registeredDate, @Param("id") UUID id);
+}
@@ -0,0 +1,62 @@
+package com.ps.patientservice.reactive;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+
+/**
+ * Reactor Netty server for the reactive read stack, next to Tomcat on its own port.
+ * <p>
+ * The application stays a servlet application; this server only runs the WebFlux routes it is given, on
+ * Reactor Netty's event loop (one thread per core), which it shares with the R2DBC driver. Request metrics
+ * are exported as {@code reactor.netty.http.server.*}.
+ * </p>
+ */
+@Slf4j
+public class ReactivePatientServer
+{
+    private final HttpHandler httpHandler;
+    private final int port;
+    private final Duration shutdownTimeout;
+
+    private DisposableServer server;
+
+    public ReactivePatientServer(HttpHandler httpHandler, int port, Duration shutdownTimeout)
+    {
+        this.httpHandler = httpHandler;
+        this.port = port;
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    @PostConstruct
+    void start()
+    {
+        server = HttpServer.create()
+                .port(port)
+                // Ids are folded into one tag value so the URI tag stays bounded
+                .metrics(true, uri -> uri.startsWith("/patients/") ? "/patients/{id}" : uri)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+        log.info("Reactive patient read API listening on port {}", server.port());
+    }
+
+    @PreDestroy
+    void stop()
+    {
+        if (server != null)
+        {
+            server.disposeNow(shutdownTimeout);
+        }
+    }
+
+    public int port()
+    {
+        return server.port();
+    }
+}
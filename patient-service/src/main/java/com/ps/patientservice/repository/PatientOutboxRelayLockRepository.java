@@ -0,0 +1,20 @@
+package com.ps.patientservice.repository;
+
+import com.ps.patientservice.model.PatientOutboxRelayLock;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.Optional;
+
+public interface PatientOutboxRelayLockRepository extends JpaRepository<PatientOutboxRelayLock, Integer>
+{
+    // SKIP LOCKED (lock timeout -2): empty while another replica's relay holds the row, instead of waiting for it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select l from PatientOutboxRelayLock l where l.id = " + PatientOutboxRelayLock.ID)
+    Optional<PatientOutboxRelayLock> tryLock();
+}
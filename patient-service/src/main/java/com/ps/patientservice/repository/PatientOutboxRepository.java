@@ -0,0 +1,25 @@
+package com.ps.patientservice.repository;
+
+import com.ps.patientservice.model.PatientOutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface PatientOutboxRepository extends JpaRepository<PatientOutboxEvent, Long>
+{
+    /*
+     * Oldest events first. Only the relay holding PatientOutboxRelayLock reads here, so no row locks are needed.
+     * createdAt comes from each replica's clock and only sets the pace; the order that matters, within one
+     * patient, is restored from aggregateVersion by the relay.
+     */
+    @Query("select e from PatientOutboxEvent e order by e.createdAt, e.id")
+    List<PatientOutboxEvent> findNextBatch(Limit limit);
+
+    // Every pending event of these patients, so none of their history is left behind for a later batch
+    @Query("select e from PatientOutboxEvent e where e.aggregateId in :aggregateIds")
+    List<PatientOutboxEvent> findByAggregateIds(@Param("aggregateIds") Collection<String> aggregateIds);
+}
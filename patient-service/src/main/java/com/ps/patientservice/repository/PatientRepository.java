@@ -1,15 +1,119 @@
 package com.ps.patientservice.repository;
 
+import com.ps.patientservice.dto.PatientView;
+import com.ps.patientservice.model.BillingStatus;
 import com.ps.patientservice.model.Patient;
-import jakarta.validation.constraints.Email;
-import jakarta.validation.constraints.NotNull;
+import com.ps.patientservice.search.PatientName;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface PatientRepository extends JpaRepository<Patient, UUID>
+public interface PatientRepository extends JpaRepository<Patient, UUID>, PatientViewRepository
 {
     public Boolean existsPatientByEmail(String email);
 
+    // Set-based uniqueness check for bulk imports: one query per chunk instead of one per row
+    @Query("select p.email from Patient p where p.email in :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
 
+    /*
+     * Deliberately leaves the version alone: billing completes asynchronously after the create, and bumping it
+     * would fail the client's next If-Match with 412. The ETag carries the billing status instead, and
+     * Patient's dynamic updates keep a concurrent PUT from writing the old status back.
+     */
+    @Modifying
+    @Transactional
+    @Query("update Patient p set p.billingStatus = :status where p.id in :ids")
+    int updateBillingStatus(@Param("ids") Collection<UUID> ids, @Param("status") BillingStatus status);
+
+    /*
+     * Billing reconciliation claim: rows untouched since attemptedBefore, least recently attempted first so the
+     * tail of the backlog is never starved by its head. SKIP LOCKED (lock timeout -2) gives each replica a
+     * disjoint set; markBillingAttempted in the same transaction keeps them away until they go stale again.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            select p from Patient p
+            where p.billingStatus = :status
+              and (p.billingAttemptedAt is null or p.billingAttemptedAt < :attemptedBefore)
+            order by p.billingAttemptedAt nulls first, p.id
+            """)
+    List<Patient> lockStaleBilling(@Param("status") BillingStatus status, @Param("attemptedBefore") Instant attemptedBefore, Limit limit);
+
+    // Not a change to the patient, so the version (and the ETag) stays put
+    @Modifying
+    @Query("update Patient p set p.billingAttemptedAt = :attemptedAt where p.id in :ids")
+    int markBillingAttempted(@Param("ids") Collection<UUID> ids, @Param("attemptedAt") Instant attemptedAt);
+
+    /*
+     * Listing queries select straight into PatientView: no managed entities, no dirty-check snapshots, and
+     * with FlushMode.MANUAL they never flush the session first. Callers run them in read-only transactions.
+     */
+    String VIEW = "select new com.ps.patientservice.dto.PatientView("
+            + "p.id, p.name, p.email, p.address, p.dateofBirth, p.registeredDate, p.billingStatus, p.version) from Patient p";
+
+    // Keyset pagination: ordered by (registeredDate, id) so every page is an index range scan, not an OFFSET
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(VIEW + " order by p.registeredDate, p.id")
+    List<PatientView> findFirstPage(Limit limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(VIEW + """
+             where p.registeredDate > :registeredDate
+               or (p.registeredDate = :registeredDate and p.id > :id)
+            order by p.registeredDate, p.id
+            """)
+    List<PatientView> findPageAfter(@Param("registeredDate") LocalDate registeredDate, @Param("id") UUID id, Limit limit);
+
+    // Source of the patient cache: an immutable row, so cached copies can be shared between requests
+    @Query(VIEW + " where p.id = :id")
+    Optional<PatientView> findViewById(@Param("id") UUID id);
+
+    // Must be consumed inside a transaction so the JDBC driver keeps a server-side cursor open
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
+    @Query(VIEW + " order by p.registeredDate, p.id")
+    Stream<PatientView> streamAllOrdered();
+
+    // Loads the in-memory name index without putting a single entity into the persistence context
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.ps.patientservice.search.PatientName(p.id, p.name) from Patient p")
+    Stream<PatientName> streamNames();
+
+    // pattern comes from PatientNames.likePrefix, so it is a range scan on idx_patient_search_name ("C" collation)
+    @Query("""
+            select new com.ps.patientservice.search.PatientName(p.id, p.name) from Patient p
+            where p.searchName like :pattern escape '\\'
+            order by p.searchName, p.id
+            """)
+    List<PatientName> findNamesByPrefix(@Param("pattern") String pattern, Limit limit);
+
+    // Rows written before searchName existed; same normalization as PatientNames.normalize
+    @Modifying
+    @Transactional
+    @Query("update Patient p set p.searchName = lower(trim(p.name)) where p.searchName is null")
+    int backfillSearchNames();
 }
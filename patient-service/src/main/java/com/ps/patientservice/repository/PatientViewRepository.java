@@ -0,0 +1,14 @@
+package com.ps.patientservice.repository;
+
+import com.ps.patientservice.dto.PatientView;
+import com.ps.patientservice.model.Patient;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+// Spring Data fragment of PatientRepository for projections its derived queries can't express
+public interface PatientViewRepository
+{
+    // Patients matching specification as PatientView rows, ordered by (registeredDate, id)
+    List<PatientView> findViews(Specification<Patient> specification, int limit);
+}
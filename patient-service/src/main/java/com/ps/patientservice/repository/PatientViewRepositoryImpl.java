@@ -0,0 +1,51 @@
+package com.ps.patientservice.repository;
+
+import com.ps.patientservice.dto.PatientView;
+import com.ps.patientservice.model.Patient;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.FlushMode;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+class PatientViewRepositoryImpl implements PatientViewRepository
+{
+    private final EntityManager entityManager;
+
+    PatientViewRepositoryImpl(EntityManager entityManager)
+    {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<PatientView> findViews(Specification<Patient> specification, int limit)
+    {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<PatientView> query = cb.createQuery(PatientView.class);
+        Root<Patient> patient = query.from(Patient.class);
+        query.select(cb.construct(PatientView.class,
+                patient.get("id"),
+                patient.get("name"),
+                patient.get("email"),
+                patient.get("address"),
+                patient.get("dateofBirth"),
+                patient.get("registeredDate"),
+                patient.get("billingStatus"),
+                patient.get("version")));
+        Predicate predicate = specification.toPredicate(patient, query, cb);
+        if (predicate != null)
+        {
+            query.where(predicate);
+        }
+        query.orderBy(cb.asc(patient.get("registeredDate")), cb.asc(patient.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .setHint(HibernateHints.HINT_FLUSH_MODE, FlushMode.MANUAL)
+                .getResultList();
+    }
+}
@@ -0,0 +1,213 @@
+package com.ps.patientservice.search;
+
+import com.ps.patientservice.repository.PatientRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Every patient name held in a sorted map, so a suggestion is a prefix range walk in memory and typeahead
+ * never reaches the database.
+ * <p>
+ * Each patient is keyed by its normalized name and by every later word in it, so "smi" finds "John Smith".
+ * Writes on this node arrive through {@link #put} and {@link #remove} once committed. The whole index is
+ * rebuilt from the table at startup and then every {@code patient.search.name-index.rebuild-interval-ms},
+ * which also picks up changes made by other replicas; changes that land while a rebuild is reading are
+ * replayed onto the new copy before it replaces the old one. Until the first rebuild finishes suggestions
+ * may be incomplete. The number of indexed patients is exported as {@code patient.search.name-index.size}.
+ * </p>
+ */
+@Slf4j
+public class InMemoryPatientNameIndex implements PatientNameIndex
+{
+    // Sorts below every other character, so all keys for one token stay inside that token's prefix range
+    private static final char ID_SEPARATOR = '\u0000';
+
+    private final PatientRepository patientRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    // Guards every write to the live entries and the replay list; readers never lock. Not a monitor, so
+    // writers on virtual threads never pin their carrier while they wait for it
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Entries entries = new Entries();
+    private List<PatientName> replay;
+
+    public InMemoryPatientNameIndex(PatientRepository patientRepository, PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry)
+    {
+        this.patientRepository = patientRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        Gauge.builder("patient.search.name-index.size", this, index -> index.entries.keysById.size())
+                .description("Patients held by the in-memory name index")
+                .register(meterRegistry);
+    }
+
+    private static final class Entries
+    {
+        private final NavigableMap<String, PatientName> byKey = new ConcurrentSkipListMap<>();
+        private final Map<UUID, List<String>> keysById = new HashMap<>();
+
+        void put(UUID id, String name)
+        {
+            remove(id);
+            List<String> keys = keys(id, name);
+            PatientName entry = new PatientName(id, name);
+            keys.forEach(key -> byKey.put(key, entry));
+            keysById.put(id, keys);
+        }
+
+        void remove(UUID id)
+        {
+            List<String> keys = keysById.remove(id);
+            if (keys != null)
+            {
+                keys.forEach(byKey::remove);
+            }
+        }
+
+        // A null name in the replay list stands for a delete
+        void apply(PatientName change)
+        {
+            if (change.name() == null)
+            {
+                remove(change.id());
+            }
+            else
+            {
+                put(change.id(), change.name());
+            }
+        }
+
+        private static List<String> keys(UUID id, String name)
+        {
+            String normalized = PatientNames.normalize(name);
+            List<String> keys = new ArrayList<>(2);
+            keys.add(normalized + ID_SEPARATOR + id);
+            for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1))
+            {
+                if (i + 1 < normalized.length() && normalized.charAt(i + 1) != ' ')
+                {
+                    keys.add(normalized.substring(i + 1) + ID_SEPARATOR + id);
+                }
+            }
+            return keys;
+        }
+    }
+
+    @Override
+    public void put(UUID id, String name)
+    {
+        record(new PatientName(id, name));
+    }
+
+    @Override
+    public void remove(UUID id)
+    {
+        record(new PatientName(id, null));
+    }
+
+    private void record(PatientName change)
+    {
+        lock.lock();
+        try
+        {
+            entries.apply(change);
+            if (replay != null)
+            {
+                replay.add(change);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<PatientName> suggest(String prefix, int limit)
+    {
+        String normalized = PatientNames.normalize(prefix);
+        if (normalized.isEmpty())
+        {
+            return List.of();
+        }
+        // One patient can match through several words; keep its first hit only
+        Map<UUID, PatientName> matches = new LinkedHashMap<>();
+        for (PatientName entry : entries.byKey.subMap(normalized, true, normalized + Character.MAX_VALUE, true).values())
+        {
+            matches.putIfAbsent(entry.id(), entry);
+            if (matches.size() == limit)
+            {
+                break;
+            }
+        }
+        return List.copyOf(matches.values());
+    }
+
+    @Scheduled(fixedDelayString = "${patient.search.name-index.rebuild-interval-ms:600000}")
+    public void rebuild()
+    {
+        long startedAt = System.nanoTime();
+        lock.lock();
+        try
+        {
+            replay = new ArrayList<>();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        Entries rebuilt = new Entries();
+        try
+        {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<PatientName> names = patientRepository.streamNames())
+                {
+                    names.forEach(name -> rebuilt.put(name.id(), name.name()));
+                }
+            });
+        }
+        catch (RuntimeException e)
+        {
+            // Keep serving the current copy; the next run tries again
+            log.warn("Rebuilding the patient name index failed: {}", e.getMessage());
+            lock.lock();
+            try
+            {
+                replay = null;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+            return;
+        }
+        lock.lock();
+        try
+        {
+            replay.forEach(rebuilt::apply);
+            replay = null;
+            entries = rebuilt;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        log.info("Rebuilt patient name index with {} patients in {} ms", rebuilt.keysById.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+}
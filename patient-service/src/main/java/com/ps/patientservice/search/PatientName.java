@@ -0,0 +1,8 @@
+package com.ps.patientservice.search;
+
+import java.util.UUID;
+
+// Just enough of a patient for typeahead; also the JPQL projection the name index is loaded from
+public record PatientName(UUID id, String name)
+{
+}
@@ -0,0 +1,21 @@
+package com.ps.patientservice.search;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Name autocomplete for {@code GET /patients/search/names}.
+ * <p>
+ * {@link com.ps.patientservice.service.PatientService} reports every committed create, update and delete,
+ * so an implementation that keeps its own copy of the names can stay current without reading them back.
+ * </p>
+ */
+public interface PatientNameIndex
+{
+    void put(UUID id, String name);
+
+    void remove(UUID id);
+
+    // At most limit patients whose name, or a word in it, starts with prefix, ignoring case
+    List<PatientName> suggest(String prefix, int limit);
+}
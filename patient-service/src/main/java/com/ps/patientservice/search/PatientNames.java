@@ -0,0 +1,31 @@
+package com.ps.patientservice.search;
+
+import java.util.Locale;
+
+/**
+ * The one place that decides how a name is compared during search, shared by the {@code searchName}
+ * column, the search query and the in-memory name index so that all three agree.
+ */
+public final class PatientNames
+{
+    private PatientNames()
+    {
+        throw new IllegalStateException("Utility Class: PatientNames shouldn't be instantiated");
+    }
+
+    // Kept to trim + lower case so existing rows can be backfilled with lower(trim(name)) in plain JPQL
+    public static String normalize(String name)
+    {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Escapes LIKE wildcards so a typed "%" or "_" matches literally; pair with escape '\'
+    public static String likePrefix(String prefix)
+    {
+        String escaped = normalize(prefix)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return escaped + "%";
+    }
+}
@@ -0,0 +1,33 @@
+package com.ps.patientservice.search;
+
+import com.ps.patientservice.exception.InvalidSearchCriteriaException;
+
+import java.time.LocalDate;
+
+/**
+ * Filters of {@code GET /patients/search}; every field is optional and set fields are combined with AND.
+ * Date ranges are inclusive on both ends.
+ */
+public record PatientSearchCriteria(String namePrefix,
+                                    String email,
+                                    LocalDate registeredFrom,
+                                    LocalDate registeredTo,
+                                    LocalDate dateOfBirthFrom,
+                                    LocalDate dateOfBirthTo)
+{
+    public PatientSearchCriteria
+    {
+        namePrefix = namePrefix == null || namePrefix.isBlank() ? null : namePrefix;
+        email = email == null || email.isBlank() ? null : email.trim();
+        requireOrdered("registered", registeredFrom, registeredTo);
+        requireOrdered("dateOfBirth", dateOfBirthFrom, dateOfBirthTo);
+    }
+
+    private static void requireOrdered(String field, LocalDate from, LocalDate to)
+    {
+        if (from != null && to != null && from.isAfter(to))
+        {
+            throw new InvalidSearchCriteriaException(field + "From " + from + " is after " + field + "To " + to);
+        }
+    }
+}
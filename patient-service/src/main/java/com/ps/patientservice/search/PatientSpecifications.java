@@ -0,0 +1,62 @@
+package com.ps.patientservice.search;
+
+import com.ps.patientservice.model.Patient;
+import com.ps.patientservice.pagination.PatientCursor;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the search query from only the filters that were set, so the database plans each combination on
+ * its own instead of one catch-all statement full of {@code :param is null or ...} that no index can serve.
+ */
+public final class PatientSpecifications
+{
+    private PatientSpecifications()
+    {
+        throw new IllegalStateException("Utility Class: PatientSpecifications shouldn't be instantiated");
+    }
+
+    public static Specification<Patient> matching(PatientSearchCriteria criteria)
+    {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (criteria.namePrefix() != null)
+            {
+                predicates.add(cb.like(root.get("searchName"), PatientNames.likePrefix(criteria.namePrefix()), '\\'));
+            }
+            if (criteria.email() != null)
+            {
+                predicates.add(cb.equal(root.get("email"), criteria.email()));
+            }
+            if (criteria.registeredFrom() != null)
+            {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("registeredDate"), criteria.registeredFrom()));
+            }
+            if (criteria.registeredTo() != null)
+            {
+                predicates.add(cb.lessThanOrEqualTo(root.get("registeredDate"), criteria.registeredTo()));
+            }
+            if (criteria.dateOfBirthFrom() != null)
+            {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("dateofBirth"), criteria.dateOfBirthFrom()));
+            }
+            if (criteria.dateOfBirthTo() != null)
+            {
+                predicates.add(cb.lessThanOrEqualTo(root.get("dateofBirth"), criteria.dateOfBirthTo()));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    // Same keyset as PatientRepository.findPageAfter, so search results page exactly like the listing
+    public static Specification<Patient> after(PatientCursor cursor)
+    {
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.get("registeredDate"), cursor.registeredDate()),
+                cb.and(cb.equal(root.get("registeredDate"), cursor.registeredDate()),
+                        cb.greaterThan(root.get("id"), cursor.id())));
+    }
+}
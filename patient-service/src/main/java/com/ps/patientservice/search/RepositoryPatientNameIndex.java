@@ -0,0 +1,41 @@
+package com.ps.patientservice.search;
+
+import com.ps.patientservice.repository.PatientRepository;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * {@link PatientNameIndex} without a copy of its own: every suggestion is a prefix range scan on
+ * {@code idx_patient_search_name}. Only whole-name prefixes match, not later words.
+ */
+public class RepositoryPatientNameIndex implements PatientNameIndex
+{
+    private final PatientRepository patientRepository;
+
+    public RepositoryPatientNameIndex(PatientRepository patientRepository)
+    {
+        this.patientRepository = patientRepository;
+    }
+
+    @Override
+    public void put(UUID id, String name)
+    {
+    }
+
+    @Override
+    public void remove(UUID id)
+    {
+    }
+
+    @Override
+    public List<PatientName> suggest(String prefix, int limit)
+    {
+        if (prefix.isBlank())
+        {
+            return List.of();
+        }
+        return patientRepository.findNamesByPrefix(PatientNames.likePrefix(prefix), Limit.of(limit));
+    }
+}
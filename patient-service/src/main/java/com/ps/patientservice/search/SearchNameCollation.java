@@ -0,0 +1,54 @@
+package com.ps.patientservice.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Puts {@code patient.search_name} on the {@code "C"} collation in PostgreSQL.
+ * <p>
+ * Under any other collation a plain btree cannot serve {@code LIKE 'prefix%'}, so every name search would
+ * scan the table. With {@code "C"}, {@code idx_patient_search_name} serves both the prefix range and the
+ * {@code order by searchName} of the suggestions query, and rows sort the way the in-memory name index sorts
+ * its Java strings. JPA has no way to declare a column collation, and {@code ddl-auto=update} never alters an
+ * existing column, so this runs once at startup; changing the collation rebuilds the index on that column.
+ * Other databases (H2 in tests) are left alone.
+ * </p>
+ */
+@Slf4j
+@Component
+public class SearchNameCollation
+{
+    private final JdbcTemplate jdbcTemplate;
+
+    public SearchNameCollation(JdbcTemplate jdbcTemplate)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void apply()
+    {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database))
+        {
+            return;
+        }
+        List<String> collations = jdbcTemplate.queryForList("""
+                select coalesce(collation_name, '') from information_schema.columns
+                where table_schema = current_schema() and table_name = 'patient' and column_name = 'search_name'
+                """, String.class);
+        if (collations.isEmpty() || collations.getFirst().equals("C"))
+        {
+            return;
+        }
+        jdbcTemplate.execute("alter table patient alter column search_name type varchar(255) collate \"C\"");
+        log.info("Switched patient.search_name from collation '{}' to \"C\" so name prefix search uses idx_patient_search_name",
+                collations.getFirst());
+    }
+}
@@ -0,0 +1,257 @@
+package com.ps.patientservice.service;
+
+import com.ps.patientservice.billing.BillingDispatcher;
+import com.ps.patientservice.dto.PatientBulkResultDTO;
+import com.ps.patientservice.dto.PatientBulkRowResultDTO;
+import com.ps.patientservice.dto.PatientBulkRowResultDTO.Status;
+import com.ps.patientservice.dto.PatientCreateDTO;
+import com.ps.patientservice.dto.PatientUpdateGroup;
+import com.ps.patientservice.kakfa.PatientEventOutbox;
+import com.ps.patientservice.mapper.PatientMapper;
+import com.ps.patientservice.model.Patient;
+import com.ps.patientservice.repository.PatientRepository;
+import com.ps.patientservice.search.PatientNameIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports a stream of patients chunk by chunk.
+ * <p>
+ * Per chunk there is one set-based email lookup, one transaction whose patient and outbox inserts Hibernate
+ * groups into JDBC batches, and one hand-off of the committed patients to the {@link BillingDispatcher}, which
+ * creates their billing accounts off the request thread and reconciles them like single creates. Rows are
+ * judged individually, so a bad row never rejects its neighbours.
+ * </p>
+ */
+@Slf4j
+@Service
+public class PatientBulkImportService
+{
+    private final PatientRepository patientRepository;
+    private final PatientEventOutbox patientEventOutbox;
+    private final BillingDispatcher billingDispatcher;
+    private final PatientNameIndex patientNameIndex;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final int chunkSize;
+
+    public PatientBulkImportService(PatientRepository patientRepository,
+                                    PatientEventOutbox patientEventOutbox,
+                                    BillingDispatcher billingDispatcher,
+                                    PatientNameIndex patientNameIndex,
+                                    Validator validator,
+                                    TransactionTemplate transactionTemplate,
+                                    EntityManager entityManager,
+                                    @Value("${patient.bulk.chunk-size:500}") int chunkSize)
+    {
+        this.patientRepository = patientRepository;
+        this.patientEventOutbox = patientEventOutbox;
+        this.billingDispatcher = billingDispatcher;
+        this.patientNameIndex = patientNameIndex;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.chunkSize = chunkSize;
+    }
+
+    public PatientBulkResultDTO importPatients(Iterator<PatientCreateDTO> patients)
+    {
+        List<PatientBulkRowResultDTO> results = new ArrayList<>();
+        List<IndexedRow> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+
+        try
+        {
+            while (patients.hasNext())
+            {
+                PatientCreateDTO next = patients.next();
+                chunk.add(new IndexedRow(index++, next));
+                if (chunk.size() == chunkSize)
+                {
+                    results.addAll(importChunk(chunk));
+                    chunk.clear();
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            // The input can't be read past this point; earlier chunks are already committed, so report them
+            log.warn("Stopped bulk import at row {}: {}", index, e.getMessage());
+            results.add(PatientBulkRowResultDTO.builder()
+                    .index(index)
+                    .status(Status.FAILED)
+                    .message("Unreadable input, import stopped here: " + e.getMessage())
+                    .build());
+        }
+        if (!chunk.isEmpty())
+        {
+            results.addAll(importChunk(chunk));
+        }
+        results.sort(Comparator.comparingInt(PatientBulkRowResultDTO::getIndex));
+
+        int created = (int) results.stream().filter(r -> r.getStatus() == Status.CREATED).count();
+        return PatientBulkResultDTO.builder()
+                .total(results.size())
+                .created(created)
+                .rejected(results.size() - created)
+                .rows(results)
+                .build();
+    }
+
+    private List<PatientBulkRowResultDTO> importChunk(List<IndexedRow> chunk)
+    {
+        List<PatientBulkRowResultDTO> results = new ArrayList<>(chunk.size());
+        List<IndexedRow> candidates = new ArrayList<>(chunk.size());
+        Set<String> emailsInChunk = new HashSet<>();
+
+        // 1. Bean validation and duplicates inside the chunk itself
+        for (IndexedRow row : chunk)
+        {
+            Set<ConstraintViolation<PatientCreateDTO>> violations =
+                    validator.validate(row.dto(), Default.class, PatientUpdateGroup.class);
+            if (!violations.isEmpty())
+            {
+                String message = violations.stream()
+                        .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                        .collect(Collectors.joining("; "));
+                results.add(rejected(row, Status.INVALID, message));
+            }
+            else if (!emailsInChunk.add(row.dto().getEmail()))
+            {
+                results.add(rejected(row, Status.DUPLICATE_EMAIL, "Email appears more than once in this import"));
+            }
+            else
+            {
+                candidates.add(row);
+            }
+        }
+
+        // 2. One query for every email still in play
+        Set<String> existing = candidates.isEmpty() ? Set.of() : patientRepository.findExistingEmails(emailsInChunk);
+        List<IndexedRow> toInsert = new ArrayList<>(candidates.size());
+        for (IndexedRow row : candidates)
+        {
+            if (existing.contains(row.dto().getEmail()))
+            {
+                results.add(rejected(row, Status.DUPLICATE_EMAIL, "A Patient with this Email: " + row.dto().getEmail() + " exists."));
+            }
+            else
+            {
+                toInsert.add(row);
+            }
+        }
+
+        // 3. Batched insert, 4. side effects for whatever was committed
+        List<Patient> saved = insert(toInsert, results);
+        if (!saved.isEmpty())
+        {
+            saved.forEach(patient -> patientNameIndex.put(patient.getId(), patient.getName()));
+            // Rows are committed and PENDING; a slow or unavailable billing-service no longer holds up the import
+            billingDispatcher.dispatchAll(saved);
+        }
+        return results;
+    }
+
+    private List<Patient> insert(List<IndexedRow> rows, List<PatientBulkRowResultDTO> results)
+    {
+        if (rows.isEmpty())
+        {
+            return List.of();
+        }
+        List<Patient> patients = rows.stream().map(row -> PatientMapper.fromDTO(row.dto())).toList();
+        try
+        {
+            transactionTemplate.executeWithoutResult(status -> {
+                patientRepository.saveAll(patients);
+                patientEventOutbox.patientsCreated(patients);
+            });
+            for (int i = 0; i < rows.size(); i++)
+            {
+                results.add(created(rows.get(i), patients.get(i)));
+            }
+            return patients;
+        }
+        catch (DataIntegrityViolationException e)
+        {
+            // Someone inserted one of these emails after our check; fall back to row-at-a-time for this chunk
+            log.warn("Batch insert hit a constraint violation, retrying {} rows one by one: {}", rows.size(), e.getMessage());
+            return insertOneByOne(rows, results);
+        }
+        finally
+        {
+            // The request-scoped persistence context would otherwise keep every imported patient managed
+            entityManager.clear();
+        }
+    }
+
+    private List<Patient> insertOneByOne(List<IndexedRow> rows, List<PatientBulkRowResultDTO> results)
+    {
+        List<Patient> saved = new ArrayList<>(rows.size());
+        for (IndexedRow row : rows)
+        {
+            Patient patient = PatientMapper.fromDTO(row.dto());
+            try
+            {
+                transactionTemplate.executeWithoutResult(status -> {
+                    patientRepository.save(patient);
+                    patientEventOutbox.patientCreated(patient);
+                });
+                saved.add(patient);
+                results.add(created(row, patient));
+            }
+            catch (DataIntegrityViolationException e)
+            {
+                results.add(rejected(row, Status.DUPLICATE_EMAIL, "A Patient with this Email: " + row.dto().getEmail() + " exists."));
+            }
+            catch (RuntimeException e)
+            {
+                results.add(rejected(row, Status.FAILED, e.getMessage()));
+            }
+            finally
+            {
+                entityManager.clear();
+            }
+        }
+        return saved;
+    }
+
+    private static PatientBulkRowResultDTO created(IndexedRow row, Patient patient)
+    {
+        return PatientBulkRowResultDTO.builder()
+                .index(row.index())
+                .status(Status.CREATED)
+                .id(patient.getId().toString())
+                .email(patient.getEmail())
+                .build();
+    }
+
+    private static PatientBulkRowResultDTO rejected(IndexedRow row, Status status, String message)
+    {
+        return PatientBulkRowResultDTO.builder()
+                .index(row.index())
+                .status(status)
+                .email(row.dto().getEmail())
+                .message(message)
+                .build();
+    }
+
+    private record IndexedRow(int index, PatientCreateDTO dto)
+    {
+    }
+}
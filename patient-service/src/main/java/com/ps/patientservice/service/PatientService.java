@@ -1,72 +1,242 @@
 package com.ps.patientservice.service;
 
+import com.ps.patientservice.billing.BillingDispatcher;
+import com.ps.patientservice.cache.PatientCache;
+import com.ps.patientservice.cache.PatientCacheInvalidator;
 import com.ps.patientservice.dto.PatientCreateDTO;
 import com.ps.patientservice.dto.PatientDTO;
+import com.ps.patientservice.dto.PatientView;
 import com.ps.patientservice.exception.EmailAreadyExistsException;
 import com.ps.patientservice.exception.PatientNotFoundException;
-import com.ps.patientservice.grpc.BillingServiceGrpcClient;
-import com.ps.patientservice.kakfa.KafkaProducer;
+import com.ps.patientservice.exception.PatientVersionMismatchException;
+import com.ps.patientservice.kakfa.PatientEventOutbox;
 import com.ps.patientservice.model.Patient;
+import com.ps.patientservice.pagination.PatientCursor;
 import com.ps.patientservice.repository.PatientRepository;
+import com.ps.patientservice.search.PatientName;
+import com.ps.patientservice.search.PatientNameIndex;
+import com.ps.patientservice.search.PatientSearchCriteria;
+import com.ps.patientservice.search.PatientSpecifications;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import patient.events.PatientEvent;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+@Slf4j
 @Service
 public class PatientService
 {
 
     private final PatientRepository patientRepository;
-    private final BillingServiceGrpcClient billingServiceGrpcClient;
-    private final KafkaProducer kafkaProducer;
+    private final BillingDispatcher billingDispatcher;
+    private final PatientEventOutbox patientEventOutbox;
+    private final PatientCache patientCache;
+    private final PatientCacheInvalidator patientCacheInvalidator;
+    private final PatientNameIndex patientNameIndex;
 
-    public PatientService(PatientRepository patientRepository, BillingServiceGrpcClient billingServiceGrpcClient, KafkaProducer kafkaProducer) {
+    // savePatient stages; "commit" covers the flush of every INSERT plus the commit itself.
+    // Billing and Kafka run after commit and are timed as billing.dispatch.latency and patient.outbox.publish
+    private final Timer emailCheckTimer;
+    private final Timer jpaSaveTimer;
+    private final Timer outboxWriteTimer;
+    private final Timer commitTimer;
+
+    public PatientService(PatientRepository patientRepository, BillingDispatcher billingDispatcher, PatientEventOutbox patientEventOutbox,
+                          PatientCache patientCache, PatientCacheInvalidator patientCacheInvalidator, PatientNameIndex patientNameIndex,
+                          MeterRegistry meterRegistry) {
         this.patientRepository = patientRepository;
-        this.billingServiceGrpcClient = billingServiceGrpcClient;
-        this.kafkaProducer = kafkaProducer;
+        this.billingDispatcher = billingDispatcher;
+        this.patientEventOutbox = patientEventOutbox;
+        this.patientCache = patientCache;
+        this.patientCacheInvalidator = patientCacheInvalidator;
+        this.patientNameIndex = patientNameIndex;
+        this.emailCheckTimer = saveStageTimer(meterRegistry, "email_check");
+        this.jpaSaveTimer = saveStageTimer(meterRegistry, "jpa_save");
+        this.outboxWriteTimer = saveStageTimer(meterRegistry, "outbox_write");
+        this.commitTimer = saveStageTimer(meterRegistry, "commit");
+    }
+
+    private static Timer saveStageTimer(MeterRegistry meterRegistry, String stage)
+    {
+        return Timer.builder("patient.save.stage")
+                .description("Time spent in each stage of PatientService.savePatient")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns at most {@code size} patients positioned strictly after {@code cursor}.
+     * One extra row is fetched so the caller can tell whether another page exists
+     * without issuing a count query.
+     */
+    @Transactional(readOnly = true)
+    public List<PatientView> getPage(PatientCursor cursor, int size)
+    {
+        Limit limit = Limit.of(size + 1);
+        if (cursor == null)
+        {
+            return patientRepository.findFirstPage(limit);
+        }
+        return patientRepository.findPageAfter(cursor.registeredDate(), cursor.id(), limit);
+    }
+
+    /**
+     * Same paging contract as {@link #getPage}, restricted to patients matching {@code criteria}. Only the
+     * filters that are set end up in the query, each one backed by an index on {@link Patient}.
+     */
+    @Transactional(readOnly = true)
+    public List<PatientView> search(PatientSearchCriteria criteria, PatientCursor cursor, int size)
+    {
+        Specification<Patient> specification = PatientSpecifications.matching(criteria);
+        if (cursor != null)
+        {
+            specification = specification.and(PatientSpecifications.after(cursor));
+        }
+        return patientRepository.findViews(specification, size + 1);
+    }
+
+    public List<PatientName> suggestNames(String prefix, int limit)
+    {
+        return patientNameIndex.suggest(prefix, limit);
+    }
+
+    // Rows written before the searchName column existed would never match a name search
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillSearchNames()
+    {
+        int backfilled = patientRepository.backfillSearchNames();
+        if (backfilled > 0)
+        {
+            log.info("Backfilled searchName for {} patients", backfilled);
+        }
     }
 
-    public List<Patient> getAll()
+    /**
+     * Walks every patient through a fetch-size bound JDBC cursor. Rows arrive as {@link PatientView}s,
+     * so the persistence context stays empty however large the table is.
+     */
+    @Transactional(readOnly = true)
+    public void forEachPatient(Consumer<PatientView> consumer)
     {
-        return  patientRepository.findAll();
+        try (Stream<PatientView> patients = patientRepository.streamAllOrdered())
+        {
+            patients.forEach(consumer);
+        }
     }
 
-    public Patient getById(UUID id)
+    public PatientView getById(UUID id)
     {
-        return patientRepository.findById(id).orElse(null);
+        // Misses are not cached, so a patient created later never has to evict a stale "absent" entry
+        return patientCache.get(id, patientRepository::findViewById).orElse(null);
     }
 
+    @Transactional
     public Patient savePatient(Patient patient)
     {
-        if(patientRepository.existsPatientByEmail(patient.getEmail()))
+        if(emailCheckTimer.record(() -> patientRepository.existsPatientByEmail(patient.getEmail())))
         {
             throw new EmailAreadyExistsException("A Patient with this Email: "+patient.getEmail()+" exists.");
         }
 
-        Patient saved = patientRepository.save(patient);
-        //Below our GRPC protobuf request to our BillingService
-        billingServiceGrpcClient.createBillingAccount(saved.getId().toString(),saved.getName(),saved.getEmail());
-        //Calling Kafka Producer to send Patient Event
-        kafkaProducer.sendEvent(saved);
+        // Stages time the persist calls only; the INSERTs are flushed together at commit, under the commit stage
+        Patient saved = jpaSaveTimer.record(() -> patientRepository.save(patient));
+        //Billing account is created via GRPC once the row is committed, async by default (billing.dispatch.mode)
+        billingDispatcher.dispatchAfterCommit(saved);
+        //PatientCreated event goes into the outbox in this same transaction; PatientOutboxRelay publishes it to Kafka
+        outboxWriteTimer.record(() -> patientEventOutbox.patientCreated(saved));
+        timeCommit();
+        afterCommit(() -> patientNameIndex.put(saved.getId(), saved.getName()));
         return saved;
     }
 
+    // beforeCommit runs before the transaction manager flushes the session, so the sample spans flush and commit
+    private void timeCommit()
+    {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+        {
+            private Timer.Sample sample;
+
+            @Override
+            public void beforeCommit(boolean readOnly)
+            {
+                sample = Timer.start();
+            }
+
+            @Override
+            public void afterCommit()
+            {
+                sample.stop(commitTimer);
+            }
+        });
+    }
+
+    // The name index must never show a patient whose write was rolled back
+    private static void afterCommit(Runnable action)
+    {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+        {
+            @Override
+            public void afterCommit()
+            {
+                action.run();
+            }
+        });
+    }
+
+    // The delete and its PatientDeleted event commit together; caches forget the patient only once it is gone
+    @Transactional
     public Boolean deleteById(UUID id)
     {
-        if(patientRepository.existsById(id))
+        Optional<Patient> patient = patientRepository.findById(id);
+        if(patient.isPresent())
         {
-            patientRepository.deleteById(id);
+            patientRepository.delete(patient.get());
+            patientEventOutbox.patientDeleted(patient.get());
+            afterCommit(() -> {
+                patientCacheInvalidator.patientDeleted(id);
+                patientNameIndex.remove(id);
+            });
             return true;
         }
         return false;
     }
 
-    public Patient updatePatient(UUID id, PatientCreateDTO dto) {
+    /**
+     * @param acceptedVersions versions the caller's {@code If-Match} allows, or {@code null} for an unconditional update.
+     *                         A write that lands between the check and the save is still caught by the {@code @Version} column.
+     */
+    @Transactional
+    public Patient updatePatient(UUID id, PatientCreateDTO dto, Set<Long> acceptedVersions) {
 
         Patient existing = patientRepository.findById(id)
                 .orElseThrow(() -> new PatientNotFoundException("Patient not found with Id: "+id.toString()));
+        if (acceptedVersions != null && !acceptedVersions.contains(existing.getVersion()))
+        {
+            throw new PatientVersionMismatchException("Patient " + id + " is at version " + existing.getVersion() + ", If-Match did not match");
+        }
 
+        PatientEvent before = PatientEventOutbox.snapshot(existing);
         // Update allowed fields
         existing.setName(dto.getName());
         existing.setEmail(dto.getEmail());
@@ -75,7 +245,17 @@ public class PatientService
        if(dto.getRegisteredDate()!=null)
            existing.setRegisteredDate(dto.getRegisteredDate());
 
-        return patientRepository.save(existing);
+        // Flushed through the repository so the event carries the version this update wrote, and a concurrent
+        // write still surfaces as ObjectOptimisticLockingFailureException
+        Patient updated = patientRepository.saveAndFlush(existing);
+        if (patientEventOutbox.patientUpdated(before, updated))
+        {
+            afterCommit(() -> {
+                patientCacheInvalidator.patientUpdated(id);
+                patientNameIndex.put(id, updated.getName());
+            });
+        }
+        return updated;
     }
 
 
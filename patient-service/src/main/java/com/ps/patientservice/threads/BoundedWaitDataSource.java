@@ -0,0 +1,76 @@
+package com.ps.patientservice.threads;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps how many callers may wait for a pooled connection at once; beyond {@code maxWaiting} a caller fails
+ * straight away with {@link SQLTransientConnectionException} (503). Same class as auth-service's; the services
+ * share no library module, so a fix to one belongs in both.
+ */
+public class BoundedWaitDataSource extends DelegatingDataSource
+{
+    private final int maxWaiting;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public BoundedWaitDataSource(DataSource targetDataSource, int maxWaiting)
+    {
+        super(targetDataSource);
+        this.maxWaiting = maxWaiting;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        admit();
+        try
+        {
+            return super.getConnection();
+        }
+        finally
+        {
+            waiting.decrementAndGet();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        admit();
+        try
+        {
+            return super.getConnection(username, password);
+        }
+        finally
+        {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private void admit() throws SQLTransientConnectionException
+    {
+        if (waiting.incrementAndGet() > maxWaiting)
+        {
+            waiting.decrementAndGet();
+            rejected.incrementAndGet();
+            throw new SQLTransientConnectionException("Connection pool saturated: " + maxWaiting + " callers are already waiting for a connection");
+        }
+    }
+
+    public int getWaiting()
+    {
+        return waiting.get();
+    }
+
+    public long getRejected()
+    {
+        return rejected.get();
+    }
+}
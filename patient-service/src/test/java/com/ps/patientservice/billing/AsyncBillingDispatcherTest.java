@@ -0,0 +1,184 @@
+package com.ps.patientservice.billing;
+
+import billing.BillingResponse;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import com.ps.patientservice.grpc.BillingServiceGrpcClient;
+import com.ps.patientservice.model.BillingStatus;
+import com.ps.patientservice.model.Patient;
+import com.ps.patientservice.repository.PatientRepository;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AsyncBillingDispatcherTest
+{
+    private static final BillingResponse OK = BillingResponse.getDefaultInstance();
+
+    private final BillingServiceGrpcClient client = mock(BillingServiceGrpcClient.class);
+    private final BillingStatusRecorder recorder = mock(BillingStatusRecorder.class);
+    private final PatientRepository patientRepository = mock(PatientRepository.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private AsyncBillingDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown()
+    {
+        dispatcher.stop();
+    }
+
+    @Test
+    void neverHoldsMoreThanMaxInFlightCallsOpen()
+    {
+        start(2, 5);
+        Patient first = patient();
+        Patient second = patient();
+        Patient third = patient();
+        SettableFuture<BillingResponse> firstCall = SettableFuture.create();
+        when(client.createBillingAccountAsync(first)).thenReturn(firstCall);
+        when(client.createBillingAccountAsync(second)).thenReturn(SettableFuture.create());
+        when(client.createBillingAccountAsync(third)).thenReturn(Futures.immediateFuture(OK));
+
+        dispatcher.dispatch(first);
+        dispatcher.dispatch(second);
+        dispatcher.dispatch(third);
+
+        verify(client, timeout(1000)).createBillingAccountAsync(second);
+        verify(client, after(200).never()).createBillingAccountAsync(third);
+
+        firstCall.set(OK);
+        verify(client, timeout(1000)).createBillingAccountAsync(third);
+        verify(recorder, timeout(1000)).record(first.getId(), BillingStatus.ACTIVE);
+        verify(recorder, timeout(1000)).record(third.getId(), BillingStatus.ACTIVE);
+    }
+
+    @Test
+    void retriesRetryableFailuresAfterABackoff()
+    {
+        start(1, 5);
+        Patient patient = patient();
+        when(client.createBillingAccountAsync(patient))
+                .thenReturn(Futures.immediateFailedFuture(Status.UNAVAILABLE.asRuntimeException()))
+                .thenReturn(Futures.immediateFailedFuture(Status.DEADLINE_EXCEEDED.asRuntimeException()))
+                .thenReturn(Futures.immediateFuture(OK));
+
+        dispatcher.dispatch(patient);
+
+        verify(recorder, timeout(2000)).record(patient.getId(), BillingStatus.ACTIVE);
+        verify(client, times(3)).createBillingAccountAsync(patient);
+        verify(recorder, never()).record(patient.getId(), BillingStatus.FAILED);
+    }
+
+    @Test
+    void marksFailedOnceAttemptsRunOut()
+    {
+        start(1, 3);
+        Patient patient = patient();
+        when(client.createBillingAccountAsync(patient))
+                .thenReturn(Futures.immediateFailedFuture(Status.UNAVAILABLE.asRuntimeException()));
+
+        dispatcher.dispatch(patient);
+
+        verify(recorder, timeout(2000)).record(patient.getId(), BillingStatus.FAILED);
+        verify(client, times(3)).createBillingAccountAsync(patient);
+    }
+
+    @Test
+    void marksFailedWithoutRetryingWhatRetryingCannotFix()
+    {
+        start(1, 5);
+        Patient patient = patient();
+        when(client.createBillingAccountAsync(patient))
+                .thenReturn(Futures.immediateFailedFuture(Status.INVALID_ARGUMENT.asRuntimeException()));
+
+        dispatcher.dispatch(patient);
+
+        verify(recorder, timeout(1000)).record(patient.getId(), BillingStatus.FAILED);
+        verify(client, after(200).times(1)).createBillingAccountAsync(patient);
+    }
+
+    @Test
+    void aCallThatThrowsGivesItsPermitBack()
+    {
+        start(1, 1);
+        Patient broken = patient();
+        Patient next = patient();
+        when(client.createBillingAccountAsync(broken)).thenThrow(new IllegalStateException("channel shut down"));
+        when(client.createBillingAccountAsync(next)).thenReturn(Futures.immediateFuture(OK));
+
+        dispatcher.dispatch(broken);
+        dispatcher.dispatch(next);
+
+        verify(recorder, timeout(1000)).record(broken.getId(), BillingStatus.FAILED);
+        verify(recorder, timeout(1000)).record(next.getId(), BillingStatus.ACTIVE);
+    }
+
+    @Test
+    void ignoresAPatientAlreadyBeingDispatched()
+    {
+        start(1, 1);
+        Patient patient = patient();
+        SettableFuture<BillingResponse> call = SettableFuture.create();
+        when(client.createBillingAccountAsync(patient)).thenReturn(call);
+
+        dispatcher.dispatch(patient);
+        dispatcher.dispatch(patient);
+        verify(client, after(200).times(1)).createBillingAccountAsync(patient);
+
+        call.set(OK);
+        verify(recorder, timeout(1000)).record(patient.getId(), BillingStatus.ACTIVE);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcileStampsAndDispatchesStalePendingPatients()
+    {
+        start(1, 1);
+        Patient stale = patient();
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<List<Patient>>>getArgument(0).doInTransaction(null));
+        when(patientRepository.lockStaleBilling(eq(BillingStatus.PENDING), any(Instant.class), eq(Limit.of(10))))
+                .thenReturn(List.of(stale));
+        when(client.createBillingAccountAsync(stale)).thenReturn(Futures.immediateFuture(OK));
+
+        dispatcher.reconcile();
+
+        verify(patientRepository).markBillingAttempted(eq(List.of(stale.getId())), any(Instant.class));
+        verify(recorder, timeout(1000)).record(stale.getId(), BillingStatus.ACTIVE);
+    }
+
+    private void start(int maxInFlight, int maxAttempts)
+    {
+        dispatcher = new AsyncBillingDispatcher(client, recorder, patientRepository, new SimpleMeterRegistry(),
+                maxInFlight, 100, maxAttempts, 10, 40, 10, Duration.ofMinutes(5), transactionTemplate);
+        dispatcher.start();
+    }
+
+    private static Patient patient()
+    {
+        Patient patient = new Patient();
+        patient.setId(UUID.randomUUID());
+        patient.setName("Ada");
+        patient.setEmail(patient.getId() + "@example.com");
+        return patient;
+    }
+}
@@ -0,0 +1,77 @@
+package com.ps.patientservice.billing;
+
+import com.ps.patientservice.cache.PatientCacheInvalidator;
+import com.ps.patientservice.kakfa.PatientEventOutbox;
+import com.ps.patientservice.model.BillingStatus;
+import com.ps.patientservice.model.Patient;
+import com.ps.patientservice.repository.PatientRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class BillingStatusRecorderTest
+{
+    private final PatientRepository patientRepository = mock(PatientRepository.class);
+    private final PatientEventOutbox patientEventOutbox = mock(PatientEventOutbox.class);
+    private final PatientCacheInvalidator patientCacheInvalidator = mock(PatientCacheInvalidator.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final BillingStatusRecorder recorder =
+            new BillingStatusRecorder(patientRepository, patientEventOutbox, patientCacheInvalidator, transactionManager);
+
+    @Test
+    void writesTheStatusAndItsEventInOwnTransactionThenInvalidates()
+    {
+        UUID id = UUID.randomUUID();
+        Patient patient = new Patient();
+        patient.setId(id);
+        when(patientRepository.findAllById(List.of(id))).thenReturn(List.of(patient));
+
+        recorder.record(id, BillingStatus.ACTIVE);
+
+        InOrder order = inOrder(patientRepository, patientEventOutbox, transactionManager, patientCacheInvalidator);
+        order.verify(patientRepository).updateBillingStatus(List.of(id), BillingStatus.ACTIVE);
+        order.verify(patientEventOutbox).billingStatusChanged(List.of(patient));
+        order.verify(transactionManager).commit(any());
+        order.verify(patientCacheInvalidator).patientUpdated(id);
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertThat(definition.getValue().getPropagationBehavior()).isEqualTo(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Test
+    void aFailedWriteIsLoggedAndInvalidatesNothing()
+    {
+        doThrow(new IllegalStateException("database down")).when(patientRepository).updateBillingStatus(anyCollection(), any());
+
+        recorder.record(UUID.randomUUID(), BillingStatus.FAILED);
+
+        verify(transactionManager).rollback(any());
+        verify(patientEventOutbox, never()).billingStatusChanged(any());
+        verifyNoInteractions(patientCacheInvalidator);
+    }
+
+    @Test
+    void nothingToRecordTouchesNothing()
+    {
+        recorder.record(List.of(), BillingStatus.ACTIVE);
+
+        verifyNoInteractions(patientRepository, transactionManager, patientCacheInvalidator);
+    }
+}
@@ -0,0 +1,45 @@
+package com.ps.patientservice.billing;
+
+import com.ps.patientservice.grpc.BillingServiceGrpcClient;
+import com.ps.patientservice.model.BillingStatus;
+import com.ps.patientservice.model.Patient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SyncBillingDispatcherTest
+{
+    private final BillingServiceGrpcClient client = mock(BillingServiceGrpcClient.class);
+    private final BillingStatusRecorder recorder = mock(BillingStatusRecorder.class);
+    private final SyncBillingDispatcher dispatcher = new SyncBillingDispatcher(client, recorder, new SimpleMeterRegistry());
+
+    @Test
+    void dispatchAllRecordsEachOutcomeOnce()
+    {
+        Patient ok = patient();
+        Patient broken = patient();
+        List<Patient> patients = List.of(ok, broken);
+        when(client.createBillingAccounts(patients)).thenReturn(Map.of(broken.getId(), "UNAVAILABLE"));
+
+        dispatcher.dispatchAll(patients);
+
+        verify(recorder).record(List.of(ok.getId()), BillingStatus.ACTIVE);
+        verify(recorder).record(List.of(broken.getId()), BillingStatus.FAILED);
+    }
+
+    private static Patient patient()
+    {
+        Patient patient = new Patient();
+        patient.setId(UUID.randomUUID());
+        patient.setName("Ada");
+        patient.setEmail(patient.getId() + "@example.com");
+        return patient;
+    }
+}
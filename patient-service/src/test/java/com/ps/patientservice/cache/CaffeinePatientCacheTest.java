@@ -0,0 +1,92 @@
+package com.ps.patientservice.cache;
+
+import com.ps.patientservice.dto.PatientView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CaffeinePatientCacheTest
+{
+    private final CaffeinePatientCache cache = new CaffeinePatientCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+
+    @Test
+    void returnsWhatWasLoadedUntilInvalidated()
+    {
+        PatientView patient = patient(UUID.randomUUID(), 0L);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.get(patient.id(), id -> { loads.incrementAndGet(); return Optional.of(patient); })).containsSame(patient);
+        assertThat(cache.get(patient.id(), id -> { loads.incrementAndGet(); return Optional.of(patient); })).containsSame(patient);
+        assertThat(loads).hasValue(1);
+
+        cache.invalidate(patient.id());
+        cache.get(patient.id(), id -> { loads.incrementAndGet(); return Optional.of(patient); });
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void missIsEmptyAndNotCached()
+    {
+        UUID id = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.get(id, key -> { loads.incrementAndGet(); return Optional.empty(); })).isEmpty();
+        assertThat(cache.get(id, key -> { loads.incrementAndGet(); return Optional.empty(); })).isEmpty();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void invalidateDuringALoadRemovesWhatThatLoadRead() throws Exception
+    {
+        UUID id = UUID.randomUUID();
+        PatientView before = patient(id, 0L);
+        PatientView after = patient(id, 1L);
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // The load has read version 0 when the write commits and invalidates
+        CompletableFuture<Optional<PatientView>> load = CompletableFuture.supplyAsync(() -> cache.get(id, key -> {
+            read.countDown();
+            await(release);
+            return Optional.of(before);
+        }));
+        assertThat(read.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> invalidation = CompletableFuture.runAsync(() -> cache.invalidate(id));
+
+        Thread.sleep(100);
+        assertThat(invalidation).isNotDone();
+        release.countDown();
+
+        assertThat(load.get(5, TimeUnit.SECONDS)).containsSame(before);
+        invalidation.get(5, TimeUnit.SECONDS);
+        assertThat(cache.get(id, key -> Optional.of(after))).containsSame(after);
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static PatientView patient(UUID id, long version)
+    {
+        return new PatientView(id, "Ada", "ada@example.com", "Street 1",
+                LocalDate.of(1990, 5, 1), LocalDate.of(2024, 3, 1), null, version);
+    }
+}
@@ -0,0 +1,182 @@
+package com.ps.patientservice.config;
+
+import com.ps.patientservice.dto.PatientDTO;
+import com.ps.patientservice.dto.PatientView;
+import com.ps.patientservice.mapper.PatientETags;
+import com.ps.patientservice.model.BillingStatus;
+import com.ps.patientservice.pagination.PatientCursor;
+import com.ps.patientservice.reactive.ReactivePatientHandler;
+import com.ps.patientservice.reactive.ReactivePatientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactivePatientReadConfigTest
+{
+    private final ReactivePatientRepository repository = mock(ReactivePatientRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final WebTestClient client = WebTestClient
+            .bindToRouterFunction(ReactivePatientReadConfig.routes(new ReactivePatientHandler(repository, meterRegistry, 2, 500)))
+            .build();
+
+    private final PatientView ada = patient("Ada Lovelace", LocalDate.of(2024, 1, 1));
+    private final PatientView bob = patient("Bob Stone", LocalDate.of(2024, 1, 2));
+    private final PatientView cy = patient("Cy Young", LocalDate.of(2024, 1, 3));
+
+    @Test
+    void jsonAndWildcardAcceptGetOnePageWithACursorAndAnETag()
+    {
+        when(repository.findFirstPage(3)).thenReturn(Flux.just(ada, bob, cy));
+        String nextCursor = PatientCursor.of(bob).encode();
+
+        for (MediaType accept : List.of(MediaType.APPLICATION_JSON, MediaType.ALL))
+        {
+            client.get().uri("/patients").accept(accept)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().valueEquals(HttpHeaders.ETAG, PatientETags.ofPage(List.of(ada, bob), nextCursor))
+                    .expectBody()
+                    .jsonPath("$.items.length()").isEqualTo(2)
+                    .jsonPath("$.items[1].name").isEqualTo("Bob Stone")
+                    .jsonPath("$.nextCursor").isEqualTo(nextCursor);
+        }
+        verify(repository, never()).streamAllOrdered();
+    }
+
+    @Test
+    void anUnchangedPageIsNotModified()
+    {
+        when(repository.findPageAfter(ada.registeredDate(), ada.id(), 3)).thenReturn(Flux.just(bob, cy));
+        String etag = PatientETags.ofPage(List.of(bob, cy), null);
+
+        client.get().uri("/patients?cursor={cursor}", PatientCursor.of(ada).encode())
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void ndjsonAcceptStreamsEveryPatient()
+    {
+        when(repository.streamAllOrdered()).thenReturn(Flux.just(ada, bob, cy));
+
+        List<PatientDTO> patients = client.get().uri("/patients").accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(PatientDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertThat(patients).extracting(PatientDTO::getName).containsExactly("Ada Lovelace", "Bob Stone", "Cy Young");
+        verify(repository, never()).findFirstPage(anyInt());
+    }
+
+    @Test
+    void eventStreamResumesAfterTheLastEventIdAndPrefersItOverTheCursor()
+    {
+        when(repository.streamAfter(ada.registeredDate(), ada.id())).thenReturn(Flux.just(bob, cy));
+
+        List<ServerSentEvent<PatientDTO>> events = client.get()
+                .uri("/patients?cursor={cursor}", PatientCursor.of(cy).encode())
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Last-Event-ID", PatientCursor.of(ada).encode())
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<PatientDTO>>()
+                {
+                })
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertThat(events).extracting(ServerSentEvent::id)
+                .containsExactly(PatientCursor.of(bob).encode(), PatientCursor.of(cy).encode());
+        assertThat(events).extracting(event -> event.data().getName()).containsExactly("Bob Stone", "Cy Young");
+        verify(repository, never()).streamAfter(cy.registeredDate(), cy.id());
+    }
+
+    @Test
+    void aPatientIsServedWithItsETagAndNotModifiedOnceTheClientHasIt()
+    {
+        when(repository.findById(ada.id())).thenReturn(Mono.just(ada));
+        String etag = PatientETags.of(ada);
+
+        client.get().uri("/patients/{id}", ada.id())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+                .expectBody().jsonPath("$.name").isEqualTo("Ada Lovelace");
+
+        client.get().uri("/patients/{id}", ada.id())
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void clientErrorsAreMappedToTheServletStacksBodies()
+    {
+        UUID missing = UUID.randomUUID();
+        when(repository.findById(missing)).thenReturn(Mono.empty());
+
+        expectError(client.get().uri("/patients?cursor=not-a-cursor"), HttpStatus.BAD_REQUEST, "Invalid Cursor");
+        // Decoded while the handler builds its response, before any publisher exists
+        expectError(client.get().uri("/patients").accept(MediaType.TEXT_EVENT_STREAM).header("Last-Event-ID", "not-a-cursor"),
+                HttpStatus.BAD_REQUEST, "Invalid Cursor");
+        expectError(client.get().uri("/patients/{id}", missing), HttpStatus.BAD_REQUEST, "Patient Not Found");
+        expectError(client.get().uri("/patients/not-a-uuid"), HttpStatus.BAD_REQUEST, "Invalid Request");
+        expectError(client.get().uri("/patients?size=ten"), HttpStatus.BAD_REQUEST, "Invalid Request");
+
+        assertThat(meterRegistry.get("patient.exceptions").tag("exception", "InvalidCursorException").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("patient.exceptions").tag("exception", "PatientNotFoundException").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void anUnavailableDatabaseIsABusyServiceWithRetryAfter()
+    {
+        when(repository.findFirstPage(anyInt())).thenReturn(Flux.error(new DataAccessResourceFailureException("pool exhausted")));
+        when(repository.findById(any())).thenReturn(Mono.error(new DataAccessResourceFailureException("pool exhausted")));
+
+        expectError(client.get().uri("/patients"), HttpStatus.SERVICE_UNAVAILABLE, "Service is busy, retry shortly")
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1");
+        expectError(client.get().uri("/patients/{id}", ada.id()), HttpStatus.SERVICE_UNAVAILABLE, "Service is busy, retry shortly")
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1");
+    }
+
+    private static WebTestClient.ResponseSpec expectError(WebTestClient.RequestHeadersSpec<?> request, HttpStatus status, String message)
+    {
+        WebTestClient.ResponseSpec response = request.exchange();
+        response.expectStatus().isEqualTo(status)
+                .expectBody().jsonPath("$.Message").isEqualTo(message);
+        return response;
+    }
+
+    private static PatientView patient(String name, LocalDate registeredDate)
+    {
+        return new PatientView(UUID.randomUUID(), name, name.toLowerCase().replace(' ', '.') + "@example.com", "1 Main St",
+                LocalDate.of(1990, 5, 17), registeredDate, BillingStatus.PENDING, 0L);
+    }
+}
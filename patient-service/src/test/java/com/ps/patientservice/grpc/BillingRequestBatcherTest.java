@@ -0,0 +1,225 @@
+package com.ps.patientservice.grpc;
+
+import billing.BillingBatchRequest;
+import billing.BillingBatchResponse;
+import billing.BillingError;
+import billing.BillingRequest;
+import billing.BillingResponse;
+import billing.BillingResult;
+import billing.BillingServiceGrpc;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BillingRequestBatcherTest
+{
+    private final String serverName = InProcessServerBuilder.generateName();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FakeBillingService billingService = new FakeBillingService();
+    private Server server;
+    private ManagedChannel channel;
+    private BillingRequestBatcher batcher;
+
+    @AfterEach
+    void tearDown()
+    {
+        batcher.shutdown();
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void requestsArrivingWithinTheLingerShareOneBatch() throws Exception
+    {
+        start(10, 50);
+
+        ListenableFuture<BillingResponse> first = batcher.submit(request("p1"));
+        ListenableFuture<BillingResponse> second = batcher.submit(request("p2"));
+        ListenableFuture<BillingResponse> third = batcher.submit(request("p3"));
+
+        assertThat(get(first).getAccountId()).isEqualTo("acct-p1");
+        assertThat(get(second).getAccountId()).isEqualTo("acct-p2");
+        assertThat(get(third).getAccountId()).isEqualTo("acct-p3");
+        assertThat(billingService.batches).containsExactly(List.of("p1", "p2", "p3"));
+        assertThat(billingService.unary).isEmpty();
+        assertThat(meterRegistry.get("billing.grpc.batch.size").summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    void aFullBatchIsSentWithoutWaitingForTheLinger() throws Exception
+    {
+        start(2, TimeUnit.MINUTES.toMillis(1));
+
+        ListenableFuture<BillingResponse> first = batcher.submit(request("p1"));
+        ListenableFuture<BillingResponse> second = batcher.submit(request("p2"));
+
+        assertThat(get(first).getAccountId()).isEqualTo("acct-p1");
+        assertThat(get(second).getAccountId()).isEqualTo("acct-p2");
+        assertThat(billingService.batches).containsExactly(List.of("p1", "p2"));
+    }
+
+    @Test
+    void aLoneRequestGoesOutAsAUnaryCall() throws Exception
+    {
+        start(10, 10);
+
+        assertThat(get(batcher.submit(request("p1"))).getAccountId()).isEqualTo("acct-p1");
+        assertThat(billingService.unary).containsExactly("p1");
+        assertThat(billingService.batches).isEmpty();
+    }
+
+    @Test
+    void eachRequestFailsWithItsOwnStatus() throws Exception
+    {
+        billingService.outcome = request -> request.getPatientId().equals("bad")
+                ? BillingResult.newBuilder().setPatientId("bad")
+                        .setError(BillingError.newBuilder().setCode(Status.Code.INVALID_ARGUMENT.value()).setMessage("no"))
+                        .build()
+                : account(request);
+        start(10, 10);
+
+        List<ListenableFuture<BillingResponse>> results = batcher.submitAll(List.of(request("p1"), request("bad")));
+
+        assertThat(get(results.get(0)).getAccountId()).isEqualTo("acct-p1");
+        assertThat(status(results.get(1))).isEqualTo(Status.Code.INVALID_ARGUMENT);
+    }
+
+    @Test
+    void submitAllSplitsAtTheMaximumBatchSize() throws Exception
+    {
+        start(2, TimeUnit.MINUTES.toMillis(1));
+
+        List<ListenableFuture<BillingResponse>> results = batcher.submitAll(
+                List.of(request("p1"), request("p2"), request("p3"), request("p4"), request("p5")));
+
+        for (int i = 0; i < results.size(); i++)
+        {
+            assertThat(get(results.get(i)).getAccountId()).isEqualTo("acct-p" + (i + 1));
+        }
+        assertThat(billingService.batches).containsExactlyInAnyOrder(List.of("p1", "p2"), List.of("p3", "p4"));
+        assertThat(billingService.unary).containsExactly("p5");
+    }
+
+    @Test
+    void fallsBackToUnaryCallsAgainstAServerWithoutTheBatchRpc() throws Exception
+    {
+        billingService.batchImplemented = false;
+        start(10, 10);
+
+        List<ListenableFuture<BillingResponse>> first = batcher.submitAll(List.of(request("p1"), request("p2")));
+        assertThat(get(first.get(0)).getAccountId()).isEqualTo("acct-p1");
+        assertThat(get(first.get(1)).getAccountId()).isEqualTo("acct-p2");
+
+        List<ListenableFuture<BillingResponse>> second = batcher.submitAll(List.of(request("p3"), request("p4")));
+        assertThat(get(second.get(0)).getAccountId()).isEqualTo("acct-p3");
+        assertThat(get(second.get(1)).getAccountId()).isEqualTo("acct-p4");
+
+        // Only the first batch was tried; afterwards every request goes straight to the unary RPC
+        assertThat(billingService.batches).hasSize(1);
+        assertThat(billingService.unary).containsExactlyInAnyOrder("p1", "p2", "p3", "p4");
+    }
+
+    @Test
+    void aResponseWithTheWrongNumberOfResultsFailsTheWholeBatch() throws Exception
+    {
+        billingService.dropLastResult = true;
+        start(10, 10);
+
+        List<ListenableFuture<BillingResponse>> results = batcher.submitAll(List.of(request("p1"), request("p2")));
+
+        assertThat(status(results.get(0))).isEqualTo(Status.Code.INTERNAL);
+        assertThat(status(results.get(1))).isEqualTo(Status.Code.INTERNAL);
+    }
+
+    private void start(int maxBatchSize, long lingerMillis) throws IOException
+    {
+        server = InProcessServerBuilder.forName(serverName).addService(billingService).build().start();
+        channel = InProcessChannelBuilder.forName(serverName).build();
+        batcher = new BillingRequestBatcher(BillingServiceGrpc.newFutureStub(channel), 5000, maxBatchSize, lingerMillis, meterRegistry);
+    }
+
+    private static BillingRequest request(String patientId)
+    {
+        return BillingRequest.newBuilder().setPatientId(patientId).setName("Ada").setEmail(patientId + "@example.com").build();
+    }
+
+    private static BillingResult account(BillingRequest request)
+    {
+        return BillingResult.newBuilder()
+                .setPatientId(request.getPatientId())
+                .setAccount(BillingResponse.newBuilder().setAccountId("acct-" + request.getPatientId()).setStatus("ACTIVE"))
+                .build();
+    }
+
+    private static <T> T get(Future<T> future) throws Exception
+    {
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+    private static Status.Code status(Future<?> future) throws Exception
+    {
+        try
+        {
+            get(future);
+        }
+        catch (ExecutionException e)
+        {
+            return ((StatusRuntimeException) e.getCause()).getStatus().getCode();
+        }
+        throw new AssertionError("Expected the call to fail");
+    }
+
+    private static final class FakeBillingService extends BillingServiceGrpc.BillingServiceImplBase
+    {
+        final List<List<String>> batches = new CopyOnWriteArrayList<>();
+        final List<String> unary = new CopyOnWriteArrayList<>();
+        volatile Function<BillingRequest, BillingResult> outcome = BillingRequestBatcherTest::account;
+        volatile boolean batchImplemented = true;
+        volatile boolean dropLastResult;
+
+        @Override
+        public void createBillingAccount(BillingRequest request, StreamObserver<BillingResponse> responseObserver)
+        {
+            unary.add(request.getPatientId());
+            responseObserver.onNext(outcome.apply(request).getAccount());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void createBillingAccounts(BillingBatchRequest request, StreamObserver<BillingBatchResponse> responseObserver)
+        {
+            batches.add(request.getRequestsList().stream().map(BillingRequest::getPatientId).toList());
+            if (!batchImplemented)
+            {
+                responseObserver.onError(Status.UNIMPLEMENTED.asRuntimeException());
+                return;
+            }
+            BillingBatchResponse.Builder response = BillingBatchResponse.newBuilder();
+            request.getRequestsList().forEach(r -> response.addResults(outcome.apply(r)));
+            if (dropLastResult)
+            {
+                response.removeResults(response.getResultsCount() - 1);
+            }
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        }
+    }
+}
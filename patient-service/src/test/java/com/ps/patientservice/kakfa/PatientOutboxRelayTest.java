@@ -0,0 +1,108 @@
+package com.ps.patientservice.kakfa;
+
+import com.ps.patientservice.model.PatientOutboxEvent;
+import com.ps.patientservice.repository.PatientOutboxRelayLockRepository;
+import com.ps.patientservice.repository.PatientOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+class PatientOutboxRelayTest
+{
+    private static final Instant T0 = Instant.parse("2025-01-01T10:00:00Z");
+
+    @Autowired
+    private PatientOutboxRepository patientOutboxRepository;
+    @Autowired
+    private PatientOutboxRelayLockRepository patientOutboxRelayLockRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+    private PatientOutboxRelay relay;
+
+    @BeforeEach
+    void setUp()
+    {
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        relay = new PatientOutboxRelay(patientOutboxRepository, patientOutboxRelayLockRepository, kafkaTemplate,
+                new TransactionTemplate(transactionManager), new SimpleMeterRegistry(), 1, 1, 1000);
+    }
+
+    @Test
+    void sendsAPatientsEventsInVersionOrderWhateverTheirIdsAndClocks()
+    {
+        relay.createLock();
+        // Written by three replicas with skewed clocks: the deletion got the lowest id and the oldest timestamp
+        save("x", PatientEventOutbox.PATIENT_DELETED, 2, T0);
+        save("x", PatientEventOutbox.PATIENT_UPDATED, 1, T0.plusSeconds(5));
+        save("x", PatientEventOutbox.PATIENT_CREATED, 0, T0.plusSeconds(3));
+        save("y", PatientEventOutbox.PATIENT_CREATED, 0, T0.plusSeconds(1));
+
+        relay.relay();
+
+        InOrder order = inOrder(kafkaTemplate);
+        order.verify(kafkaTemplate).send("patient", "x", payload("x", PatientEventOutbox.PATIENT_CREATED));
+        order.verify(kafkaTemplate).send("patient", "x", payload("x", PatientEventOutbox.PATIENT_UPDATED));
+        order.verify(kafkaTemplate).send("patient", "x", payload("x", PatientEventOutbox.PATIENT_DELETED));
+        order.verify(kafkaTemplate).send(anyString(), anyString(), isNull());
+        // Batch size 1 claimed only x's oldest event, everything else of x came along; y waits for the next run
+        verify(kafkaTemplate, never()).send(anyString(), eq("y"), any());
+        assertThat(patientOutboxRepository.findAll()).extracting(PatientOutboxEvent::getAggregateId).containsExactly("y");
+    }
+
+    @Test
+    void relaysNothingWithoutHoldingTheLock()
+    {
+        save("x", PatientEventOutbox.PATIENT_CREATED, 0, T0);
+
+        relay.relay();
+
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), any());
+        assertThat(patientOutboxRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void creatingTheLockTwiceKeepsOneRow()
+    {
+        relay.createLock();
+        relay.createLock();
+
+        assertThat(patientOutboxRelayLockRepository.count()).isEqualTo(1);
+    }
+
+    private void save(String patientId, String eventType, long aggregateVersion, Instant createdAt)
+    {
+        PatientOutboxEvent event = new PatientOutboxEvent(patientId, eventType, aggregateVersion, payload(patientId, eventType));
+        event.setCreatedAt(createdAt);
+        patientOutboxRepository.saveAndFlush(event);
+    }
+
+    private static byte[] payload(String patientId, String eventType)
+    {
+        return (patientId + ":" + eventType).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,64 @@
+package com.ps.patientservice.mapper;
+
+import com.ps.patientservice.dto.PatientView;
+import com.ps.patientservice.model.BillingStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PatientETagsTest
+{
+    private static final UUID ID = UUID.fromString("4b0e7c1a-2f7d-4e55-9d1b-0c3a2e8f9a11");
+
+    @Test
+    void noPreconditionWithoutHeaderOrWithWildcard()
+    {
+        assertThat(PatientETags.acceptedVersions(null)).isNull();
+        assertThat(PatientETags.acceptedVersions("  ")).isNull();
+        assertThat(PatientETags.acceptedVersions(" * ")).isNull();
+    }
+
+    @Test
+    void acceptsEveryVersionOfAnIfMatchList()
+    {
+        assertThat(PatientETags.acceptedVersions("\"3-ACTIVE\", \"5\" ,\"7-PENDING\"")).containsExactlyInAnyOrder(3L, 5L, 7L);
+    }
+
+    @Test
+    void weakAndMalformedTagsNeverMatch()
+    {
+        assertThat(PatientETags.acceptedVersions("W/\"3-ACTIVE\", 4, \"\", \"x-ACTIVE\"")).isEmpty();
+    }
+
+    @Test
+    void tagTakenBeforeBillingCompletedStillMatchesTheVersion()
+    {
+        String beforeBilling = PatientETags.of(view(0L, BillingStatus.PENDING));
+        String afterBilling = PatientETags.of(view(0L, BillingStatus.ACTIVE));
+
+        assertThat(beforeBilling).isEqualTo("\"0-PENDING\"");
+        assertThat(afterBilling).isNotEqualTo(beforeBilling);
+        assertThat(PatientETags.acceptedVersions(beforeBilling)).containsExactly(0L);
+    }
+
+    @Test
+    void pageTagIsWeakAndFollowsBillingStatusAndCursor()
+    {
+        String pending = PatientETags.ofPage(List.of(view(0L, BillingStatus.PENDING)), "next");
+
+        assertThat(pending).startsWith("W/\"");
+        assertThat(PatientETags.ofPage(List.of(view(0L, BillingStatus.PENDING)), "next")).isEqualTo(pending);
+        assertThat(PatientETags.ofPage(List.of(view(0L, BillingStatus.ACTIVE)), "next")).isNotEqualTo(pending);
+        assertThat(PatientETags.ofPage(List.of(view(0L, BillingStatus.PENDING)), null)).isNotEqualTo(pending);
+    }
+
+    private static PatientView view(long version, BillingStatus billingStatus)
+    {
+        return new PatientView(ID, "Ada", "ada@example.com", "Street 1",
+                LocalDate.of(1990, 5, 1), LocalDate.of(2024, 3, 1), billingStatus, version);
+    }
+}
@@ -0,0 +1,76 @@
+package com.ps.patientservice.pagination;
+
+import com.ps.patientservice.dto.PatientView;
+import com.ps.patientservice.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PatientCursorTest
+{
+    private static final UUID ID = UUID.fromString("4b0e7c1a-2f7d-4e55-9d1b-0c3a2e8f9a11");
+
+    @Test
+    void decodeReturnsWhatEncodeWrote()
+    {
+        PatientCursor cursor = new PatientCursor(LocalDate.of(2024, 2, 29), ID);
+
+        assertThat(PatientCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void tokenIsUrlSafeAndUnpadded()
+    {
+        String token = new PatientCursor(LocalDate.of(2024, 1, 1), ID).encode();
+
+        assertThat(token).doesNotContain("=", "+", "/");
+    }
+
+    @Test
+    void cursorOfViewUsesItsOrderingKey()
+    {
+        PatientView view = new PatientView(ID, "Ada", "ada@example.com", "Street 1",
+                LocalDate.of(1990, 5, 1), LocalDate.of(2024, 3, 1), null, 0L);
+
+        assertThat(PatientCursor.of(view)).isEqualTo(new PatientCursor(LocalDate.of(2024, 3, 1), ID));
+    }
+
+    @Test
+    void rejectsTokenThatIsNotBase64()
+    {
+        assertThatThrownBy(() -> PatientCursor.decode("not base64!"))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    void rejectsTokenWithoutSeparator()
+    {
+        assertThatThrownBy(() -> PatientCursor.decode(token("2024-01-01" + ID)))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    void rejectsTamperedDate()
+    {
+        assertThatThrownBy(() -> PatientCursor.decode(token("2024-13-01|" + ID)))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    void rejectsTamperedId()
+    {
+        assertThatThrownBy(() -> PatientCursor.decode(token("2024-01-01|not-a-uuid")))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    private static String token(String raw)
+    {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,83 @@
+package com.ps.patientservice.repository;
+
+import com.ps.patientservice.model.BillingStatus;
+import com.ps.patientservice.model.Patient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class PatientRepositoryBillingClaimTest
+{
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Test
+    void claimsOnlyStalePendingRowsOldestAttemptFirst()
+    {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Patient fresh = save(BillingStatus.PENDING);
+        Patient stale = save(BillingStatus.PENDING);
+        Patient staler = save(BillingStatus.PENDING);
+        Patient active = save(BillingStatus.ACTIVE);
+        patientRepository.markBillingAttempted(List.of(stale.getId(), active.getId()), now.minusSeconds(600));
+        patientRepository.markBillingAttempted(List.of(staler.getId()), now.minusSeconds(900));
+
+        List<UUID> claimed = patientRepository.lockStaleBilling(BillingStatus.PENDING, now.minusSeconds(300), Limit.of(10))
+                .stream().map(Patient::getId).toList();
+
+        assertThat(claimed).containsExactly(staler.getId(), stale.getId()).doesNotContain(fresh.getId());
+    }
+
+    @Test
+    void markingAnAttemptLeavesTheVersionAlone()
+    {
+        Patient patient = save(BillingStatus.PENDING);
+        long version = patient.getVersion();
+
+        patientRepository.markBillingAttempted(List.of(patient.getId()), Instant.now());
+
+        assertThat(patientRepository.findViewById(patient.getId()).orElseThrow().version()).isEqualTo(version);
+    }
+
+    @Test
+    void recordingBillingStatusLeavesTheVersionAloneAndSurvivesAConcurrentUpdate()
+    {
+        Patient patient = save(BillingStatus.PENDING);
+        long version = patient.getVersion();
+
+        patientRepository.updateBillingStatus(List.of(patient.getId()), BillingStatus.ACTIVE);
+        assertThat(patientRepository.findViewById(patient.getId()).orElseThrow().version()).isEqualTo(version);
+
+        // The managed copy still says PENDING; only the changed column may be written back
+        patient.setAddress("Street 2");
+        patientRepository.saveAndFlush(patient);
+
+        assertThat(patientRepository.findViewById(patient.getId()).orElseThrow())
+                .satisfies(view -> {
+                    assertThat(view.billingStatus()).isEqualTo(BillingStatus.ACTIVE);
+                    assertThat(view.version()).isEqualTo(version + 1);
+                });
+    }
+
+    private Patient save(BillingStatus billingStatus)
+    {
+        Patient patient = new Patient();
+        patient.setName("Ada");
+        patient.setEmail(UUID.randomUUID() + "@example.com");
+        patient.setAddress("Street 1");
+        patient.setDateofBirth(LocalDate.of(1990, 5, 1));
+        patient.setRegisteredDate(LocalDate.of(2024, 3, 1));
+        patient.setBillingStatus(billingStatus);
+        return patientRepository.saveAndFlush(patient);
+    }
+}
@@ -0,0 +1,106 @@
+package com.ps.patientservice.search;
+
+import com.ps.patientservice.repository.PatientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InMemoryPatientNameIndexTest
+{
+    private final PatientRepository patientRepository = mock(PatientRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InMemoryPatientNameIndex index =
+            new InMemoryPatientNameIndex(patientRepository, mock(PlatformTransactionManager.class), meterRegistry);
+
+    private final UUID ada = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID cy = UUID.randomUUID();
+    private final UUID dee = UUID.randomUUID();
+
+    @Test
+    void findsPatientsByAnyWordOfTheirNameIgnoringCase()
+    {
+        index.put(ada, "John Smith");
+        index.put(bob, "Smithers  Jones");
+
+        assertThat(index.suggest("smi", 10)).extracting(PatientName::name).containsExactly("John Smith", "Smithers  Jones");
+        assertThat(index.suggest("JO", 10)).extracting(PatientName::name).containsExactly("John Smith", "Smithers  Jones");
+        assertThat(index.suggest("ohn", 10)).isEmpty();
+        assertThat(index.suggest("  ", 10)).isEmpty();
+    }
+
+    @Test
+    void listsAPatientOnceAndStopsAtTheLimit()
+    {
+        index.put(ada, "Jo Johnson");
+        index.put(bob, "Joan Jones");
+        index.put(cy, "Jon Jordan");
+
+        List<PatientName> all = index.suggest("jo", 10);
+        assertThat(all).extracting(PatientName::id).containsExactly(ada, bob, cy);
+        assertThat(index.suggest("jo", 2)).extracting(PatientName::id).containsExactly(ada, bob);
+    }
+
+    @Test
+    void putReplacesEveryKeyOfTheOldNameAndRemoveDropsThem()
+    {
+        index.put(ada, "Ada Lovelace");
+        index.put(ada, "Ada King");
+
+        assertThat(index.suggest("love", 10)).isEmpty();
+        assertThat(index.suggest("king", 10)).extracting(PatientName::name).containsExactly("Ada King");
+
+        index.remove(ada);
+        assertThat(index.suggest("ada", 10)).isEmpty();
+        assertThat(index.suggest("king", 10)).isEmpty();
+    }
+
+    @Test
+    void changesMadeWhileARebuildStreamsAreReplayedOntoTheNewCopy()
+    {
+        index.put(ada, "Ada Lovelace");
+        // The table as the rebuild's read sees it; the writes below commit while it is still streaming
+        when(patientRepository.streamNames()).thenAnswer(invocation -> Stream.of(
+                        new PatientName(ada, "Ada Lovelace"),
+                        new PatientName(bob, "Bob Stone"),
+                        new PatientName(cy, "Cy Young"))
+                .peek(name -> {
+                    if (name.id().equals(ada))
+                    {
+                        index.remove(ada);
+                        index.put(bob, "Bobby Stone");
+                        index.put(dee, "Dee Smith");
+                    }
+                }));
+
+        index.rebuild();
+
+        assertThat(index.suggest("ada", 10)).isEmpty();
+        assertThat(index.suggest("bob", 10)).extracting(PatientName::name).containsExactly("Bobby Stone");
+        assertThat(index.suggest("stone", 10)).extracting(PatientName::name).containsExactly("Bobby Stone");
+        assertThat(index.suggest("smi", 10)).extracting(PatientName::id).containsExactly(dee);
+        assertThat(index.suggest("cy", 10)).extracting(PatientName::id).containsExactly(cy);
+        assertThat(meterRegistry.get("patient.search.name-index.size").gauge().value()).isEqualTo(3);
+    }
+
+    @Test
+    void aFailedRebuildKeepsServingTheCurrentCopy()
+    {
+        index.put(ada, "Ada Lovelace");
+        when(patientRepository.streamNames()).thenThrow(new IllegalStateException("database down"));
+
+        index.rebuild();
+        index.put(bob, "Bob Stone");
+
+        assertThat(index.suggest("ada", 10)).extracting(PatientName::id).containsExactly(ada);
+        assertThat(index.suggest("bob", 10)).extracting(PatientName::id).containsExactly(bob);
+    }
+}
@@ -0,0 +1,71 @@
+package com.ps.patientservice.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SearchNameCollationTest
+{
+    private static final String ALTER = "alter table patient alter column search_name type varchar(255) collate \"C\"";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SearchNameCollation searchNameCollation = new SearchNameCollation(jdbcTemplate);
+
+    @Test
+    void switchesADefaultCollationToC()
+    {
+        database("PostgreSQL", "");
+
+        searchNameCollation.apply();
+
+        verify(jdbcTemplate).execute(ALTER);
+    }
+
+    @Test
+    void switchesALocaleCollationToC()
+    {
+        database("PostgreSQL", "en_US.utf8");
+
+        searchNameCollation.apply();
+
+        verify(jdbcTemplate).execute(ALTER);
+    }
+
+    @Test
+    void leavesAColumnAlreadyOnC()
+    {
+        database("PostgreSQL", "C");
+
+        searchNameCollation.apply();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void leavesOtherDatabasesAlone()
+    {
+        database("H2", "");
+
+        searchNameCollation.apply();
+
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(String.class));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void database(String productName, String collation)
+    {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(productName);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of(collation));
+    }
+}
@@ -0,0 +1,197 @@
+package com.ps.patientservice.service;
+
+import com.ps.patientservice.billing.BillingDispatcher;
+import com.ps.patientservice.dto.PatientBulkResultDTO;
+import com.ps.patientservice.dto.PatientBulkRowResultDTO;
+import com.ps.patientservice.dto.PatientBulkRowResultDTO.Status;
+import com.ps.patientservice.dto.PatientCreateDTO;
+import com.ps.patientservice.kakfa.PatientEventOutbox;
+import com.ps.patientservice.model.Patient;
+import com.ps.patientservice.repository.PatientRepository;
+import com.ps.patientservice.search.PatientNameIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PatientBulkImportServiceTest
+{
+    private final PatientRepository patientRepository = mock(PatientRepository.class);
+    private final PatientEventOutbox patientEventOutbox = mock(PatientEventOutbox.class);
+    private final BillingDispatcher billingDispatcher = mock(BillingDispatcher.class);
+    private final PatientNameIndex patientNameIndex = mock(PatientNameIndex.class);
+
+    @BeforeEach
+    void setUp()
+    {
+        when(patientRepository.findExistingEmails(anyCollection())).thenReturn(Set.of());
+        // Ids are assigned on persist, which the mocked repository stands in for
+        when(patientRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            Iterable<Patient> patients = invocation.getArgument(0);
+            patients.forEach(patient -> patient.setId(UUID.randomUUID()));
+            return patients;
+        });
+        when(patientRepository.save(any(Patient.class))).thenAnswer(invocation -> {
+            Patient patient = invocation.getArgument(0);
+            patient.setId(UUID.randomUUID());
+            return patient;
+        });
+    }
+
+    @Test
+    void eachRowIsJudgedOnItsOwnWithinAChunk()
+    {
+        when(patientRepository.findExistingEmails(anyCollection())).thenReturn(Set.of("bob@example.com"));
+
+        PatientBulkResultDTO result = service(10).importPatients(List.of(
+                patient("ada@example.com"),
+                patient("not-an-email"),
+                patient("ada@example.com"),
+                patient("bob@example.com"),
+                patient("cy@example.com")).iterator());
+
+        assertThat(result.getRows()).extracting(PatientBulkRowResultDTO::getStatus)
+                .containsExactly(Status.CREATED, Status.INVALID, Status.DUPLICATE_EMAIL, Status.DUPLICATE_EMAIL, Status.CREATED);
+        assertThat(result.getRows().get(2).getMessage()).isEqualTo("Email appears more than once in this import");
+        assertThat(result.getRows().get(3).getMessage()).contains("exists");
+        assertThat(result.getTotal()).isEqualTo(5);
+        assertThat(result.getCreated()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(3);
+
+        // The in-chunk duplicate never reaches the database, and only the survivors are inserted in one batch
+        List<Patient> saved = savedInOneBatch();
+        assertThat(saved).extracting(Patient::getEmail).containsExactly("ada@example.com", "cy@example.com");
+        assertThat(result.getRows().get(0).getId()).isEqualTo(saved.get(0).getId().toString());
+        verify(patientEventOutbox).patientsCreated(saved);
+        verify(billingDispatcher).dispatchAll(saved);
+        verify(patientRepository, never()).save(any(Patient.class));
+    }
+
+    @Test
+    void aConstraintViolationInTheBatchRetriesTheChunkRowByRow()
+    {
+        // Another request inserted bob between the email lookup and the batch insert
+        when(patientRepository.saveAll(anyIterable())).thenThrow(new DataIntegrityViolationException("uk_patient_email"));
+        when(patientRepository.save(any(Patient.class))).thenAnswer(invocation -> {
+            Patient patient = invocation.getArgument(0);
+            switch (patient.getEmail())
+            {
+                case "bob@example.com" -> throw new DataIntegrityViolationException("uk_patient_email");
+                case "cy@example.com" -> throw new IllegalStateException("connection reset");
+                default -> patient.setId(UUID.randomUUID());
+            }
+            return patient;
+        });
+
+        PatientBulkResultDTO result = service(10).importPatients(List.of(
+                patient("ada@example.com"),
+                patient("bob@example.com"),
+                patient("cy@example.com"),
+                patient("dee@example.com")).iterator());
+
+        assertThat(result.getRows()).extracting(PatientBulkRowResultDTO::getStatus)
+                .containsExactly(Status.CREATED, Status.DUPLICATE_EMAIL, Status.FAILED, Status.CREATED);
+        assertThat(result.getRows().get(2).getMessage()).isEqualTo("connection reset");
+        assertThat(result.getCreated()).isEqualTo(2);
+
+        // Only the rows that committed get their events and billing accounts
+        ArgumentCaptor<Patient> created = ArgumentCaptor.forClass(Patient.class);
+        verify(patientEventOutbox, times(2)).patientCreated(created.capture());
+        assertThat(created.getAllValues()).extracting(Patient::getEmail).containsExactly("ada@example.com", "dee@example.com");
+        verify(patientEventOutbox, never()).patientsCreated(any());
+        verify(billingDispatcher).dispatchAll(created.getAllValues());
+    }
+
+    @Test
+    void unreadableInputStopsTheImportAfterTheRowsReadSoFar()
+    {
+        Iterator<PatientCreateDTO> input = failingAfter(List.of(
+                patient("ada@example.com"),
+                patient("bob@example.com"),
+                patient("cy@example.com")));
+
+        PatientBulkResultDTO result = service(2).importPatients(input);
+
+        assertThat(result.getRows()).extracting(PatientBulkRowResultDTO::getIndex).containsExactly(0, 1, 2, 3);
+        assertThat(result.getRows()).extracting(PatientBulkRowResultDTO::getStatus)
+                .containsExactly(Status.CREATED, Status.CREATED, Status.CREATED, Status.FAILED);
+        assertThat(result.getRows().get(3).getMessage()).isEqualTo("Unreadable input, import stopped here: Unexpected end of JSON input");
+        assertThat(result.getTotal()).isEqualTo(4);
+        assertThat(result.getCreated()).isEqualTo(3);
+        assertThat(result.getRejected()).isEqualTo(1);
+        // The full first chunk, then the partial one read before the failure
+        verify(billingDispatcher, times(2)).dispatchAll(any());
+    }
+
+    private PatientBulkImportService service(int chunkSize)
+    {
+        return new PatientBulkImportService(patientRepository, patientEventOutbox, billingDispatcher, patientNameIndex,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                mock(EntityManager.class),
+                chunkSize);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Patient> savedInOneBatch()
+    {
+        ArgumentCaptor<Iterable<Patient>> batch = ArgumentCaptor.forClass(Iterable.class);
+        verify(patientRepository).saveAll(batch.capture());
+        return (List<Patient>) batch.getValue();
+    }
+
+    private static PatientCreateDTO patient(String email)
+    {
+        return PatientCreateDTO.builder()
+                .name("Patient " + email)
+                .email(email)
+                .address("1 Main St")
+                .dateofBirth(LocalDate.of(1990, 5, 17))
+                .registeredDate(LocalDate.of(2024, 1, 1))
+                .build();
+    }
+
+    // Yields the given rows, then fails the way a truncated request body does
+    private static Iterator<PatientCreateDTO> failingAfter(List<PatientCreateDTO> rows)
+    {
+        Iterator<PatientCreateDTO> delegate = rows.iterator();
+        return new Iterator<>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return true;
+            }
+
+            @Override
+            public PatientCreateDTO next()
+            {
+                if (!delegate.hasNext())
+                {
+                    throw new IllegalStateException("Unexpected end of JSON input");
+                }
+                return delegate.next();
+            }
+        };
+    }
+}